@@ -13,6 +13,7 @@ import java.io.InputStream;
 import java.util.Properties;
 import java.io.IOException;
 import com.google.gson.Gson;
+import com.reply.solidsoft.nbs.integration.extensions.serialization.GsonProvider;
 import com.google.gson.stream.JsonReader;
 import java.io.FileReader;
 
@@ -31,7 +32,7 @@ public class Connection {
      */
     static {
         try (JsonReader reader = new JsonReader(new FileReader("appsettings.json"))) {
-            Gson serializer = new Gson();
+            Gson serializer = GsonProvider.getGson();
             String s = reader.toString();
             APP_CONFIG = (AppConfig) serializer.fromJson(reader, AppConfig.class);
         }
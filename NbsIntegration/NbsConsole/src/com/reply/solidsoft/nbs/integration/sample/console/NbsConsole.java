@@ -26,6 +26,7 @@ import java.util.function.Supplier;
 import java.net.URI;
 import java.net.URISyntaxException;
 import com.google.gson.Gson;
+import com.reply.solidsoft.nbs.integration.extensions.serialization.GsonProvider;
 import com.google.gson.stream.JsonReader;
 import com.reply.solidsoft.nbs.integration.model.RequestedPackState;
 import java.time.ZoneId;
@@ -226,7 +227,7 @@ public class NbsConsole {
     private static void commonErrorTests(ApiClient apiClient) {
         // deserialize JSON directly from a file
         try (JsonReader reader = new JsonReader(new FileReader("CommonError.json"))) {
-            Gson serializer = new Gson();
+            Gson serializer = GsonProvider.getGson();
             Packs packs = (Packs) serializer.fromJson(reader, Packs.class);
 
             packs.forEach((pack) -> {
@@ -243,7 +244,7 @@ public class NbsConsole {
     private static void verifyTests(ApiClient apiClient) {
         // deserialize JSON directly from a file
         try (JsonReader reader = new JsonReader(new FileReader("Verify.json"))) {
-            Gson serializer = new Gson();
+            Gson serializer = GsonProvider.getGson();
             Packs packs = (Packs) serializer.fromJson(reader, Packs.class);
 
             packs.forEach((pack) -> {
@@ -260,7 +261,7 @@ public class NbsConsole {
     private static void supplyTests(ApiClient apiClient) {
         // deserialize JSON directly from a file
         try (JsonReader reader = new JsonReader(new FileReader("Supply.json"))) {
-            Gson serializer = new Gson();
+            Gson serializer = GsonProvider.getGson();
             Packs packs = (Packs) serializer.fromJson(reader, Packs.class);
 
             packs.forEach((pack) -> {
@@ -277,7 +278,7 @@ public class NbsConsole {
     private static void decommissionTests(ApiClient apiClient) {
         // deserialize JSON directly from a file
         try (JsonReader reader = new JsonReader(new FileReader("Decommission.json"))) {
-            Gson serializer = new Gson();
+            Gson serializer = GsonProvider.getGson();
             PacksWithCommands packs = (PacksWithCommands) serializer.fromJson(reader, PacksWithCommands.class);
 
             packs.forEach((pack) -> {
@@ -294,7 +295,7 @@ public class NbsConsole {
     private static void reactivateTests(ApiClient apiClient) {
         // deserialize JSON directly from a file
         try (JsonReader reader = new JsonReader(new FileReader("Reactivate.json"))) {
-            Gson serializer = new Gson();
+            Gson serializer = GsonProvider.getGson();
             Packs packs = (Packs) serializer.fromJson(reader, Packs.class);
 
             packs.forEach((pack) -> {
@@ -504,7 +505,7 @@ public class NbsConsole {
     static PackIdentifier[] bulkVerifyTestPacks() {
         // deserialize JSON directly from a file
         try (JsonReader reader = new JsonReader(new FileReader("Verify.json"))) {
-            Gson serializer = new Gson();
+            Gson serializer = GsonProvider.getGson();
             Packs packs = (Packs) serializer.fromJson(reader, Packs.class);
             return packs.toArray(new PackIdentifier[packs.getCount()]);
         } catch (IOException ex) {
@@ -520,7 +521,7 @@ public class NbsConsole {
     static PackIdentifier[] bulkSupplyTestPacks() {
         // deserialize JSON directly from a file
         try (JsonReader reader = new JsonReader(new FileReader("Supply.json"))) {
-            Gson serializer = new Gson();
+            Gson serializer = GsonProvider.getGson();
             Packs packs = (Packs) serializer.fromJson(reader, Packs.class);
             return packs.toArray(new PackIdentifier[packs.getCount()]);
         } catch (IOException ex) {
@@ -536,7 +537,7 @@ public class NbsConsole {
     static PackIdentifier[] bulkDecommissionTestPacks() {
         // deserialize JSON directly from a file
         try (JsonReader reader = new JsonReader(new FileReader("Decommission.json"))) {
-            Gson serializer = new Gson();
+            Gson serializer = GsonProvider.getGson();
             Packs packs = (Packs) serializer.fromJson(reader, Packs.class);
             return packs.toArray(new PackIdentifier[packs.getCount()]);
         } catch (IOException ex) {
@@ -552,7 +553,7 @@ public class NbsConsole {
     static PackIdentifier[] bulkReactivateTestPacks() {
         // deserialize JSON directly from a file
         try (JsonReader reader = new JsonReader(new FileReader("Reactivate.json"))) {
-            Gson serializer = new Gson();
+            Gson serializer = GsonProvider.getGson();
             Packs packs = (Packs) serializer.fromJson(reader, Packs.class);
             return packs.toArray(new PackIdentifier[packs.getCount()]);
         } catch (IOException ex) {
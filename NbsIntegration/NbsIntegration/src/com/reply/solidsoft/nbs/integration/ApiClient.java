@@ -11,13 +11,24 @@
 package com.reply.solidsoft.nbs.integration;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
 import com.reply.solidsoft.nbs.integration.connection.ApiConnection;
+import com.reply.solidsoft.nbs.integration.connection.CircuitBreaker;
+import com.reply.solidsoft.nbs.integration.connection.CircuitBreakerState;
 import com.reply.solidsoft.nbs.integration.connection.NbsHttpClient;
+import com.reply.solidsoft.nbs.integration.connection.PackUriBuilder;
 import com.reply.solidsoft.nbs.integration.connection.TokenExpiredEventArgs;
 import com.reply.solidsoft.nbs.integration.data.TransactionManager;
 import com.reply.solidsoft.nbs.integration.extensions.MemoryCache;
 import com.reply.solidsoft.nbs.integration.extensions.RequestContext;
+import com.reply.solidsoft.nbs.integration.extensions.RetryScheduler;
+import com.reply.solidsoft.nbs.integration.extensions.functional.Action1;
+import com.reply.solidsoft.nbs.integration.extensions.serialization.ApiResultTypeAdapter;
+import com.reply.solidsoft.nbs.integration.extensions.serialization.GsonProvider;
+import com.reply.solidsoft.nbs.integration.extensions.serialization.RequestBodyCache;
 import com.reply.solidsoft.nbs.integration.logging.model.LogEntry;
+import com.reply.solidsoft.nbs.integration.logging.model.LogEntryBulkSummary;
 import com.reply.solidsoft.nbs.integration.logging.model.LogEntryCategory;
 import com.reply.solidsoft.nbs.integration.logging.model.LogEntryPackIdentifier;
 import com.reply.solidsoft.nbs.integration.logging.model.LogEntryRequest;
@@ -28,7 +39,6 @@ import com.reply.solidsoft.nbs.integration.model.DataEntryMode;
 import com.reply.solidsoft.nbs.integration.model.HttpStatusCode;
 import com.reply.solidsoft.nbs.integration.model.HttpVerb;
 import com.reply.solidsoft.nbs.integration.model.PackIdentifier;
-import com.reply.solidsoft.nbs.integration.model.PackStateTransitionCommand;
 import com.reply.solidsoft.nbs.integration.model.RecentRequestKey;
 import com.reply.solidsoft.nbs.integration.model.ReportedPackState;
 import com.reply.solidsoft.nbs.integration.model.RequestedPackState;
@@ -41,6 +51,7 @@ import com.reply.solidsoft.nbs.integration.model.requests.RequestType;
 import com.reply.solidsoft.nbs.integration.model.responses.ApiResult;
 import com.reply.solidsoft.nbs.integration.model.responses.BulkRequestAck;
 import com.reply.solidsoft.nbs.integration.model.responses.BulkRequestResults;
+import com.reply.solidsoft.nbs.integration.model.responses.BulkSinglePackResponse;
 import com.reply.solidsoft.nbs.integration.model.responses.LocalValidationResponse;
 import com.reply.solidsoft.nbs.integration.model.responses.RecoveryRequestAck;
 import com.reply.solidsoft.nbs.integration.model.responses.RecoveryRequestResults;
@@ -55,25 +66,35 @@ import com.reply.solidsoft.nbs.integration.recovery.model.DeferredRequest;
 import com.reply.solidsoft.nbs.integration.recovery.model.StoreAndForwardEventArgs;
 import com.reply.solidsoft.nbs.integration.recovery.model.StoreAndForwardMode;
 import java.io.IOException;
-import java.io.StringWriter;
+import java.io.InputStreamReader;
 import java.net.URI;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
-import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
-import java.util.function.Predicate;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
-import org.apache.commons.io.IOUtils;
 import org.apache.http.Header;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.ClientProtocolException;
-import org.apache.http.client.utils.URIBuilder;
-import org.apache.http.entity.StringEntity;
 import org.apache.http.message.BasicHeader;
+import org.apache.http.util.EntityUtils;
 import com.reply.solidsoft.nbs.integration.clientcredentials.ClientCredentialsService;
 import com.reply.solidsoft.nbs.integration.clientcredentials.model.ConnectionIdentifier;
 import com.reply.solidsoft.nbs.integration.configuration.NbsIntegrationConfiguration;
@@ -87,6 +108,13 @@ import com.reply.solidsoft.nbs.integration.recovery.StoreAndForwardService;
 /**
  * A client for the NBS API. The client uses a specific set of client
  * credentials.
+ * <p>
+ * Clients in the same process that use the same identity server, client
+ * credentials service instance and connection identifier share a bearer token
+ * and its background refresh. The token settings of the first such client,
+ * including the refresh skew and the token request timeouts, apply to all of
+ * them. Clients that must use different token settings should use different
+ * client credentials service instances.
  */
 public class ApiClient implements java.io.Closeable {
 
@@ -100,13 +128,41 @@ public class ApiClient implements java.io.Closeable {
      */
     private static final String ACCEPT_LANGUAGE = "accept-language";
 
+    /**
+     * The content type header sent with every request.
+     */
+    private static final Header CONTENT_TYPE_HEADER = new BasicHeader("Content-type", "application/json");
+
+    /**
+     * The EMVS Data Entry Mode header for manually entered pack data.
+     */
+    private static final Header MANUAL_DATA_ENTRY_MODE_HEADER = new BasicHeader(EMVS_DATA_ENTRY_MODE, "manual");
+
+    /**
+     * The EMVS Data Entry Mode header for scanned pack data.
+     */
+    private static final Header NON_MANUAL_DATA_ENTRY_MODE_HEADER = new BasicHeader(EMVS_DATA_ENTRY_MODE, "non-manual");
+
+    /**
+     * The number of retries while the identity server may still be starting
+     * after the National System has recovered.
+     */
+    private static final int IDENTITY_SERVER_RETRY_COUNT = 3;
+
+    /**
+     * The base retry interval in milliseconds while the identity server may
+     * still be starting after the National System has recovered.
+     */
+    private static final long IDENTITY_SERVER_RETRY_INTERVAL = 30000;
+
     /**
      * The context for store &amp; forward-based recovery.
      */
     private RecoveryHandlerContext recoveryHandlerContext;
 
     /**
-     * Lock for NBS HTTP client access.
+     * Lock for replacement of the NBS HTTP client. Requests do not take this
+     * lock, so many requests may be in flight concurrently.
      */
     private final Object clientLock = new Object();
 
@@ -120,6 +176,45 @@ public class ApiClient implements java.io.Closeable {
      */
     private MemoryCache<RecentRequestKey, SinglePackResult> repeatedRequestCache;
 
+    /**
+     * The single pack requests currently in flight, keyed by request. Identical
+     * requests made while a request is in flight share its result.
+     */
+    private final ConcurrentHashMap<RecentRequestKey, CompletableFuture<SinglePackResult>> inFlightRequests = new ConcurrentHashMap<>();
+
+    /**
+     * A short-lived cache of verify results, keyed by pack.
+     */
+    private VerifyResultCache verifyResultCache;
+
+    /**
+     * The bounded executor used to run asynchronous single pack requests.
+     */
+    private final ExecutorService asyncExecutor;
+
+    /**
+     * The executor used to run retries of both synchronous and asynchronous
+     * requests, so that retries never wait behind queued asynchronous
+     * requests.
+     */
+    private final ExecutorService retryExecutor;
+
+    /**
+     * A value indicating whether the client has been closed. No further
+     * retries are scheduled once the client is closed.
+     */
+    private volatile boolean isClosed;
+
+    /**
+     * The circuit breaker that drives off-line mode.
+     */
+    private final CircuitBreaker circuitBreaker;
+
+    /**
+     * Lock for changes to off-line mode.
+     */
+    private final Object offlineLock = new Object();
+
     /**
      * The log table in the logging service.
      */
@@ -141,15 +236,21 @@ public class ApiClient implements java.io.Closeable {
     private StoreAndForwardMode storeAndForwardMode = StoreAndForwardMode.AUTOMATIC;
 
     /**
-     * The NBS HTTP client.
+     * The NBS HTTP client. The reference is replaced atomically when the
+     * bearer token is renewed.
      */
-    private NbsHttpClient client;
+    private volatile NbsHttpClient client;
 
     /**
      * The request table in the store and forward data management service.
      */
     private TypedDataTable<DeferredRequest> requestTable;
 
+    /**
+     * Configuration data for the API client.
+     */
+    private NbsIntegrationConfiguration configuration;
+
     /**
      * A SAM for HTTP verbs.
      */
@@ -169,7 +270,7 @@ public class ApiClient implements java.io.Closeable {
          */
         public HttpResponse doRequest(
                 String uri,
-                StringEntity content,
+                HttpEntity content,
                 List<Header> headers) throws IOException;
     }
 
@@ -236,12 +337,17 @@ public class ApiClient implements java.io.Closeable {
             this.setIdentityServerUrl(configuration.getIdentityServerUrl());
             this.setRetryCount(configuration.getRetryCount());
             this.setRetryInterval(configuration.getRetryInterval());
+            this.setMaxRetryInterval(configuration.getMaxRetryInterval());
+            this.setRequestTimeout(configuration.getRequestTimeout());
             this.setMaxBulkPackCount(configuration.getMaxBulkPackCount());
             this.setStoreAndForwardBulkRequests(configuration.getStoreAndForwardBulkRequests());
+            this.setLogBulkPackDetails(configuration.getLogBulkPackDetails());
             this.setDetectRepeatedSinglePackRequests(configuration.getDetectRepeatedSinglePackRequests());
             this.setRepeatedSinglePackRequestsWindowInSeconds(configuration.getRepeatedSinglePackRequestsWindowInSeconds());
+            this.setVerifyResultCacheTimeToLiveInSeconds(configuration.getVerifyResultCacheTimeToLiveInSeconds());
         }
 
+        this.configuration = configuration;
         this.clientCredentialsService = clientCredentialsService;
 
         StoreAndForwardService contextStoreAndForwardService = null;
@@ -280,6 +386,34 @@ public class ApiClient implements java.io.Closeable {
                 600,
                 100);
 
+        this.verifyResultCache = new VerifyResultCache(this.getVerifyResultCacheTimeToLiveInSeconds());
+
+        int maxConcurrentAsyncRequests = configuration == null || configuration.getMaxConcurrentAsyncRequests() <= 0
+                ? 50
+                : configuration.getMaxConcurrentAsyncRequests();
+
+        this.asyncExecutor = createAsyncExecutor(
+                maxConcurrentAsyncRequests,
+                configuration == null || configuration.getMaxQueuedAsyncRequests() <= 0
+                ? 1000
+                : configuration.getMaxQueuedAsyncRequests());
+
+        this.retryExecutor = createRetryExecutor(maxConcurrentAsyncRequests);
+
+        this.circuitBreaker = new CircuitBreaker(
+                configuration == null ? 50 : configuration.getCircuitBreakerFailureRateThreshold(),
+                configuration == null ? 100 : configuration.getCircuitBreakerSlowCallRateThreshold(),
+                configuration == null || configuration.getCircuitBreakerSlowCallDurationThreshold() <= 0
+                ? 20000
+                : configuration.getCircuitBreakerSlowCallDurationThreshold(),
+                configuration == null || configuration.getCircuitBreakerSlidingWindowSize() <= 0
+                ? 10
+                : configuration.getCircuitBreakerSlidingWindowSize(),
+                configuration == null || configuration.getCircuitBreakerWaitDurationInOpenState() <= 0
+                ? 30000
+                : configuration.getCircuitBreakerWaitDurationInOpenState(),
+                this::circuitBreakerStateChanged);
+
         if (start) {
             this.start();
         }
@@ -369,7 +503,7 @@ public class ApiClient implements java.io.Closeable {
     /**
      * A value indicating whether the integration library is offline.
      */
-    private boolean isOffline;
+    private volatile boolean isOffline;
 
     /**
      * Gets a value indicating whether the integration library is offline.
@@ -482,6 +616,56 @@ public class ApiClient implements java.io.Closeable {
         retryInterval = value;
     }
 
+    /**
+     * The maximum retry interval.
+     */
+    private int maxRetryInterval = 60000;
+
+    /**
+     * Gets the maximum interval in milliseconds between retries. Retry
+     * intervals grow exponentially from the retry interval up to this value.
+     *
+     * @return The maximum retry interval.
+     */
+    public final int getMaxRetryInterval() {
+        return maxRetryInterval;
+    }
+
+    /**
+     * Sets the maximum interval in milliseconds between retries. Retry
+     * intervals grow exponentially from the retry interval up to this value.
+     *
+     * @param value The maximum retry interval.
+     */
+    public final void setMaxRetryInterval(int value) {
+        maxRetryInterval = value;
+    }
+
+    /**
+     * The request timeout.
+     */
+    private int requestTimeout = 120000;
+
+    /**
+     * Gets the time budget in milliseconds for a request, including all of
+     * its retries. A value of zero indicates that there is no time limit.
+     *
+     * @return The request timeout.
+     */
+    public final int getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    /**
+     * Sets the time budget in milliseconds for a request, including all of
+     * its retries. A value of zero indicates that there is no time limit.
+     *
+     * @param value The request timeout.
+     */
+    public final void setRequestTimeout(int value) {
+        requestTimeout = value;
+    }
+
     /**
      * The maximum number of packs allowed in a bulk request. This value is
      * ultimately dictated by the National System.
@@ -556,23 +740,54 @@ public class ApiClient implements java.io.Closeable {
         storeAndForwardBulkRequests = value;
     }
 
+    /**
+     * A value indicating whether the individual pack responses of bulk results
+     * are copied into log entries.
+     */
+    private boolean logBulkPackDetails;
+
+    /**
+     * Gets a value indicating whether the individual pack responses of bulk,
+     * recovery and results requests are copied into log entries.
+     * <p>
+     * By default, only a summary of the pack responses is logged.
+     *
+     * @return A value indicating whether individual pack responses are
+     * logged.
+     */
+    public final boolean getLogBulkPackDetails() {
+        return logBulkPackDetails;
+    }
+
+    /**
+     * Sets a value indicating whether the individual pack responses of bulk,
+     * recovery and results requests are copied into log entries.
+     * <p>
+     * By default, only a summary of the pack responses is logged.
+     *
+     * @param value A value indicating whether individual pack responses are
+     * logged.
+     */
+    public final void setLogBulkPackDetails(boolean value) {
+        logBulkPackDetails = value;
+    }
+
     /**
      * A value indicating whether the integration library will detect repeated
-     * decommission or reactivation requests for single packs over a configured
-     * period and prevent passing those requests to the National System.
+     * single pack requests over a configured period and prevent passing those
+     * requests to the National System.
      */
     private boolean detectRepeatedSinglePackRequests;
 
     /**
      * Gets a value indicating whether the integration library will detect
-     * repeated decommission or reactivation requests for single packs over a
-     * configured period and prevent passing those requests to the National
-     * System.
+     * repeated single pack requests over a configured period and prevent
+     * passing those requests to the National System. Identical requests made
+     * while a request is in flight share its result.
      *
      * @return A value indicating whether the integration library will detect
-     * repeated decommission or reactivation requests for single packs over a
-     * configured period and prevent passing those requests to the National
-     * System.
+     * repeated single pack requests over a configured period and prevent
+     * passing those requests to the National System.
      */
     public final boolean getDetectRepeatedSinglePackRequests() {
         return detectRepeatedSinglePackRequests;
@@ -580,14 +795,13 @@ public class ApiClient implements java.io.Closeable {
 
     /**
      * Sets a value indicating whether the integration library will detect
-     * repeated decommission or reactivation requests for single packs over a
-     * configured period and prevent passing those requests to the National
-     * System.
+     * repeated single pack requests over a configured period and prevent
+     * passing those requests to the National System. Identical requests made
+     * while a request is in flight share its result.
      *
      * @param value A value indicating whether the integration library will
-     * detect repeated decommission or reactivation requests for single packs
-     * over a configured period and prevent passing those requests to the
-     * National System.
+     * detect repeated single pack requests over a configured period and
+     * prevent passing those requests to the National System.
      */
     public final void setDetectRepeatedSinglePackRequests(boolean value) {
         detectRepeatedSinglePackRequests = value;
@@ -626,6 +840,37 @@ public class ApiClient implements java.io.Closeable {
         repeatedSinglePackRequestsWindowInSeconds = value;
     }
 
+    /**
+     * The number of seconds for which verify results are cached.
+     */
+    private int verifyResultCacheTimeToLiveInSeconds;
+
+    /**
+     * Gets the number of seconds for which the result of a verify request is
+     * cached. A cached result is discarded when a supply, decommission or
+     * reactivate request for the same pack succeeds. A value of zero disables
+     * the cache. The cache is created when the client is constructed, so
+     * changes made after construction only enable or disable it.
+     *
+     * @return The number of seconds for which verify results are cached.
+     */
+    public final int getVerifyResultCacheTimeToLiveInSeconds() {
+        return verifyResultCacheTimeToLiveInSeconds;
+    }
+
+    /**
+     * Sets the number of seconds for which the result of a verify request is
+     * cached. A cached result is discarded when a supply, decommission or
+     * reactivate request for the same pack succeeds. A value of zero disables
+     * the cache. The cache is created when the client is constructed, so
+     * changes made after construction only enable or disable it.
+     *
+     * @param value The number of seconds for which verify results are cached.
+     */
+    public final void setVerifyResultCacheTimeToLiveInSeconds(int value) {
+        verifyResultCacheTimeToLiveInSeconds = value;
+    }
+
     /**
      * The data entry mode.
      */
@@ -652,7 +897,7 @@ public class ApiClient implements java.io.Closeable {
     /**
      * A value indicating whether the client is started.
      */
-    private boolean isStarted;
+    private volatile boolean isStarted;
 
     /**
      * Gets a value indicating whether the client is started.
@@ -865,13 +1110,7 @@ public class ApiClient implements java.io.Closeable {
      * @return A request result from the national system.
      */
     public final SinglePackResult verify(PackIdentifier pack, Boolean isManual, String language) {
-        LogEntry logEntry = this.getSinglePackRequestLogEntry(pack);
-
-        try {
-            return this.doRequest(logEntry, HttpVerb.GET, pack, null, null, isManual, language, RequestType.VERIFY).singlePackResult();
-        } finally {
-            this.doLogging(logEntry);
-        }
+        return await(this.verifyRequest(pack, isManual, language));
     }
 
     /**
@@ -907,22 +1146,7 @@ public class ApiClient implements java.io.Closeable {
      * @return A request result from the national system.
      */
     public final SinglePackResult supply(PackIdentifier pack, Boolean isManual, String language) {
-        LogEntry logEntry = this.getSinglePackRequestLogEntry(pack);
-
-        try {
-            Gson gson = new Gson();
-            return this.doRequest(
-                    logEntry,
-                    HttpVerb.PATCH,
-                    pack,
-                    gson.toJson(new PackStateTransitionCommand(RequestedPackState.SUPPLIED)),
-                    RequestedPackState.SUPPLIED,
-                    isManual,
-                    language,
-                    RequestType.SUPPLY).singlePackResult();
-        } finally {
-            this.doLogging(logEntry);
-        }
+        return await(this.supplyRequest(pack, isManual, language));
     }
 
     /**
@@ -1000,48 +1224,7 @@ public class ApiClient implements java.io.Closeable {
      * @return A request result from the national system.
      */
     public final SinglePackResult decommission(PackIdentifier pack, RequestedPackState command, Boolean isManual, String language) {
-        LogEntry logEntry = this.getSinglePackRequestLogEntry(pack);
-        RecentRequestKey recentRequestKey = new RecentRequestKey(
-                pack,
-                command,
-                ((isManual != null) ? isManual : false)
-                        ? DataEntryMode.MANUAL
-                        : DataEntryMode.NON_MANUAL,
-                language);
-
-        // Record the request
-        if (this.getDetectRepeatedSinglePackRequests()) {
-            SinglePackResult result = this.repeatedRequestCache.get(recentRequestKey);
-
-            if (null != result) {
-                return result;
-            }
-        }
-
-        try {
-            Gson gson = new Gson();
-            SinglePackResult singlePackResult = this.doRequest(
-                    logEntry,
-                    HttpVerb.PATCH,
-                    pack,
-                    gson.toJson(new PackStateTransitionCommand(command)),
-                    command,
-                    isManual,
-                    language,
-                    RequestType.DECOMMISSION).singlePackResult();
-
-            if (this.getDetectRepeatedSinglePackRequests() && this.getRepeatedSinglePackRequestsWindowInSeconds() > 0) {
-                SinglePackResult result = this.repeatedRequestCache.get(recentRequestKey);
-
-                if (null == result) {
-                    this.repeatedRequestCache.put(recentRequestKey, singlePackResult);
-                }
-            }
-
-            return singlePackResult;
-        } finally {
-            this.doLogging(logEntry);
-        }
+        return await(this.decommissionRequest(pack, command, isManual, language));
     }
 
     /**
@@ -1074,48 +1257,160 @@ public class ApiClient implements java.io.Closeable {
      * @return A request result from the national system.
      */
     public final SinglePackResult reactivate(PackIdentifier pack, Boolean isManual, String language) {
-        LogEntry logEntry = this.getSinglePackRequestLogEntry(pack);
-        RecentRequestKey recentRequestKey = new RecentRequestKey(
-                pack,
-                RequestedPackState.ACTIVE,
-                ((isManual != null) ? isManual : false)
-                        ? DataEntryMode.MANUAL
-                        : DataEntryMode.NON_MANUAL,
-                language);
-
-        // Record the request
-        if (this.getDetectRepeatedSinglePackRequests()) {
-            SinglePackResult result = this.repeatedRequestCache.get(recentRequestKey);
+        return await(this.reactivateRequest(pack, isManual, language));
+    }
 
-            if (null != result) {
-                return result;
-            }
-        }
+    /**
+     * Verify a pack of medicine asynchronously.
+     *
+     * @param pack The pack.
+     * @return A future request result from the national system.
+     */
+    public final CompletableFuture<SinglePackResult> verifyAsync(PackIdentifier pack) {
+        return verifyAsync(pack, null, null);
+    }
 
-        try {
-            Gson gson = new Gson();
-            SinglePackResult singlePackResult = this.doRequest(
-                    logEntry,
-                    HttpVerb.PATCH,
-                    pack,
-                    gson.toJson(new PackStateTransitionCommand(RequestedPackState.ACTIVE)),
-                    RequestedPackState.ACTIVE,
-                    isManual,
-                    language,
-                    RequestType.REACTIVATE).singlePackResult();
+    /**
+     * Verify a pack of medicine asynchronously.
+     *
+     * @param pack The pack.
+     * @param isManual Indicates whether the data entry is manual or scanned.
+     * @return A future request result from the national system.
+     */
+    public final CompletableFuture<SinglePackResult> verifyAsync(PackIdentifier pack, Boolean isManual) {
+        return verifyAsync(pack, isManual, null);
+    }
 
-            if (this.getDetectRepeatedSinglePackRequests() && this.getRepeatedSinglePackRequestsWindowInSeconds() > 0) {
-                SinglePackResult result = this.repeatedRequestCache.get(recentRequestKey);
+    /**
+     * Verify a pack of medicine asynchronously.
+     *
+     * @param pack The pack.
+     * @param isManual Indicates whether the data entry is manual or scanned.
+     * @param language Selects a specific language for response messages.
+     * @return A future request result from the national system.
+     * @throws RejectedExecutionException Too many asynchronous requests are
+     * already waiting to be sent, or the client has been closed.
+     */
+    public final CompletableFuture<SinglePackResult> verifyAsync(PackIdentifier pack, Boolean isManual, String language) {
+        return CompletableFuture.supplyAsync(() -> this.verifyRequest(pack, isManual, language), this.asyncExecutor)
+                .thenCompose(future -> future);
+    }
 
-                if (null == result) {
-                    this.repeatedRequestCache.put(recentRequestKey, singlePackResult);
-                }
-            }
+    /**
+     * Decommission the unique identifier of a pack of medicine and mark it as
+     * supplied asynchronously.
+     *
+     * @param pack The pack.
+     * @return A future request result from the national system.
+     */
+    public final CompletableFuture<SinglePackResult> supplyAsync(PackIdentifier pack) {
+        return supplyAsync(pack, null, null);
+    }
 
-            return singlePackResult;
-        } finally {
-            this.doLogging(logEntry);
-        }
+    /**
+     * Decommission the unique identifier of a pack of medicine and mark it as
+     * supplied asynchronously.
+     *
+     * @param pack The pack.
+     * @param isManual Indicates whether the data entry is manual or scanned.
+     * @return A future request result from the national system.
+     */
+    public final CompletableFuture<SinglePackResult> supplyAsync(PackIdentifier pack, Boolean isManual) {
+        return supplyAsync(pack, isManual, null);
+    }
+
+    /**
+     * Decommission the unique identifier of a pack of medicine and mark it as
+     * supplied asynchronously.
+     *
+     * @param pack The pack.
+     * @param isManual Indicates whether the data entry is manual or scanned.
+     * @param language Selects a specific language for response messages.
+     * @return A future request result from the national system.
+     * @throws RejectedExecutionException Too many asynchronous requests are
+     * already waiting to be sent, or the client has been closed.
+     */
+    public final CompletableFuture<SinglePackResult> supplyAsync(PackIdentifier pack, Boolean isManual, String language) {
+        return CompletableFuture.supplyAsync(() -> this.supplyRequest(pack, isManual, language), this.asyncExecutor)
+                .thenCompose(future -> future);
+    }
+
+    /**
+     * Decommission the unique identifier for a pack of medicine
+     * asynchronously.
+     *
+     * @param pack The pack.
+     * @param command The requested pack state.
+     * @return A future request result from the national system.
+     */
+    public final CompletableFuture<SinglePackResult> decommissionAsync(PackIdentifier pack, RequestedPackState command) {
+        return decommissionAsync(pack, command, null, null);
+    }
+
+    /**
+     * Decommission the unique identifier for a pack of medicine
+     * asynchronously.
+     *
+     * @param pack The pack.
+     * @param command The requested pack state.
+     * @param isManual Indicates whether the data entry is manual or scanned.
+     * @return A future request result from the national system.
+     */
+    public final CompletableFuture<SinglePackResult> decommissionAsync(PackIdentifier pack, RequestedPackState command, Boolean isManual) {
+        return decommissionAsync(pack, command, isManual, null);
+    }
+
+    /**
+     * Decommission the unique identifier for a pack of medicine
+     * asynchronously.
+     *
+     * @param pack The pack.
+     * @param command The requested pack state.
+     * @param isManual Indicates whether the data entry is manual or scanned.
+     * @param language Selects a specific language for response messages.
+     * @return A future request result from the national system.
+     * @throws RejectedExecutionException Too many asynchronous requests are
+     * already waiting to be sent, or the client has been closed.
+     */
+    public final CompletableFuture<SinglePackResult> decommissionAsync(PackIdentifier pack, RequestedPackState command, Boolean isManual, String language) {
+        return CompletableFuture.supplyAsync(() -> this.decommissionRequest(pack, command, isManual, language), this.asyncExecutor)
+                .thenCompose(future -> future);
+    }
+
+    /**
+     * Reactivate the unique identifier for a pack of medicine asynchronously.
+     *
+     * @param pack The pack.
+     * @return A future request result from the national system.
+     */
+    public final CompletableFuture<SinglePackResult> reactivateAsync(PackIdentifier pack) {
+        return reactivateAsync(pack, null, null);
+    }
+
+    /**
+     * Reactivate the unique identifier for a pack of medicine asynchronously.
+     *
+     * @param pack The pack.
+     * @param isManual Indicates whether the data entry is manual or scanned.
+     * @return A future request result from the national system.
+     */
+    public final CompletableFuture<SinglePackResult> reactivateAsync(PackIdentifier pack, Boolean isManual) {
+        return reactivateAsync(pack, isManual, null);
+    }
+
+    /**
+     * Reactivate the unique identifier for a pack of medicine asynchronously.
+     *
+     * @param pack The pack.
+     * @param isManual Indicates whether the data entry is manual or scanned.
+     * @param language Selects a specific language for response messages.
+     * @return A future request result from the national system.
+     * @throws RejectedExecutionException Too many asynchronous requests are
+     * already waiting to be sent, or the client has been closed.
+     */
+    public final CompletableFuture<SinglePackResult> reactivateAsync(PackIdentifier pack, Boolean isManual, String language) {
+        return CompletableFuture.supplyAsync(() -> this.reactivateRequest(pack, isManual, language), this.asyncExecutor)
+                .thenCompose(future -> future);
     }
 
     /**
@@ -1151,7 +1446,7 @@ public class ApiClient implements java.io.Closeable {
         }
 
         try {
-            Gson gson = new Gson();
+            Gson gson = GsonProvider.getGson();
             return this.preprocessRequest(
                     logEntry,
                     HttpVerb.POST,
@@ -1190,10 +1485,29 @@ public class ApiClient implements java.io.Closeable {
      * specification string or the string could not be parsed.
      */
     public final BulkRequestResults getBulkResult(URI resultsUri, String language) throws MalformedURLException {
+        return getBulkResult(resultsUri, language, null);
+    }
+
+    /**
+     * Records the result of a previous bulk of pack request, optionally
+     * streaming each pack response to a handler as it is read. If a handler
+     * is provided, the packs of the returned result are empty, so that very
+     * large results need not be held in memory.
+     *
+     * @param resultsUri The location of the results resource.
+     * @param language Selects a specific language for response messages.
+     * @param packHandler The handler that is invoked for each pack response,
+     * or null to collect the packs in the result.
+     * @return A request result from the national system.
+     * @throws java.net.MalformedURLException Thrown to indicate that a
+     * malformed URL has occurred. Either no legal protocol could be found in a
+     * specification string or the string could not be parsed.
+     */
+    public final BulkRequestResults getBulkResult(URI resultsUri, String language, Action1<BulkSinglePackResponse> packHandler) throws MalformedURLException {
         LogEntry logEntry = this.getBulkResultsLogEntry(LogEntryCategory.BULK_PACK_RESULTS_REQUEST);
 
         try {
-            return this.preprocessRequest(
+            return await(this.preprocessRequestAsync(
                     logEntry,
                     HttpVerb.GET,
                     resultsUri.toURL().toString(),
@@ -1201,7 +1515,8 @@ public class ApiClient implements java.io.Closeable {
                     null,
                     null,
                     language,
-                    RequestType.GET_BULK_RESULT).bulkRequestResults();
+                    RequestType.GET_BULK_RESULT,
+                    packHandler)).bulkRequestResults();
         } finally {
             this.doLogging(logEntry);
         }
@@ -1239,7 +1554,7 @@ public class ApiClient implements java.io.Closeable {
         }
 
         try {
-            Gson gson = new Gson();
+            Gson gson = GsonProvider.getGson();
             return this.preprocessRequest(
                     logEntry,
                     HttpVerb.POST,
@@ -1305,10 +1620,12 @@ public class ApiClient implements java.io.Closeable {
         }
 
         synchronized (this.clientLock) {
+            if (this.getIsStarted()) {
+                return;
+            }
+
             this.client = new NbsHttpClient(
-                    new ApiConnection(
-                            this.getBaseUrl(),
-                            this.getIdentityServerUrl()),
+                    this.getApiConnection(),
                     this.loggingService,
                     this.getClientCredentialsService(),
                     this.getConnectionIdentifier(),
@@ -1338,12 +1655,26 @@ public class ApiClient implements java.io.Closeable {
     }
 
     /**
-     * Closes the API client
+     * Closes the API client. Retries that are already scheduled still run,
+     * and fail because the client is closed, so that their requests complete
+     * and are deferred in the normal way. No further retries are scheduled.
      */
     @Override
     public void close() throws java.io.IOException {
+        this.isClosed = true;
+        this.asyncExecutor.shutdown();
+
+        // The retry executor is not shut down, as a retry that is still waiting for its delay
+        // would then be rejected, and its caller would receive the rejection rather than a
+        // result. Its worker threads are daemon threads which time out once idle.
+        this.repeatedRequestCache.close();
+        this.verifyResultCache.close();
+
         synchronized (this.clientLock) {
-            this.client.close();
+            if (this.client != null) {
+                this.client.close();
+            }
+
             this.setIsStarted(false);
             this.client = null;
             this.recoveryHandlerContext.setIsCancellationRequested(true);
@@ -1364,20 +1695,408 @@ public class ApiClient implements java.io.Closeable {
     }
 
     /**
-     * Returns a new single pack request log entry.
+     * Creates the bounded executor used for asynchronous single pack requests.
+     * A fixed number of daemon worker threads shares the pooled HTTP client.
+     * Requests beyond that number are queued rather than given a thread each,
+     * and requests beyond the capacity of the queue are rejected.
      *
-     * @param pack The pack identifier.
-     * @return The LogEntry.
+     * @param maxConcurrentRequests The maximum number of concurrent requests.
+     * @param maxQueuedRequests The maximum number of queued requests.
+     * @return The executor service.
      */
-    private LogEntry getSinglePackRequestLogEntry(PackIdentifier pack) {
-        LogEntry logEntry = this.getLogEntry();
-        logEntry.setPack(new LogEntryPackIdentifier(pack));
-        logEntry.setEntryCategory(LogEntryCategory.SINGLE_PACK_REQUEST);
-        return logEntry;
+    private static ExecutorService createAsyncExecutor(int maxConcurrentRequests, int maxQueuedRequests) {
+        ThreadPoolExecutor executor = createExecutor(
+                "NbsAsyncRequest-",
+                maxConcurrentRequests,
+                new LinkedBlockingQueue<>(maxQueuedRequests));
+        executor.setRejectedExecutionHandler((runnable, rejectingExecutor) -> {
+            throw new RejectedExecutionException(rejectingExecutor.isShutdown()
+                    ? Resources.getApiClient_ClientNotStarted()
+                    : Resources.getApiClient_AsyncRequestQueueFull());
+        });
+        return executor;
     }
 
     /**
-     * Returns a new bulk pack log entry.
+     * Creates the executor used for retries. Its queue is not bounded, but
+     * each queued retry belongs to a request that is already in flight, so
+     * the number of retries is bounded by the callers and the asynchronous
+     * request queue.
+     *
+     * @param maxConcurrentRequests The maximum number of concurrent retries.
+     * @return The executor service.
+     */
+    private static ExecutorService createRetryExecutor(int maxConcurrentRequests) {
+        return createExecutor("NbsRequestRetry-", maxConcurrentRequests, new LinkedBlockingQueue<>());
+    }
+
+    /**
+     * Creates a fixed pool of daemon worker threads which time out when idle.
+     *
+     * @param threadNamePrefix The prefix of the names of the worker threads.
+     * @param maxThreads The number of worker threads.
+     * @param queue The queue of tasks waiting for a worker thread.
+     * @return The executor.
+     */
+    private static ThreadPoolExecutor createExecutor(String threadNamePrefix, int maxThreads, BlockingQueue<Runnable> queue) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                maxThreads,
+                maxThreads,
+                60L,
+                TimeUnit.SECONDS,
+                queue,
+                runnable -> {
+                    Thread thread = new Thread(runnable, threadNamePrefix + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Waits for a request to complete and returns its result. Runtime
+     * exceptions raised while processing the request are re-thrown unwrapped.
+     *
+     * @param <T> The type of the result.
+     * @param future The future result of the request.
+     * @return The result of the request.
+     */
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException exception) {
+            if (exception.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) exception.getCause();
+            }
+
+            if (exception.getCause() instanceof Error) {
+                throw (Error) exception.getCause();
+            }
+
+            throw exception;
+        }
+    }
+
+    /**
+     * Starts a request to verify a pack of medicine.
+     *
+     * @param pack The pack.
+     * @param isManual Indicates whether the data entry is manual or scanned.
+     * @param language Selects a specific language for response messages.
+     * @return A future request result from the national system.
+     */
+    private CompletableFuture<SinglePackResult> verifyRequest(PackIdentifier pack, Boolean isManual, String language) {
+        // Validation normalises the pack identifier, so it is done before any keys are built.
+        LocalValidationResponse validationResponse = PackIdentifierVerification.validate(pack, getDataEntryMode(isManual));
+        RecentRequestKey packKey = this.getVerifyResultCacheKey(pack, validationResponse);
+        String resultLanguage = (language != null) ? language : "";
+
+        if (null != packKey) {
+            SinglePackResult cachedResult = this.verifyResultCache.get(packKey, resultLanguage);
+
+            if (null != cachedResult) {
+                this.logCachedVerifyResult(pack, cachedResult);
+                return CompletableFuture.completedFuture(cachedResult);
+            }
+        }
+
+        // Verify results are cached separately, so that they can be invalidated when the pack changes state.
+        return this.coalesceRequest(
+                new RecentRequestKey(RequestType.VERIFY, pack, null, getDataEntryMode(isManual), language),
+                false,
+                () -> {
+                    LogEntry logEntry = this.getSinglePackRequestLogEntry(pack);
+                    long invalidations = this.verifyResultCache.getInvalidations();
+
+                    return this.doRequest(logEntry, validationResponse, HttpVerb.GET, pack, null, null, isManual, language, RequestType.VERIFY)
+                            .thenApply(apiResult -> this.verifyResultCache.record(packKey, resultLanguage, invalidations, apiResult.singlePackResult()))
+                            .whenComplete((result, exception) -> this.doLogging(logEntry));
+                });
+    }
+
+    /**
+     * Starts a request to decommission the unique identifier of a pack of
+     * medicine and mark it as supplied.
+     *
+     * @param pack The pack.
+     * @param isManual Indicates whether the data entry is manual or scanned.
+     * @param language Selects a specific language for response messages.
+     * @return A future request result from the national system.
+     */
+    private CompletableFuture<SinglePackResult> supplyRequest(PackIdentifier pack, Boolean isManual, String language) {
+        LocalValidationResponse validationResponse = PackIdentifierVerification.validate(pack, getDataEntryMode(isManual));
+        RecentRequestKey packKey = this.getVerifyResultCacheKey(pack, validationResponse);
+
+        return this.coalesceRequest(
+                new RecentRequestKey(RequestType.SUPPLY, pack, RequestedPackState.SUPPLIED, getDataEntryMode(isManual), language),
+                true,
+                () -> {
+                    LogEntry logEntry = this.getSinglePackRequestLogEntry(pack);
+
+                    return this.doRequest(
+                            logEntry,
+                            validationResponse,
+                            HttpVerb.PATCH,
+                            pack,
+                            RequestBodyCache.getCommandBody(RequestedPackState.SUPPLIED),
+                            RequestedPackState.SUPPLIED,
+                            isManual,
+                            language,
+                            RequestType.SUPPLY)
+                            .thenApply(apiResult -> this.verifyResultCache.invalidate(packKey, apiResult.singlePackResult()))
+                            .whenComplete((result, exception) -> this.doLogging(logEntry));
+                });
+    }
+
+    /**
+     * Starts a request to decommission the unique identifier for a pack of
+     * medicine.
+     *
+     * @param pack The pack.
+     * @param command The requested pack state.
+     * @param isManual Indicates whether the data entry is manual or scanned.
+     * @param language Selects a specific language for response messages.
+     * @return A future request result from the national system.
+     */
+    private CompletableFuture<SinglePackResult> decommissionRequest(PackIdentifier pack, RequestedPackState command, Boolean isManual, String language) {
+        LocalValidationResponse validationResponse = PackIdentifierVerification.validate(pack, getDataEntryMode(isManual));
+        RecentRequestKey packKey = this.getVerifyResultCacheKey(pack, validationResponse);
+
+        return this.coalesceRequest(
+                new RecentRequestKey(RequestType.DECOMMISSION, pack, command, getDataEntryMode(isManual), language),
+                true,
+                () -> {
+                    LogEntry logEntry = this.getSinglePackRequestLogEntry(pack);
+
+                    return this.doRequest(
+                            logEntry,
+                            validationResponse,
+                            HttpVerb.PATCH,
+                            pack,
+                            RequestBodyCache.getCommandBody(command),
+                            command,
+                            isManual,
+                            language,
+                            RequestType.DECOMMISSION)
+                            .thenApply(apiResult -> this.verifyResultCache.invalidate(packKey, apiResult.singlePackResult()))
+                            .whenComplete((result, exception) -> this.doLogging(logEntry));
+                });
+    }
+
+    /**
+     * Starts a request to reactivate the unique identifier for a pack of
+     * medicine.
+     *
+     * @param pack The pack.
+     * @param isManual Indicates whether the data entry is manual or scanned.
+     * @param language Selects a specific language for response messages.
+     * @return A future request result from the national system.
+     */
+    private CompletableFuture<SinglePackResult> reactivateRequest(PackIdentifier pack, Boolean isManual, String language) {
+        LocalValidationResponse validationResponse = PackIdentifierVerification.validate(pack, getDataEntryMode(isManual));
+        RecentRequestKey packKey = this.getVerifyResultCacheKey(pack, validationResponse);
+
+        return this.coalesceRequest(
+                new RecentRequestKey(RequestType.REACTIVATE, pack, RequestedPackState.ACTIVE, getDataEntryMode(isManual), language),
+                true,
+                () -> {
+                    LogEntry logEntry = this.getSinglePackRequestLogEntry(pack);
+
+                    return this.doRequest(
+                            logEntry,
+                            validationResponse,
+                            HttpVerb.PATCH,
+                            pack,
+                            RequestBodyCache.getCommandBody(RequestedPackState.ACTIVE),
+                            RequestedPackState.ACTIVE,
+                            isManual,
+                            language,
+                            RequestType.REACTIVATE)
+                            .thenApply(apiResult -> this.verifyResultCache.invalidate(packKey, apiResult.singlePackResult()))
+                            .whenComplete((result, exception) -> this.doLogging(logEntry));
+                });
+    }
+
+    /**
+     * Starts a single pack request, unless an identical request is in flight
+     * or has recently completed. When repeated requests are being detected,
+     * an identical request that is in flight is shared, and the result of a
+     * recently completed request is returned from the cache.
+     *
+     * @param recentRequestKey The key of the request.
+     * @param isResultRecorded Indicates whether the result of the request is
+     * recorded in the cache of recent requests.
+     * @param request Starts the request.
+     * @return A future request result from the national system.
+     */
+    private CompletableFuture<SinglePackResult> coalesceRequest(
+            RecentRequestKey recentRequestKey,
+            boolean isResultRecorded,
+            Supplier<CompletableFuture<SinglePackResult>> request) {
+        if (!this.getDetectRepeatedSinglePackRequests()) {
+            return request.get();
+        }
+
+        if (isResultRecorded) {
+            SinglePackResult result = this.repeatedRequestCache.get(recentRequestKey);
+
+            if (null != result) {
+                return CompletableFuture.completedFuture(result);
+            }
+        }
+
+        CompletableFuture<SinglePackResult> sharedRequest = new CompletableFuture<>();
+        CompletableFuture<SinglePackResult> inFlightRequest = this.inFlightRequests.putIfAbsent(recentRequestKey, sharedRequest);
+
+        if (null != inFlightRequest) {
+            // Callers receive a dependent future, so that no caller can complete or cancel the shared request.
+            return inFlightRequest.thenApply(singlePackResult -> singlePackResult);
+        }
+
+        CompletableFuture<SinglePackResult> startedRequest;
+
+        try {
+            startedRequest = request.get();
+        } catch (RuntimeException ex) {
+            this.inFlightRequests.remove(recentRequestKey, sharedRequest);
+            sharedRequest.completeExceptionally(ex);
+            throw ex;
+        }
+
+        startedRequest.whenComplete((singlePackResult, exception) -> {
+            if (null == exception && isResultRecorded) {
+                this.recordRepeatedRequest(recentRequestKey, singlePackResult);
+            }
+
+            this.inFlightRequests.remove(recentRequestKey, sharedRequest);
+
+            if (null == exception) {
+                sharedRequest.complete(singlePackResult);
+            } else {
+                sharedRequest.completeExceptionally(exception);
+            }
+        });
+
+        return sharedRequest.thenApply(singlePackResult -> singlePackResult);
+    }
+
+    /**
+     * Records the result of a single pack request so that repeated requests
+     * can be detected. Server errors, request timeouts and rate limiting
+     * responses are not recorded, so that a repeated request is passed to the
+     * National System again.
+     *
+     * @param recentRequestKey The key of the request.
+     * @param singlePackResult The result of the request.
+     * @return The result of the request.
+     */
+    private SinglePackResult recordRepeatedRequest(RecentRequestKey recentRequestKey, SinglePackResult singlePackResult) {
+        if (null != singlePackResult
+                && singlePackResult.getStatusCode() < 500
+                && singlePackResult.getStatusCode() != HttpStatusCode.SC_REQUEST_TIMEOUT
+                && singlePackResult.getStatusCode() != 429
+                && this.getDetectRepeatedSinglePackRequests()
+                && this.getRepeatedSinglePackRequestsWindowInSeconds() > 0) {
+            SinglePackResult result = this.repeatedRequestCache.get(recentRequestKey);
+
+            if (null == result) {
+                this.repeatedRequestCache.put(recentRequestKey, singlePackResult);
+            }
+        }
+
+        return singlePackResult;
+    }
+
+    /**
+     * Returns the key under which the verify result for a pack is cached. The
+     * pack must have been validated, so that identifiers of the same pack that
+     * are spelled differently share a key.
+     *
+     * @param pack The validated pack.
+     * @param validationResponse The result of validating the pack.
+     * @return The cache key, or null if verify results are not cached or the
+     * pack is invalid.
+     */
+    private RecentRequestKey getVerifyResultCacheKey(PackIdentifier pack, LocalValidationResponse validationResponse) {
+        return this.getVerifyResultCacheTimeToLiveInSeconds() > 0 && validationResponse.getOperationCode() <= 0
+                ? new RecentRequestKey(pack, null, null, null)
+                : null;
+    }
+
+    /**
+     * Logs a verify result that was returned from the cache.
+     *
+     * @param pack The pack.
+     * @param singlePackResult The cached result.
+     */
+    private void logCachedVerifyResult(PackIdentifier pack, SinglePackResult singlePackResult) {
+        LogEntry logEntry = this.getSinglePackRequestLogEntry(pack);
+        LogEntryResponse logEntryResponse = new LogEntryResponse();
+        logEntryResponse.setStatusCode(singlePackResult.getStatusCode());
+        logEntryResponse.setOperationCode(singlePackResult.getOperationCode());
+        logEntryResponse.setState(singlePackResult.getState() == null ? null : singlePackResult.getState().getValue());
+        logEntryResponse.setInformation(singlePackResult.getInformation());
+        logEntryResponse.setWarning(singlePackResult.getWarning());
+        logEntryResponse.setUprc(singlePackResult.getUprc());
+        logEntry.setMessage(Resources.getLogging_VerifyResultReturnedFromCache());
+        logEntry.setUprc(singlePackResult.getUprc());
+        logEntry.setResponse(logEntryResponse);
+        this.doLogging(logEntry);
+    }
+
+    /**
+     * Returns the data entry mode for a request.
+     *
+     * @param isManual Indicates whether the data entry is manual or scanned.
+     * @return The data entry mode.
+     */
+    private static DataEntryMode getDataEntryMode(Boolean isManual) {
+        return ((isManual != null) ? isManual : false)
+                ? DataEntryMode.MANUAL
+                : DataEntryMode.NON_MANUAL;
+    }
+
+    /**
+     * Returns the connection data for connecting to the National System.
+     *
+     * @return The connection data for connecting to the National System.
+     */
+    private ApiConnection getApiConnection() {
+        ApiConnection apiConnection = new ApiConnection(
+                this.getBaseUrl(),
+                this.getIdentityServerUrl());
+
+        if (this.configuration != null) {
+            apiConnection.setMaxTotalConnections(this.configuration.getMaxTotalConnections());
+            apiConnection.setMaxConnectionsPerRoute(this.configuration.getMaxConnectionsPerRoute());
+            apiConnection.setKeepAliveDuration(this.configuration.getKeepAliveDuration());
+            apiConnection.setIdleConnectionTimeout(this.configuration.getIdleConnectionTimeout());
+            apiConnection.setValidateAfterInactivity(this.configuration.getValidateAfterInactivity());
+            apiConnection.setTokenRefreshSkew(this.configuration.getTokenRefreshSkew());
+            apiConnection.setMaxTokenConnections(this.configuration.getMaxTokenConnections());
+            apiConnection.setTokenRequestTimeout(this.configuration.getTokenRequestTimeout());
+        }
+
+        return apiConnection;
+    }
+
+    /**
+     * Returns a new single pack request log entry.
+     *
+     * @param pack The pack identifier.
+     * @return The LogEntry.
+     */
+    private LogEntry getSinglePackRequestLogEntry(PackIdentifier pack) {
+        LogEntry logEntry = this.getLogEntry();
+        logEntry.setPack(new LogEntryPackIdentifier(pack));
+        logEntry.setEntryCategory(LogEntryCategory.SINGLE_PACK_REQUEST);
+        return logEntry;
+    }
+
+    /**
+     * Returns a new bulk pack log entry.
      *
      * @param category the log entry category
      * @return The LogEntry.
@@ -1418,7 +2137,7 @@ public class ApiClient implements java.io.Closeable {
      * @return The LogEntry.
      */
     private LogEntry getLogEntry() {
-        LogEntry logEntry = new LogEntry(this.logTable.getCurrentTimestamp());
+        LogEntry logEntry = new LogEntry(this.logTable.getSequenceTimestamp());
         logEntry.setUser(this.loggingService.getCurrentUser());
         logEntry.setId(UUID.randomUUID().toString());
         logEntry.setTime(Instant.now());
@@ -1460,6 +2179,7 @@ public class ApiClient implements java.io.Closeable {
      * Processes an API request.
      *
      * @param logEntry The current log entry
+     * @param validationResponse The result of validating the pack.
      * @param verb The HTTP verb required for this request.
      * @param pack The pack.
      * @param body The content that will be passed in the body of the request.
@@ -1468,10 +2188,11 @@ public class ApiClient implements java.io.Closeable {
      * @param isManual Indicates whether the data entry is manual or scanned.
      * @param language Selects a specific language for response messages.
      * @param requestType The API request type.
-     * @return A request result from the National System.
+     * @return A future request result from the National System.
      */
-    private ApiResult doRequest(
+    private CompletableFuture<ApiResult> doRequest(
             NbsIntegrationLogEntry logEntry,
+            LocalValidationResponse validationResponse,
             HttpVerb verb,
             PackIdentifier pack,
             String body,
@@ -1479,31 +2200,13 @@ public class ApiClient implements java.io.Closeable {
             Boolean isManual,
             String language,
             RequestType requestType) {
-        // Validate the request
-        LocalValidationResponse validationResponse = PackIdentifierVerification
-                .validate(
-                        pack,
-                        (isManual == null ? false : isManual)
-                                ? DataEntryMode.MANUAL
-                                : DataEntryMode.NON_MANUAL);
-
         if (validationResponse.getOperationCode() > 0) {
             // The pack has failed validation
-            return new ApiResult(validationResponse);
+            return CompletableFuture.completedFuture(new ApiResult(validationResponse));
         }
 
-        URIBuilder uriBuilder = new URIBuilder();
-        NbsHttpClient.buildOptionalParametersQueryString(
-                uriBuilder,
-                pack.getBatchId(),
-                pack.getExpiryDate());
-        String uri = String.format(
-                "product/%1$s/%2$s/pack/%3$s%4$s",
-                pack.getProductCodeScheme().toLowerCase(),
-                pack.getProductCode(),
-                pack.getSerialNumber(),
-                uriBuilder.toString());
-        return this.preprocessRequest(
+        String uri = PackUriBuilder.build(pack);
+        return this.preprocessRequestAsync(
                 logEntry,
                 verb,
                 uri,
@@ -1511,7 +2214,8 @@ public class ApiClient implements java.io.Closeable {
                 requestedState,
                 isManual,
                 language,
-                requestType);
+                requestType,
+                null);
     }
 
     /**
@@ -1617,7 +2321,6 @@ public class ApiClient implements java.io.Closeable {
      * @param requestType The API request type.
      * @return A request result from the National System.
      */
-    @SuppressWarnings("null")
     private ApiResult preprocessRequest(
             NbsIntegrationLogEntry logEntry,
             HttpVerb verb,
@@ -1627,6 +2330,46 @@ public class ApiClient implements java.io.Closeable {
             Boolean isManual,
             String language,
             RequestType requestType) {
+        return await(this.preprocessRequestAsync(
+                logEntry,
+                verb,
+                uri,
+                body,
+                requestedState,
+                isManual,
+                language,
+                requestType,
+                null));
+    }
+
+    /**
+     * Preprocess and start an API request. The first attempt is made on the
+     * calling thread. Any retries are scheduled without blocking a thread.
+     *
+     * @param logEntry The current log entry.
+     * @param verb The HTTP verb required for this request.
+     * @param uri The URI for the requested resource.
+     * @param body The content that will be passed in the body of the request.
+     * @param requestedState The desired state to which the pack should be
+     * transitioned.
+     * @param isManual Indicates whether the data entry is manual or scanned.
+     * @param language Selects a specific language for response messages.
+     * @param requestType The API request type.
+     * @param packHandler An optional handler to which the pack responses of a
+     * bulk result are streamed, rather than being collected in the result.
+     * @return A future request result from the National System.
+     */
+    @SuppressWarnings("null")
+    private CompletableFuture<ApiResult> preprocessRequestAsync(
+            NbsIntegrationLogEntry logEntry,
+            HttpVerb verb,
+            String uri,
+            String body,
+            RequestedPackState requestedState,
+            Boolean isManual,
+            String language,
+            RequestType requestType,
+            Action1<BulkSinglePackResponse> packHandler) {
         if (!this.getIsStarted()) {
             ApiResult notStartedResult = new ApiResult(
                     ReportedPackState.NONE,
@@ -1639,7 +2382,7 @@ public class ApiClient implements java.io.Closeable {
             logEntry.setEntryType(LogEntryType.WARNING);
             logEntry.setResponse(new LogEntryResponse(notStartedResult));
 
-            return notStartedResult;
+            return CompletableFuture.completedFuture(notStartedResult);
         }
 
         // Populate the log entry
@@ -1673,35 +2416,16 @@ public class ApiClient implements java.io.Closeable {
             logEntry.setEntryType(LogEntryType.WARNING);
             logEntry.setResponse(new LogEntryResponse(unsupportedVerbResult));
 
-            return unsupportedVerbResult;
+            return CompletableFuture.completedFuture(unsupportedVerbResult);
         }
 
-        // Defne predicates for header manipulation.
-        Predicate<Header> predicateEmvsDataEntryMode
-                = h -> (h.getName() == null ? EMVS_DATA_ENTRY_MODE == null : h.getName().equals(EMVS_DATA_ENTRY_MODE));
-        Predicate<Header> predicateAcceptLanguage
-                = h -> (h.getName() == null ? ACCEPT_LANGUAGE == null : h.getName().equals(ACCEPT_LANGUAGE));
-
-        if (((this.getDataEntryMode() == DataEntryMode.MANUAL) && ((isManual == null) ? false : !isManual.equals(false)))
-                || ((this.getDataEntryMode() == DataEntryMode.NON_MANUAL) && ((isManual == null) ? false : isManual.equals(true)))) {
-            this.client.getDefaultRequestHeaders().removeIf(predicateEmvsDataEntryMode);
-            this.client.getDefaultRequestHeaders().add(new BasicHeader(EMVS_DATA_ENTRY_MODE, "manual"));
-        }
-
-        this.client.getDefaultRequestHeaders().removeIf(predicateAcceptLanguage);
-
-        if (com.reply.solidsoft.nbs.integration.extensions.StringExtensions.isNullOrWhiteSpace(language)) {
-            if (!com.reply.solidsoft.nbs.integration.extensions.StringExtensions.isNullOrWhiteSpace(this.getLanguage())) {
-                this.client.getDefaultRequestHeaders().add(new BasicHeader(ACCEPT_LANGUAGE, this.getLanguage()));
-            }
-        } else {
-            this.client.getDefaultRequestHeaders().add(new BasicHeader(ACCEPT_LANGUAGE, language));
-        }
+        // The headers are built once for this request and are never shared with other requests.
+        List<Header> headers = this.getRequestHeaders(isManual, language);
 
         DeferredRequest deferredRequest = null;
 
         if (this.getStoreAndForwardMode() != StoreAndForwardMode.NONE && this.requestTable != null) {
-            deferredRequest = new DeferredRequest(this.requestTable.getCurrentTimestamp());
+            deferredRequest = new DeferredRequest(this.requestTable.getSequenceTimestamp());
             deferredRequest.setVerb(verb.getValue());
             deferredRequest.setUri(uri);
             deferredRequest.setBody(body);
@@ -1710,37 +2434,31 @@ public class ApiClient implements java.io.Closeable {
             deferredRequest.setLanguage(language);
         }
 
-        try {
-            return this.performRequest(logEntry, requestType, httpVerbMethod, uri, body, deferredRequest);
-        } finally {
-            this.client.getDefaultRequestHeaders().removeIf(predicateEmvsDataEntryMode);
-            this.client.getDefaultRequestHeaders().add(new BasicHeader(EMVS_DATA_ENTRY_MODE, "non-manual"));
-        }
+        return this.performRequest(logEntry, requestType, httpVerbMethod, uri, body, headers, deferredRequest, packHandler);
     }
 
     /**
-     * Performs a pre-processed API request.
+     * Builds the immutable set of HTTP headers for a single request.
      *
-     * @param logEntry The current log entry.
-     * @param requestType The API request type.
-     * @param httpVerbMethod The method required for the given HTTP verb.
-     * @param uri The URI for the requested resource.
-     * @param body The content that will be passed in the body of the request.
-     * @return A request result from the National System.
-     */
-    private ApiResult performRequest(
-            NbsIntegrationLogEntry logEntry,
-            RequestType requestType,
-            Verb httpVerbMethod,
-            String uri,
-            String body) {
-        return performRequest(
-                logEntry,
-                requestType,
-                httpVerbMethod,
-                uri,
-                body,
-                null);
+     * @param isManual Indicates whether the data entry is manual or scanned.
+     * @param language Selects a specific language for response messages.
+     * @return An immutable list of HTTP headers.
+     */
+    private List<Header> getRequestHeaders(Boolean isManual, String language) {
+        String requestLanguage = com.reply.solidsoft.nbs.integration.extensions.StringExtensions.isNullOrWhiteSpace(language)
+                ? this.getLanguage()
+                : language;
+        List<Header> headers = new ArrayList<>(3);
+        headers.add(CONTENT_TYPE_HEADER);
+        headers.add(Boolean.TRUE.equals(isManual)
+                ? MANUAL_DATA_ENTRY_MODE_HEADER
+                : NON_MANUAL_DATA_ENTRY_MODE_HEADER);
+
+        if (!com.reply.solidsoft.nbs.integration.extensions.StringExtensions.isNullOrWhiteSpace(requestLanguage)) {
+            headers.add(new BasicHeader(ACCEPT_LANGUAGE, requestLanguage));
+        }
+
+        return Collections.unmodifiableList(headers);
     }
 
     /**
@@ -1748,19 +2466,26 @@ public class ApiClient implements java.io.Closeable {
      * is unavailable.
      *
      * @param requestContext Context data for the request.
+     * @return A processed result from the API, or null if the request is to be
+     * retried.
      */
-    private void unavailableServiceResponseProcessing(RequestContext requestContext) {
+    private ApiResult unavailableServiceResponseProcessing(RequestContext requestContext) {
         if (requestContext.getResponse().getStatusLine().getStatusCode()
                 == HttpStatusCode.SC_SERVICE_UNAVAILABLE) {
             requestContext.setMessage(
                     String.format("%1$s", Resources.getApiClient_ServiceUnavailableWarning()));
         }
 
-        if (requestContext.getRemainingAttempts() == 0) {
-            this.defaultResponseProcessing(requestContext);
+        requestContext.setRemainingAttempts(requestContext.getRemainingAttempts() - 1);
+
+        // Once the circuit has opened, the request is deferred rather than retried.
+        if (requestContext.getRemainingAttempts() > 0
+                && this.circuitBreaker.getState() == CircuitBreakerState.CLOSED
+                && this.scheduleRetry(requestContext, this.getRetryInterval())) {
+            return null;
         }
 
-        requestContext.setRemainingAttempts(requestContext.getRemainingAttempts() - 1);
+        return this.defaultResponseProcessing(requestContext);
     }
 
     /**
@@ -1801,73 +2526,142 @@ public class ApiClient implements java.io.Closeable {
      * @param httpVerbMethod The method required for the given HTTP verb.
      * @param uri The URI for the requested resource.
      * @param body The content that will be passed in the body of the request.
+     * @param headers The HTTP headers for the request.
      * @param deferredRequest The deferred request.
-     * @return A request result from the National System.
+     * @param packHandler An optional handler to which the pack responses of a
+     * bulk result are streamed.
+     * @return A future request result from the National System.
      */
-    @SuppressWarnings("SleepWhileInLoop")
-    private ApiResult performRequest(
+    private CompletableFuture<ApiResult> performRequest(
             NbsIntegrationLogEntry logEntry,
             RequestType requestType,
             Verb httpVerbMethod,
             String uri,
             String body,
-            DeferredRequest deferredRequest) {
-        HttpResponse response = null;
-        int remainingAttempts = this.getRetryCount() < 1 ? 1 : this.getRetryCount() + 1;
-        String message = "";
-        StringEntity content = new StringEntity((body != null) ? body : "", "UTF-8");
-        List<Header> headers = new ArrayList<>();
-        headers.add(new BasicHeader("Content-type", "application/json"));
-
-        while (remainingAttempts > 0) {
-            try {
-                if (!this.getIsOffline() || requestType == RequestType.SUBMIT_RECOVERY_REQUEST) {
-                    logEntry.setRequest(new LogEntryRequest());
-                    logEntry.getRequest().setUri(uri);
-                    logEntry.getRequest().setBody(body);
-                    response = httpVerbMethod.doRequest(uri, content, headers);
+            List<Header> headers,
+            DeferredRequest deferredRequest,
+            Action1<BulkSinglePackResponse> packHandler) {
+        RequestContext requestContext = new RequestContext();
+        requestContext.setRequestType(requestType);
+        requestContext.setDeferredRequest(deferredRequest);
+        requestContext.setPackHandler(packHandler);
+        requestContext.setMessage("");
+        requestContext.setLogEntry(logEntry);
+        requestContext.setRemainingAttempts(this.getRetryCount() < 1 ? 1 : this.getRetryCount() + 1);
+        requestContext.setRemainingRecoveryAttempts(IDENTITY_SERVER_RETRY_COUNT);
+        requestContext.setDeadline(RetryScheduler.getDeadline(this.getRequestTimeout()));
+        HttpEntity content = RequestBodyCache.getEntity(body);
 
-                    // The identity server may still be starting after the National System
-                    // has recovered.
-                    @SuppressWarnings("LocalVariableHidesMemberVariable")
-                    int retryCount = 3;
-                    final int RetryIntervalMilliseconds = 30000;
+        return this.performAttempt(requestContext, httpVerbMethod, uri, body, content, headers);
+    }
 
-                    while (((response == null ? HttpStatusCode.SC_NOTDEFINED : response.getStatusLine().getStatusCode()) == HttpStatusCode.SC_UNAUTHORIZED) && retryCount > 0) {
-                        Thread.sleep(RetryIntervalMilliseconds);
+    /**
+     * Performs an attempt of a pre-processed API request. If the attempt must
+     * be retried, the next attempt is scheduled on the retry executor rather
+     * than blocking the current thread.
+     *
+     * @param requestContext Context data for the request.
+     * @param httpVerbMethod The method required for the given HTTP verb.
+     * @param uri The URI for the requested resource.
+     * @param body The content that will be passed in the body of the request.
+     * @param content The request body entity.
+     * @param headers The HTTP headers for the request.
+     * @return A future request result from the National System.
+     */
+    private CompletableFuture<ApiResult> performAttempt(
+            RequestContext requestContext,
+            Verb httpVerbMethod,
+            String uri,
+            String body,
+            HttpEntity content,
+            List<Header> headers) {
+        ApiResult result;
 
-                        // The token may have expired.  Create a new NBS HTTP client and retry.
-                        this.tokenExpired(this, this.client.getTokenExpiredEventArgs());
-                        response = httpVerbMethod.doRequest(uri, content, headers);
-                        retryCount--;
-                    }
-                } else {
-                    message = Resources.getApiClient_Offline();
+        try {
+            result = this.attemptRequest(requestContext, httpVerbMethod, uri, body, content, headers);
+        } catch (RuntimeException exception) {
+            CompletableFuture<ApiResult> failedResult = new CompletableFuture<>();
+            failedResult.completeExceptionally(exception);
+            return failedResult;
+        }
 
-                    this.deferRequest(requestType, deferredRequest, message, new ClientProtocolException(message));
+        if (result != null) {
+            return CompletableFuture.completedFuture(result);
+        }
 
-                    ApiResult offlineResult = new ApiResult(
-                            ReportedPackState.NONE,
-                            requestType,
-                            true,
-                            message
-                    );
+        NbsHttpClient currentClient = this.client;
+
+        if (requestContext.getIsTokenRenewalRequired() && currentClient != null) {
+            // Concurrent unauthorized requests share a single renewal and retry as soon as it completes.
+            requestContext.setIsTokenRenewalRequired(false);
+
+            return currentClient.renewTokenAsync(requestContext.getBearerToken())
+                    .thenComposeAsync(isRenewed -> isRenewed
+                            ? this.performAttempt(requestContext, httpVerbMethod, uri, body, content, headers)
+                            : RetryScheduler.schedule(
+                                    requestContext.getRetryDelay(),
+                                    this.retryExecutor,
+                                    () -> this.performAttempt(requestContext, httpVerbMethod, uri, body, content, headers)),
+                            this.retryExecutor);
+        }
+
+        return RetryScheduler.schedule(
+                requestContext.getRetryDelay(),
+                this.retryExecutor,
+                () -> this.performAttempt(requestContext, httpVerbMethod, uri, body, content, headers));
+    }
+
+    /**
+     * Makes a single attempt of a pre-processed API request.
+     *
+     * @param requestContext Context data for the request.
+     * @param httpVerbMethod The method required for the given HTTP verb.
+     * @param uri The URI for the requested resource.
+     * @param body The content that will be passed in the body of the request.
+     * @param content The request body entity.
+     * @param headers The HTTP headers for the request.
+     * @return A request result from the National System, or null if the
+     * request is to be retried after the delay recorded in the request context.
+     */
+    private ApiResult attemptRequest(
+            RequestContext requestContext,
+            Verb httpVerbMethod,
+            String uri,
+            String body,
+            HttpEntity content,
+            List<Header> headers) {
+        NbsIntegrationLogEntry logEntry = requestContext.getLogEntry();
+        RequestType requestType = requestContext.getRequestType();
+        DeferredRequest deferredRequest = requestContext.getDeferredRequest();
+        HttpResponse response = null;
+        String message = requestContext.getMessage();
+        requestContext.setAttempt(requestContext.getAttempt() + 1);
+
+        try {
+            long permission = this.circuitBreaker.tryAcquirePermission();
+
+            // Recovery requests are always passed on, as they test whether the National System has recovered.
+            // Their outcomes are only recorded when they are admitted by the circuit breaker.
+            if (permission != CircuitBreaker.NO_PERMISSION || requestType == RequestType.SUBMIT_RECOVERY_REQUEST) {
+                logEntry.setRequest(new LogEntryRequest());
+                logEntry.getRequest().setUri(uri);
+                logEntry.getRequest().setBody(body);
 
-                    logEntry.setMessage(message);
-                    logEntry.setEntryType(LogEntryType.WARNING);
-                    logEntry.setResponse(new LogEntryResponse(offlineResult));
-                    return offlineResult;
+                try {
+                    requestContext.setBearerToken(this.getCurrentClient().getBearerToken());
+                } catch (IOException | RuntimeException ex) {
+                    // Release the permission, or a half-open circuit would wait for the probe indefinitely.
+                    this.circuitBreaker.onIgnored(permission);
+                    throw ex;
                 }
-            } catch (IOException | InterruptedException ioEx) {
-                message = ioEx.getMessage();
-                this.deferRequest(requestType, deferredRequest, message, ioEx);
-                logEntry.setEntryType(LogEntryType.ERROR);
-            }
 
-            if (response == null) {
-                // Replace any arbitrary whitespace regions with single space.
-                message = message.replaceAll("\\s+", " ");
-                ApiResult result = new ApiResult(
+                response = this.doCircuitBreakerRequest(permission, httpVerbMethod, uri, content, headers);
+            } else {
+                message = Resources.getApiClient_Offline();
+
+                this.deferRequest(requestType, deferredRequest, message, new ClientProtocolException(message));
+
+                ApiResult offlineResult = new ApiResult(
                         ReportedPackState.NONE,
                         requestType,
                         true,
@@ -1875,163 +2669,317 @@ public class ApiClient implements java.io.Closeable {
                 );
 
                 logEntry.setMessage(message);
-                logEntry.setEntryType(
-                        logEntry.getEntryType() == LogEntryType.INFORMATION
-                        ? LogEntryType.WARNING
-                        : logEntry.getEntryType());
-                logEntry.setResponse(new LogEntryResponse(result));
-                return result;
+                logEntry.setEntryType(LogEntryType.WARNING);
+                logEntry.setResponse(new LogEntryResponse(offlineResult));
+                return offlineResult;
             }
+        } catch (IOException ioEx) {
+            message = ioEx.getMessage();
+            this.deferRequest(requestType, deferredRequest, message, ioEx);
+            logEntry.setEntryType(LogEntryType.ERROR);
+        }
 
-            int delay = this.getRetryInterval();
-
-            RequestContext requestContext = new RequestContext();
-            requestContext.setRequestType(requestType);
-            requestContext.setDeferredRequest(deferredRequest);
-            requestContext.setResponse(response);
-            requestContext.setMessage(message);
-            requestContext.setLogEntry(logEntry);
-
-            switch (response.getStatusLine().getStatusCode()) {
-                case HttpStatusCode.SC_NOT_FOUND:
-                    if (requestType == RequestType.GET_RECOVERY_RESULT) {
-                        // The identity server may still be starting after the National System
-                        // has recovered.
-                        remainingAttempts = 3;
-                        delay = 30000;
-                        break;
-                    }
+        if (response == null) {
+            // Replace any arbitrary whitespace regions with single space.
+            message = message == null ? "" : message.replaceAll("\\s+", " ");
+            ApiResult result = new ApiResult(
+                    ReportedPackState.NONE,
+                    requestType,
+                    true,
+                    message
+            );
 
-                    message = Resources.getApiClient_CheckUriMessage();
-                case HttpStatusCode.SC_OK:
-                case HttpStatusCode.SC_ACCEPTED:
-                case HttpStatusCode.SC_UNPROCESSABLE_ENTITY:
-                case HttpStatusCode.SC_CONFLICT:
-                case HttpStatusCode.SC_FORBIDDEN:
-                    Gson gson = new Gson();
-                    ApiResult result = null;
-                    try (StringWriter writer = new StringWriter()) {
-                        IOUtils.copy(response.getEntity().getContent(), writer, Charset.forName("UTF-8"));
-                        String jsonContent = writer.toString();
-                        result = gson.fromJson(jsonContent, ApiResult.class);
-                    } catch (IOException ex) {
-                        String e = ex.getMessage();
-                        // ignore;
+            logEntry.setMessage(message);
+            logEntry.setEntryType(
+                    logEntry.getEntryType() == LogEntryType.INFORMATION
+                    ? LogEntryType.WARNING
+                    : logEntry.getEntryType());
+            logEntry.setResponse(new LogEntryResponse(result));
+            return result;
+        }
+
+        requestContext.setResponse(response);
+        requestContext.setMessage(message);
+        ApiResult processedResult = null;
+
+        switch (response.getStatusLine().getStatusCode()) {
+            case HttpStatusCode.SC_NOT_FOUND:
+                if (requestType == RequestType.GET_RECOVERY_RESULT && this.scheduleRecoveryRetry(requestContext)) {
+                    // The identity server may still be starting after the National System
+                    // has recovered.
+                    break;
+                }
+
+                message = Resources.getApiClient_CheckUriMessage();
+            case HttpStatusCode.SC_OK:
+            case HttpStatusCode.SC_ACCEPTED:
+            case HttpStatusCode.SC_UNPROCESSABLE_ENTITY:
+            case HttpStatusCode.SC_CONFLICT:
+            case HttpStatusCode.SC_FORBIDDEN:
+                Gson gson = GsonProvider.getGson();
+                ApiResult result = null;
+                Action1<BulkSinglePackResponse> packHandler = requestContext.getPackHandler();
+                LogEntryBulkSummary streamedSummary = packHandler == null
+                        ? null
+                        : new LogEntryBulkSummary();
+
+                // Decode the response as it is read from the entity, without buffering the body.
+                try (JsonReader reader = new JsonReader(new InputStreamReader(response.getEntity().getContent(), StandardCharsets.UTF_8))) {
+                    result = packHandler == null
+                            ? gson.fromJson(reader, ApiResult.class)
+                            : new ApiResultTypeAdapter(gson).read(reader, pack -> {
+                                // Streamed packs are summarised as they pass through.
+                                streamedSummary.add(pack);
+                                packHandler.invoke(pack);
+                            });
+                } catch (IOException | JsonParseException ex) {
+                    if (streamedSummary != null && streamedSummary.getPackCount() > 0) {
+                        // The handler has already received some packs, so the caller must be told that
+                        // the bulk result is incomplete, rather than that no result could be read.
+                        message = String.format("%1$s  %2$s", Resources.getApiClient_StreamedBulkResultIncomplete(), ex.getMessage()).trim();
+                        logEntry.setEntryType(LogEntryType.WARNING);
                     }
+                } finally {
+                    EntityUtils.consumeQuietly(response.getEntity());
+                }
 
-                    if (result == null) {
-                        ApiResult nullResult = new ApiResult(
-                                ReportedPackState.NONE,
-                                requestType,
-                                response,
-                                true,
-                                String.format("%1$s: %2$s  %3$s", (int) response.getStatusLine().getStatusCode(), response.getStatusLine().getReasonPhrase(), message).trim());
-                        logEntry.setMessage(com.reply.solidsoft.nbs.integration.extensions.StringExtensions.isNullOrWhiteSpace(nullResult.getInformation()) ? nullResult.getWarning() : nullResult.getInformation());
-                        logEntry.setResponse(new LogEntryResponse(nullResult));
-                        return nullResult;
+                if (result == null) {
+                    ApiResult nullResult = new ApiResult(
+                            ReportedPackState.NONE,
+                            requestType,
+                            response,
+                            true,
+                            String.format("%1$s: %2$s  %3$s", (int) response.getStatusLine().getStatusCode(), response.getStatusLine().getReasonPhrase(), message).trim());
+                    logEntry.setMessage(com.reply.solidsoft.nbs.integration.extensions.StringExtensions.isNullOrWhiteSpace(nullResult.getInformation()) ? nullResult.getWarning() : nullResult.getInformation());
+                    LogEntryResponse nullLogEntryResponse = new LogEntryResponse(nullResult);
+
+                    if (streamedSummary != null && streamedSummary.getPackCount() > 0) {
+                        nullLogEntryResponse.setBulkSummary(streamedSummary);
                     }
 
-                    result.setStatusCode(response.getStatusLine().getStatusCode());
+                    logEntry.setResponse(nullLogEntryResponse);
+                    return nullResult;
+                }
+
+                result.setStatusCode(response.getStatusLine().getStatusCode());
 
-                    try {
-                        Header locationHeader = response.getFirstHeader("Location");
-                        if (null != locationHeader) {
-                            result.setLocation(new URI(locationHeader.getValue()));
-                        }
-                    } catch (URISyntaxException uriEx) {
-                        // ignore;
+                try {
+                    Header locationHeader = response.getFirstHeader("Location");
+                    if (null != locationHeader) {
+                        result.setLocation(new URI(locationHeader.getValue()));
                     }
+                } catch (URISyntaxException uriEx) {
+                    // ignore;
+                }
+
+                logEntry.setMessage(
+                        com.reply.solidsoft.nbs.integration.extensions.StringExtensions
+                                .isNullOrWhiteSpace(result.getInformation())
+                        ? result.getWarning()
+                        : result.getInformation());
+                logEntry.setUprc(result.getUprc());
+                LogEntryResponse logEntryResponse = new LogEntryResponse(result, this.getLogBulkPackDetails());
+
+                if (streamedSummary != null) {
+                    // Streamed packs are not held in the result, whose pack array is empty.
+                    logEntryResponse.setBulkSummary(streamedSummary);
+                }
 
-                    logEntry.setMessage(
-                            com.reply.solidsoft.nbs.integration.extensions.StringExtensions
-                                    .isNullOrWhiteSpace(result.getInformation())
-                            ? result.getWarning()
-                            : result.getInformation());
-                    logEntry.setUprc(result.getUprc());
-                    logEntry.setResponse(new LogEntryResponse(result));
-
-                    // If a response was returned from the National System, switch to on-line mode if required.
-                    if (!this.getIsOffline()) {
-                        return result;
+                logEntry.setResponse(logEntryResponse);
+                return result;
+            case HttpStatusCode.SC_UNAUTHORIZED:
+                if (requestContext.getRemainingRecoveryAttempts() > 0) {
+                    // The token may have expired.  It is renewed, and the request is retried as soon as
+                    // renewal completes.  The deadline only limits the delay used if renewal fails, as
+                    // the identity server may still be starting after the National System has recovered.
+                    requestContext.setRemainingRecoveryAttempts(requestContext.getRemainingRecoveryAttempts() - 1);
+
+                    if (!this.scheduleRetry(requestContext, IDENTITY_SERVER_RETRY_INTERVAL)) {
+                        // If renewal fails, the request is retried at once, and completes with the response.
+                        requestContext.setRetryDelay(0);
                     }
 
-                    this.setIsOffline(false);
-                    // Invoke each event listener.
-                    this.offLineModeChanged.listeners().forEach((listener)
-                            -> listener.invoke(this, new OffLineEventArgs(false)));
-                    return result;
-                case HttpStatusCode.SC_UNAUTHORIZED:
-                    Header aggregatedHeader = Arrays.asList(
-                            response.getHeaders("WWW-Authenticate")).stream().reduce((current, header) -> {
-                        return new BasicHeader(current.getName(), current.getValue() + String.format("%1$s;", header));
-                    }).get();
-                    message = String.format("%1$s  %2$s", Resources.getApiClient_UnauthorizedWarning(), aggregatedHeader.getValue().trim());
-                    requestContext.setMessage(message);
-                    this.defaultResponseProcessing(requestContext);
-                    break;
-                case HttpStatusCode.SC_GATEWAY_TIMEOUT:
-                    message = String.format("%1$s", Resources.getApiClient_GatewayTimeoutWarning());
-                    requestContext.setMessage(message);
-                    requestContext.setRemainingAttempts(remainingAttempts);
-                    this.unavailableServiceResponseProcessing(requestContext);
-                    remainingAttempts = requestContext.getRemainingAttempts();
-                    break;
-                case HttpStatusCode.SC_REQUEST_TIMEOUT:
-                    message = String.format("%1$s", Resources.getApiClient_RequestTimeoutWarning());
-                    requestContext.setMessage(message);
-                    requestContext.setRemainingAttempts(remainingAttempts);
-                    this.unavailableServiceResponseProcessing(requestContext);
-                    remainingAttempts = requestContext.getRemainingAttempts();
-                    break;
-                case HttpStatusCode.SC_BAD_GATEWAY:
-                    message = String.format("%1$s", Resources.getApiClient_BadGatewayWarning());
-                    requestContext.setMessage(message);
-                    requestContext.setRemainingAttempts(remainingAttempts);
-                    this.unavailableServiceResponseProcessing(requestContext);
-                    remainingAttempts = requestContext.getRemainingAttempts();
-                    break;
-                case HttpStatusCode.SC_INTERNAL_SERVER_ERROR:
-                    message = String.format("%1$s", Resources.getApiClient_InternalServerErrorWarning());
-                    requestContext.setMessage(message);
-                    //int[] xxx = new intremainingAttempts
-                    requestContext.setRemainingAttempts(remainingAttempts);
-                    this.unavailableServiceResponseProcessing(requestContext);
-                    remainingAttempts = requestContext.getRemainingAttempts();
+                    requestContext.setIsTokenRenewalRequired(true);
                     break;
-                case 429:
-                    message = String.format("%1$s", Resources.getApiClient_TooManyRequests());
-                    requestContext.setMessage(message);
-                    requestContext.setRemainingAttempts(remainingAttempts);
-                    this.unavailableServiceResponseProcessing(requestContext);
-                    remainingAttempts = requestContext.getRemainingAttempts();
-                    break;
-                case HttpStatusCode.SC_SERVICE_UNAVAILABLE:
-                    message = String.format("%1$s", Resources.getApiClient_ServiceUnavailableWarning());
-                    requestContext.setMessage(message);
-                    requestContext.setRemainingAttempts(remainingAttempts);
-                    this.unavailableServiceResponseProcessing(requestContext);
-                    remainingAttempts = requestContext.getRemainingAttempts();
-                    break;
-                default:
-                    this.defaultResponseProcessing(requestContext);
-                    break;
-            }
-
-            if (remainingAttempts > 0) {
-                try {
-                    Thread.sleep(delay);
-                } catch (InterruptedException exception) {
-                    message = exception.getMessage();
-                    logEntry.setEntryType(LogEntryType.ERROR);
                 }
+
+                String authenticate = Arrays.asList(
+                        response.getHeaders("WWW-Authenticate")).stream().reduce((current, header) -> {
+                    return new BasicHeader(current.getName(), current.getValue() + String.format("%1$s;", header));
+                }).map(Header::getValue).orElse("");
+                message = String.format("%1$s  %2$s", Resources.getApiClient_UnauthorizedWarning(), authenticate.trim()).trim();
+                requestContext.setMessage(message);
+                processedResult = this.defaultResponseProcessing(requestContext);
+                break;
+            case HttpStatusCode.SC_GATEWAY_TIMEOUT:
+                message = String.format("%1$s", Resources.getApiClient_GatewayTimeoutWarning());
+                requestContext.setMessage(message);
+                processedResult = this.unavailableServiceResponseProcessing(requestContext);
+                break;
+            case HttpStatusCode.SC_REQUEST_TIMEOUT:
+                message = String.format("%1$s", Resources.getApiClient_RequestTimeoutWarning());
+                requestContext.setMessage(message);
+                processedResult = this.unavailableServiceResponseProcessing(requestContext);
+                break;
+            case HttpStatusCode.SC_BAD_GATEWAY:
+                message = String.format("%1$s", Resources.getApiClient_BadGatewayWarning());
+                requestContext.setMessage(message);
+                processedResult = this.unavailableServiceResponseProcessing(requestContext);
+                break;
+            case HttpStatusCode.SC_INTERNAL_SERVER_ERROR:
+                message = String.format("%1$s", Resources.getApiClient_InternalServerErrorWarning());
+                requestContext.setMessage(message);
+                processedResult = this.unavailableServiceResponseProcessing(requestContext);
+                break;
+            case 429:
+                message = String.format("%1$s", Resources.getApiClient_TooManyRequests());
+                requestContext.setMessage(message);
+                processedResult = this.unavailableServiceResponseProcessing(requestContext);
+                break;
+            case HttpStatusCode.SC_SERVICE_UNAVAILABLE:
+                message = String.format("%1$s", Resources.getApiClient_ServiceUnavailableWarning());
+                requestContext.setMessage(message);
+                processedResult = this.unavailableServiceResponseProcessing(requestContext);
+                break;
+            default:
+                processedResult = this.defaultResponseProcessing(requestContext);
+                break;
+        }
+
+        // Release the pooled connection.
+        EntityUtils.consumeQuietly(response.getEntity());
+        return processedResult;
+    }
+
+    /**
+     * Performs an HTTP request and records its outcome with the circuit
+     * breaker. Transport failures and responses indicating that the National
+     * System is unavailable are recorded as failures. Any other response is
+     * recorded as a success. Requests made without a permission from the
+     * circuit breaker are not recorded.
+     *
+     * @param permission The permission granted by the circuit breaker, or
+     * NO_PERMISSION.
+     * @param httpVerbMethod The method required for the given HTTP verb.
+     * @param uri The URI for the requested resource.
+     * @param content The request body entity.
+     * @param headers The HTTP headers for the request.
+     * @return An HTTP response.
+     * @throws IOException The National System could not be reached.
+     */
+    private HttpResponse doCircuitBreakerRequest(
+            long permission,
+            Verb httpVerbMethod,
+            String uri,
+            HttpEntity content,
+            List<Header> headers) throws IOException {
+        if (permission == CircuitBreaker.NO_PERMISSION) {
+            return httpVerbMethod.doRequest(uri, content, headers);
+        }
+
+        long startTime = CircuitBreaker.currentTime();
+        HttpResponse response;
+
+        try {
+            response = httpVerbMethod.doRequest(uri, content, headers);
+        } catch (IOException exception) {
+            this.circuitBreaker.onFailure(permission, CircuitBreaker.currentTime() - startTime);
+            throw exception;
+        } catch (RuntimeException exception) {
+            this.circuitBreaker.onIgnored(permission);
+            throw exception;
+        }
+
+        long duration = CircuitBreaker.currentTime() - startTime;
+
+        switch (response == null ? HttpStatusCode.SC_NOTDEFINED : response.getStatusLine().getStatusCode()) {
+            case HttpStatusCode.SC_NOTDEFINED:
+            case HttpStatusCode.SC_REQUEST_TIMEOUT:
+            case 429:
+            case HttpStatusCode.SC_INTERNAL_SERVER_ERROR:
+            case HttpStatusCode.SC_BAD_GATEWAY:
+            case HttpStatusCode.SC_SERVICE_UNAVAILABLE:
+            case HttpStatusCode.SC_GATEWAY_TIMEOUT:
+                this.circuitBreaker.onFailure(permission, duration);
+                break;
+            default:
+                this.circuitBreaker.onSuccess(permission, duration);
+                break;
+        }
+
+        return response;
+    }
+
+    /**
+     * Handles state changes of the circuit breaker by switching between
+     * on-line and off-line mode. The library is off-line while the circuit is
+     * open or half-open.
+     *
+     * @param previousState The previous state of the circuit.
+     * @param newState The new state of the circuit.
+     */
+    private void circuitBreakerStateChanged(CircuitBreakerState previousState, CircuitBreakerState newState) {
+        boolean isNowOffline;
+
+        synchronized (this.offlineLock) {
+            isNowOffline = this.circuitBreaker.getState() != CircuitBreakerState.CLOSED;
+
+            if (isNowOffline == this.getIsOffline()) {
+                return;
             }
+
+            this.setIsOffline(isNowOffline);
         }
 
-        ApiResult finalResult = new ApiResult(ReportedPackState.NONE, requestType, response, true);
-        logEntry.setMessage(message);
-        logEntry.setEntryType(LogEntryType.WARNING);
-        logEntry.setResponse(new LogEntryResponse(finalResult));
-        return finalResult;
+        // Invoke each event listener.
+        this.offLineModeChanged.listeners().forEach((listener)
+                -> listener.invoke(this, new OffLineEventArgs(isNowOffline)));
+    }
+
+    /**
+     * Schedules a retry while the identity server may still be starting after
+     * the National System has recovered.
+     *
+     * @param requestContext Context data for the request.
+     * @return True if a retry has been scheduled; otherwise false.
+     */
+    private boolean scheduleRecoveryRetry(RequestContext requestContext) {
+        if (requestContext.getRemainingRecoveryAttempts() <= 0
+                || !this.scheduleRetry(requestContext, IDENTITY_SERVER_RETRY_INTERVAL)) {
+            return false;
+        }
+
+        requestContext.setRemainingRecoveryAttempts(requestContext.getRemainingRecoveryAttempts() - 1);
+        return true;
+    }
+
+    /**
+     * Calculates the delay before the next attempt of a request and records it
+     * in the request context.
+     *
+     * @param requestContext Context data for the request.
+     * @param baseDelay The delay in milliseconds before the first retry.
+     * @return True if the request can be retried within its deadline;
+     * otherwise false.
+     */
+    private boolean scheduleRetry(RequestContext requestContext, long baseDelay) {
+        if (this.isClosed) {
+            return false;
+        }
+
+        long delay = RetryScheduler.getDelay(
+                requestContext.getAttempt(),
+                baseDelay,
+                Math.max(this.getMaxRetryInterval(), baseDelay),
+                requestContext.getResponse(),
+                requestContext.getDeadline());
+
+        if (delay < 0) {
+            return false;
+        }
+
+        requestContext.setRetryDelay(delay);
+        return true;
     }
 
     /**
@@ -2044,17 +2992,7 @@ public class ApiClient implements java.io.Closeable {
      * @param innerException The inner exception, if it exists.
      */
     private void deferRequest(RequestType requestType, DeferredRequest request, String message, Exception innerException) {
-        // This method is only called if all attempts to reach the National System have failed.
-        // Hence, off-line mode is entered here.
-        if (!this.getIsOffline()) {
-            this.setIsOffline(true);
-
-            // Invoke each event listener.
-            this.offLineModeChanged.listeners().forEach((listener) -> {
-                listener.invoke(this, new OffLineEventArgs(true));
-            });
-        }
-
+        // Off-line mode is driven by the circuit breaker, not by individual deferred requests.
         if (this.getStoreAndForwardMode() == StoreAndForwardMode.NONE
                 || requestType == RequestType.SUBMIT_RECOVERY_REQUEST
                 || requestType == RequestType.GET_BULK_RESULT
@@ -2075,7 +3013,7 @@ public class ApiClient implements java.io.Closeable {
 
         if (requestType == RequestType.SUBMIT_BULK_REQUEST) {
             // Break the request into separate single pack requests
-            Gson gson = new Gson();
+            Gson gson = GsonProvider.getGson();
             BulkRequest bulkRequest = gson.fromJson(request.getBody(), BulkRequest.class);
 
             if (!this.getStoreAndForwardBulkRequests() || bulkRequest == null) {
@@ -2084,30 +3022,20 @@ public class ApiClient implements java.io.Closeable {
 
             for (PackIdentifier pack : bulkRequest.getPacks()) {
                 String body = "";
-                URIBuilder uriBuilder = new URIBuilder();
-                NbsHttpClient.buildOptionalParametersQueryString(
-                        uriBuilder,
-                        pack.getBatchId(),
-                        pack.getExpiryDate());
-                String uri = String.format(
-                        "product/%1$s/%2$s/pack/%3$s%4$s",
-                        pack.getProductCodeScheme().toLowerCase(),
-                        pack.getProductCode(),
-                        pack.getSerialNumber(),
-                        uriBuilder.toString());
+                String uri = PackUriBuilder.build(pack);
                 String verb = "Get";
 
                 if (!com.reply.solidsoft.nbs.integration.extensions.StringExtensions.isNullOrWhiteSpace(bulkRequest.getState())) {
                     try {
                         RequestedPackState state = RequestedPackState.valueOf(bulkRequest.getState());
                         verb = "Patch";
-                        body = gson.toJson(new PackStateTransitionCommand(state));
+                        body = RequestBodyCache.getCommandBody(state);
                     } catch (Throwable ex) {
                         // ignore;
                     }
                 }
 
-                DeferredRequest deferredRequest = new DeferredRequest(this.requestTable.getCurrentTimestamp());
+                DeferredRequest deferredRequest = new DeferredRequest(this.requestTable.getSequenceTimestamp());
                 deferredRequest.setBody(body);
                 deferredRequest.setLanguage(request.getLanguage());
                 deferredRequest.setIsManual(request.getIsManual());
@@ -2165,11 +3093,9 @@ public class ApiClient implements java.io.Closeable {
      */
     private HttpResponse doGet(
             String uri,
-            StringEntity content,
+            HttpEntity content,
             List<Header> headers) throws IOException {
-        synchronized (this.clientLock) {
-            return this.client.get(uri, headers);
-        }
+        return this.getCurrentClient().get(uri, headers);
     }
 
     /**
@@ -2183,11 +3109,9 @@ public class ApiClient implements java.io.Closeable {
      */
     private HttpResponse doPatch(
             String uri,
-            StringEntity content,
+            HttpEntity content,
             List<Header> headers) throws IOException {
-        synchronized (this.clientLock) {
-            return this.client.patch(uri, content, headers);
-        }
+        return this.getCurrentClient().patch(uri, content, headers);
     }
 
     /**
@@ -2201,32 +3125,41 @@ public class ApiClient implements java.io.Closeable {
      */
     private HttpResponse doPost(
             String uri,
-            StringEntity content,
+            HttpEntity content,
             List<Header> headers) throws IOException {
-        synchronized (this.clientLock) {
-            return this.client.post(uri, content, headers);
+        return this.getCurrentClient().post(uri, content, headers);
+    }
+
+    /**
+     * Gets the current NBS HTTP client.
+     *
+     * @return The current NBS HTTP client.
+     * @throws IOException The client has been closed.
+     */
+    private NbsHttpClient getCurrentClient() throws IOException {
+        NbsHttpClient currentClient = this.client;
+
+        if (currentClient == null) {
+            throw new IOException(Resources.getApiClient_ClientNotStarted());
         }
+
+        return currentClient;
     }
 
     /**
-     * The token has expired. Create a new NBS HTTP client.
+     * The token has expired and could not be refreshed in the background.
+     * The NBS HTTP client keeps retrying the refresh, and requests rejected
+     * as unauthorized renew the token before they are retried, so the client
+     * is no longer rebuilt.
      *
      * @param sender The sender.
      * @param eventArgs The event arguments.
      */
     private void tokenExpired(Object sender, TokenExpiredEventArgs eventArgs) {
-        // Renew the HTTP client.
-        synchronized (this.clientLock) {
-            this.client = new NbsHttpClient(
-                    new ApiConnection(this.getBaseUrl(),
-                            this.getIdentityServerUrl()),
-                    this.loggingService,
-                    this.getClientCredentialsService(),
-                    this.getConnectionIdentifier(),
-                    this::tokenExpired,
-                    this.getIsLogging(),
-                    eventArgs == null ? null : eventArgs.getRefreshToken());
-        }
+        LogEntry logEntry = this.getLogEntry();
+        logEntry.setEntryType(LogEntryType.WARNING);
+        logEntry.setMessage(Resources.getLogging_RequestBearerTokenFailed());
+        this.doLogging(logEntry);
     }
 
     /**
@@ -0,0 +1,176 @@
+/**
+ * -----------------------------------------------------------------------------
+ * File=VerifyResultCache.java
+ * Company=Solidsoft Reply
+ * Copyright © 2017 Solidsoft Reply Ltd.
+ *
+ * A short-lived cache of verify results.
+ * -----------------------------------------------------------------------------
+ */
+package com.reply.solidsoft.nbs.integration;
+
+import com.reply.solidsoft.nbs.integration.extensions.MemoryCache;
+import com.reply.solidsoft.nbs.integration.model.HttpStatusCode;
+import com.reply.solidsoft.nbs.integration.model.RecentRequestKey;
+import com.reply.solidsoft.nbs.integration.model.responses.SinglePackResult;
+import java.io.Closeable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A short-lived cache of verify results, keyed by pack. A cached result is
+ * discarded when a request to change the state of the pack succeeds. A verify
+ * result is only cached if no pack changed state while the verify request was
+ * in flight, so a result fetched before a state change is never cached after
+ * it.
+ */
+final class VerifyResultCache implements Closeable {
+
+    /**
+     * The cached verify results, keyed by pack.
+     */
+    private final MemoryCache<RecentRequestKey, CachedVerifyResult> cache;
+
+    /**
+     * The time in seconds for which a verify result is cached.
+     */
+    private final int timeToLiveInSeconds;
+
+    /**
+     * The number of times that cached verify results have been invalidated.
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * Initializes a new instance of the VerifyResultCache class.
+     *
+     * @param timeToLiveInSeconds The time in seconds for which a verify result
+     * is cached.
+     */
+    VerifyResultCache(int timeToLiveInSeconds) {
+        this.timeToLiveInSeconds = timeToLiveInSeconds;
+        this.cache = new MemoryCache<>(timeToLiveInSeconds, 60, 1000);
+    }
+
+    /**
+     * Gets the cached verify result for a pack.
+     *
+     * @param packKey The cache key of the pack.
+     * @param language The language of the response messages.
+     * @return The cached result, or null if no result in the requested
+     * language was fetched within the time to live.
+     */
+    SinglePackResult get(RecentRequestKey packKey, String language) {
+        CachedVerifyResult cachedResult = this.cache.get(packKey);
+
+        // The cache refreshes entries when they are read, so the age of the result is checked separately.
+        return null != cachedResult
+                && cachedResult.language.equals(language)
+                && System.currentTimeMillis() - cachedResult.fetchedAt <= this.timeToLiveInSeconds * 1000L
+                ? cachedResult.result
+                : null;
+    }
+
+    /**
+     * Gets the number of times that cached verify results have been
+     * invalidated. The value is read before a verify request is made, and
+     * passed to record when it completes.
+     *
+     * @return The number of invalidations.
+     */
+    long getInvalidations() {
+        return this.invalidations.get();
+    }
+
+    /**
+     * Caches the successful result of a verify request, unless a pack has
+     * changed state since the request was made.
+     *
+     * @param packKey The cache key of the pack, or null if verify results are
+     * not cached.
+     * @param language The language of the response messages.
+     * @param invalidations The number of invalidations when the request was
+     * made.
+     * @param singlePackResult The result of the request.
+     * @return The result of the request.
+     */
+    SinglePackResult record(RecentRequestKey packKey, String language, long invalidations, SinglePackResult singlePackResult) {
+        if (null == packKey
+                || null == singlePackResult
+                || singlePackResult.getStatusCode() != HttpStatusCode.SC_OK
+                || this.invalidations.get() != invalidations) {
+            return singlePackResult;
+        }
+
+        this.cache.put(packKey, new CachedVerifyResult(language, singlePackResult));
+
+        // A state change may have completed while the result was being cached.
+        if (this.invalidations.get() != invalidations) {
+            this.cache.remove(packKey);
+        }
+
+        return singlePackResult;
+    }
+
+    /**
+     * Discards the cached verify result for a pack when a request to change
+     * the state of the pack succeeds.
+     *
+     * @param packKey The cache key of the pack, or null if verify results are
+     * not cached.
+     * @param singlePackResult The result of the state change request.
+     * @return The result of the state change request.
+     */
+    SinglePackResult invalidate(RecentRequestKey packKey, SinglePackResult singlePackResult) {
+        if (null != packKey
+                && null != singlePackResult
+                && singlePackResult.getStatusCode() >= 200
+                && singlePackResult.getStatusCode() < 300) {
+            this.invalidations.incrementAndGet();
+            this.cache.remove(packKey);
+        }
+
+        return singlePackResult;
+    }
+
+    /**
+     * Closes the cache.
+     */
+    @Override
+    public void close() {
+        this.cache.close();
+    }
+
+    /**
+     * A cached verify result, together with the language of its response
+     * messages and the time at which it was fetched.
+     */
+    private static final class CachedVerifyResult {
+
+        /**
+         * The language of the response messages.
+         */
+        private final String language;
+
+        /**
+         * The result of the verify request.
+         */
+        private final SinglePackResult result;
+
+        /**
+         * The time in milliseconds at which the result was fetched from the
+         * National System.
+         */
+        private final long fetchedAt = System.currentTimeMillis();
+
+        /**
+         * Initializes a new instance of the CachedVerifyResult class.
+         *
+         * @param language The language of the response messages.
+         * @param result The result of the verify request.
+         */
+        private CachedVerifyResult(String language, SinglePackResult result) {
+            this.language = language;
+            this.result = result;
+        }
+    }
+}
@@ -9,6 +9,7 @@
  */
 package com.reply.solidsoft.nbs.integration.clientcredentials.model;
 
+import com.reply.solidsoft.nbs.integration.data.TimestampSequence;
 import com.google.gson.annotations.Expose;
 import com.reply.solidsoft.nbs.integration.data.model.DataRecord;
 
@@ -18,21 +19,15 @@ import com.reply.solidsoft.nbs.integration.data.model.DataRecord;
 public class ClientCredentials implements DataRecord {
 
     /**
-     * Lock object for atomic reads and writes to the timestamp.
+     * The sequence from which timestamps are assigned.
      */
-    private static final Object TIMESTAMP_LOCK = new Object();
-
-    /**
-     * Timestamp counter;
-     */
-    @Expose(serialize = false, deserialize = false)
-    private static long latestTimeStamp;
+    private static final TimestampSequence TIMESTAMP_SEQUENCE = new TimestampSequence();
 
     /**
      * Timestamp value;
      */
     @Expose(serialize = false, deserialize = false)
-    private long timeStamp;
+    private volatile long timeStamp;
 
     /**
      * Initializes a new instance of the ClientCredentials class.
@@ -64,9 +59,7 @@ public class ClientCredentials implements DataRecord {
      */
     @Override
     public final long getTimeStamp() {
-        synchronized (TIMESTAMP_LOCK) {
-            return this.timeStamp;
-        }
+        return this.timeStamp;
     }
 
     /**
@@ -75,9 +68,7 @@ public class ClientCredentials implements DataRecord {
      * @param value The timestamp value for this response record.
      */
     public final void setTimeStamp(long value) {
-        synchronized (TIMESTAMP_LOCK) {
-            this.timeStamp = value;
-        }
+        this.timeStamp = value;
     }
 
     /**
@@ -217,17 +208,6 @@ public class ClientCredentials implements DataRecord {
      * @param currentTimeStamp The current time stamp. Defaults to 0.
      */
     public final void initialize(long currentTimeStamp) {
-        synchronized (TIMESTAMP_LOCK) {
-            if (latestTimeStamp == Long.MAX_VALUE) {
-                latestTimeStamp = 0;
-            }
-
-            if (currentTimeStamp > latestTimeStamp) {
-                latestTimeStamp = currentTimeStamp;
-            }
-
-            latestTimeStamp++;
-            this.timeStamp = latestTimeStamp;
-        }
+        this.timeStamp = TIMESTAMP_SEQUENCE.next(currentTimeStamp);
     }
 }
@@ -340,4 +340,524 @@ public class Configuration implements NbsIntegrationConfiguration {
     public final void setRepeatedSinglePackRequestsWindowInSeconds(int value) {
         repeatedSinglePackRequestsWindowInSeconds = value;
     }
+
+    /**
+     * The maximum number of pooled connections across all routes.
+     */
+    private int maxTotalConnections = 100;
+
+    /**
+     * Gets the maximum number of pooled connections that the HTTP client will
+     * hold open to the National System across all routes.
+     *
+     * @return The maximum number of pooled connections across all routes.
+     */
+    @Override
+    public int getMaxTotalConnections() {
+        return maxTotalConnections;
+    }
+
+    /**
+     * Sets the maximum number of pooled connections that the HTTP client will
+     * hold open to the National System across all routes.
+     *
+     * @param value The maximum number of pooled connections across all routes.
+     */
+    @Override
+    public void setMaxTotalConnections(int value) {
+        maxTotalConnections = value;
+    }
+
+    /**
+     * The maximum number of pooled connections per route.
+     */
+    private int maxConnectionsPerRoute = 50;
+
+    /**
+     * Gets the maximum number of pooled connections that the HTTP client will
+     * hold open for any single route.
+     *
+     * @return The maximum number of pooled connections per route.
+     */
+    @Override
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    /**
+     * Sets the maximum number of pooled connections that the HTTP client will
+     * hold open for any single route.
+     *
+     * @param value The maximum number of pooled connections per route.
+     */
+    @Override
+    public void setMaxConnectionsPerRoute(int value) {
+        maxConnectionsPerRoute = value;
+    }
+
+    /**
+     * The default keep-alive period in milliseconds.
+     */
+    private int keepAliveDuration = 30000;
+
+    /**
+     * Gets the period in milliseconds for which an idle pooled connection is
+     * kept alive when the National System does not specify a keep-alive
+     * timeout in its response.
+     *
+     * @return The default keep-alive period in milliseconds.
+     */
+    @Override
+    public int getKeepAliveDuration() {
+        return keepAliveDuration;
+    }
+
+    /**
+     * Sets the period in milliseconds for which an idle pooled connection is
+     * kept alive when the National System does not specify a keep-alive
+     * timeout in its response.
+     *
+     * @param value The default keep-alive period in milliseconds.
+     */
+    @Override
+    public void setKeepAliveDuration(int value) {
+        keepAliveDuration = value;
+    }
+
+    /**
+     * The idle connection timeout in milliseconds.
+     */
+    private int idleConnectionTimeout = 60000;
+
+    /**
+     * Gets the period in milliseconds after which idle pooled connections are
+     * evicted from the connection pool.
+     *
+     * @return The idle connection timeout in milliseconds.
+     */
+    @Override
+    public int getIdleConnectionTimeout() {
+        return idleConnectionTimeout;
+    }
+
+    /**
+     * Sets the period in milliseconds after which idle pooled connections are
+     * evicted from the connection pool.
+     *
+     * @param value The idle connection timeout in milliseconds.
+     */
+    @Override
+    public void setIdleConnectionTimeout(int value) {
+        idleConnectionTimeout = value;
+    }
+
+    /**
+     * The period of inactivity in milliseconds after which a pooled connection
+     * is re-validated.
+     */
+    private int validateAfterInactivity = 2000;
+
+    /**
+     * Gets the period of inactivity in milliseconds after which a pooled
+     * connection is re-validated before being leased to a request.
+     *
+     * @return The period of inactivity in milliseconds.
+     */
+    @Override
+    public int getValidateAfterInactivity() {
+        return validateAfterInactivity;
+    }
+
+    /**
+     * Sets the period of inactivity in milliseconds after which a pooled
+     * connection is re-validated before being leased to a request.
+     *
+     * @param value The period of inactivity in milliseconds.
+     */
+    @Override
+    public void setValidateAfterInactivity(int value) {
+        validateAfterInactivity = value;
+    }
+
+    /**
+     * The maximum number of concurrent asynchronous requests.
+     */
+    private int maxConcurrentAsyncRequests = 50;
+
+    /**
+     * Gets the maximum number of asynchronous single pack requests that are
+     * executed concurrently. Further asynchronous requests are queued.
+     *
+     * @return The maximum number of concurrent asynchronous requests.
+     */
+    @Override
+    public int getMaxConcurrentAsyncRequests() {
+        return maxConcurrentAsyncRequests;
+    }
+
+    /**
+     * Sets the maximum number of asynchronous single pack requests that are
+     * executed concurrently. Further asynchronous requests are queued.
+     *
+     * @param value The maximum number of concurrent asynchronous requests.
+     */
+    @Override
+    public void setMaxConcurrentAsyncRequests(int value) {
+        maxConcurrentAsyncRequests = value;
+    }
+
+    /**
+     * The maximum number of queued asynchronous requests.
+     */
+    private int maxQueuedAsyncRequests = 1000;
+
+    /**
+     * Gets the maximum number of asynchronous single pack requests that wait
+     * to be executed. Further asynchronous requests are rejected.
+     *
+     * @return The maximum number of queued asynchronous requests.
+     */
+    @Override
+    public int getMaxQueuedAsyncRequests() {
+        return maxQueuedAsyncRequests;
+    }
+
+    /**
+     * Sets the maximum number of asynchronous single pack requests that wait
+     * to be executed. Further asynchronous requests are rejected.
+     *
+     * @param value The maximum number of queued asynchronous requests.
+     */
+    @Override
+    public void setMaxQueuedAsyncRequests(int value) {
+        maxQueuedAsyncRequests = value;
+    }
+
+    /**
+     * The maximum retry interval in milliseconds.
+     */
+    private int maxRetryInterval = 60000;
+
+    /**
+     * Gets the maximum interval in milliseconds between retries. Retry
+     * intervals grow exponentially from the retry interval up to this value.
+     *
+     * @return The maximum retry interval in milliseconds.
+     */
+    @Override
+    public int getMaxRetryInterval() {
+        return maxRetryInterval;
+    }
+
+    /**
+     * Sets the maximum interval in milliseconds between retries. Retry
+     * intervals grow exponentially from the retry interval up to this value.
+     *
+     * @param value The maximum retry interval in milliseconds.
+     */
+    @Override
+    public void setMaxRetryInterval(int value) {
+        maxRetryInterval = value;
+    }
+
+    /**
+     * The request timeout in milliseconds.
+     */
+    private int requestTimeout = 120000;
+
+    /**
+     * Gets the time budget in milliseconds for a request, including all of
+     * its retries. A value of zero indicates that there is no time limit.
+     *
+     * @return The request timeout in milliseconds.
+     */
+    @Override
+    public int getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    /**
+     * Sets the time budget in milliseconds for a request, including all of
+     * its retries. A value of zero indicates that there is no time limit.
+     *
+     * @param value The request timeout in milliseconds.
+     */
+    @Override
+    public void setRequestTimeout(int value) {
+        requestTimeout = value;
+    }
+
+    /**
+     * The circuit breaker failure rate threshold.
+     */
+    private int circuitBreakerFailureRateThreshold = 50;
+
+    /**
+     * Gets the percentage of failed calls to the National System in the circuit
+     * breaker's sliding window at which the library enters off-line mode.
+     *
+     * @return The failure rate threshold as a percentage.
+     */
+    @Override
+    public int getCircuitBreakerFailureRateThreshold() {
+        return circuitBreakerFailureRateThreshold;
+    }
+
+    /**
+     * Sets the percentage of failed calls to the National System in the circuit
+     * breaker's sliding window at which the library enters off-line mode.
+     *
+     * @param value The failure rate threshold as a percentage.
+     */
+    @Override
+    public void setCircuitBreakerFailureRateThreshold(int value) {
+        circuitBreakerFailureRateThreshold = value;
+    }
+
+    /**
+     * The circuit breaker slow call rate threshold.
+     */
+    private int circuitBreakerSlowCallRateThreshold = 100;
+
+    /**
+     * Gets the percentage of slow calls to the National System in the circuit
+     * breaker's sliding window at which the library enters off-line mode.
+     *
+     * @return The slow call rate threshold as a percentage.
+     */
+    @Override
+    public int getCircuitBreakerSlowCallRateThreshold() {
+        return circuitBreakerSlowCallRateThreshold;
+    }
+
+    /**
+     * Sets the percentage of slow calls to the National System in the circuit
+     * breaker's sliding window at which the library enters off-line mode.
+     *
+     * @param value The slow call rate threshold as a percentage.
+     */
+    @Override
+    public void setCircuitBreakerSlowCallRateThreshold(int value) {
+        circuitBreakerSlowCallRateThreshold = value;
+    }
+
+    /**
+     * The circuit breaker slow call duration threshold.
+     */
+    private int circuitBreakerSlowCallDurationThreshold = 20000;
+
+    /**
+     * Gets the duration in milliseconds above which a call to the National System
+     * is regarded as slow by the circuit breaker.
+     *
+     * @return The slow call duration threshold in milliseconds.
+     */
+    @Override
+    public int getCircuitBreakerSlowCallDurationThreshold() {
+        return circuitBreakerSlowCallDurationThreshold;
+    }
+
+    /**
+     * Sets the duration in milliseconds above which a call to the National System
+     * is regarded as slow by the circuit breaker.
+     *
+     * @param value The slow call duration threshold in milliseconds.
+     */
+    @Override
+    public void setCircuitBreakerSlowCallDurationThreshold(int value) {
+        circuitBreakerSlowCallDurationThreshold = value;
+    }
+
+    /**
+     * The circuit breaker sliding window size.
+     */
+    private int circuitBreakerSlidingWindowSize = 10;
+
+    /**
+     * Gets the number of recent calls to the National System whose outcomes are
+     * recorded by the circuit breaker.
+     *
+     * @return The size of the sliding window.
+     */
+    @Override
+    public int getCircuitBreakerSlidingWindowSize() {
+        return circuitBreakerSlidingWindowSize;
+    }
+
+    /**
+     * Sets the number of recent calls to the National System whose outcomes are
+     * recorded by the circuit breaker.
+     *
+     * @param value The size of the sliding window.
+     */
+    @Override
+    public void setCircuitBreakerSlidingWindowSize(int value) {
+        circuitBreakerSlidingWindowSize = value;
+    }
+
+    /**
+     * The circuit breaker wait duration in the open state.
+     */
+    private int circuitBreakerWaitDurationInOpenState = 30000;
+
+    /**
+     * Gets the time in milliseconds for which the library stays in off-line mode
+     * before a single probe request is passed to the National System.
+     *
+     * @return The wait duration in milliseconds.
+     */
+    @Override
+    public int getCircuitBreakerWaitDurationInOpenState() {
+        return circuitBreakerWaitDurationInOpenState;
+    }
+
+    /**
+     * Sets the time in milliseconds for which the library stays in off-line mode
+     * before a single probe request is passed to the National System.
+     *
+     * @param value The wait duration in milliseconds.
+     */
+    @Override
+    public void setCircuitBreakerWaitDurationInOpenState(int value) {
+        circuitBreakerWaitDurationInOpenState = value;
+    }
+
+    /**
+     * The token refresh skew.
+     */
+    private int tokenRefreshSkew = 60000;
+
+    /**
+     * Gets the time in milliseconds before the expiry of a bearer token at
+     * which the library obtains a new token in the background.
+     *
+     * @return The token refresh skew in milliseconds.
+     */
+    @Override
+    public int getTokenRefreshSkew() {
+        return tokenRefreshSkew;
+    }
+
+    /**
+     * Sets the time in milliseconds before the expiry of a bearer token at
+     * which the library obtains a new token in the background.
+     *
+     * @param value The token refresh skew in milliseconds.
+     */
+    @Override
+    public void setTokenRefreshSkew(int value) {
+        tokenRefreshSkew = value;
+    }
+
+    /**
+     * The maximum number of identity server connections.
+     */
+    private int maxTokenConnections = 10;
+
+    /**
+     * Gets the maximum number of pooled connections to the identity server.
+     * Token requests use their own connection pool.
+     *
+     * @return The maximum number of identity server connections.
+     */
+    @Override
+    public int getMaxTokenConnections() {
+        return maxTokenConnections;
+    }
+
+    /**
+     * Sets the maximum number of pooled connections to the identity server.
+     * Token requests use their own connection pool.
+     *
+     * @param value The maximum number of identity server connections.
+     */
+    @Override
+    public void setMaxTokenConnections(int value) {
+        maxTokenConnections = value;
+    }
+
+    /**
+     * The token request timeout.
+     */
+    private int tokenRequestTimeout = 30000;
+
+    /**
+     * Gets the timeout in milliseconds for connecting to the identity server,
+     * leasing a pooled connection and waiting for data from the identity
+     * server.
+     *
+     * @return The token request timeout in milliseconds.
+     */
+    @Override
+    public int getTokenRequestTimeout() {
+        return tokenRequestTimeout;
+    }
+
+    /**
+     * Sets the timeout in milliseconds for connecting to the identity server,
+     * leasing a pooled connection and waiting for data from the identity
+     * server.
+     *
+     * @param value The token request timeout in milliseconds.
+     */
+    @Override
+    public void setTokenRequestTimeout(int value) {
+        tokenRequestTimeout = value;
+    }
+
+    /**
+     * A value indicating whether individual pack responses are logged.
+     */
+    private boolean logBulkPackDetails;
+
+    /**
+     * Gets a value indicating whether the individual pack responses of bulk,
+     * recovery and results requests are copied into log entries.
+     *
+     * @return A value indicating whether individual pack responses are
+     * logged.
+     */
+    @Override
+    public boolean getLogBulkPackDetails() {
+        return logBulkPackDetails;
+    }
+
+    /**
+     * Sets a value indicating whether the individual pack responses of bulk,
+     * recovery and results requests are copied into log entries.
+     *
+     * @param value A value indicating whether individual pack responses are
+     * logged.
+     */
+    @Override
+    public void setLogBulkPackDetails(boolean value) {
+        logBulkPackDetails = value;
+    }
+
+    /**
+     * The number of seconds for which verify results are cached.
+     */
+    private int verifyResultCacheTimeToLiveInSeconds;
+
+    /**
+     * Gets the number of seconds for which the result of a verify request is
+     * cached. A value of zero disables the cache.
+     *
+     * @return The number of seconds for which verify results are cached.
+     */
+    @Override
+    public int getVerifyResultCacheTimeToLiveInSeconds() {
+        return verifyResultCacheTimeToLiveInSeconds;
+    }
+
+    /**
+     * Sets the number of seconds for which the result of a verify request is
+     * cached. A value of zero disables the cache.
+     *
+     * @param value The number of seconds for which verify results are cached.
+     */
+    @Override
+    public void setVerifyResultCacheTimeToLiveInSeconds(int value) {
+        verifyResultCacheTimeToLiveInSeconds = value;
+    }
 }
@@ -212,4 +212,328 @@ public interface NbsIntegrationConfiguration {
      * Pack Requests' option is being used.
      */
     public void setRepeatedSinglePackRequestsWindowInSeconds(int value);
+
+    /**
+     * Gets the maximum number of pooled connections that the HTTP client will
+     * hold open to the National System across all routes.
+     *
+     * @return The maximum number of pooled connections across all routes.
+     */
+    public int getMaxTotalConnections();
+
+    /**
+     * Sets the maximum number of pooled connections that the HTTP client will
+     * hold open to the National System across all routes.
+     *
+     * @param value The maximum number of pooled connections across all routes.
+     */
+    public void setMaxTotalConnections(int value);
+
+    /**
+     * Gets the maximum number of pooled connections that the HTTP client will
+     * hold open for any single route.
+     *
+     * @return The maximum number of pooled connections per route.
+     */
+    public int getMaxConnectionsPerRoute();
+
+    /**
+     * Sets the maximum number of pooled connections that the HTTP client will
+     * hold open for any single route.
+     *
+     * @param value The maximum number of pooled connections per route.
+     */
+    public void setMaxConnectionsPerRoute(int value);
+
+    /**
+     * Gets the period in milliseconds for which an idle pooled connection is
+     * kept alive when the National System does not specify a keep-alive
+     * timeout in its response.
+     *
+     * @return The default keep-alive period in milliseconds.
+     */
+    public int getKeepAliveDuration();
+
+    /**
+     * Sets the period in milliseconds for which an idle pooled connection is
+     * kept alive when the National System does not specify a keep-alive
+     * timeout in its response.
+     *
+     * @param value The default keep-alive period in milliseconds.
+     */
+    public void setKeepAliveDuration(int value);
+
+    /**
+     * Gets the period in milliseconds after which idle pooled connections are
+     * evicted from the connection pool.
+     *
+     * @return The idle connection timeout in milliseconds.
+     */
+    public int getIdleConnectionTimeout();
+
+    /**
+     * Sets the period in milliseconds after which idle pooled connections are
+     * evicted from the connection pool.
+     *
+     * @param value The idle connection timeout in milliseconds.
+     */
+    public void setIdleConnectionTimeout(int value);
+
+    /**
+     * Gets the period of inactivity in milliseconds after which a pooled
+     * connection is re-validated before being leased to a request.
+     *
+     * @return The period of inactivity in milliseconds.
+     */
+    public int getValidateAfterInactivity();
+
+    /**
+     * Sets the period of inactivity in milliseconds after which a pooled
+     * connection is re-validated before being leased to a request.
+     *
+     * @param value The period of inactivity in milliseconds.
+     */
+    public void setValidateAfterInactivity(int value);
+
+    /**
+     * Gets the maximum number of asynchronous single pack requests that are
+     * executed concurrently. Further asynchronous requests are queued.
+     *
+     * @return The maximum number of concurrent asynchronous requests.
+     */
+    public int getMaxConcurrentAsyncRequests();
+
+    /**
+     * Sets the maximum number of asynchronous single pack requests that are
+     * executed concurrently. Further asynchronous requests are queued.
+     *
+     * @param value The maximum number of concurrent asynchronous requests.
+     */
+    public void setMaxConcurrentAsyncRequests(int value);
+
+    /**
+     * Gets the maximum number of asynchronous single pack requests that wait
+     * to be executed. Further asynchronous requests are rejected.
+     *
+     * @return The maximum number of queued asynchronous requests.
+     */
+    public int getMaxQueuedAsyncRequests();
+
+    /**
+     * Sets the maximum number of asynchronous single pack requests that wait
+     * to be executed. Further asynchronous requests are rejected.
+     *
+     * @param value The maximum number of queued asynchronous requests.
+     */
+    public void setMaxQueuedAsyncRequests(int value);
+
+    /**
+     * Gets the maximum interval in milliseconds between retries. Retry
+     * intervals grow exponentially from the retry interval up to this value.
+     *
+     * @return The maximum retry interval in milliseconds.
+     */
+    public int getMaxRetryInterval();
+
+    /**
+     * Sets the maximum interval in milliseconds between retries. Retry
+     * intervals grow exponentially from the retry interval up to this value.
+     *
+     * @param value The maximum retry interval in milliseconds.
+     */
+    public void setMaxRetryInterval(int value);
+
+    /**
+     * Gets the time budget in milliseconds for a request, including all of
+     * its retries. A value of zero indicates that there is no time limit.
+     *
+     * @return The request timeout in milliseconds.
+     */
+    public int getRequestTimeout();
+
+    /**
+     * Sets the time budget in milliseconds for a request, including all of
+     * its retries. A value of zero indicates that there is no time limit.
+     *
+     * @param value The request timeout in milliseconds.
+     */
+    public void setRequestTimeout(int value);
+
+    /**
+     * Gets the percentage of failed calls to the National System in the circuit
+     * breaker's sliding window at which the library enters off-line mode.
+     *
+     * @return The failure rate threshold as a percentage.
+     */
+    public int getCircuitBreakerFailureRateThreshold();
+
+    /**
+     * Sets the percentage of failed calls to the National System in the circuit
+     * breaker's sliding window at which the library enters off-line mode.
+     *
+     * @param value The failure rate threshold as a percentage.
+     */
+    public void setCircuitBreakerFailureRateThreshold(int value);
+
+    /**
+     * Gets the percentage of slow calls to the National System in the circuit
+     * breaker's sliding window at which the library enters off-line mode.
+     *
+     * @return The slow call rate threshold as a percentage.
+     */
+    public int getCircuitBreakerSlowCallRateThreshold();
+
+    /**
+     * Sets the percentage of slow calls to the National System in the circuit
+     * breaker's sliding window at which the library enters off-line mode.
+     *
+     * @param value The slow call rate threshold as a percentage.
+     */
+    public void setCircuitBreakerSlowCallRateThreshold(int value);
+
+    /**
+     * Gets the duration in milliseconds above which a call to the National System
+     * is regarded as slow by the circuit breaker.
+     *
+     * @return The slow call duration threshold in milliseconds.
+     */
+    public int getCircuitBreakerSlowCallDurationThreshold();
+
+    /**
+     * Sets the duration in milliseconds above which a call to the National System
+     * is regarded as slow by the circuit breaker.
+     *
+     * @param value The slow call duration threshold in milliseconds.
+     */
+    public void setCircuitBreakerSlowCallDurationThreshold(int value);
+
+    /**
+     * Gets the number of recent calls to the National System whose outcomes are
+     * recorded by the circuit breaker.
+     *
+     * @return The size of the sliding window.
+     */
+    public int getCircuitBreakerSlidingWindowSize();
+
+    /**
+     * Sets the number of recent calls to the National System whose outcomes are
+     * recorded by the circuit breaker.
+     *
+     * @param value The size of the sliding window.
+     */
+    public void setCircuitBreakerSlidingWindowSize(int value);
+
+    /**
+     * Gets the time in milliseconds for which the library stays in off-line mode
+     * before a single probe request is passed to the National System.
+     *
+     * @return The wait duration in milliseconds.
+     */
+    public int getCircuitBreakerWaitDurationInOpenState();
+
+    /**
+     * Sets the time in milliseconds for which the library stays in off-line mode
+     * before a single probe request is passed to the National System.
+     *
+     * @param value The wait duration in milliseconds.
+     */
+    public void setCircuitBreakerWaitDurationInOpenState(int value);
+
+    /**
+     * Gets the time in milliseconds before the expiry of a bearer token at
+     * which the library obtains a new token in the background.
+     *
+     * @return The token refresh skew in milliseconds.
+     */
+    public int getTokenRefreshSkew();
+
+    /**
+     * Sets the time in milliseconds before the expiry of a bearer token at
+     * which the library obtains a new token in the background.
+     *
+     * @param value The token refresh skew in milliseconds.
+     */
+    public void setTokenRefreshSkew(int value);
+
+    /**
+     * Gets the maximum number of pooled connections to the identity server.
+     * Token requests use their own connection pool.
+     *
+     * @return The maximum number of identity server connections.
+     */
+    public int getMaxTokenConnections();
+
+    /**
+     * Sets the maximum number of pooled connections to the identity server.
+     * Token requests use their own connection pool.
+     *
+     * @param value The maximum number of identity server connections.
+     */
+    public void setMaxTokenConnections(int value);
+
+    /**
+     * Gets the timeout in milliseconds for connecting to the identity server,
+     * leasing a pooled connection and waiting for data from the identity
+     * server.
+     *
+     * @return The token request timeout in milliseconds.
+     */
+    public int getTokenRequestTimeout();
+
+    /**
+     * Sets the timeout in milliseconds for connecting to the identity server,
+     * leasing a pooled connection and waiting for data from the identity
+     * server.
+     *
+     * @param value The token request timeout in milliseconds.
+     */
+    public void setTokenRequestTimeout(int value);
+
+    /**
+     * Gets a value indicating whether the individual pack responses of bulk,
+     * recovery and results requests are copied into log entries.
+     * <p>
+     * By default, log entries for these requests record a summary of the pack
+     * responses, with the number of packs in each reported state and with each
+     * operation code. The full results remain available from the National
+     * System at the location recorded in the log entry.
+     *
+     * @return A value indicating whether individual pack responses are
+     * logged.
+     */
+    public boolean getLogBulkPackDetails();
+
+    /**
+     * Sets a value indicating whether the individual pack responses of bulk,
+     * recovery and results requests are copied into log entries.
+     * <p>
+     * By default, log entries for these requests record a summary of the pack
+     * responses, with the number of packs in each reported state and with each
+     * operation code. The full results remain available from the National
+     * System at the location recorded in the log entry.
+     *
+     * @param value A value indicating whether individual pack responses are
+     * logged.
+     */
+    public void setLogBulkPackDetails(boolean value);
+
+    /**
+     * Gets the number of seconds for which the result of a verify request is
+     * cached. A cached result is discarded when a supply, decommission or
+     * reactivate request for the same pack succeeds. A value of zero disables
+     * the cache.
+     *
+     * @return The number of seconds for which verify results are cached.
+     */
+    public int getVerifyResultCacheTimeToLiveInSeconds();
+
+    /**
+     * Sets the number of seconds for which the result of a verify request is
+     * cached. A cached result is discarded when a supply, decommission or
+     * reactivate request for the same pack succeeds. A value of zero disables
+     * the cache.
+     *
+     * @param value The number of seconds for which verify results are cached.
+     */
+    public void setVerifyResultCacheTimeToLiveInSeconds(int value);
 }
@@ -70,4 +70,197 @@ public class ApiConnection {
     public final void setIdentityServerUrl(String value) {
         identityServerUri = value;
     }
+
+    /**
+     * The maximum number of pooled connections across all routes.
+     */
+    private int maxTotalConnections = 100;
+
+    /**
+     * Gets the maximum number of pooled connections across all routes.
+     *
+     * @return The maximum number of pooled connections across all routes.
+     */
+    public final int getMaxTotalConnections() {
+        return maxTotalConnections;
+    }
+
+    /**
+     * Sets the maximum number of pooled connections across all routes.
+     *
+     * @param value The maximum number of pooled connections across all routes.
+     */
+    public final void setMaxTotalConnections(int value) {
+        maxTotalConnections = value;
+    }
+
+    /**
+     * The maximum number of pooled connections per route.
+     */
+    private int maxConnectionsPerRoute = 50;
+
+    /**
+     * Gets the maximum number of pooled connections per route.
+     *
+     * @return The maximum number of pooled connections per route.
+     */
+    public final int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    /**
+     * Sets the maximum number of pooled connections per route.
+     *
+     * @param value The maximum number of pooled connections per route.
+     */
+    public final void setMaxConnectionsPerRoute(int value) {
+        maxConnectionsPerRoute = value;
+    }
+
+    /**
+     * The default keep-alive period in milliseconds.
+     */
+    private int keepAliveDuration = 30000;
+
+    /**
+     * Gets the default keep-alive period in milliseconds.
+     *
+     * @return The default keep-alive period in milliseconds.
+     */
+    public final int getKeepAliveDuration() {
+        return keepAliveDuration;
+    }
+
+    /**
+     * Sets the default keep-alive period in milliseconds.
+     *
+     * @param value The default keep-alive period in milliseconds.
+     */
+    public final void setKeepAliveDuration(int value) {
+        keepAliveDuration = value;
+    }
+
+    /**
+     * The idle connection timeout in milliseconds.
+     */
+    private int idleConnectionTimeout = 60000;
+
+    /**
+     * Gets the idle connection timeout in milliseconds.
+     *
+     * @return The idle connection timeout in milliseconds.
+     */
+    public final int getIdleConnectionTimeout() {
+        return idleConnectionTimeout;
+    }
+
+    /**
+     * Sets the idle connection timeout in milliseconds.
+     *
+     * @param value The idle connection timeout in milliseconds.
+     */
+    public final void setIdleConnectionTimeout(int value) {
+        idleConnectionTimeout = value;
+    }
+
+    /**
+     * The period of inactivity in milliseconds after which a pooled connection
+     * is re-validated.
+     */
+    private int validateAfterInactivity = 2000;
+
+    /**
+     * Gets the period of inactivity in milliseconds after which a pooled
+     * connection is re-validated.
+     *
+     * @return The period of inactivity in milliseconds.
+     */
+    public final int getValidateAfterInactivity() {
+        return validateAfterInactivity;
+    }
+
+    /**
+     * Sets the period of inactivity in milliseconds after which a pooled
+     * connection is re-validated.
+     *
+     * @param value The period of inactivity in milliseconds.
+     */
+    public final void setValidateAfterInactivity(int value) {
+        validateAfterInactivity = value;
+    }
+
+    /**
+     * The time in milliseconds before the expiry of a bearer token at which
+     * it is refreshed.
+     */
+    private int tokenRefreshSkew = 60000;
+
+    /**
+     * Gets the time in milliseconds before the expiry of a bearer token at
+     * which it is refreshed.
+     *
+     * @return The token refresh skew in milliseconds.
+     */
+    public final int getTokenRefreshSkew() {
+        return tokenRefreshSkew;
+    }
+
+    /**
+     * Sets the time in milliseconds before the expiry of a bearer token at
+     * which it is refreshed.
+     *
+     * @param value The token refresh skew in milliseconds.
+     */
+    public final void setTokenRefreshSkew(int value) {
+        tokenRefreshSkew = value;
+    }
+
+    /**
+     * The maximum number of pooled connections to the identity server.
+     */
+    private int maxTokenConnections = 10;
+
+    /**
+     * Gets the maximum number of pooled connections to the identity server.
+     *
+     * @return The maximum number of connections.
+     */
+    public final int getMaxTokenConnections() {
+        return maxTokenConnections;
+    }
+
+    /**
+     * Sets the maximum number of pooled connections to the identity server.
+     *
+     * @param value The maximum number of connections.
+     */
+    public final void setMaxTokenConnections(int value) {
+        maxTokenConnections = value;
+    }
+
+    /**
+     * The connect, connection request and socket timeout in milliseconds for
+     * token requests.
+     */
+    private int tokenRequestTimeout = 30000;
+
+    /**
+     * Gets the connect, connection request and socket timeout in milliseconds
+     * for token requests.
+     *
+     * @return The token request timeout in milliseconds.
+     */
+    public final int getTokenRequestTimeout() {
+        return tokenRequestTimeout;
+    }
+
+    /**
+     * Sets the connect, connection request and socket timeout in milliseconds
+     * for token requests.
+     *
+     * @param value The token request timeout in milliseconds.
+     */
+    public final void setTokenRequestTimeout(int value) {
+        tokenRequestTimeout = value;
+    }
 }
@@ -12,6 +12,7 @@ package com.reply.solidsoft.nbs.integration.connection;
 import com.reply.solidsoft.nbs.integration.clientcredentials.model.ClientCredentials;
 import com.reply.solidsoft.nbs.integration.clientcredentials.ClientCredentialsService;
 import com.reply.solidsoft.nbs.integration.clientcredentials.model.ConnectionIdentifier;
+import org.apache.oltu.oauth2.client.HttpClient;
 
 /**
  * The authentication class.
@@ -33,4 +34,19 @@ public final class Authentication {
 
         return new TokenClient(identityServerUrl, clientCredentials, null, null);
     }
+
+    /**
+     * Obtains a token client that uses a given HTTP transport.
+     *
+     * @param identityServerUrl The identity server address.
+     * @param clientCredentialsService The client credentials service.
+     * @param connectionIdentifier The connection identifier.
+     * @param httpClient The HTTP transport used for token requests.
+     * @return The token client.
+     */
+    public static TokenClient getTokenClient(String identityServerUrl, ClientCredentialsService clientCredentialsService, ConnectionIdentifier connectionIdentifier, HttpClient httpClient) {
+        ClientCredentials clientCredentials = clientCredentialsService.getClientCredentials(connectionIdentifier);
+
+        return new TokenClient(identityServerUrl, clientCredentials, httpClient);
+    }
 }
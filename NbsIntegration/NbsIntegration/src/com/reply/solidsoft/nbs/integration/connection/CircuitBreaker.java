@@ -0,0 +1,396 @@
+/**
+ * -----------------------------------------------------------------------------
+ * File=CircuitBreaker.java
+ * Company=Solidsoft Reply
+ * Copyright © 2017 Solidsoft Reply Ltd.
+ *
+ * A circuit breaker for requests to the National System.
+ * -----------------------------------------------------------------------------
+ */
+package com.reply.solidsoft.nbs.integration.connection;
+
+import com.reply.solidsoft.nbs.integration.extensions.functional.Action2;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A circuit breaker for requests to the National System.
+ * <p>
+ * The outcomes of recent calls are recorded in a count-based sliding window.
+ * When the proportion of failed calls or of slow calls in the window reaches
+ * its threshold, the circuit opens and requests are no longer passed to the
+ * National System. After a wait period, the circuit becomes half-open and a
+ * single probe request is allowed through. The circuit closes if the probe
+ * succeeds and opens again if it fails.
+ * <p>
+ * Each permission carries the generation of the circuit in which it was
+ * granted. The generation advances on every state change and whenever a
+ * probe is admitted. Outcomes are only recorded for permissions of the
+ * current generation, so calls admitted before the circuit opened cannot
+ * close it again or extend its wait period, and only the admitted probe can
+ * change the state of a half-open circuit.
+ */
+public class CircuitBreaker {
+
+    /**
+     * Outcome of a successful call.
+     */
+    private static final byte SUCCESS = 0;
+
+    /**
+     * Outcome of a failed call.
+     */
+    private static final byte FAILURE = 1;
+
+    /**
+     * Outcome of a successful call that was slow.
+     */
+    private static final byte SLOW_SUCCESS = 2;
+
+    /**
+     * Outcome of a failed call that was slow.
+     */
+    private static final byte SLOW_FAILURE = 3;
+
+    /**
+     * The value returned when permission to pass a call is refused.
+     */
+    public static final long NO_PERMISSION = -1L;
+
+    /**
+     * The failure rate threshold as a percentage.
+     */
+    private final int failureRateThreshold;
+
+    /**
+     * The slow call rate threshold as a percentage.
+     */
+    private final int slowCallRateThreshold;
+
+    /**
+     * The duration in milliseconds above which a call is regarded as slow.
+     */
+    private final long slowCallDurationThreshold;
+
+    /**
+     * The time in milliseconds that the circuit stays open before a probe
+     * request is allowed.
+     */
+    private final long waitDurationInOpenState;
+
+    /**
+     * The minimum number of recorded calls before rates are evaluated.
+     */
+    private final int minimumNumberOfCalls;
+
+    /**
+     * The sliding window of call outcomes.
+     */
+    private final byte[] outcomes;
+
+    /**
+     * The listener that is invoked when the state of the circuit changes.
+     */
+    private final Action2<CircuitBreakerState, CircuitBreakerState> stateChanged;
+
+    /**
+     * The lock for state transitions and the sliding window.
+     */
+    private final Object lock = new Object();
+
+    /**
+     * The index of the next slot in the sliding window.
+     */
+    private int nextOutcome;
+
+    /**
+     * The number of recorded calls in the sliding window.
+     */
+    private int recordedCalls;
+
+    /**
+     * The number of failed calls in the sliding window.
+     */
+    private int failedCalls;
+
+    /**
+     * The number of slow calls in the sliding window.
+     */
+    private int slowCalls;
+
+    /**
+     * The time at which the circuit was last opened.
+     */
+    private long openedAt;
+
+    /**
+     * A value indicating whether a half-open probe request is in flight.
+     */
+    private boolean isProbeInFlight;
+
+    /**
+     * The generation of the circuit.
+     */
+    private volatile long generation;
+
+    /**
+     * The current state of the circuit.
+     */
+    private volatile CircuitBreakerState state = CircuitBreakerState.CLOSED;
+
+    /**
+     * Initializes a new instance of the CircuitBreaker class.
+     *
+     * @param failureRateThreshold The failure rate threshold as a percentage.
+     * @param slowCallRateThreshold The slow call rate threshold as a
+     * percentage.
+     * @param slowCallDurationThreshold The duration in milliseconds above which
+     * a call is regarded as slow.
+     * @param slidingWindowSize The number of calls recorded in the sliding
+     * window.
+     * @param waitDurationInOpenState The time in milliseconds that the circuit
+     * stays open before a probe request is allowed.
+     * @param stateChanged The listener that is invoked with the previous and
+     * new states when the state of the circuit changes.
+     */
+    public CircuitBreaker(
+            int failureRateThreshold,
+            int slowCallRateThreshold,
+            long slowCallDurationThreshold,
+            int slidingWindowSize,
+            long waitDurationInOpenState,
+            Action2<CircuitBreakerState, CircuitBreakerState> stateChanged) {
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallDurationThreshold = slowCallDurationThreshold;
+        this.waitDurationInOpenState = waitDurationInOpenState;
+        this.outcomes = new byte[Math.max(slidingWindowSize, 1)];
+        this.minimumNumberOfCalls = Math.max(this.outcomes.length / 2, 1);
+        this.stateChanged = stateChanged;
+    }
+
+    /**
+     * Gets the current state of the circuit.
+     *
+     * @return The current state of the circuit.
+     */
+    public final CircuitBreakerState getState() {
+        return this.state;
+    }
+
+    /**
+     * Returns the current time for measuring call durations.
+     *
+     * @return The current time in milliseconds, relative to an arbitrary fixed
+     * origin.
+     */
+    public static long currentTime() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    /**
+     * Requests permission to pass a call to the National System. If permission
+     * is granted, the outcome of the call must be reported by passing the
+     * returned permission to onSuccess, onFailure or onIgnored.
+     *
+     * @return The permission if the call may proceed; otherwise NO_PERMISSION.
+     */
+    public final long tryAcquirePermission() {
+        if (this.state == CircuitBreakerState.CLOSED) {
+            return this.generation;
+        }
+
+        CircuitBreakerState previousState;
+        long permission;
+
+        synchronized (this.lock) {
+            previousState = this.state;
+
+            switch (previousState) {
+                case CLOSED:
+                    return this.generation;
+                case OPEN:
+                    if (currentTime() - this.openedAt < this.waitDurationInOpenState) {
+                        return NO_PERMISSION;
+                    }
+
+                    this.state = CircuitBreakerState.HALF_OPEN;
+                    this.isProbeInFlight = true;
+                    permission = ++this.generation;
+                    break;
+                default:
+                    if (this.isProbeInFlight) {
+                        return NO_PERMISSION;
+                    }
+
+                    this.isProbeInFlight = true;
+                    return ++this.generation;
+            }
+        }
+
+        this.onStateChanged(previousState, CircuitBreakerState.HALF_OPEN);
+        return permission;
+    }
+
+    /**
+     * Records a call that received a response from the National System.
+     *
+     * @param permission The permission under which the call was made.
+     * @param duration The duration of the call in milliseconds.
+     */
+    public final void onSuccess(long permission, long duration) {
+        this.record(permission, duration > this.slowCallDurationThreshold ? SLOW_SUCCESS : SUCCESS);
+    }
+
+    /**
+     * Records a call that failed because the National System was unreachable
+     * or unavailable.
+     *
+     * @param permission The permission under which the call was made.
+     * @param duration The duration of the call in milliseconds.
+     */
+    public final void onFailure(long permission, long duration) {
+        this.record(permission, duration > this.slowCallDurationThreshold ? SLOW_FAILURE : FAILURE);
+    }
+
+    /**
+     * Releases a permission without recording an outcome.
+     *
+     * @param permission The permission under which the call was made.
+     */
+    public final void onIgnored(long permission) {
+        synchronized (this.lock) {
+            if (this.isProbe(permission)) {
+                this.isProbeInFlight = false;
+            }
+        }
+    }
+
+    /**
+     * Returns a value indicating whether a permission is the one granted to
+     * the half-open probe that is currently in flight. The caller must hold
+     * the lock.
+     *
+     * @param permission The permission.
+     * @return True if the permission belongs to the current probe; otherwise
+     * false.
+     */
+    private boolean isProbe(long permission) {
+        return this.state == CircuitBreakerState.HALF_OPEN
+                && this.isProbeInFlight
+                && permission == this.generation;
+    }
+
+    /**
+     * Records the outcome of a call and performs any resulting state
+     * transition. Outcomes of calls admitted in an earlier generation of the
+     * circuit are dropped.
+     *
+     * @param permission The permission under which the call was made.
+     * @param outcome The outcome of the call.
+     */
+    private void record(long permission, byte outcome) {
+        boolean isFailure = outcome == FAILURE || outcome == SLOW_FAILURE;
+        CircuitBreakerState previousState;
+        CircuitBreakerState newState;
+
+        synchronized (this.lock) {
+            previousState = this.state;
+            newState = previousState;
+
+            if (permission != this.generation
+                    || (previousState != CircuitBreakerState.CLOSED && !this.isProbe(permission))) {
+                return;
+            }
+
+            if (previousState == CircuitBreakerState.CLOSED) {
+                this.add(outcome);
+
+                if (this.isThresholdExceeded()) {
+                    newState = CircuitBreakerState.OPEN;
+                }
+            } else if (isFailure) {
+                // A failed probe re-opens the circuit and restarts the wait period.
+                this.isProbeInFlight = false;
+                newState = CircuitBreakerState.OPEN;
+            } else if (outcome == SUCCESS) {
+                // A timely response to the probe closes the circuit.
+                this.isProbeInFlight = false;
+                newState = CircuitBreakerState.CLOSED;
+            } else {
+                this.isProbeInFlight = false;
+            }
+
+            if (newState == CircuitBreakerState.OPEN) {
+                this.openedAt = currentTime();
+            }
+
+            if (newState != previousState) {
+                this.reset();
+                this.state = newState;
+                this.generation++;
+            }
+        }
+
+        if (newState != previousState) {
+            this.onStateChanged(previousState, newState);
+        }
+    }
+
+    /**
+     * Adds an outcome to the sliding window, evicting the oldest outcome if the
+     * window is full.
+     *
+     * @param outcome The outcome of the call.
+     */
+    private void add(byte outcome) {
+        if (this.recordedCalls == this.outcomes.length) {
+            byte evicted = this.outcomes[this.nextOutcome];
+            this.failedCalls -= (evicted == FAILURE || evicted == SLOW_FAILURE) ? 1 : 0;
+            this.slowCalls -= (evicted == SLOW_SUCCESS || evicted == SLOW_FAILURE) ? 1 : 0;
+        } else {
+            this.recordedCalls++;
+        }
+
+        this.outcomes[this.nextOutcome] = outcome;
+        this.nextOutcome = (this.nextOutcome + 1) % this.outcomes.length;
+        this.failedCalls += (outcome == FAILURE || outcome == SLOW_FAILURE) ? 1 : 0;
+        this.slowCalls += (outcome == SLOW_SUCCESS || outcome == SLOW_FAILURE) ? 1 : 0;
+    }
+
+    /**
+     * Returns a value indicating whether the failure rate or the slow call
+     * rate has reached its threshold.
+     *
+     * @return True if a threshold has been reached; otherwise false.
+     */
+    private boolean isThresholdExceeded() {
+        if (this.recordedCalls < this.minimumNumberOfCalls) {
+            return false;
+        }
+
+        return (this.failureRateThreshold > 0 && this.failedCalls * 100 >= this.failureRateThreshold * this.recordedCalls)
+                || (this.slowCallRateThreshold > 0 && this.slowCalls * 100 >= this.slowCallRateThreshold * this.recordedCalls);
+    }
+
+    /**
+     * Clears the sliding window.
+     */
+    private void reset() {
+        this.nextOutcome = 0;
+        this.recordedCalls = 0;
+        this.failedCalls = 0;
+        this.slowCalls = 0;
+    }
+
+    /**
+     * Notifies the listener of a state change.
+     *
+     * @param previousState The previous state of the circuit.
+     * @param newState The new state of the circuit.
+     */
+    private void onStateChanged(CircuitBreakerState previousState, CircuitBreakerState newState) {
+        if (this.stateChanged != null) {
+            this.stateChanged.invoke(previousState, newState);
+        }
+    }
+}
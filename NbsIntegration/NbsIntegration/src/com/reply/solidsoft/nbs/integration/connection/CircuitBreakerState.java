@@ -0,0 +1,48 @@
+/**
+ * -----------------------------------------------------------------------------
+ * File=CircuitBreakerState.java
+ * Company=Solidsoft Reply
+ * Copyright © 2017 Solidsoft Reply Ltd.
+ *
+ * Enum for specifying the state of a circuit breaker.
+ * -----------------------------------------------------------------------------
+ */
+package com.reply.solidsoft.nbs.integration.connection;
+
+/**
+ * Enum for specifying the state of a circuit breaker.
+ */
+public enum CircuitBreakerState {
+    /**
+     * Requests are passed to the National System.
+     */
+    CLOSED,
+    /**
+     * Requests are not passed to the National System.
+     */
+    OPEN,
+    /**
+     * A single probe request is passed to the National System to test
+     * whether it has recovered.
+     */
+    HALF_OPEN;
+
+    /**
+     * Get the integer value corresponding to the enumerated value.
+     *
+     * @return The integer value corresponding to the enumerated value.
+     */
+    public int getValue() {
+        return this.ordinal();
+    }
+
+    /**
+     * Resolve an integer value to the corresponding enumerated value.
+     *
+     * @param value An integer value.
+     * @return The enumerated value corresponding to the integer value.
+     */
+    public static CircuitBreakerState forValue(int value) {
+        return values()[value];
+    }
+}
@@ -21,10 +21,11 @@ import java.net.URISyntaxException;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import org.apache.http.Header;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpHost;
 import org.apache.http.HttpRequest;
 import org.apache.http.HttpResponse;
@@ -38,9 +39,12 @@ import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.client.utils.URIBuilder;
 import org.apache.http.conn.ClientConnectionManager;
-import org.apache.http.entity.StringEntity;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.params.HttpParams;
 import org.apache.http.protocol.HttpContext;
 import com.reply.solidsoft.nbs.integration.clientcredentials.ClientCredentialsService;
@@ -65,9 +69,25 @@ public class NbsHttpClient implements HttpClient, Closeable {
     private LoggingService loggingService;
 
     /**
-     * The timer that raises the Token Expired event.
+     * The shared token manager that obtains and refreshes bearer tokens.
      */
-    private Timer tokenExpiryTimer;
+    private volatile TokenManager tokenManager;
+
+    /**
+     * The listener bound to the token manager for acquired tokens.
+     */
+    private final com.reply.solidsoft.nbs.integration.extensions.functional.Action1<TokenResponse> tokenAcquiredListener = this::tokenAcquired;
+
+    /**
+     * The listener bound to the token manager for failed token requests.
+     */
+    private final com.reply.solidsoft.nbs.integration.extensions.functional.Action1<TokenResponse> tokenRequestFailedListener = this::tokenRequestFailed;
+
+    /**
+     * A value indicating whether the client is providing data to a logging
+     * service.
+     */
+    private boolean isLogging;
 
     /**
      * The base address for URIs.
@@ -75,9 +95,26 @@ public class NbsHttpClient implements HttpClient, Closeable {
     private URI baseAddress;
 
     /**
-     * The default HTTP client.
+     * The normalised base address, terminated with a forward slash, to which
+     * relative URIs are appended.
+     */
+    private String baseAddressPrefix;
+
+    /**
+     * The pooled HTTP client used for all requests to the National System.
      */
-    private HttpClient currentClient;
+    private CloseableHttpClient currentClient;
+
+    /**
+     * The connection manager that pools connections to the National System.
+     */
+    private PoolingHttpClientConnectionManager connectionManager;
+
+    /**
+     * A value indicating whether this client owns, and must close, the pooled
+     * HTTP client.
+     */
+    private volatile boolean isConnectionPoolOwner = true;
 
     /**
      * Initializes a new instance of the NbsHttpClient class.
@@ -131,9 +168,54 @@ public class NbsHttpClient implements HttpClient, Closeable {
             com.reply.solidsoft.nbs.integration.extensions.functional.Action2<Object, TokenExpiredEventArgs> tokenExpired,
             boolean isLogging,
             String refreshToken) {
+        this(
+                apiConnectionData,
+                loggingService,
+                clientCredentialsService,
+                connectionIdentifier,
+                tokenExpired,
+                isLogging,
+                refreshToken,
+                null);
+    }
+
+    /**
+     * Initializes a new instance of the NbsHttpClient class.
+     *
+     * @param apiConnectionData The connection data for connecting to the
+     * National System.
+     * @param loggingService the logging service.
+     * @param clientCredentialsService The client credentials used by the API
+     * client to connect to the NBS.
+     * @param connectionIdentifier A connection identifier.
+     * @param tokenExpired The token expiry event handler.
+     * @param isLogging Indicates whether the library is providing data to a
+     * logging service.
+     * @param refreshToken The refresh token, if it exists.
+     * @param expiredClient A client with an expired token whose pooled
+     * connections are taken over by this client, if it exists.
+     */
+    public NbsHttpClient(
+            ApiConnection apiConnectionData,
+            LoggingService loggingService,
+            ClientCredentialsService clientCredentialsService,
+            ConnectionIdentifier connectionIdentifier,
+            com.reply.solidsoft.nbs.integration.extensions.functional.Action2<Object, TokenExpiredEventArgs> tokenExpired,
+            boolean isLogging,
+            String refreshToken,
+            NbsHttpClient expiredClient) {
         this.defaultRequestHeaders = new ArrayList<>();
         this.tokenExpired = (Object arg1, TokenExpiredEventArgs arg2) -> tokenExpired.invoke(arg1, arg2);
         this.loggingService = loggingService;
+
+        if (null != expiredClient && expiredClient.isConnectionPoolOwner && null != expiredClient.currentClient) {
+            // Take over the connection pool so that open connections survive token renewal.
+            // Requests still in flight on the expired client continue to use the same pool.
+            this.currentClient = expiredClient.currentClient;
+            this.connectionManager = expiredClient.connectionManager;
+            expiredClient.isConnectionPoolOwner = false;
+        }
+
         this.initialize(
                 apiConnectionData,
                 clientCredentialsService,
@@ -170,13 +252,22 @@ public class NbsHttpClient implements HttpClient, Closeable {
      */
     @Override
     public void close() {
-        try {
-            this.tokenExpiryTimer.cancel();
-        } catch (NullPointerException nullEx) {
-            String s = "Help!";
+        TokenManager currentTokenManager = this.tokenManager;
+        this.tokenManager = null;
+
+        if (null != currentTokenManager) {
+            currentTokenManager.removeListeners(this.tokenAcquiredListener, this.tokenRequestFailedListener);
+            TokenCache.release(currentTokenManager);
         }
 
-        this.tokenExpiryTimer = null;
+        try {
+            if (this.isConnectionPoolOwner && null != this.currentClient) {
+                this.isConnectionPoolOwner = false;
+                this.currentClient.close();
+            }
+        } catch (IOException ioEx) {
+            // ignore;
+        }
     }
 
     /**
@@ -225,14 +316,13 @@ public class NbsHttpClient implements HttpClient, Closeable {
         HttpGet httpGet = new HttpGet(requestUri);
 
         try {
-            CloseableHttpClient client = HttpClients.createDefault();
             headers.forEach((header) -> {
                 httpGet.setHeader(header);
             });
 
             this.setDefaultHeaders(httpGet);
 
-            return client.execute(httpGet);
+            return this.currentClient.execute(httpGet);
         } catch (UnsupportedEncodingException codingEx) {
             throw new AssertionError("UTF-8 not supported");
         } catch (IOException ioEx) {
@@ -251,7 +341,7 @@ public class NbsHttpClient implements HttpClient, Closeable {
      * has occurred. This class is the general class of exceptions produced by
      * failed or interrupted I/O operations.
      */
-    public final HttpResponse patch(String requestUri, StringEntity content, List<Header> headers) throws IOException {
+    public final HttpResponse patch(String requestUri, HttpEntity content, List<Header> headers) throws IOException {
         return this.patch(createUri(requestUri), content, headers);
     }
 
@@ -266,11 +356,10 @@ public class NbsHttpClient implements HttpClient, Closeable {
      * has occurred. This class is the general class of exceptions produced by
      * failed or interrupted I/O operations.
      */
-    public final HttpResponse patch(URI requestUri, StringEntity content, List<Header> headers) throws IOException {
+    public final HttpResponse patch(URI requestUri, HttpEntity content, List<Header> headers) throws IOException {
         HttpPatch httpPatch = new HttpPatch(requestUri);
 
         try {
-            CloseableHttpClient client = HttpClients.createDefault();
             httpPatch.setEntity(content);
 
             headers.forEach((header) -> {
@@ -279,7 +368,7 @@ public class NbsHttpClient implements HttpClient, Closeable {
 
             this.setDefaultHeaders(httpPatch);
 
-            return client.execute(httpPatch);
+            return this.currentClient.execute(httpPatch);
         } catch (UnsupportedEncodingException codingEx) {
             throw new AssertionError("UTF-8 not supported");
         } catch (IOException ioEx) {
@@ -298,7 +387,7 @@ public class NbsHttpClient implements HttpClient, Closeable {
      * has occurred. This class is the general class of exceptions produced by
      * failed or interrupted I/O operations.
      */
-    public final HttpResponse post(String requestUri, StringEntity content, List<Header> headers) throws IOException {
+    public final HttpResponse post(String requestUri, HttpEntity content, List<Header> headers) throws IOException {
         return this.post(createUri(requestUri), content, headers);
     }
 
@@ -313,11 +402,10 @@ public class NbsHttpClient implements HttpClient, Closeable {
      * has occurred. This class is the general class of exceptions produced by
      * failed or interrupted I/O operations.
      */
-    public final HttpResponse post(URI requestUri, StringEntity content, List<Header> headers) throws IOException {
+    public final HttpResponse post(URI requestUri, HttpEntity content, List<Header> headers) throws IOException {
         HttpPost httpPost = new HttpPost(requestUri);
 
         try {
-            CloseableHttpClient client = HttpClients.createDefault();
             httpPost.setEntity(content);
 
             headers.forEach((header) -> {
@@ -326,7 +414,7 @@ public class NbsHttpClient implements HttpClient, Closeable {
 
             this.setDefaultHeaders(httpPost);
 
-            return client.execute(httpPost);
+            return this.currentClient.execute(httpPost);
         } catch (UnsupportedEncodingException codingEx) {
             throw new AssertionError("UTF-8 not supported");
         } catch (IOException ioEx) {
@@ -335,9 +423,11 @@ public class NbsHttpClient implements HttpClient, Closeable {
     }
 
     /**
-     * The bearer token currently used by the client.
+     * The bearer token currently used by the client. The token is replaced
+     * atomically when it is refreshed, so each request uses either the old or
+     * the new token.
      */
-    private String bearerToken;
+    private volatile String bearerToken;
 
     /**
      * Gets the bearer token currently used by the client.
@@ -388,8 +478,10 @@ public class NbsHttpClient implements HttpClient, Closeable {
      * @param httpAction The HTTP request action.
      */
     private void setDefaultHeaders(HttpRequestBase httpAction) {
-        if (!httpAction.containsHeader("Authorization") && !com.reply.solidsoft.nbs.integration.extensions.StringExtensions.isNullOrWhiteSpace(bearerToken)) {
-            httpAction.setHeader("Authorization", String.format("%s %s", "Bearer", this.bearerToken));
+        String currentBearerToken = this.bearerToken;
+
+        if (!httpAction.containsHeader("Authorization") && !com.reply.solidsoft.nbs.integration.extensions.StringExtensions.isNullOrWhiteSpace(currentBearerToken)) {
+            httpAction.setHeader("Authorization", "Bearer ".concat(currentBearerToken));
         }
 
         if (!httpAction.containsHeader("emvs-data-entry-mode")) {
@@ -418,36 +510,49 @@ public class NbsHttpClient implements HttpClient, Closeable {
             if (this.baseAddress == null) {
                 return com.reply.solidsoft.nbs.integration.extensions.StringExtensions.isNullOrEmpty(uri) ? null : new URI(uri);
             } else {
-                URI providedUri = com.reply.solidsoft.nbs.integration.extensions.StringExtensions.isNullOrEmpty(uri) ? null : new URI(uri);
-
-                if (providedUri == null) {
-                    return this.baseAddress.normalize();
+                if (com.reply.solidsoft.nbs.integration.extensions.StringExtensions.isNullOrEmpty(uri)) {
+                    return this.baseAddress;
                 }
 
-                if (!providedUri.isAbsolute()) {
-                    String baseAddressString = this.baseAddress.normalize().toASCIIString();
-                    if (!baseAddressString.endsWith("/")) {
-                        if (uri.startsWith("/")) {
-                            return new URI(baseAddressString + uri);
-                        }
-
-                        return new URI(baseAddressString + "/" + uri);
-                    }
-
-                    if (uri.startsWith("/")) {
-                        baseAddressString = baseAddressString.substring(0, baseAddressString.length() - 2);
-                    }
-
-                    return new URI(baseAddressString + uri);
-                } else {
-                    return providedUri;
+                if (hasScheme(uri)) {
+                    return new URI(uri);
                 }
+
+                // The base address prefix is normalised once, so a relative
+                // URI is only parsed once, after it is appended.
+                return new URI(uri.startsWith("/")
+                        ? this.baseAddressPrefix.concat(uri.substring(1))
+                        : this.baseAddressPrefix.concat(uri));
             }
         } catch (URISyntaxException uriSyntaxEx) {
             return null;
         }
     }
 
+    /**
+     * Returns a value indicating whether a URI reference starts with a scheme
+     * and is therefore absolute.
+     *
+     * @param uri The string representation of the URI.
+     * @return True if the URI has a scheme; otherwise false.
+     */
+    private static boolean hasScheme(String uri) {
+        for (int index = 0; index < uri.length(); index++) {
+            switch (uri.charAt(index)) {
+                case ':':
+                    return index > 0;
+                case '/':
+                case '?':
+                case '#':
+                    return false;
+                default:
+                    break;
+            }
+        }
+
+        return false;
+    }
+
     /**
      * Initializes the NbsHttpClient class.
      *
@@ -462,23 +567,113 @@ public class NbsHttpClient implements HttpClient, Closeable {
      */
     private void initialize(ApiConnection apiConnectionData, ClientCredentialsService clientCredentialsService, ConnectionIdentifier connectionIdentifier, String refreshToken, boolean isLogging) {
         try {
-            this.baseAddress = new URI(apiConnectionData.getBaseUrl());
+            this.baseAddress = new URI(apiConnectionData.getBaseUrl()).normalize();
+            String baseAddressString = this.baseAddress.toASCIIString();
+            this.baseAddressPrefix = baseAddressString.endsWith("/")
+                    ? baseAddressString
+                    : baseAddressString.concat("/");
         } catch (URISyntaxException uriSytaxEx) {
             this.baseAddress = null;
+            this.baseAddressPrefix = null;
+        }
+
+        if (null == this.currentClient) {
+            this.createPooledClient(apiConnectionData);
         }
 
-        TokenClient tokenClient = Authentication.getTokenClient(apiConnectionData.getIdentityServerUrl(), clientCredentialsService, connectionIdentifier);
-        TokenResponse result = com.reply.solidsoft.nbs.integration.extensions.StringExtensions.isNullOrWhiteSpace(refreshToken) ? tokenClient == null ? null : tokenClient.RequestClientCredentials() : tokenClient == null ? null : tokenClient.RequestRefreshToken(refreshToken);
+        this.isLogging = isLogging;
+        this.tokenManager = TokenCache.acquire(
+                apiConnectionData,
+                clientCredentialsService,
+                connectionIdentifier);
+        this.tokenManager.addListeners(this.tokenAcquiredListener, this.tokenRequestFailedListener);
 
-        String message = Resources.getLogging_RequestBearerTokenSucceeded();
+        // Use the shared token if another client has already obtained it.
+        TokenResponse result = this.tokenManager.getToken(refreshToken);
 
-        if (result == null ? true : result.getIsHttpError()) {
-            message = Resources.getLogging_RequestBearerTokenFailed();
-        } else {
-            this.startTokenExpiryMonitor(result.getExpiresIn(), result.getRefreshToken());
-            this.setBearerToken(result.getAccessToken());
+        if (isToken(result) && !result.getAccessToken().equals(this.getBearerToken())) {
+            this.tokenAcquired(result);
         }
+    }
 
+    /**
+     * Renews the bearer token immediately. Requests continue to use the current
+     * bearer token until the new token has been obtained.
+     *
+     * @return True if a new bearer token was obtained; otherwise false.
+     */
+    public final boolean renewToken() {
+        TokenManager currentTokenManager = this.tokenManager;
+        TokenResponse result = currentTokenManager == null
+                ? null
+                : currentTokenManager.renewToken();
+
+        return isToken(result);
+    }
+
+    /**
+     * Renews a bearer token that has been rejected, without blocking the
+     * caller. Concurrent callers share a single renewal, and no renewal is
+     * made if the rejected token has already been replaced.
+     *
+     * @param rejectedBearerToken The bearer token that was rejected.
+     * @return A future value that is true if a bearer token is available;
+     * otherwise false.
+     */
+    public final CompletableFuture<Boolean> renewTokenAsync(String rejectedBearerToken) {
+        TokenManager currentTokenManager = this.tokenManager;
+
+        return currentTokenManager == null
+                ? CompletableFuture.completedFuture(false)
+                : currentTokenManager.renewTokenAsync(rejectedBearerToken).thenApply(NbsHttpClient::isToken);
+    }
+
+    /**
+     * Returns a value indicating whether a token response contains a token.
+     *
+     * @param result The token response.
+     * @return True if the response contains a token; otherwise false.
+     */
+    private static boolean isToken(TokenResponse result) {
+        return result != null
+                && !result.getIsHttpError()
+                && !com.reply.solidsoft.nbs.integration.extensions.StringExtensions.isNullOrWhiteSpace(result.getAccessToken());
+    }
+
+    /**
+     * Swaps in a newly acquired bearer token.
+     *
+     * @param result The token response.
+     */
+    private void tokenAcquired(TokenResponse result) {
+        this.setTokenExpiredEventArgs(new TokenExpiredEventArgs(result.getExpiresIn(), result.getRefreshToken()));
+        this.setBearerToken(result.getAccessToken());
+        this.logTokenRequest(Resources.getLogging_RequestBearerTokenSucceeded());
+    }
+
+    /**
+     * Handles a failed token request. The current bearer token remains in use
+     * and the token manager retries the request. If the current bearer token
+     * has expired, the Token Expired event is raised.
+     *
+     * @param result The token response, if it exists.
+     */
+    private void tokenRequestFailed(TokenResponse result) {
+        this.logTokenRequest(Resources.getLogging_RequestBearerTokenFailed());
+
+        TokenManager currentTokenManager = this.tokenManager;
+
+        if (null != this.tokenExpired && null != currentTokenManager && currentTokenManager.getIsExpired()) {
+            this.tokenExpired.invoke(this, this.getTokenExpiredEventArgs());
+        }
+    }
+
+    /**
+     * Logs the outcome of a token request.
+     *
+     * @param message The log message.
+     */
+    private void logTokenRequest(String message) {
         try {
 
             long timestamp = 0;
@@ -487,7 +682,7 @@ public class NbsHttpClient implements HttpClient, Closeable {
                 DataTable dataTable = this.loggingService.getTables().get("log");
 
                 if (null != dataTable) {
-                    timestamp = dataTable.getCurrentTimestamp();
+                    timestamp = dataTable.getSequenceTimestamp();
                 }
             }
 
@@ -499,7 +694,7 @@ public class NbsHttpClient implements HttpClient, Closeable {
             logEntry.setSeverity(1);
             logEntry.setMessage(message);
 
-            if (isLogging && null != this.loggingService) {
+            if (this.isLogging && null != this.loggingService) {
                 this.loggingService.getLog().invoke(this, logEntry);
             }
         } catch (java.lang.Exception e) {
@@ -508,41 +703,45 @@ public class NbsHttpClient implements HttpClient, Closeable {
     }
 
     /**
-     * Starts the token expiry monitor thread.
+     * Creates the pooled HTTP client used for all requests made by this
+     * client. Connections are kept alive and re-used across requests.
      *
-     * @param expiresInSecs The number of seconds after which the token expired.
-     * @param refreshToken The refresh token, if it exists.
+     * @param apiConnectionData The API connection Data.
      */
-    private void startTokenExpiryMonitor(Long expiresInSecs, String refreshToken) {
-        if (null == expiresInSecs || 0 == expiresInSecs) {
-            return;
+    private void createPooledClient(ApiConnection apiConnectionData) {
+        this.connectionManager = new PoolingHttpClientConnectionManager();
+
+        if (apiConnectionData.getMaxTotalConnections() > 0) {
+            this.connectionManager.setMaxTotal(apiConnectionData.getMaxTotalConnections());
         }
 
-        this.setTokenExpiredEventArgs(new TokenExpiredEventArgs(expiresInSecs, refreshToken));
-        long requestedDelayInMs = this.getTokenExpiredEventArgs().getExpiresIn() * 1000;
-        int actualDelay = requestedDelayInMs > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) requestedDelayInMs;
-        this.tokenExpiryTimer = new Timer();
+        if (apiConnectionData.getMaxConnectionsPerRoute() > 0) {
+            this.connectionManager.setDefaultMaxPerRoute(apiConnectionData.getMaxConnectionsPerRoute());
+        }
 
-        NbsHttpClient thisClient = this;
-        this.tokenExpiryTimer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                thisClient.tokenExpiryMonitor();
-            }
-        }, actualDelay, actualDelay);
-    }
+        if (apiConnectionData.getValidateAfterInactivity() > 0) {
+            this.connectionManager.setValidateAfterInactivity(apiConnectionData.getValidateAfterInactivity());
+        }
 
-    /**
-     * Raises the Token Expired event and kills the timer.
-     */
-    private void tokenExpiryMonitor() {
-        // Raise the TTokenExpiryMonitorokenExpired event.
-        if (null != this.tokenExpired) {
-            this.tokenExpired.invoke(this, this.getTokenExpiredEventArgs());
+        // Honour any keep-alive timeout sent by the National System.  Otherwise, use the default.
+        long keepAliveDuration = apiConnectionData.getKeepAliveDuration() > 0
+                ? apiConnectionData.getKeepAliveDuration()
+                : -1;
+        ConnectionKeepAliveStrategy keepAliveStrategy = (response, context) -> {
+            long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return duration > 0 ? duration : keepAliveDuration;
+        };
+
+        HttpClientBuilder builder = HttpClients.custom()
+                .setConnectionManager(this.connectionManager)
+                .setKeepAliveStrategy(keepAliveStrategy)
+                .evictExpiredConnections();
+
+        if (apiConnectionData.getIdleConnectionTimeout() > 0) {
+            builder.evictIdleConnections(apiConnectionData.getIdleConnectionTimeout(), TimeUnit.MILLISECONDS);
         }
 
-        this.tokenExpiryTimer.cancel();
-        this.tokenExpiryTimer = null;
+        this.currentClient = builder.build();
     }
 
     /**
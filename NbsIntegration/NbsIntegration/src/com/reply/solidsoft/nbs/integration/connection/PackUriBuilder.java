@@ -0,0 +1,274 @@
+/**
+ * -----------------------------------------------------------------------------
+ * File=PackUriBuilder.java
+ * Company=Solidsoft Reply
+ * Copyright © 2017 Solidsoft Reply Ltd.
+ *
+ * Builds relative URIs for single pack resources.
+ * -----------------------------------------------------------------------------
+ */
+package com.reply.solidsoft.nbs.integration.connection;
+
+import com.reply.solidsoft.nbs.integration.model.PackIdentifier;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Builds relative URIs for single pack resources in the form
+ * product/{scheme}/{productCode}/pack/{serialNumber}?batch={batch}&amp;expiry={expiry}.
+ * <p>
+ * URIs are built in a per-thread buffer that is reused across calls, so only
+ * the resulting string is allocated. Path segments are percent-encoded where
+ * they contain characters that are not permitted in a URI path segment. Query
+ * values are form-encoded in the same way as URIBuilder.
+ */
+public final class PackUriBuilder {
+
+    /**
+     * The upper-case hexadecimal digits used for percent-encoding.
+     */
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    /**
+     * The initial capacity of the per-thread buffer.
+     */
+    private static final int INITIAL_CAPACITY = 128;
+
+    /**
+     * The capacity above which a per-thread buffer is discarded rather than
+     * retained.
+     */
+    private static final int MAXIMUM_RETAINED_CAPACITY = 1024;
+
+    /**
+     * The per-thread buffer in which URIs are built.
+     */
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(INITIAL_CAPACITY));
+
+    /**
+     * Prevents instantiation of the PackUriBuilder class.
+     */
+    private PackUriBuilder() {
+    }
+
+    /**
+     * Builds the relative URI for a single pack resource.
+     *
+     * @param pack The pack identifier.
+     * @return The relative URI of the pack resource.
+     */
+    public static String build(PackIdentifier pack) {
+        return build(
+                pack.getProductCodeScheme(),
+                pack.getProductCode(),
+                pack.getSerialNumber(),
+                pack.getBatchId(),
+                pack.getExpiryDate());
+    }
+
+    /**
+     * Builds the relative URI for a single pack resource.
+     *
+     * @param productCodeScheme The product code scheme.
+     * @param productCode The product code.
+     * @param serialNumber The serial number.
+     * @param batch The batch number, or null.
+     * @param expiry The expiry date, or null.
+     * @return The relative URI of the pack resource.
+     */
+    public static String build(String productCodeScheme, String productCode, String serialNumber, String batch, String expiry) {
+        StringBuilder builder = BUFFER.get();
+        builder.setLength(0);
+
+        builder.append("product/");
+        appendLowerCaseSegment(builder, productCodeScheme);
+        builder.append('/');
+        appendSegment(builder, productCode);
+        builder.append("/pack/");
+        appendSegment(builder, serialNumber);
+
+        char separator = '?';
+
+        if (batch != null) {
+            builder.append(separator).append("batch=");
+            appendQueryValue(builder, batch);
+            separator = '&';
+        }
+
+        if (expiry != null) {
+            builder.append(separator).append("expiry=");
+            appendQueryValue(builder, expiry);
+        }
+
+        String uri = builder.toString();
+
+        if (builder.capacity() > MAXIMUM_RETAINED_CAPACITY) {
+            BUFFER.remove();
+        }
+
+        return uri;
+    }
+
+    /**
+     * Appends a path segment, converted to lower case.
+     *
+     * @param builder The buffer.
+     * @param segment The path segment.
+     */
+    private static void appendLowerCaseSegment(StringBuilder builder, String segment) {
+        if (segment == null) {
+            builder.append("null");
+            return;
+        }
+
+        for (int index = 0; index < segment.length(); index++) {
+            char character = segment.charAt(index);
+
+            if (character >= 'A' && character <= 'Z') {
+                builder.append((char) (character + ('a' - 'A')));
+            } else if (isPathCharacter(character)) {
+                builder.append(character);
+            } else {
+                appendEncoded(builder, segment.substring(index).toLowerCase(), 0, false);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Appends a path segment, percent-encoding any characters that are not
+     * permitted in a URI path segment.
+     *
+     * @param builder The buffer.
+     * @param segment The path segment.
+     */
+    private static void appendSegment(StringBuilder builder, String segment) {
+        if (segment == null) {
+            builder.append("null");
+            return;
+        }
+
+        for (int index = 0; index < segment.length(); index++) {
+            char character = segment.charAt(index);
+
+            if (isPathCharacter(character)) {
+                builder.append(character);
+            } else {
+                appendEncoded(builder, segment, index, false);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Appends a form-encoded query parameter value.
+     *
+     * @param builder The buffer.
+     * @param value The query parameter value.
+     */
+    private static void appendQueryValue(StringBuilder builder, String value) {
+        for (int index = 0; index < value.length(); index++) {
+            char character = value.charAt(index);
+
+            if (isQueryCharacter(character)) {
+                builder.append(character);
+            } else {
+                appendEncoded(builder, value, index, true);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Appends the remainder of a value, percent-encoding characters as
+     * required. This slower path is only taken for values that contain
+     * characters requiring encoding.
+     *
+     * @param builder The buffer.
+     * @param value The value.
+     * @param start The index of the first character to be appended.
+     * @param isQuery True if the value is a query parameter value; false if it
+     * is a path segment.
+     */
+    private static void appendEncoded(StringBuilder builder, String value, int start, boolean isQuery) {
+        byte[] bytes = value.substring(start).getBytes(StandardCharsets.UTF_8);
+
+        for (byte octet : bytes) {
+            char character = (char) (octet & 0xFF);
+
+            if (isQuery ? isQueryCharacter(character) : isPathCharacter(character)) {
+                builder.append(character);
+            } else if (isQuery && character == ' ') {
+                builder.append('+');
+            } else {
+                builder.append('%')
+                        .append(HEX_DIGITS[(octet >> 4) & 0x0F])
+                        .append(HEX_DIGITS[octet & 0x0F]);
+            }
+        }
+    }
+
+    /**
+     * Returns a value indicating whether a character may appear unencoded in a
+     * URI path segment.
+     *
+     * @param character The character.
+     * @return True if the character may appear unencoded; otherwise false.
+     */
+    private static boolean isPathCharacter(char character) {
+        if (isAlphanumeric(character)) {
+            return true;
+        }
+
+        switch (character) {
+            case '-':
+            case '.':
+            case '_':
+            case '~':
+            case '!':
+            case '$':
+            case '&':
+            case '\'':
+            case '(':
+            case ')':
+            case '*':
+            case '+':
+            case ',':
+            case ';':
+            case '=':
+            case ':':
+            case '@':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Returns a value indicating whether a character may appear unencoded in a
+     * form-encoded query parameter value.
+     *
+     * @param character The character.
+     * @return True if the character may appear unencoded; otherwise false.
+     */
+    private static boolean isQueryCharacter(char character) {
+        return isAlphanumeric(character)
+                || character == '-'
+                || character == '_'
+                || character == '.'
+                || character == '*';
+    }
+
+    /**
+     * Returns a value indicating whether a character is an ASCII letter or
+     * digit.
+     *
+     * @param character The character.
+     * @return True if the character is an ASCII letter or digit; otherwise
+     * false.
+     */
+    private static boolean isAlphanumeric(char character) {
+        return (character >= 'a' && character <= 'z')
+                || (character >= 'A' && character <= 'Z')
+                || (character >= '0' && character <= '9');
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * -----------------------------------------------------------------------------
+ * File=TokenCache.java
+ * Company=Solidsoft Reply
+ * Copyright © 2017 Solidsoft Reply Ltd.
+ *
+ * A process-wide cache of token managers.
+ * -----------------------------------------------------------------------------
+ */
+package com.reply.solidsoft.nbs.integration.connection;
+
+import com.reply.solidsoft.nbs.integration.clientcredentials.ClientCredentialsService;
+import com.reply.solidsoft.nbs.integration.clientcredentials.model.ConnectionIdentifier;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A process-wide cache of token managers, keyed by identity server address,
+ * client credentials service and connection identifier. All clients that
+ * connect to the same identity server with the same client credentials service
+ * and connection identifier share a single token manager, and therefore a
+ * single bearer token and a single background refresh. A token manager is
+ * closed when the last client that shares it releases it.
+ */
+public final class TokenCache {
+
+    /**
+     * The token managers, keyed by identity server address, client credentials
+     * service, organisation, location and equipment.
+     */
+    private static final ConcurrentHashMap<List<Object>, TokenManager> TOKEN_MANAGERS = new ConcurrentHashMap<>();
+
+    /**
+     * Prevents instantiation of the TokenCache class.
+     */
+    private TokenCache() {
+    }
+
+    /**
+     * Obtains the shared token manager for a connection. Each call must be
+     * matched by a call to release.
+     * <p>
+     * Clients only share a token manager if they use the same client
+     * credentials service, so a client never obtains tokens with the
+     * credentials of another client. The remaining connection settings, such
+     * as the refresh skew, the token request timeouts and the connection pool,
+     * are those of the client that created the token manager, and apply to
+     * every client that shares it.
+     *
+     * @param apiConnectionData The connection data for connecting to the
+     * identity server. Only the identity server address is part of the key.
+     * The remaining settings are used if a new token manager is created.
+     * @param clientCredentialsService The client credentials service. The
+     * service instance is part of the key.
+     * @param connectionIdentifier The connection identifier.
+     * @return The shared token manager.
+     */
+    public static TokenManager acquire(
+            ApiConnection apiConnectionData,
+            ClientCredentialsService clientCredentialsService,
+            ConnectionIdentifier connectionIdentifier) {
+        return TOKEN_MANAGERS.compute(getKey(apiConnectionData.getIdentityServerUrl(), clientCredentialsService, connectionIdentifier), (key, tokenManager) -> {
+            TokenManager sharedTokenManager = tokenManager;
+
+            if (null == sharedTokenManager) {
+                sharedTokenManager = new TokenManager(apiConnectionData, clientCredentialsService, connectionIdentifier);
+                sharedTokenManager.cacheKey = key;
+            }
+
+            sharedTokenManager.referenceCount++;
+            return sharedTokenManager;
+        });
+    }
+
+    /**
+     * Releases a shared token manager. The token manager is removed from the
+     * cache and closed when it is no longer used by any client.
+     *
+     * @param tokenManager The token manager obtained by calling acquire.
+     */
+    public static void release(TokenManager tokenManager) {
+        if (null == tokenManager || null == tokenManager.cacheKey) {
+            return;
+        }
+
+        TOKEN_MANAGERS.computeIfPresent(tokenManager.cacheKey, (key, sharedTokenManager) -> {
+            if (sharedTokenManager != tokenManager) {
+                return sharedTokenManager;
+            }
+
+            if (--sharedTokenManager.referenceCount > 0) {
+                return sharedTokenManager;
+            }
+
+            sharedTokenManager.close();
+            return null;
+        });
+    }
+
+    /**
+     * Returns the cache key for a connection. Connection identifiers are
+     * mutable and do not implement value equality, so their values are
+     * copied into the key when the token manager is created. The client
+     * credentials service is compared using its own equality, which is
+     * instance equality unless the service overrides it.
+     *
+     * @param identityServerUrl The address of the identity server.
+     * @param clientCredentialsService The client credentials service.
+     * @param connectionIdentifier The connection identifier.
+     * @return The cache key.
+     */
+    private static List<Object> getKey(
+            String identityServerUrl,
+            ClientCredentialsService clientCredentialsService,
+            ConnectionIdentifier connectionIdentifier) {
+        return connectionIdentifier == null
+                ? Arrays.asList(identityServerUrl, clientCredentialsService, null, null, null)
+                : Arrays.asList(
+                        identityServerUrl,
+                        clientCredentialsService,
+                        connectionIdentifier.getOrganisation(),
+                        connectionIdentifier.getLocation(),
+                        connectionIdentifier.getEquipment());
+    }
+}
@@ -12,6 +12,7 @@ package com.reply.solidsoft.nbs.integration.connection;
 import com.reply.solidsoft.nbs.integration.clientcredentials.model.ClientCredentials;
 import com.reply.solidsoft.nbs.integration.model.HttpStatusCode;
 import org.apache.http.client.ResponseHandler;
+import org.apache.oltu.oauth2.client.HttpClient;
 import org.apache.oltu.oauth2.client.OAuthClient;
 import org.apache.oltu.oauth2.client.URLConnectionClient;
 import org.apache.oltu.oauth2.client.request.OAuthClientRequest;
@@ -125,6 +126,47 @@ public class TokenClient {
         this.authenticationStyle = authenticationStyle;
     }
 
+    /**
+     * Initializes an instance of the TokenClient class.
+     *
+     * @param address The address of the token server.
+     * @param clientCredentials A set of client credentials.
+     * @param httpClient The HTTP transport used for token requests.
+     */
+    public TokenClient(
+            String address,
+            ClientCredentials clientCredentials,
+            HttpClient httpClient) {
+        this.address = address;
+        this.clientId = clientCredentials.getClientId();
+        this.clientSecret = clientCredentials.getClientSecret();
+        this.httpClient = httpClient;
+    }
+
+    /**
+     * The HTTP transport used for token requests.
+     */
+    private HttpClient httpClient;
+
+    /**
+     * Gets the HTTP transport used for token requests.
+     *
+     * @return The HTTP transport used for token requests.
+     */
+    public HttpClient getHttpClient() {
+        return this.httpClient;
+    }
+
+    /**
+     * Sets the HTTP transport used for token requests. If no transport is
+     * set, a new URL connection is opened for each request.
+     *
+     * @param value The HTTP transport used for token requests.
+     */
+    public void setHttpClient(HttpClient value) {
+        this.httpClient = value;
+    }
+
     /**
      * The client identifier.
      */
@@ -244,7 +286,7 @@ public class TokenClient {
      * @return A token based on client credentials.
      */
     public TokenResponse RequestClientCredentials(String scope, Object extra) {
-        OAuthClient client = new OAuthClient(new URLConnectionClient());
+        OAuthClient client = this.createOAuthClient();
         OAuthClientRequest request = this.getOauthClientRequest(scope);
 
         try {
@@ -282,7 +324,7 @@ public class TokenClient {
      * @return A token using a refresh token.
      */
     public TokenResponse RequestRefreshToken(String refreshToken, Object extra) {
-        OAuthClient client = new OAuthClient(new URLConnectionClient());
+        OAuthClient client = this.createOAuthClient();
         OAuthClientRequest bearerClientRequest = getOauthRefreshTokenRequest(refreshToken);
 
         try {
@@ -297,6 +339,18 @@ public class TokenClient {
         }
     }
 
+    /**
+     * Creates an OAuth 2.0 client that uses the HTTP transport for token
+     * requests, if it is set.
+     *
+     * @return An OAuth 2.0 client.
+     */
+    private OAuthClient createOAuthClient() {
+        return new OAuthClient(this.httpClient == null
+                ? new URLConnectionClient()
+                : this.httpClient);
+    }
+
     /**
      * Gets an OAuth 2.0 request.
      *
@@ -0,0 +1,200 @@
+/**
+ * -----------------------------------------------------------------------------
+ * File=TokenHttpClient.java
+ * Company=Solidsoft Reply
+ * Copyright © 2017 Solidsoft Reply Ltd.
+ *
+ * A pooled HTTP transport for OAuth 2.0 token requests.
+ * -----------------------------------------------------------------------------
+ */
+package com.reply.solidsoft.nbs.integration.connection;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+import org.apache.oltu.oauth2.client.HttpClient;
+import org.apache.oltu.oauth2.client.request.OAuthClientRequest;
+import org.apache.oltu.oauth2.client.response.OAuthClientResponse;
+import org.apache.oltu.oauth2.client.response.OAuthClientResponseFactory;
+import org.apache.oltu.oauth2.common.OAuth;
+import org.apache.oltu.oauth2.common.exception.OAuthProblemException;
+import org.apache.oltu.oauth2.common.exception.OAuthSystemException;
+
+/**
+ * A pooled HTTP transport for OAuth 2.0 token requests. Connections to the
+ * identity server are kept alive and re-used, the pool has its own connection
+ * limits, separate from the pool used for requests to the National System,
+ * and every request is bounded by connect, connection request and socket
+ * timeouts, so that a slow identity server cannot hang token acquisition
+ * indefinitely.
+ */
+public class TokenHttpClient implements HttpClient, Closeable {
+
+    /**
+     * The pooled HTTP client.
+     */
+    private final CloseableHttpClient client;
+
+    /**
+     * Initializes a new instance of the TokenHttpClient class.
+     *
+     * @param apiConnectionData The connection data for connecting to the
+     * National System and the identity server.
+     */
+    public TokenHttpClient(ApiConnection apiConnectionData) {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+
+        if (apiConnectionData.getMaxTokenConnections() > 0) {
+            connectionManager.setMaxTotal(apiConnectionData.getMaxTokenConnections());
+            connectionManager.setDefaultMaxPerRoute(apiConnectionData.getMaxTokenConnections());
+        }
+
+        if (apiConnectionData.getValidateAfterInactivity() > 0) {
+            connectionManager.setValidateAfterInactivity(apiConnectionData.getValidateAfterInactivity());
+        }
+
+        int timeout = apiConnectionData.getTokenRequestTimeout() > 0
+                ? apiConnectionData.getTokenRequestTimeout()
+                : -1;
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(timeout)
+                .setConnectionRequestTimeout(timeout)
+                .setSocketTimeout(timeout)
+                .build();
+
+        HttpClientBuilder builder = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .evictExpiredConnections();
+
+        if (apiConnectionData.getIdleConnectionTimeout() > 0) {
+            builder.evictIdleConnections(apiConnectionData.getIdleConnectionTimeout(), TimeUnit.MILLISECONDS);
+        }
+
+        this.client = builder.build();
+    }
+
+    /**
+     * Performs an OAuth 2.0 request.
+     *
+     * @param <T> The type of the OAuth 2.0 response.
+     * @param request The OAuth 2.0 request.
+     * @param headers Additional HTTP headers.
+     * @param requestMethod The HTTP method.
+     * @param responseClass The class of the OAuth 2.0 response.
+     * @return The OAuth 2.0 response.
+     * @throws OAuthSystemException The request could not be performed.
+     * @throws OAuthProblemException The response could not be processed.
+     */
+    @Override
+    public <T extends OAuthClientResponse> T execute(
+            OAuthClientRequest request,
+            Map<String, String> headers,
+            String requestMethod,
+            Class<T> responseClass) throws OAuthSystemException, OAuthProblemException {
+        HttpRequestBase httpRequest;
+
+        if (OAuth.HttpMethod.POST.equals(requestMethod)) {
+            HttpPost httpPost = new HttpPost(request.getLocationUri());
+
+            if (null != request.getBody()) {
+                httpPost.setEntity(new StringEntity(request.getBody(), StandardCharsets.UTF_8));
+            }
+
+            httpRequest = httpPost;
+        } else {
+            httpRequest = new HttpGet(request.getLocationUri());
+        }
+
+        setHeaders(httpRequest, request.getHeaders());
+        setHeaders(httpRequest, headers);
+
+        try (CloseableHttpResponse response = this.client.execute(httpRequest)) {
+            HttpEntity entity = response.getEntity();
+            String body = entity == null
+                    ? ""
+                    : EntityUtils.toString(entity, StandardCharsets.UTF_8);
+            Header contentType = entity == null
+                    ? null
+                    : entity.getContentType();
+
+            return OAuthClientResponseFactory.createCustomResponse(
+                    body,
+                    contentType == null ? null : contentType.getValue(),
+                    response.getStatusLine().getStatusCode(),
+                    getHeaders(response.getAllHeaders()),
+                    responseClass);
+        } catch (IOException ioEx) {
+            throw new OAuthSystemException(ioEx);
+        }
+    }
+
+    /**
+     * Shuts down the transport. The transport is owned by its token manager,
+     * which closes it, so OAuth clients cannot shut it down.
+     */
+    @Override
+    public void shutdown() {
+        // ignore;
+    }
+
+    /**
+     * Closes the transport and its connection pool.
+     */
+    @Override
+    public void close() {
+        try {
+            this.client.close();
+        } catch (IOException ioEx) {
+            // ignore;
+        }
+    }
+
+    /**
+     * Adds HTTP headers to a request.
+     *
+     * @param httpRequest The HTTP request.
+     * @param headers The HTTP headers.
+     */
+    private static void setHeaders(HttpRequestBase httpRequest, Map<String, String> headers) {
+        if (null == headers) {
+            return;
+        }
+
+        headers.forEach(httpRequest::setHeader);
+    }
+
+    /**
+     * Returns the HTTP headers of a response, grouped by name.
+     *
+     * @param headers The HTTP headers.
+     * @return A map of header names to values.
+     */
+    private static Map<String, List<String>> getHeaders(Header[] headers) {
+        Map<String, List<String>> headerMap = new HashMap<>();
+
+        for (Header header : headers) {
+            headerMap.computeIfAbsent(header.getName(), name -> new ArrayList<>()).add(header.getValue());
+        }
+
+        return headerMap;
+    }
+}
@@ -0,0 +1,533 @@
+/**
+ * -----------------------------------------------------------------------------
+ * File=TokenManager.java
+ * Company=Solidsoft Reply
+ * Copyright © 2017 Solidsoft Reply Ltd.
+ *
+ * Obtains bearer tokens and refreshes them in the background before they
+ * expire.
+ * -----------------------------------------------------------------------------
+ */
+package com.reply.solidsoft.nbs.integration.connection;
+
+import com.reply.solidsoft.nbs.integration.clientcredentials.ClientCredentialsService;
+import com.reply.solidsoft.nbs.integration.clientcredentials.model.ConnectionIdentifier;
+import com.reply.solidsoft.nbs.integration.extensions.functional.Action1;
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Obtains bearer tokens and refreshes them in the background before they
+ * expire.
+ * <p>
+ * A refresh is scheduled ahead of the expiry of each token by a configurable
+ * skew. The refresh is timed by a shared timer thread, and the new token is
+ * requested on a worker thread, so requests to the National System continue to
+ * use the current token until the new one has been obtained, and a slow
+ * identity server does not delay the refresh of tokens from other identity
+ * servers. If a refresh fails, it is retried until a token is obtained or
+ * the manager is closed.
+ * <p>
+ * Token managers are shared by all clients that connect with the same client
+ * credentials service and connection identifier, and are obtained from the
+ * TokenCache.
+ */
+public class TokenManager implements Closeable {
+
+    /**
+     * The interval in milliseconds between attempts to refresh a token after a
+     * failed attempt.
+     */
+    private static final long FAILED_REFRESH_RETRY_INTERVAL = 30000L;
+
+    /**
+     * The minimum delay in milliseconds before a scheduled refresh.
+     */
+    private static final long MINIMUM_REFRESH_DELAY = 1000L;
+
+    /**
+     * The shared timer on which token refreshes are scheduled. Token requests
+     * are not made on the timer thread.
+     */
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "NbsTokenRefresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * The shared pool of daemon worker threads on which background token
+     * requests are made. Each token manager has at most one scheduled refresh
+     * and one pending renewal, so the number of threads is bounded by twice
+     * the number of token managers. Idle threads time out.
+     */
+    private static final ExecutorService TOKEN_REQUESTS = createTokenRequestExecutor();
+
+    /**
+     * The address of the identity server.
+     */
+    private final String identityServerUrl;
+
+    /**
+     * The client credentials service.
+     */
+    private final ClientCredentialsService clientCredentialsService;
+
+    /**
+     * The connection identifier.
+     */
+    private final ConnectionIdentifier connectionIdentifier;
+
+    /**
+     * The time in milliseconds before the expiry of a token at which it is
+     * refreshed.
+     */
+    private final long refreshSkew;
+
+    /**
+     * The pooled HTTP transport for token requests.
+     */
+    private final TokenHttpClient tokenHttpClient;
+
+    /**
+     * The listeners that are invoked with each token that is obtained.
+     */
+    private final List<Action1<TokenResponse>> tokenAcquiredListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * The listeners that are invoked with each failed token response.
+     */
+    private final List<Action1<TokenResponse>> tokenRequestFailedListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * The lock for token requests and for the scheduled refresh.
+     */
+    private final Object lock = new Object();
+
+    /**
+     * The lock for the pending renewal.
+     */
+    private final Object renewalLock = new Object();
+
+    /**
+     * The renewal that is currently in progress, if it exists.
+     */
+    private CompletableFuture<TokenResponse> pendingRenewal;
+
+    /**
+     * The current token, if it exists.
+     */
+    private volatile TokenResponse currentToken;
+
+    /**
+     * The number of token requests that have completed. Used to detect a
+     * request that completed while waiting for the lock.
+     */
+    private volatile long generation;
+
+    /**
+     * The key of the manager in the TokenCache, if it is shared.
+     */
+    List<Object> cacheKey;
+
+    /**
+     * The number of clients that share the manager. Only updated by the
+     * TokenCache.
+     */
+    int referenceCount;
+
+    /**
+     * The current refresh token, if it exists.
+     */
+    private volatile String refreshToken;
+
+    /**
+     * The time at which the current token expires, or Long.MAX_VALUE if the
+     * token does not expire.
+     */
+    private volatile long expiresAt = Long.MAX_VALUE;
+
+    /**
+     * The scheduled refresh of the current token.
+     */
+    private ScheduledFuture<?> scheduledRefresh;
+
+    /**
+     * A value indicating whether the manager has been closed.
+     */
+    private volatile boolean isClosed;
+
+    /**
+     * Initializes a new instance of the TokenManager class.
+     *
+     * @param apiConnectionData The connection data for connecting to the
+     * identity server.
+     * @param clientCredentialsService The client credentials service.
+     * @param connectionIdentifier The connection identifier.
+     */
+    public TokenManager(
+            ApiConnection apiConnectionData,
+            ClientCredentialsService clientCredentialsService,
+            ConnectionIdentifier connectionIdentifier) {
+        this.identityServerUrl = apiConnectionData.getIdentityServerUrl();
+        this.clientCredentialsService = clientCredentialsService;
+        this.connectionIdentifier = connectionIdentifier;
+        this.refreshSkew = Math.max(apiConnectionData.getTokenRefreshSkew(), 0);
+        this.tokenHttpClient = new TokenHttpClient(apiConnectionData);
+    }
+
+    /**
+     * Binds listeners to the token manager.
+     *
+     * @param tokenAcquired The listener that is invoked with each token that
+     * is obtained.
+     * @param tokenRequestFailed The listener that is invoked with each failed
+     * token response.
+     */
+    public final void addListeners(Action1<TokenResponse> tokenAcquired, Action1<TokenResponse> tokenRequestFailed) {
+        if (null != tokenAcquired) {
+            this.tokenAcquiredListeners.add(tokenAcquired);
+        }
+
+        if (null != tokenRequestFailed) {
+            this.tokenRequestFailedListeners.add(tokenRequestFailed);
+        }
+    }
+
+    /**
+     * Un-binds listeners from the token manager.
+     *
+     * @param tokenAcquired The token acquired listener.
+     * @param tokenRequestFailed The token request failed listener.
+     */
+    public final void removeListeners(Action1<TokenResponse> tokenAcquired, Action1<TokenResponse> tokenRequestFailed) {
+        this.tokenAcquiredListeners.remove(tokenAcquired);
+        this.tokenRequestFailedListeners.remove(tokenRequestFailed);
+    }
+
+    /**
+     * Returns the current token, requesting a new token only if there is no
+     * current token or it has expired. Concurrent callers wait for a single
+     * in-progress request and share its result.
+     *
+     * @param refreshToken The refresh token to be used if a new token is
+     * requested and the manager does not hold a refresh token.
+     * @return The token response, or null if no token client could be
+     * obtained.
+     */
+    public final TokenResponse getToken(String refreshToken) {
+        TokenResponse token = this.currentToken;
+
+        if (null != token && !this.getIsExpired()) {
+            return token;
+        }
+
+        long observedGeneration = this.generation;
+
+        synchronized (this.lock) {
+            token = this.currentToken;
+
+            if (null != token && !this.getIsExpired()) {
+                return token;
+            }
+
+            if (this.generation != observedGeneration) {
+                // Another caller requested a token while this caller was waiting,
+                // and the request failed.  Do not repeat it.
+                return token;
+            }
+
+            return this.requestToken(
+                    com.reply.solidsoft.nbs.integration.extensions.StringExtensions.isNullOrWhiteSpace(this.refreshToken)
+                    ? refreshToken
+                    : this.refreshToken);
+        }
+    }
+
+    /**
+     * Gets a value indicating whether the current token has expired.
+     *
+     * @return True if the current token has expired; otherwise false.
+     */
+    public final boolean getIsExpired() {
+        return currentTime() >= this.expiresAt;
+    }
+
+    /**
+     * Requests a new token immediately and schedules its refresh. If the
+     * request succeeds, the token acquired listener is invoked before this
+     * method returns.
+     *
+     * @param refreshToken The refresh token to be used, if it exists.
+     * Otherwise, a token is requested using client credentials.
+     * @return The token response, or null if no token client could be
+     * obtained.
+     */
+    public final TokenResponse requestToken(String refreshToken) {
+        synchronized (this.lock) {
+            if (this.isClosed) {
+                return null;
+            }
+
+            this.cancelScheduledRefresh();
+
+            TokenResponse result = this.doTokenRequest(refreshToken);
+            this.generation++;
+
+            if (isSuccess(result)) {
+                this.onTokenAcquired(result);
+            } else {
+                this.onTokenRequestFailed(result);
+            }
+
+            return result;
+        }
+    }
+
+    /**
+     * Renews the current token immediately, using the current refresh token if
+     * it exists.
+     *
+     * @return The token response, or null if no token client could be
+     * obtained.
+     */
+    public final TokenResponse renewToken() {
+        return this.requestToken(this.refreshToken);
+    }
+
+    /**
+     * Renews a token that has been rejected, without blocking the caller. If
+     * the token has already been replaced, the current token is returned
+     * immediately. Otherwise, all callers share a single renewal.
+     *
+     * @param rejectedAccessToken The access token that was rejected, if it
+     * exists.
+     * @return A future token response, which may be null if no token client
+     * could be obtained.
+     */
+    public final CompletableFuture<TokenResponse> renewTokenAsync(String rejectedAccessToken) {
+        TokenResponse token = this.currentToken;
+
+        if (null != token
+                && null != rejectedAccessToken
+                && !rejectedAccessToken.equals(token.getAccessToken())
+                && !this.getIsExpired()) {
+            return CompletableFuture.completedFuture(token);
+        }
+
+        synchronized (this.renewalLock) {
+            if (null != this.pendingRenewal) {
+                return this.pendingRenewal;
+            }
+
+            CompletableFuture<TokenResponse> renewal = new CompletableFuture<>();
+            this.pendingRenewal = renewal;
+
+            try {
+                TOKEN_REQUESTS.execute(() -> {
+                    TokenResponse result = null;
+
+                    try {
+                        result = this.renewToken();
+                    } catch (RuntimeException ex) {
+                        // ignore;
+                    } finally {
+                        synchronized (this.renewalLock) {
+                            this.pendingRenewal = null;
+                        }
+
+                        renewal.complete(result);
+                    }
+                });
+            } catch (RejectedExecutionException ex) {
+                this.pendingRenewal = null;
+                renewal.complete(null);
+            }
+
+            return renewal;
+        }
+    }
+
+    /**
+     * Closes the manager and cancels any scheduled refresh.
+     */
+    @Override
+    public void close() {
+        synchronized (this.lock) {
+            this.isClosed = true;
+            this.cancelScheduledRefresh();
+            this.tokenHttpClient.close();
+        }
+    }
+
+    /**
+     * Performs a token request. A failed refresh token request falls back to
+     * a client credentials request.
+     *
+     * @param refreshToken The refresh token, if it exists.
+     * @return The token response, or null if no token client could be
+     * obtained.
+     */
+    private TokenResponse doTokenRequest(String refreshToken) {
+        try {
+            TokenClient tokenClient = Authentication.getTokenClient(
+                    this.identityServerUrl,
+                    this.clientCredentialsService,
+                    this.connectionIdentifier,
+                    this.tokenHttpClient);
+
+            if (tokenClient == null) {
+                return null;
+            }
+
+            if (!com.reply.solidsoft.nbs.integration.extensions.StringExtensions.isNullOrWhiteSpace(refreshToken)) {
+                TokenResponse result = tokenClient.RequestRefreshToken(refreshToken);
+
+                if (isSuccess(result)) {
+                    return result;
+                }
+            }
+
+            return tokenClient.RequestClientCredentials();
+        } catch (RuntimeException ex) {
+            return new TokenResponse(ex);
+        }
+    }
+
+    /**
+     * Records a newly acquired token, schedules its refresh and notifies the
+     * listener.
+     *
+     * @param result The token response.
+     */
+    private void onTokenAcquired(TokenResponse result) {
+        Long expiresIn = result.getExpiresIn();
+        String newRefreshToken = result.getRefreshToken();
+
+        if (!com.reply.solidsoft.nbs.integration.extensions.StringExtensions.isNullOrWhiteSpace(newRefreshToken)) {
+            this.refreshToken = newRefreshToken;
+        }
+
+        this.currentToken = result;
+
+        if (null == expiresIn || expiresIn <= 0) {
+            this.expiresAt = Long.MAX_VALUE;
+        } else {
+            long lifetime = TimeUnit.SECONDS.toMillis(expiresIn);
+            this.expiresAt = currentTime() + lifetime;
+
+            // Refresh ahead of expiry.  Short-lived tokens are refreshed half-way through their lifetime.
+            this.scheduleRefresh(Math.max(lifetime - this.refreshSkew, lifetime / 2));
+        }
+
+        this.tokenAcquiredListeners.forEach(listener -> listener.invoke(result));
+    }
+
+    /**
+     * Schedules a retry after a failed token request and notifies the
+     * listener. The current token, if any, remains in use.
+     *
+     * @param result The token response, or null if no token client could be
+     * obtained.
+     */
+    private void onTokenRequestFailed(TokenResponse result) {
+        if (this.expiresAt != Long.MAX_VALUE) {
+            long remaining = this.expiresAt - currentTime();
+
+            // Retry more often as the current token approaches its expiry.
+            this.scheduleRefresh(remaining > 0
+                    ? Math.min(FAILED_REFRESH_RETRY_INTERVAL, remaining / 2)
+                    : FAILED_REFRESH_RETRY_INTERVAL);
+        }
+
+        this.tokenRequestFailedListeners.forEach(listener -> listener.invoke(result));
+    }
+
+    /**
+     * Schedules a background refresh of the current token.
+     *
+     * @param delay The delay in milliseconds.
+     */
+    private void scheduleRefresh(long delay) {
+        this.cancelScheduledRefresh();
+        this.scheduledRefresh = SCHEDULER.schedule(
+                () -> TOKEN_REQUESTS.execute(this::refresh),
+                Math.max(delay, MINIMUM_REFRESH_DELAY),
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Cancels any scheduled refresh of the current token.
+     */
+    private void cancelScheduledRefresh() {
+        if (null != this.scheduledRefresh) {
+            this.scheduledRefresh.cancel(false);
+            this.scheduledRefresh = null;
+        }
+    }
+
+    /**
+     * Refreshes the current token on a worker thread.
+     */
+    private void refresh() {
+        try {
+            this.renewToken();
+        } catch (RuntimeException ex) {
+            // ignore;
+        }
+    }
+
+    /**
+     * Returns a value indicating whether a token response contains a token.
+     *
+     * @param result The token response.
+     * @return True if the response contains a token; otherwise false.
+     */
+    private static boolean isSuccess(TokenResponse result) {
+        return result != null
+                && !result.getIsHttpError()
+                && !com.reply.solidsoft.nbs.integration.extensions.StringExtensions.isNullOrWhiteSpace(result.getAccessToken());
+    }
+
+    /**
+     * Creates the pool of daemon worker threads on which background token
+     * requests are made.
+     *
+     * @return The executor.
+     */
+    private static ExecutorService createTokenRequestExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return new ThreadPoolExecutor(
+                0,
+                Integer.MAX_VALUE,
+                60L,
+                TimeUnit.SECONDS,
+                new SynchronousQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "NbsTokenRequest-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Returns the current value of a monotonic clock.
+     *
+     * @return The current time in milliseconds, relative to an arbitrary fixed
+     * origin.
+     */
+    private static long currentTime() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+}
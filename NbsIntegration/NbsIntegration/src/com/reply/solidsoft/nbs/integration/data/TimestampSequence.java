@@ -0,0 +1,94 @@
+/**
+ * -----------------------------------------------------------------------------
+ * File=TimestampSequence.java
+ * Company=Solidsoft Reply
+ * Copyright © 2017 Solidsoft Reply Ltd.
+ *
+ * A monotonic sequence of record timestamps.
+ * -----------------------------------------------------------------------------
+ */
+package com.reply.solidsoft.nbs.integration.data;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * A monotonic sequence of record timestamps. Timestamps are assigned by a
+ * lock-free increment. A sequence for a table held in persistent storage is
+ * seeded once from the storage, and thereafter is advanced as records are
+ * written, so that the storage does not need to be queried for each new
+ * record.
+ */
+public final class TimestampSequence {
+
+    /**
+     * The latest timestamp in the sequence.
+     */
+    private final AtomicLong latestTimeStamp = new AtomicLong();
+
+    /**
+     * A value indicating whether the sequence has been seeded.
+     */
+    private volatile boolean isSeeded;
+
+    /**
+     * Returns the next timestamp in the sequence. The timestamp is higher than
+     * the current timestamp provided and than any timestamp previously
+     * returned. If the sequence reaches its maximum value, it restarts from
+     * zero.
+     *
+     * @param currentTimeStamp The current time stamp.
+     * @return The next timestamp in the sequence.
+     */
+    public long next(long currentTimeStamp) {
+        return this.latestTimeStamp.updateAndGet(latest -> {
+            long timeStamp = latest == Long.MAX_VALUE ? 0 : latest;
+
+            if (currentTimeStamp > timeStamp) {
+                timeStamp = currentTimeStamp;
+            }
+
+            return timeStamp + 1;
+        });
+    }
+
+    /**
+     * Gets the latest timestamp in the sequence.
+     *
+     * @return The latest timestamp in the sequence, or 0.
+     */
+    public long getCurrent() {
+        return this.latestTimeStamp.get();
+    }
+
+    /**
+     * Gets the latest timestamp in the sequence, seeding the sequence on first
+     * use.
+     *
+     * @param seed Returns the latest timestamp held in persistent storage. This
+     * is invoked at most once.
+     * @return The latest timestamp in the sequence, or 0.
+     */
+    public long getCurrent(LongSupplier seed) {
+        if (!this.isSeeded) {
+            synchronized (this) {
+                if (!this.isSeeded) {
+                    this.advanceTo(seed.getAsLong());
+                    this.isSeeded = true;
+                }
+            }
+        }
+
+        return this.latestTimeStamp.get();
+    }
+
+    /**
+     * Advances the sequence to a timestamp, if the timestamp is later than the
+     * latest timestamp in the sequence.
+     *
+     * @param timeStamp The timestamp.
+     */
+    public void advanceTo(long timeStamp) {
+        this.latestTimeStamp.accumulateAndGet(timeStamp, Math::max);
+    }
+}
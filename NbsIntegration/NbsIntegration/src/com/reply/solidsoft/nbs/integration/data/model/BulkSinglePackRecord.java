@@ -9,6 +9,7 @@
  */
 package com.reply.solidsoft.nbs.integration.data.model;
 
+import com.reply.solidsoft.nbs.integration.data.TimestampSequence;
 import com.reply.solidsoft.nbs.integration.model.responses.SinglePackResponse;
 import com.reply.solidsoft.nbs.integration.model.PackIdentifier;
 import com.google.gson.annotations.Expose;
@@ -19,22 +20,16 @@ import com.google.gson.annotations.Expose;
 public class BulkSinglePackRecord implements DataRecord {
 
     /**
-     * Lock object for atomic reads and writes to the timestamp.
+     * The sequence from which timestamps are assigned.
      */
     @Expose(serialize = false, deserialize = false)
-    private static final Object TIMESTAMP_LOCK = new Object();
-
-    /**
-     * Timestamp counter.
-     */
-    @Expose(serialize = false, deserialize = false)
-    private static long latestTimeStamp;
+    private static final TimestampSequence TIMESTAMP_SEQUENCE = new TimestampSequence();
 
     /**
      * Timestamp value.
      */
     @Expose(serialize = false, deserialize = false)
-    private long timeStamp;
+    private volatile long timeStamp;
 
     /**
      * The pack to be verified.
@@ -91,9 +86,7 @@ public class BulkSinglePackRecord implements DataRecord {
      */
     @Override
     public final long getTimeStamp() {
-        synchronized (TIMESTAMP_LOCK) {
-            return this.timeStamp;
-        }
+        return this.timeStamp;
     }
 
     /**
@@ -102,9 +95,7 @@ public class BulkSinglePackRecord implements DataRecord {
      * @param value The timestamp value for this response record.
      */
     public final void setTimeStamp(long value) {
-        synchronized (TIMESTAMP_LOCK) {
-            this.timeStamp = value;
-        }
+        this.timeStamp = value;
     }
 
     /**
@@ -120,17 +111,6 @@ public class BulkSinglePackRecord implements DataRecord {
      * @param currentTimeStamp The current time stamp. Defaults to 0.
      */
     public final void initialize(long currentTimeStamp) {
-        synchronized (TIMESTAMP_LOCK) {
-            if (latestTimeStamp == Long.MAX_VALUE) {
-                latestTimeStamp = 0;
-            }
-
-            if (currentTimeStamp > latestTimeStamp) {
-                latestTimeStamp = currentTimeStamp;
-            }
-
-            latestTimeStamp++;
-            this.timeStamp = latestTimeStamp;
-        }
+        this.timeStamp = TIMESTAMP_SEQUENCE.next(currentTimeStamp);
     }
 }
@@ -39,6 +39,22 @@ public interface DataTable extends ResourceManager {
      */
     public long getCurrentTimestamp();
 
+    /**
+     * Gets the timestamp from which the timestamp of a new record is assigned.
+     * This is no lower than the timestamp of the last record written to the
+     * table.
+     * <p>
+     * The default implementation returns the current timestamp. Tables that
+     * must query storage to find the current timestamp should override this
+     * method with a TimestampSequence that is seeded once from storage and
+     * advanced as records are written.
+     *
+     * @return The timestamp from which new record timestamps are assigned.
+     */
+    public default long getSequenceTimestamp() {
+        return this.getCurrentTimestamp();
+    }
+
     /**
      * Gets the name of the table.
      *
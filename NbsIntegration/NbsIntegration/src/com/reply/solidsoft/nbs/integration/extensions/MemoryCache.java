@@ -9,28 +9,93 @@
  */
 package com.reply.solidsoft.nbs.integration.extensions;
 
-import java.util.ArrayList;
-import org.apache.commons.collections4.MapIterator;
-import org.apache.commons.collections4.map.LRUMap;
+import java.io.Closeable;
+import java.lang.ref.WeakReference;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * A memory cache manager.
+ * <p>
+ * Entries are held in a concurrent map, so readers and writers do not contend
+ * on a single lock. An entry expires when it has not been accessed for the
+ * time to live. Expired entries are removed when they are next read, and by a
+ * periodic cleanup that runs on a timer thread shared by all caches. When the
+ * cache is full, entries are evicted in insertion order, except that an entry
+ * that has been read since it was inserted is given a second chance, which
+ * approximates least-recently-used eviction without a global lock.
  *
- * @author crunchify.com
  * @param <K> The type of the key values.
  * @param <T> The type of the values stored in the memory cache.
  */
-public class MemoryCache<K, T> {
+public class MemoryCache<K, T> implements Closeable {
 
     /**
-     * The time that a cache entry is valid.
+     * The shared timer on which all memory caches are cleaned up.
+     */
+    private static final ScheduledExecutorService CLEANUP_SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "NbsMemoryCacheCleanup");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * The time in milliseconds that a cache entry is valid.
      */
     private final long timeToLive;
 
+    /**
+     * The maximum number of items allowed in the memory cache.
+     */
+    private final int maxItems;
+
     /**
      * The internal cache map.
      */
-    private final LRUMap cacheMap;
+    private final ConcurrentHashMap<K, CacheObject> cacheMap;
+
+    /**
+     * The keys of the cache entries, in the order in which they were inserted.
+     */
+    private final Queue<K> evictionQueue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The number of entries in the cache, maintained separately from the map
+     * so that capacity checks are cheap.
+     */
+    private final AtomicInteger count = new AtomicInteger();
+
+    /**
+     * The number of reads that found a current entry.
+     */
+    private final LongAdder hitCount = new LongAdder();
+
+    /**
+     * The number of reads that found no current entry.
+     */
+    private final LongAdder missCount = new LongAdder();
+
+    /**
+     * The number of entries evicted because the cache was full.
+     */
+    private final LongAdder evictionCount = new LongAdder();
+
+    /**
+     * The number of entries removed because they had expired.
+     */
+    private final LongAdder expirationCount = new LongAdder();
+
+    /**
+     * The scheduled cleanup of the memory cache, if it exists.
+     */
+    private final ScheduledFuture<?> scheduledCleanup;
 
     /**
      * Represents a value within the memory cache.
@@ -40,7 +105,13 @@ public class MemoryCache<K, T> {
         /**
          * The time at which the cache object was last accessed.
          */
-        public long lastAccessed = System.currentTimeMillis();
+        public volatile long lastAccessed = System.currentTimeMillis();
+
+        /**
+         * A value indicating whether the cache object has been read since it
+         * was inserted or last given a second chance.
+         */
+        public volatile boolean isReferenced;
 
         /**
          * The type of the value.
@@ -65,27 +136,27 @@ public class MemoryCache<K, T> {
      * cleaned u and old entries purged.
      * @param maxItems The maximium number of items allowed in the memory cache.
      */
-    @SuppressWarnings({"CallToThreadStartDuringObjectConstruction", "SleepWhileInLoop"})
     public MemoryCache(long timeToLive, final long timerInterval, int maxItems) {
         this.timeToLive = timeToLive * 1000;
-
-        cacheMap = new LRUMap(maxItems);
+        this.maxItems = Math.max(maxItems, 1);
+        this.cacheMap = new ConcurrentHashMap<>(Math.min(this.maxItems, 1024));
 
         if (timeToLive > 0 && timerInterval > 0) {
+            // The timer holds the cache weakly, so an abandoned cache can still be collected.
+            WeakReference<MemoryCache<K, T>> cacheReference = new WeakReference<>(this);
+            ScheduledFuture<?>[] cleanup = new ScheduledFuture<?>[1];
+            cleanup[0] = CLEANUP_SCHEDULER.scheduleWithFixedDelay(() -> {
+                MemoryCache<K, T> cache = cacheReference.get();
 
-            Thread t;
-            t = new Thread(() -> {
-                while (true) {
-                    try {
-                        Thread.sleep(timerInterval * 1000);
-                    } catch (InterruptedException ex) {
-                    }
-                    cleanup();
+                if (cache == null) {
+                    cleanup[0].cancel(false);
+                } else {
+                    cache.cleanup();
                 }
-            });
-
-            t.setDaemon(true);
-            t.start();
+            }, timerInterval, timerInterval, TimeUnit.SECONDS);
+            this.scheduledCleanup = cleanup[0];
+        } else {
+            this.scheduledCleanup = null;
         }
     }
 
@@ -96,8 +167,12 @@ public class MemoryCache<K, T> {
      * @param value The value to be put into the memory cache.
      */
     public void put(K key, T value) {
-        synchronized (cacheMap) {
-            cacheMap.put(key, new CacheObject(value));
+        if (this.cacheMap.put(key, new CacheObject(value)) == null) {
+            this.evictionQueue.offer(key);
+
+            if (this.count.incrementAndGet() > this.maxItems) {
+                this.evict();
+            }
         }
     }
 
@@ -107,18 +182,30 @@ public class MemoryCache<K, T> {
      * @param key The key value for the memory cache entry.
      * @return A value held in the memory cache.
      */
-    @SuppressWarnings("unchecked")
     public T get(K key) {
-        synchronized (cacheMap) {
-            CacheObject c = (CacheObject) cacheMap.get(key);
+        CacheObject c = this.cacheMap.get(key);
 
-            if (c == null) {
-                return null;
-            } else {
-                c.lastAccessed = System.currentTimeMillis();
-                return c.value;
+        if (c == null) {
+            this.missCount.increment();
+            return null;
+        }
+
+        long now = System.currentTimeMillis();
+
+        if (this.isExpired(c, now)) {
+            if (this.cacheMap.remove(key, c)) {
+                this.count.decrementAndGet();
+                this.expirationCount.increment();
             }
+
+            this.missCount.increment();
+            return null;
         }
+
+        c.lastAccessed = now;
+        c.isReferenced = true;
+        this.hitCount.increment();
+        return c.value;
     }
 
     /**
@@ -127,8 +214,8 @@ public class MemoryCache<K, T> {
      * @param key The key value of the entry to be removed.
      */
     public void remove(K key) {
-        synchronized (cacheMap) {
-            cacheMap.remove(key);
+        if (this.cacheMap.remove(key) != null) {
+            this.count.decrementAndGet();
         }
     }
 
@@ -138,44 +225,116 @@ public class MemoryCache<K, T> {
      * @return The size of the memory cache.
      */
     public int size() {
-        synchronized (cacheMap) {
-            return cacheMap.size();
-        }
+        return this.cacheMap.size();
+    }
+
+    /**
+     * Gets the number of reads that found a current entry.
+     *
+     * @return The number of cache hits.
+     */
+    public long getHitCount() {
+        return this.hitCount.sum();
+    }
+
+    /**
+     * Gets the number of reads that found no current entry.
+     *
+     * @return The number of cache misses.
+     */
+    public long getMissCount() {
+        return this.missCount.sum();
+    }
+
+    /**
+     * Gets the number of entries evicted because the cache was full.
+     *
+     * @return The number of evictions.
+     */
+    public long getEvictionCount() {
+        return this.evictionCount.sum();
+    }
+
+    /**
+     * Gets the number of entries removed because they had expired.
+     *
+     * @return The number of expired entries.
+     */
+    public long getExpirationCount() {
+        return this.expirationCount.sum();
     }
 
     /**
      * Clean up the memory cache, removing old entries.
      */
-    @SuppressWarnings({"unchecked", "CallToThreadYield"})
     public void cleanup() {
-
         long now = System.currentTimeMillis();
-        ArrayList<K> deleteKey;
 
-        synchronized (cacheMap) {
-            MapIterator itr = cacheMap.mapIterator();
+        this.cacheMap.forEach((key, c) -> {
+            if (this.isExpired(c, now) && this.cacheMap.remove(key, c)) {
+                this.count.decrementAndGet();
+                this.expirationCount.increment();
+            }
+        });
 
-            deleteKey = new ArrayList<>((cacheMap.size() / 2) + 1);
-            K key;
-            CacheObject c;
+        // Discard queued keys whose entries have gone, so the queue does not grow without bound.
+        if (this.evictionQueue.size() > this.maxItems * 2) {
+            this.evictionQueue.removeIf(key -> !this.cacheMap.containsKey(key));
+        }
+    }
 
-            while (itr.hasNext()) {
-                key = (K) itr.next();
-                c = (CacheObject) itr.getValue();
+    /**
+     * Stops the periodic cleanup of the memory cache.
+     */
+    @Override
+    public void close() {
+        if (this.scheduledCleanup != null) {
+            this.scheduledCleanup.cancel(false);
+        }
+    }
 
-                if (c != null && (now > (timeToLive + c.lastAccessed))) {
-                    deleteKey.add(key);
-                }
+    /**
+     * Evicts entries until the cache is within its capacity.
+     */
+    private void evict() {
+        int attempts = this.maxItems * 2;
+
+        while (this.count.get() > this.maxItems && attempts-- > 0) {
+            K key = this.evictionQueue.poll();
+
+            if (key == null) {
+                return;
+            }
+
+            CacheObject c = this.cacheMap.get(key);
+
+            if (c == null) {
+                // The entry has already been removed.
+                continue;
             }
-        }
 
-        deleteKey.stream().map((key) -> {
-            synchronized (cacheMap) {
-                Object remove = cacheMap.remove(key);
+            if (c.isReferenced && !this.isExpired(c, System.currentTimeMillis())) {
+                // Give recently read entries a second chance.
+                c.isReferenced = false;
+                this.evictionQueue.offer(key);
+                continue;
             }
-            return key;
-        }).forEachOrdered((K _item) -> {
-            Thread.yield();
-        });
+
+            if (this.cacheMap.remove(key, c)) {
+                this.count.decrementAndGet();
+                this.evictionCount.increment();
+            }
+        }
+    }
+
+    /**
+     * Returns a value indicating whether a cache entry has expired.
+     *
+     * @param c The cache entry.
+     * @param now The current time.
+     * @return True if the entry has expired; otherwise false.
+     */
+    private boolean isExpired(CacheObject c, long now) {
+        return this.timeToLive > 0 && now > (this.timeToLive + c.lastAccessed);
     }
 }
@@ -9,7 +9,9 @@
  */
 package com.reply.solidsoft.nbs.integration.extensions;
 
+import com.reply.solidsoft.nbs.integration.extensions.functional.Action1;
 import com.reply.solidsoft.nbs.integration.model.requests.RequestType;
+import com.reply.solidsoft.nbs.integration.model.responses.BulkSinglePackResponse;
 import com.reply.solidsoft.nbs.integration.recovery.model.DeferredRequest;
 import org.apache.http.HttpResponse;
 import com.reply.solidsoft.nbs.integration.logging.model.NbsIntegrationLogEntry;
@@ -156,4 +158,170 @@ public class RequestContext {
     public void setRemainingAttempts(int value) {
         this.remainingAttempts = value;
     }
+
+    /**
+     * The number of attempts made so far.
+     */
+    private int attempt;
+
+    /**
+     * Gets the number of attempts made so far.
+     *
+     * @return The number of attempts made so far.
+     */
+    public int getAttempt() {
+        return this.attempt;
+    }
+
+    /**
+     * Sets the number of attempts made so far.
+     *
+     * @param value The number of attempts made so far.
+     */
+    public void setAttempt(int value) {
+        this.attempt = value;
+    }
+
+    /**
+     * The number of remaining attempts while waiting for the identity server.
+     */
+    private int remainingRecoveryAttempts;
+
+    /**
+     * Gets the number of remaining attempts while waiting for the identity
+     * server to become available after the National System has recovered.
+     *
+     * @return The number of remaining attempts.
+     */
+    public int getRemainingRecoveryAttempts() {
+        return this.remainingRecoveryAttempts;
+    }
+
+    /**
+     * Sets the number of remaining attempts while waiting for the identity
+     * server to become available after the National System has recovered.
+     *
+     * @param value The number of remaining attempts.
+     */
+    public void setRemainingRecoveryAttempts(int value) {
+        this.remainingRecoveryAttempts = value;
+    }
+
+    /**
+     * The deadline of the request.
+     */
+    private long deadline;
+
+    /**
+     * Gets the deadline after which the request is no longer retried.
+     *
+     * @return The deadline of the request.
+     */
+    public long getDeadline() {
+        return this.deadline;
+    }
+
+    /**
+     * Sets the deadline after which the request is no longer retried.
+     *
+     * @param value The deadline of the request.
+     */
+    public void setDeadline(long value) {
+        this.deadline = value;
+    }
+
+    /**
+     * The delay in milliseconds before the next attempt.
+     */
+    private long retryDelay;
+
+    /**
+     * Gets the delay in milliseconds before the next attempt.
+     *
+     * @return The delay in milliseconds before the next attempt.
+     */
+    public long getRetryDelay() {
+        return this.retryDelay;
+    }
+
+    /**
+     * Sets the delay in milliseconds before the next attempt.
+     *
+     * @param value The delay in milliseconds before the next attempt.
+     */
+    public void setRetryDelay(long value) {
+        this.retryDelay = value;
+    }
+
+    /**
+     * A value indicating whether the access token must be renewed.
+     */
+    private boolean isTokenRenewalRequired;
+
+    /**
+     * Gets a value indicating whether the access token must be renewed before
+     * the next attempt.
+     *
+     * @return True if the access token must be renewed; otherwise false.
+     */
+    public boolean getIsTokenRenewalRequired() {
+        return this.isTokenRenewalRequired;
+    }
+
+    /**
+     * Sets a value indicating whether the access token must be renewed before
+     * the next attempt.
+     *
+     * @param value True if the access token must be renewed; otherwise false.
+     */
+    public void setIsTokenRenewalRequired(boolean value) {
+        this.isTokenRenewalRequired = value;
+    }
+
+    /**
+     * The bearer token with which the last attempt was made.
+     */
+    private String bearerToken;
+
+    /**
+     * Gets the bearer token with which the last attempt was made.
+     *
+     * @return The bearer token, if it exists.
+     */
+    public String getBearerToken() {
+        return this.bearerToken;
+    }
+
+    /**
+     * Sets the bearer token with which the last attempt was made.
+     *
+     * @param value The bearer token, if it exists.
+     */
+    public void setBearerToken(String value) {
+        this.bearerToken = value;
+    }
+
+    /**
+     * The handler to which bulk pack responses are streamed.
+     */
+    private Action1<BulkSinglePackResponse> packHandler;
+
+    /**
+     * Gets the handler to which bulk pack responses are streamed.
+     *
+     * @return The pack handler, or null if packs are collected in the result.
+     */
+    public Action1<BulkSinglePackResponse> getPackHandler() {
+        return this.packHandler;
+    }
+
+    /**
+     * Sets the handler to which bulk pack responses are streamed.
+     *
+     * @param value The pack handler, or null if packs are collected in the
+     * result.
+     */
+    public void setPackHandler(Action1<BulkSinglePackResponse> value) {
+        this.packHandler = value;
+    }
 }
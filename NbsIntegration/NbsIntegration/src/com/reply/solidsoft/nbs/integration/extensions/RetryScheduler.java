@@ -0,0 +1,175 @@
+/**
+ * -----------------------------------------------------------------------------
+ * File=RetryScheduler.java
+ * Company=Solidsoft Reply
+ * Copyright © 2017 Solidsoft Reply Ltd.
+ *
+ * Schedules retries of HTTP requests without blocking the calling thread.
+ * -----------------------------------------------------------------------------
+ */
+package com.reply.solidsoft.nbs.integration.extensions;
+
+import com.reply.solidsoft.nbs.integration.extensions.functional.Func0;
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.utils.DateUtils;
+
+/**
+ * Schedules retries of HTTP requests without blocking the calling thread.
+ * Delays are calculated using exponential backoff with full jitter, honour any
+ * Retry-After header returned by the server and are bounded by a per-request
+ * deadline.
+ */
+public final class RetryScheduler {
+
+    /**
+     * The name of the Retry-After HTTP header.
+     */
+    private static final String RETRY_AFTER = "Retry-After";
+
+    /**
+     * The shared timer used to schedule retries. The timer thread only hands
+     * retries over to an executor and never performs any I/O.
+     */
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "NbsRetryScheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Prevents instantiation of the RetryScheduler class.
+     */
+    private RetryScheduler() {
+    }
+
+    /**
+     * Returns the deadline for a request that starts now.
+     *
+     * @param timeout The timeout budget for the request in milliseconds. A
+     * value of zero or less indicates that the request has no deadline.
+     * @return The deadline for the request in milliseconds, relative to an
+     * arbitrary fixed origin.
+     */
+    public static long getDeadline(long timeout) {
+        return timeout > 0
+                ? currentTime() + timeout
+                : Long.MAX_VALUE;
+    }
+
+    /**
+     * Calculates the delay before the next attempt of a request.
+     *
+     * @param attempt The number of attempts that have already been made.
+     * @param baseDelay The delay in milliseconds before the first retry.
+     * @param maximumDelay The upper bound of the backoff in milliseconds.
+     * @param response The last response, which may contain a Retry-After
+     * header.
+     * @param deadline The deadline for the request, as returned by
+     * getDeadline.
+     * @return The delay in milliseconds, or -1 if the request must not be
+     * retried because the deadline would be exceeded.
+     */
+    public static long getDelay(int attempt, long baseDelay, long maximumDelay, HttpResponse response, long deadline) {
+        long ceiling = Math.max(baseDelay, 0);
+
+        for (int exponent = 1; exponent < attempt && ceiling < maximumDelay; exponent++) {
+            ceiling *= 2;
+        }
+
+        if (maximumDelay > 0) {
+            ceiling = Math.min(ceiling, maximumDelay);
+        }
+
+        long delay = Math.max(ThreadLocalRandom.current().nextLong(ceiling + 1), getRetryAfter(response));
+
+        return currentTime() + delay > deadline
+                ? -1
+                : delay;
+    }
+
+    /**
+     * Returns the delay requested by the server in a Retry-After header.
+     *
+     * @param response The HTTP response.
+     * @return The requested delay in milliseconds, or zero if no delay was
+     * requested.
+     */
+    public static long getRetryAfter(HttpResponse response) {
+        Header retryAfter = response == null
+                ? null
+                : response.getFirstHeader(RETRY_AFTER);
+
+        if (retryAfter == null || StringExtensions.isNullOrWhiteSpace(retryAfter.getValue())) {
+            return 0;
+        }
+
+        String value = retryAfter.getValue().trim();
+
+        try {
+            return Math.max(TimeUnit.SECONDS.toMillis(Long.parseLong(value)), 0);
+        } catch (NumberFormatException ex) {
+            // ignore;
+        }
+
+        Date date = DateUtils.parseDate(value);
+
+        return date == null
+                ? 0
+                : Math.max(date.getTime() - System.currentTimeMillis(), 0);
+    }
+
+    /**
+     * Schedules an asynchronous action to run after a delay. The action is run
+     * on the given executor, and the returned future completes with the
+     * outcome of the future returned by the action.
+     *
+     * @param <T> The type of the result.
+     * @param delay The delay in milliseconds.
+     * @param executor The executor on which the action is run.
+     * @param action The action to be run.
+     * @return A future result of the action.
+     */
+    public static <T> CompletableFuture<T> schedule(long delay, Executor executor, Func0<CompletableFuture<T>> action) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+
+        SCHEDULER.schedule(() -> {
+            try {
+                executor.execute(() -> {
+                    try {
+                        action.invoke().whenComplete((result, exception) -> {
+                            if (exception == null) {
+                                future.complete(result);
+                            } else {
+                                future.completeExceptionally(exception);
+                            }
+                        });
+                    } catch (RuntimeException | Error exception) {
+                        future.completeExceptionally(exception);
+                    }
+                });
+            } catch (RuntimeException exception) {
+                future.completeExceptionally(exception);
+            }
+        }, Math.max(delay, 0), TimeUnit.MILLISECONDS);
+
+        return future;
+    }
+
+    /**
+     * Returns the current value of a monotonic clock.
+     *
+     * @return The current time in milliseconds, relative to an arbitrary fixed
+     * origin.
+     */
+    private static long currentTime() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+}
@@ -0,0 +1,26 @@
+/**
+ * -----------------------------------------------------------------------------
+ * File=Action1.java
+ * Company=Solidsoft Reply
+ * Copyright © 2017 Solidsoft Reply Ltd.
+ *
+ * Function that returns a void and takes 1 parameter.
+ * -----------------------------------------------------------------------------
+ */
+package com.reply.solidsoft.nbs.integration.extensions.functional;
+
+/**
+ * Function that returns a void and takes 1 parameter.
+ *
+ * @param <T1> The type of the parameter.
+ */
+@FunctionalInterface
+public interface Action1<T1> {
+
+    /**
+     * Invoke the function.
+     *
+     * @param param1 The parameter value.
+     */
+    void invoke(T1 param1);
+}
@@ -0,0 +1,249 @@
+/**
+ * -----------------------------------------------------------------------------
+ * File=ApiResultTypeAdapter.java
+ * Company=Solidsoft Reply
+ * Copyright © 2017 Solidsoft Reply Ltd.
+ *
+ * JSON type adapter for API results.
+ * -----------------------------------------------------------------------------
+ */
+package com.reply.solidsoft.nbs.integration.extensions.serialization;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.reply.solidsoft.nbs.integration.extensions.functional.Action1;
+import com.reply.solidsoft.nbs.integration.model.responses.ApiResult;
+import com.reply.solidsoft.nbs.integration.model.responses.BulkSinglePackResponse;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+
+/**
+ * JSON type adapter for API results returned by the National System.
+ */
+public class ApiResultTypeAdapter extends TypeAdapter<ApiResult> {
+
+    /**
+     * The factory that creates the type adapter for a given JSON serializer.
+     */
+    public static final TypeAdapterFactory FACTORY = new TypeAdapterFactory() {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            return type.getRawType() == ApiResult.class
+                    ? (TypeAdapter<T>) new ApiResultTypeAdapter(gson).nullSafe()
+                    : null;
+        }
+    };
+
+    /**
+     * The type adapter for single pack responses within a bulk of packs.
+     */
+    private final TypeAdapter<BulkSinglePackResponse[]> packsAdapter;
+
+    /**
+     * The type adapter for a single pack response within a bulk of packs.
+     */
+    private final TypeAdapter<BulkSinglePackResponse> packAdapter;
+
+    /**
+     * Initializes a new instance of the ApiResultTypeAdapter class.
+     *
+     * @param gson The JSON serializer.
+     */
+    public ApiResultTypeAdapter(Gson gson) {
+        this.packsAdapter = gson.getAdapter(BulkSinglePackResponse[].class);
+        this.packAdapter = gson.getAdapter(BulkSinglePackResponse.class);
+    }
+
+    /**
+     * Writes an API result. Null properties are omitted.
+     *
+     * @param writer The JSON writer.
+     * @param value The API result.
+     * @throws IOException The value could not be written.
+     */
+    @Override
+    public void write(JsonWriter writer, ApiResult value) throws IOException {
+        writer.beginObject();
+        PackIdentifierTypeAdapter.writeProperty(writer, "alertId", value.getUprc());
+        writer.name("eta").value(value.getEta().toString());
+        writer.name("expires").value(value.getExpires().toString());
+
+        if (value.getLocation() != null) {
+            writer.name("location").value(value.getLocation().toASCIIString());
+        }
+
+        PackIdentifierTypeAdapter.writeProperty(writer, "information", value.getInformation());
+        PackIdentifierTypeAdapter.writeProperty(writer, "operationCode", value.getOperationCode());
+
+        if (value.getPacks() != null) {
+            writer.name("packs");
+            this.packsAdapter.write(writer, value.getPacks());
+        }
+
+        PackIdentifierTypeAdapter.writeProperty(writer, "state", value.getState());
+        writer.name("statusCode").value(value.getStatusCode());
+        PackIdentifierTypeAdapter.writeProperty(writer, "warning", value.getWarning());
+        writer.endObject();
+    }
+
+    /**
+     * Reads an API result. Unknown properties are ignored, and properties
+     * with null or unparseable values retain their defaults.
+     *
+     * @param reader The JSON reader.
+     * @return The API result.
+     * @throws IOException The value could not be read.
+     */
+    @Override
+    public ApiResult read(JsonReader reader) throws IOException {
+        return this.read(reader, null);
+    }
+
+    /**
+     * Reads an API result, optionally streaming the packs of a bulk result to
+     * a handler as each one is read. When a handler is provided, the packs of
+     * the API result are empty.
+     *
+     * @param reader The JSON reader.
+     * @param packHandler The handler that is invoked for each pack, or null to
+     * collect the packs in the API result.
+     * @return The API result, or null if the JSON value is null.
+     * @throws IOException The value could not be read.
+     * @throws JsonSyntaxException The value is not an API result. As with
+     * Gson.fromJson, errors raised by the reader when the JSON does not have
+     * the expected structure are reported as syntax errors.
+     */
+    public ApiResult read(JsonReader reader, Action1<BulkSinglePackResponse> packHandler) throws IOException {
+        try {
+            return this.readResult(reader, packHandler);
+        } catch (IllegalStateException | NumberFormatException ex) {
+            throw new JsonSyntaxException(ex);
+        }
+    }
+
+    /**
+     * Reads an API result, optionally streaming the packs of a bulk result to
+     * a handler as each one is read.
+     *
+     * @param reader The JSON reader.
+     * @param packHandler The handler that is invoked for each pack, or null to
+     * collect the packs in the API result.
+     * @return The API result, or null if the JSON value is null.
+     * @throws IOException The value could not be read.
+     */
+    private ApiResult readResult(JsonReader reader, Action1<BulkSinglePackResponse> packHandler) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+
+        ApiResult result = new ApiResult();
+        reader.beginObject();
+
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+
+            switch (name) {
+                case "alertId":
+                    result.setUprc(readString(reader));
+                    break;
+                case "eta":
+                    try {
+                        result.setEta(Instant.parse(readString(reader)));
+                    } catch (DateTimeParseException ex) {
+                        // ignore;
+                    }
+                    break;
+                case "expires":
+                    try {
+                        result.setExpires(Instant.parse(readString(reader)));
+                    } catch (DateTimeParseException ex) {
+                        // ignore;
+                    }
+                    break;
+                case "location":
+                    try {
+                        result.setLocation(new URI(readString(reader)));
+                    } catch (URISyntaxException ex) {
+                        // ignore;
+                    }
+                    break;
+                case "information":
+                    result.setInformation(readString(reader));
+                    break;
+                case "operationCode":
+                    result.setOperationCode(readString(reader));
+                    break;
+                case "packs":
+                    if (packHandler == null) {
+                        result.setPacks(this.packsAdapter.read(reader));
+                    } else {
+                        this.readPacks(reader, packHandler);
+                        result.setPacks(new BulkSinglePackResponse[0]);
+                    }
+                    break;
+                case "state":
+                    result.setState(readString(reader));
+                    break;
+                case "statusCode":
+                    result.setStatusCode(reader.nextInt());
+                    break;
+                case "warning":
+                    result.setWarning(readString(reader));
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+
+        reader.endObject();
+        return result;
+    }
+
+    /**
+     * Reads the packs of a bulk result one at a time and passes each one to a
+     * handler.
+     *
+     * @param reader The JSON reader.
+     * @param packHandler The handler that is invoked for each pack.
+     * @throws IOException The packs could not be read.
+     */
+    private void readPacks(JsonReader reader, Action1<BulkSinglePackResponse> packHandler) throws IOException {
+        reader.beginArray();
+
+        while (reader.hasNext()) {
+            packHandler.invoke(this.packAdapter.read(reader));
+        }
+
+        reader.endArray();
+    }
+
+    /**
+     * Reads a string, number or boolean value as a string.
+     *
+     * @param reader The JSON reader.
+     * @return The value as a string.
+     * @throws IOException The value could not be read.
+     */
+    private static String readString(JsonReader reader) throws IOException {
+        return reader.peek() == JsonToken.BOOLEAN
+                ? Boolean.toString(reader.nextBoolean())
+                : reader.nextString();
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * -----------------------------------------------------------------------------
+ * File=BulkSinglePackResponseTypeAdapter.java
+ * Company=Solidsoft Reply
+ * Copyright © 2017 Solidsoft Reply Ltd.
+ *
+ * JSON type adapter for single pack responses within a bulk of packs.
+ * -----------------------------------------------------------------------------
+ */
+package com.reply.solidsoft.nbs.integration.extensions.serialization;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.reply.solidsoft.nbs.integration.model.PackIdentifier;
+import com.reply.solidsoft.nbs.integration.model.responses.BulkSinglePackResponse;
+import com.reply.solidsoft.nbs.integration.model.responses.SinglePackResponse;
+import java.io.IOException;
+
+/**
+ * JSON type adapter for single pack responses within a bulk of packs. The
+ * record timestamp is local to the library and is not serialized.
+ */
+public class BulkSinglePackResponseTypeAdapter extends TypeAdapter<BulkSinglePackResponse> {
+
+    /**
+     * The factory that creates the type adapter for a given JSON serializer.
+     */
+    public static final TypeAdapterFactory FACTORY = new TypeAdapterFactory() {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            return type.getRawType() == BulkSinglePackResponse.class
+                    ? (TypeAdapter<T>) new BulkSinglePackResponseTypeAdapter(gson).nullSafe()
+                    : null;
+        }
+    };
+
+    /**
+     * The type adapter for pack identifiers.
+     */
+    private final TypeAdapter<PackIdentifier> packAdapter;
+
+    /**
+     * The type adapter for single pack responses.
+     */
+    private final TypeAdapter<SinglePackResponse> resultAdapter;
+
+    /**
+     * Initializes a new instance of the BulkSinglePackResponseTypeAdapter
+     * class.
+     *
+     * @param gson The JSON serializer.
+     */
+    public BulkSinglePackResponseTypeAdapter(Gson gson) {
+        this.packAdapter = gson.getAdapter(PackIdentifier.class);
+        this.resultAdapter = gson.getAdapter(SinglePackResponse.class);
+    }
+
+    /**
+     * Writes a single pack response.
+     *
+     * @param writer The JSON writer.
+     * @param value The single pack response.
+     * @throws IOException The value could not be written.
+     */
+    @Override
+    public void write(JsonWriter writer, BulkSinglePackResponse value) throws IOException {
+        writer.beginObject();
+
+        if (value.getPack() != null) {
+            writer.name("pack");
+            this.packAdapter.write(writer, value.getPack());
+        }
+
+        if (value.getResult() != null) {
+            writer.name("result");
+            this.resultAdapter.write(writer, value.getResult());
+        }
+
+        writer.endObject();
+    }
+
+    /**
+     * Reads a single pack response. Unknown properties are ignored.
+     *
+     * @param reader The JSON reader.
+     * @return The single pack response.
+     * @throws IOException The value could not be read.
+     */
+    @Override
+    public BulkSinglePackResponse read(JsonReader reader) throws IOException {
+        BulkSinglePackResponse response = new BulkSinglePackResponse();
+        reader.beginObject();
+
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "pack":
+                    response.setPack(this.packAdapter.read(reader));
+                    break;
+                case "result":
+                    response.setResult(this.resultAdapter.read(reader));
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+
+        reader.endObject();
+        return response;
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * -----------------------------------------------------------------------------
+ * File=EnumTypeAdapterFactory.java
+ * Company=Solidsoft Reply
+ * Copyright © 2017 Solidsoft Reply Ltd.
+ *
+ * JSON type adapter factory for enumerations.
+ * -----------------------------------------------------------------------------
+ */
+package com.reply.solidsoft.nbs.integration.extensions.serialization;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * JSON type adapter factory for enumerations. Enumerated values are written
+ * by name. When reading, names are matched without regard to case, and
+ * unknown names are read as null.
+ */
+public final class EnumTypeAdapterFactory implements TypeAdapterFactory {
+
+    /**
+     * The shared factory instance.
+     */
+    public static final EnumTypeAdapterFactory FACTORY = new EnumTypeAdapterFactory();
+
+    /**
+     * Prevents instantiation of the EnumTypeAdapterFactory class.
+     */
+    private EnumTypeAdapterFactory() {
+    }
+
+    /**
+     * Creates a type adapter for an enumeration type.
+     *
+     * @param <T> The type.
+     * @param gson The JSON serializer.
+     * @param type The type token.
+     * @return A type adapter, or null if the type is not an enumeration.
+     */
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        Class<? super T> rawType = type.getRawType();
+
+        if (!Enum.class.isAssignableFrom(rawType) || rawType == Enum.class) {
+            return null;
+        }
+
+        if (!rawType.isEnum()) {
+            // Enumerated values with bodies are subclasses of the enumeration.
+            rawType = rawType.getSuperclass();
+        }
+
+        return (TypeAdapter<T>) new EnumTypeAdapter(rawType).nullSafe();
+    }
+
+    /**
+     * JSON type adapter for a single enumeration type.
+     *
+     * @param <E> The enumeration type.
+     */
+    private static final class EnumTypeAdapter<E extends Enum<E>> extends TypeAdapter<E> {
+
+        /**
+         * The enumerated values, keyed by upper-case name.
+         */
+        private final Map<String, E> values = new HashMap<>();
+
+        /**
+         * Initializes a new instance of the EnumTypeAdapter class.
+         *
+         * @param enumType The enumeration type.
+         */
+        EnumTypeAdapter(Class<E> enumType) {
+            for (E value : enumType.getEnumConstants()) {
+                this.values.put(value.name().toUpperCase(Locale.ROOT), value);
+            }
+        }
+
+        /**
+         * Writes an enumerated value by name.
+         *
+         * @param writer The JSON writer.
+         * @param value The enumerated value.
+         * @throws IOException The value could not be written.
+         */
+        @Override
+        public void write(JsonWriter writer, E value) throws IOException {
+            writer.value(value.name());
+        }
+
+        /**
+         * Reads an enumerated value by name.
+         *
+         * @param reader The JSON reader.
+         * @return The enumerated value, or null if the name is unknown.
+         * @throws IOException The value could not be read.
+         */
+        @Override
+        public E read(JsonReader reader) throws IOException {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return null;
+            }
+
+            return this.values.get(reader.nextString().toUpperCase(Locale.ROOT));
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * -----------------------------------------------------------------------------
+ * File=GsonProvider.java
+ * Company=Solidsoft Reply
+ * Copyright © 2017 Solidsoft Reply Ltd.
+ *
+ * Provides the shared JSON serializer.
+ * -----------------------------------------------------------------------------
+ */
+package com.reply.solidsoft.nbs.integration.extensions.serialization;
+
+import com.google.gson.ExclusionStrategy;
+import com.google.gson.FieldAttributes;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.reply.solidsoft.nbs.integration.extensions.events.Event;
+import com.reply.solidsoft.nbs.integration.model.PackIdentifier;
+import java.time.Instant;
+
+/**
+ * Provides the shared JSON serializer. Gson instances are thread-safe and
+ * cache the type adapters they resolve, so a single preconfigured instance is
+ * shared across the library.
+ */
+public final class GsonProvider {
+
+    /**
+     * The shared JSON serializer.
+     */
+    private static final Gson GSON = newGsonBuilder().create();
+
+    /**
+     * The JSON serializer for stored records. Event fields hold listeners,
+     * which are not part of the state of a record, so they are not stored.
+     */
+    private static final Gson RECORD_GSON = newGsonBuilder()
+            .setExclusionStrategies(new ExclusionStrategy() {
+                @Override
+                public boolean shouldSkipField(FieldAttributes field) {
+                    return false;
+                }
+
+                @Override
+                public boolean shouldSkipClass(Class<?> type) {
+                    return Event.class.equals(type);
+                }
+            })
+            .create();
+
+    /**
+     * Prevents instantiation of the GsonProvider class.
+     */
+    private GsonProvider() {
+    }
+
+    /**
+     * Gets the shared JSON serializer.
+     *
+     * @return The shared JSON serializer.
+     */
+    public static Gson getGson() {
+        return GSON;
+    }
+
+    /**
+     * Gets the JSON serializer for records held in persistent storage.
+     *
+     * @return The JSON serializer for stored records.
+     */
+    public static Gson getRecordGson() {
+        return RECORD_GSON;
+    }
+
+    /**
+     * Returns a builder configured with the type adapters used by the library.
+     *
+     * @return A new builder.
+     */
+    private static GsonBuilder newGsonBuilder() {
+        return new GsonBuilder()
+                .registerTypeAdapter(Instant.class, new InstantTypeAdapter().nullSafe())
+                .registerTypeAdapter(PackIdentifier.class, new PackIdentifierTypeAdapter().nullSafe())
+                .registerTypeAdapterFactory(EnumTypeAdapterFactory.FACTORY)
+                .registerTypeAdapterFactory(BulkSinglePackResponseTypeAdapter.FACTORY)
+                .registerTypeAdapterFactory(ApiResultTypeAdapter.FACTORY);
+    }
+}
@@ -0,0 +1,63 @@
+/**
+ * -----------------------------------------------------------------------------
+ * File=InstantTypeAdapter.java
+ * Company=Solidsoft Reply
+ * Copyright © 2017 Solidsoft Reply Ltd.
+ *
+ * JSON type adapter for instants.
+ * -----------------------------------------------------------------------------
+ */
+package com.reply.solidsoft.nbs.integration.extensions.serialization;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * JSON type adapter for instants. Instants are represented as ISO-8601
+ * date-time strings.
+ */
+public class InstantTypeAdapter extends TypeAdapter<Instant> {
+
+    /**
+     * Writes an instant as an ISO-8601 string.
+     *
+     * @param writer The JSON writer.
+     * @param value The instant.
+     * @throws IOException The value could not be written.
+     */
+    @Override
+    public void write(JsonWriter writer, Instant value) throws IOException {
+        writer.value(value.toString());
+    }
+
+    /**
+     * Reads an instant from an ISO-8601 string. Date-time strings with an
+     * offset other than UTC are also accepted.
+     *
+     * @param reader The JSON reader.
+     * @return The instant.
+     * @throws IOException The value could not be read.
+     */
+    @Override
+    public Instant read(JsonReader reader) throws IOException {
+        String value = reader.nextString();
+
+        try {
+            return Instant.parse(value);
+        } catch (DateTimeParseException ex) {
+            // ignore;
+        }
+
+        try {
+            return OffsetDateTime.parse(value).toInstant();
+        } catch (DateTimeParseException ex) {
+            throw new JsonSyntaxException(value, ex);
+        }
+    }
+}
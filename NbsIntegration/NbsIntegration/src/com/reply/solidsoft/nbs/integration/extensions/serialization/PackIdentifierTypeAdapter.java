@@ -0,0 +1,107 @@
+/**
+ * -----------------------------------------------------------------------------
+ * File=PackIdentifierTypeAdapter.java
+ * Company=Solidsoft Reply
+ * Copyright © 2017 Solidsoft Reply Ltd.
+ *
+ * JSON type adapter for pack identifiers.
+ * -----------------------------------------------------------------------------
+ */
+package com.reply.solidsoft.nbs.integration.extensions.serialization;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.reply.solidsoft.nbs.integration.model.PackIdentifier;
+import java.io.IOException;
+
+/**
+ * JSON type adapter for pack identifiers.
+ */
+public class PackIdentifierTypeAdapter extends TypeAdapter<PackIdentifier> {
+
+    /**
+     * Writes a pack identifier. Null properties are omitted.
+     *
+     * @param writer The JSON writer.
+     * @param value The pack identifier.
+     * @throws IOException The value could not be written.
+     */
+    @Override
+    public void write(JsonWriter writer, PackIdentifier value) throws IOException {
+        writer.beginObject();
+        writeProperty(writer, "productCodeScheme", value.getProductCodeScheme());
+        writeProperty(writer, "productCode", value.getProductCode());
+        writeProperty(writer, "serialNumber", value.getSerialNumber());
+        writeProperty(writer, "batchId", value.getBatchId());
+        writeProperty(writer, "expiryDate", value.getExpiryDate());
+        writer.endObject();
+    }
+
+    /**
+     * Reads a pack identifier. Unknown properties are ignored.
+     *
+     * @param reader The JSON reader.
+     * @return The pack identifier.
+     * @throws IOException The value could not be read.
+     */
+    @Override
+    public PackIdentifier read(JsonReader reader) throws IOException {
+        PackIdentifier pack = new PackIdentifier();
+        reader.beginObject();
+
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+
+                // Only the product code scheme has a default value.
+                if ("productCodeScheme".equals(name)) {
+                    pack.setProductCodeScheme(null);
+                }
+
+                continue;
+            }
+
+            switch (name) {
+                case "productCodeScheme":
+                    pack.setProductCodeScheme(reader.nextString());
+                    break;
+                case "productCode":
+                    pack.setProductCode(reader.nextString());
+                    break;
+                case "serialNumber":
+                    pack.setSerialNumber(reader.nextString());
+                    break;
+                case "batchId":
+                    pack.setBatchId(reader.nextString());
+                    break;
+                case "expiryDate":
+                    pack.setExpiryDate(reader.nextString());
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+
+        reader.endObject();
+        return pack;
+    }
+
+    /**
+     * Writes a string property, if it is not null.
+     *
+     * @param writer The JSON writer.
+     * @param name The property name.
+     * @param value The property value.
+     * @throws IOException The property could not be written.
+     */
+    static void writeProperty(JsonWriter writer, String name, String value) throws IOException {
+        if (value != null) {
+            writer.name(name).value(value);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * -----------------------------------------------------------------------------
+ * File=RequestBodyCache.java
+ * Company=Solidsoft Reply
+ * Copyright © 2017 Solidsoft Reply Ltd.
+ *
+ * A cache of pre-encoded request bodies.
+ * -----------------------------------------------------------------------------
+ */
+package com.reply.solidsoft.nbs.integration.extensions.serialization;
+
+import com.reply.solidsoft.nbs.integration.model.PackStateTransitionCommand;
+import com.reply.solidsoft.nbs.integration.model.RequestedPackState;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+
+/**
+ * A cache of pre-encoded request bodies. There are only a handful of pack
+ * state transition commands, so their JSON representations and UTF-8 encoded
+ * entities are created once and shared by all requests. The entities are
+ * repeatable and are never modified, so they may be sent concurrently.
+ */
+public final class RequestBodyCache {
+
+    /**
+     * The JSON representation of the state transition command for each
+     * requested pack state.
+     */
+    private static final Map<RequestedPackState, String> COMMAND_BODIES;
+
+    /**
+     * The pre-encoded entity for each cached request body.
+     */
+    private static final Map<String, HttpEntity> ENTITIES;
+
+    static {
+        Map<RequestedPackState, String> commandBodies = new EnumMap<>(RequestedPackState.class);
+        Map<String, HttpEntity> entities = new HashMap<>();
+        entities.put("", createEntity(""));
+
+        for (RequestedPackState state : RequestedPackState.values()) {
+            String body = GsonProvider.getGson().toJson(new PackStateTransitionCommand(state));
+            commandBodies.put(state, body);
+            entities.put(body, createEntity(body));
+        }
+
+        COMMAND_BODIES = Collections.unmodifiableMap(commandBodies);
+        ENTITIES = Collections.unmodifiableMap(entities);
+    }
+
+    /**
+     * Prevents instantiation of the RequestBodyCache class.
+     */
+    private RequestBodyCache() {
+    }
+
+    /**
+     * Returns the JSON request body for a pack state transition command.
+     *
+     * @param state The requested pack state.
+     * @return The JSON request body.
+     */
+    public static String getCommandBody(RequestedPackState state) {
+        String body = state == null
+                ? null
+                : COMMAND_BODIES.get(state);
+
+        return body == null
+                ? GsonProvider.getGson().toJson(new PackStateTransitionCommand(state))
+                : body;
+    }
+
+    /**
+     * Returns an entity for a request body. Cached bodies are returned as
+     * shared pre-encoded entities. Any other body is encoded on each call.
+     *
+     * @param body The request body.
+     * @return The request entity.
+     */
+    public static HttpEntity getEntity(String body) {
+        String content = body == null
+                ? ""
+                : body;
+        HttpEntity entity = ENTITIES.get(content);
+
+        return entity == null
+                ? new StringEntity(content, ContentType.APPLICATION_JSON)
+                : entity;
+    }
+
+    /**
+     * Creates a pre-encoded entity for a request body.
+     *
+     * @param body The request body.
+     * @return The request entity.
+     */
+    private static HttpEntity createEntity(String body) {
+        return new ByteArrayEntity(body.getBytes(StandardCharsets.UTF_8), ContentType.APPLICATION_JSON);
+    }
+}
@@ -9,6 +9,7 @@
  */
 package com.reply.solidsoft.nbs.integration.logging;
 
+import com.reply.solidsoft.nbs.integration.data.TimestampSequence;
 import com.reply.solidsoft.nbs.integration.data.TransactionManager;
 import com.reply.solidsoft.nbs.integration.logging.model.LogEntry;
 import com.reply.solidsoft.nbs.integration.properties.Resources;
@@ -34,6 +35,11 @@ public class InMemoryLogDataTable implements NbsIntegrationLogDataTable {
      */
     private final List<LogEntry> inMemoryTable = new ArrayList<>();
 
+    /**
+     * The sequence of timestamps written to the table.
+     */
+    private final TimestampSequence timestampSequence = new TimestampSequence();
+
     /**
      * Initializes a new instance of the InMemoryLogDataTable class.
      *
@@ -114,6 +120,17 @@ public class InMemoryLogDataTable implements NbsIntegrationLogDataTable {
         }
     }
 
+    /**
+     * Gets the timestamp from which the timestamp of a new log entry is
+     * assigned.
+     *
+     * @return The highest timestamp written to the table, or 0.
+     */
+    @Override
+    public final long getSequenceTimestamp() {
+        return this.timestampSequence.getCurrent();
+    }
+
     /**
      * The name of the table.
      */
@@ -166,7 +183,7 @@ public class InMemoryLogDataTable implements NbsIntegrationLogDataTable {
      * or 0.
      */
     private long getCurrentLogTimestamp() {
-        return this.getDataManagementService().getTransactionLog().getCurrentTimestamp();
+        return this.getDataManagementService().getTransactionLog().getSequenceTimestamp();
     }
 
     /**
@@ -345,6 +362,7 @@ public class InMemoryLogDataTable implements NbsIntegrationLogDataTable {
 
         // add the record
         this.inMemoryTable.add(record);
+        this.timestampSequence.advanceTo(record.getTimeStamp());
     }
 
     /**
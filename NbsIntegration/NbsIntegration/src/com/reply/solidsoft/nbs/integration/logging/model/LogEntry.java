@@ -9,6 +9,7 @@
  */
 package com.reply.solidsoft.nbs.integration.logging.model;
 
+import com.reply.solidsoft.nbs.integration.data.TimestampSequence;
 import java.time.Instant;
 
 /**
@@ -17,19 +18,14 @@ import java.time.Instant;
 public class LogEntry implements NbsIntegrationLogEntry {
 
     /**
-     * Lock object for atomic reads and writes to the timestamp.
+     * The sequence from which timestamps are assigned.
      */
-    private static final Object TIMESTAMP_LOCK = new Object();
-
-    /**
-     * Timestamp counter.
-     */
-    private static long latestTimeStamp;
+    private static final TimestampSequence TIMESTAMP_SEQUENCE = new TimestampSequence();
 
     /**
      * Timestamp value.
      */
-    private long timeStamp;
+    private volatile long timeStamp;
 
     /**
      * Initializes a new instance of the LogEntry class.
@@ -327,9 +323,7 @@ public class LogEntry implements NbsIntegrationLogEntry {
      */
     @Override
     public final long getTimeStamp() {
-        synchronized (TIMESTAMP_LOCK) {
-            return this.timeStamp;
-        }
+        return this.timeStamp;
     }
 
     /**
@@ -338,9 +332,7 @@ public class LogEntry implements NbsIntegrationLogEntry {
      * @param value The timestamp value for this deferred record.
      */
     public final void setTimeStamp(long value) {
-        synchronized (TIMESTAMP_LOCK) {
-            this.timeStamp = value;
-        }
+        this.timeStamp = value;
     }
 
     /**
@@ -356,17 +348,6 @@ public class LogEntry implements NbsIntegrationLogEntry {
      * @param currentTimeStamp The current time stamp. Defaults to 0.
      */
     private void initialize(long currentTimeStamp) {
-        synchronized (TIMESTAMP_LOCK) {
-            if (latestTimeStamp == Long.MAX_VALUE) {
-                latestTimeStamp = 0;
-            }
-
-            if (currentTimeStamp > latestTimeStamp) {
-                latestTimeStamp = currentTimeStamp;
-            }
-
-            latestTimeStamp++;
-            this.setTimeStamp(latestTimeStamp);
-        }
+        this.setTimeStamp(TIMESTAMP_SEQUENCE.next(currentTimeStamp));
     }
 }
@@ -0,0 +1,135 @@
+/**
+ * -----------------------------------------------------------------------------
+ * File=LogEntryBulkSummary.java
+ * Company=Solidsoft Reply
+ * Copyright © 2017 Solidsoft Reply Ltd.
+ *
+ * Summary of the single pack responses within a bulk of packs.
+ * -----------------------------------------------------------------------------
+ */
+package com.reply.solidsoft.nbs.integration.logging.model;
+
+import com.reply.solidsoft.nbs.integration.model.responses.BulkSinglePackResponse;
+import com.reply.solidsoft.nbs.integration.model.responses.SinglePackResponse;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Summary of the single pack responses within a bulk of packs. The summary
+ * records the number of packs in each reported state and with each operation
+ * code, rather than a copy of every pack response.
+ */
+public class LogEntryBulkSummary implements NbsIntegrationLogEntryBulkSummary {
+
+    /**
+     * Initializes a new instance of the LogEntryBulkSummary class.
+     */
+    public LogEntryBulkSummary() {
+    }
+
+    /**
+     * Initializes a new instance of the LogEntryBulkSummary class.
+     *
+     * @param packs The single pack responses.
+     */
+    public LogEntryBulkSummary(BulkSinglePackResponse[] packs) {
+        for (BulkSinglePackResponse pack : packs) {
+            this.add(pack);
+        }
+    }
+
+    /**
+     * Adds a single pack response to the summary.
+     *
+     * @param pack The single pack response.
+     */
+    public final void add(BulkSinglePackResponse pack) {
+        this.packCount++;
+
+        SinglePackResponse result = pack == null
+                ? null
+                : pack.getResult();
+
+        if (result == null) {
+            return;
+        }
+
+        this.stateCounts.merge(result.getState() == null ? "" : result.getState(), 1, Integer::sum);
+        this.operationCodeCounts.merge(result.getOperationCode(), 1, Integer::sum);
+    }
+
+    /**
+     * The number of packs in the bulk.
+     */
+    private int packCount;
+
+    /**
+     * Gets the number of packs in the bulk.
+     *
+     * @return The number of packs in the bulk.
+     */
+    @Override
+    public final int getPackCount() {
+        return packCount;
+    }
+
+    /**
+     * Sets the number of packs in the bulk.
+     *
+     * @param value The number of packs in the bulk.
+     */
+    @Override
+    public final void setPackCount(int value) {
+        packCount = value;
+    }
+
+    /**
+     * The number of packs reported in each pack state.
+     */
+    private Map<String, Integer> stateCounts = new TreeMap<>();
+
+    /**
+     * Gets the number of packs reported in each pack state.
+     *
+     * @return A map of reported pack states to pack counts.
+     */
+    @Override
+    public final Map<String, Integer> getStateCounts() {
+        return stateCounts;
+    }
+
+    /**
+     * Sets the number of packs reported in each pack state.
+     *
+     * @param value A map of reported pack states to pack counts.
+     */
+    @Override
+    public final void setStateCounts(Map<String, Integer> value) {
+        stateCounts = value;
+    }
+
+    /**
+     * The number of packs reported with each operation code.
+     */
+    private Map<Integer, Integer> operationCodeCounts = new TreeMap<>();
+
+    /**
+     * Gets the number of packs reported with each operation code.
+     *
+     * @return A map of operation codes to pack counts.
+     */
+    @Override
+    public final Map<Integer, Integer> getOperationCodeCounts() {
+        return operationCodeCounts;
+    }
+
+    /**
+     * Sets the number of packs reported with each operation code.
+     *
+     * @param value A map of operation codes to pack counts.
+     */
+    @Override
+    public final void setOperationCodeCounts(Map<Integer, Integer> value) {
+        operationCodeCounts = value;
+    }
+}
@@ -31,6 +31,20 @@ public class LogEntryResponse implements NbsIntegrationLogEntryResponse {
      * @param result The API result.
      */
     public LogEntryResponse(ApiResult result) {
+        this(result, true);
+    }
+
+    /**
+     * Initializes a new instance of the LogEntryResponse class. Bulk results
+     * are always summarised. The individual pack responses are only copied
+     * into the log entry if requested, as a bulk may contain many thousands
+     * of packs.
+     *
+     * @param result The API result.
+     * @param isPackDetailLogged A value indicating whether the individual
+     * pack responses of a bulk result are copied into the log entry.
+     */
+    public LogEntryResponse(ApiResult result, boolean isPackDetailLogged) {
         this.setStatusCode(result.getStatusCode());
         this.setUprc(result.getUprc());
         this.setEta(result.getEta());
@@ -40,6 +54,10 @@ public class LogEntryResponse implements NbsIntegrationLogEntryResponse {
         this.setOperationCode(result.getOperationCode());
 
         if (result.getPacks() != null) {
+            this.setBulkSummary(new LogEntryBulkSummary(result.getPacks()));
+        }
+
+        if (result.getPacks() != null && isPackDetailLogged) {
             this.setPacks(new NbsIntegrationLogEntryBulkSinglePackResponse[result.getPacks().length]);
 
             for (int idx = 0; idx < result.getPacks().length; idx++) {
@@ -226,6 +244,32 @@ public class LogEntryResponse implements NbsIntegrationLogEntryResponse {
         packs = value;
     }
 
+    /**
+     * The summary of the packs.
+     */
+    private NbsIntegrationLogEntryBulkSummary bulkSummary;
+
+    /**
+     * Gets the summary of the packs in a bulk result.
+     *
+     * @return The summary of the packs, or null if the result is not a bulk
+     * result.
+     */
+    @Override
+    public final NbsIntegrationLogEntryBulkSummary getBulkSummary() {
+        return bulkSummary;
+    }
+
+    /**
+     * Sets the summary of the packs in a bulk result.
+     *
+     * @param value The summary of the packs.
+     */
+    @Override
+    public final void setBulkSummary(NbsIntegrationLogEntryBulkSummary value) {
+        bulkSummary = value;
+    }
+
     /**
      * The state of the pack.
      */
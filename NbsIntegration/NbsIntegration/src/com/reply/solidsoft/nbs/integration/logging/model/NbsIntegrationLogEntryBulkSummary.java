@@ -0,0 +1,60 @@
+/**
+ * -----------------------------------------------------------------------------
+ * File=NbsIntegrationLogEntryBulkSummary.java
+ * Company=Solidsoft Reply
+ * Copyright © 2017 Solidsoft Reply Ltd.
+ *
+ * Summary of the single pack responses within a bulk of packs.
+ * -----------------------------------------------------------------------------
+ */
+package com.reply.solidsoft.nbs.integration.logging.model;
+
+import java.util.Map;
+
+/**
+ * Summary of the single pack responses within a bulk of packs.
+ */
+public interface NbsIntegrationLogEntryBulkSummary {
+
+    /**
+     * Gets the number of packs in the bulk.
+     *
+     * @return The number of packs in the bulk.
+     */
+    public int getPackCount();
+
+    /**
+     * Sets the number of packs in the bulk.
+     *
+     * @param value The number of packs in the bulk.
+     */
+    public void setPackCount(int value);
+
+    /**
+     * Gets the number of packs reported in each pack state.
+     *
+     * @return A map of reported pack states to pack counts.
+     */
+    public Map<String, Integer> getStateCounts();
+
+    /**
+     * Sets the number of packs reported in each pack state.
+     *
+     * @param value A map of reported pack states to pack counts.
+     */
+    public void setStateCounts(Map<String, Integer> value);
+
+    /**
+     * Gets the number of packs reported with each operation code.
+     *
+     * @return A map of operation codes to pack counts.
+     */
+    public Map<Integer, Integer> getOperationCodeCounts();
+
+    /**
+     * Sets the number of packs reported with each operation code.
+     *
+     * @param value A map of operation codes to pack counts.
+     */
+    public void setOperationCodeCounts(Map<Integer, Integer> value);
+}
@@ -115,6 +115,21 @@ public interface NbsIntegrationLogEntryResponse {
      */
     public void setPacks(NbsIntegrationLogEntryBulkSinglePackResponse[] value);
 
+    /**
+     * Gets the summary of the packs in a bulk result.
+     *
+     * @return The summary of the packs, or null if the result is not a bulk
+     * result.
+     */
+    public NbsIntegrationLogEntryBulkSummary getBulkSummary();
+
+    /**
+     * Sets the summary of the packs in a bulk result.
+     *
+     * @param value The summary of the packs.
+     */
+    public void setBulkSummary(NbsIntegrationLogEntryBulkSummary value);
+
     /**
      * Gets the state of the pack.
      *
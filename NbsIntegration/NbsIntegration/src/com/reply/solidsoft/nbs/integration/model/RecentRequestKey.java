@@ -9,91 +9,123 @@
  */
 package com.reply.solidsoft.nbs.integration.model;
 
+import com.reply.solidsoft.nbs.integration.model.requests.RequestType;
+import java.util.Objects;
+
 /**
- * Cache key for a recent request.
+ * Cache key for a recent request. Keys are immutable.
  */
 public final class RecentRequestKey {
 
     /**
-     * Initializes a new instance of RecentRequestKey.
+     * Initializes a new instance of RecentRequestKey that identifies a pack
+     * regardless of the type of request.
+     *
+     * @param pack The product pack identifier.
+     * @param requestedPackState The requested pack state, or null for a
+     * verification request.
+     * @param dataEntryMode The data entry mode, or null for a key that
+     * identifies the pack regardless of data entry mode.
+     * @param language The requested language.
      */
-    public RecentRequestKey() {
+    public RecentRequestKey(PackIdentifier pack, RequestedPackState requestedPackState, DataEntryMode dataEntryMode, String language) {
+        this(null, pack, requestedPackState, dataEntryMode, language);
     }
 
     /**
      * Initializes a new instance of RecentRequestKey.
      *
+     * @param requestType The type of request, or null for a key that
+     * identifies the pack regardless of the type of request. Requests of
+     * different types never share a key, even if their other values match.
      * @param pack The product pack identifier.
-     * @param requestedPackState The requested pack state.
-     * @param dataEntryMode The data entry mode.
+     * @param requestedPackState The requested pack state, or null for a
+     * verification request.
+     * @param dataEntryMode The data entry mode, or null for a key that
+     * identifies the pack regardless of data entry mode.
      * @param language The requested language.
      */
-    public RecentRequestKey(PackIdentifier pack, RequestedPackState requestedPackState, DataEntryMode dataEntryMode, String language) {
-        this();
-        this.setProductCodeScheme(pack.getProductCodeScheme());
-        this.setRequestedPackState(requestedPackState.getValue());
+    public RecentRequestKey(RequestType requestType, PackIdentifier pack, RequestedPackState requestedPackState, DataEntryMode dataEntryMode, String language) {
+        this.requestType = requestType;
+        this.productCodeScheme = pack.getProductCodeScheme();
+        this.requestedPackState = (requestedPackState != null) ? requestedPackState.getValue() : "";
         String tempVar = pack.getProductCode();
-        this.setProductCode((tempVar != null) ? tempVar : "");
+        this.productCode = (tempVar != null) ? tempVar : "";
         String tempVar2 = pack.getSerialNumber();
-        this.setSerialNumber((tempVar2 != null) ? tempVar2 : "");
+        this.serialNumber = (tempVar2 != null) ? tempVar2 : "";
         String tempVar3 = pack.getBatchId();
-        this.setBatchId((tempVar3 != null) ? tempVar3 : "");
+        this.batchId = (tempVar3 != null) ? tempVar3 : "";
         String tempVar4 = pack.getExpiryDate();
-        this.setExpiryDate((tempVar4 != null) ? tempVar4 : "");
-        this.setDataEntryMode(dataEntryMode.getValue());
-        this.setLanguage((language != null) ? language : "");
+        this.expiryDate = (tempVar4 != null) ? tempVar4 : "";
+        this.dataEntryMode = (dataEntryMode != null) ? dataEntryMode.getValue() : "";
+        this.language = (language != null) ? language : "";
+
+        // The key is immutable, so its hash code is computed once.  The serial number
+        // is the most selective field, so it is hashed first.
+        int hash = Objects.hashCode(this.serialNumber);
+        hash = 31 * hash + Objects.hashCode(this.productCode);
+        hash = 31 * hash + Objects.hashCode(this.productCodeScheme);
+        hash = 31 * hash + Objects.hashCode(this.batchId);
+        hash = 31 * hash + Objects.hashCode(this.expiryDate);
+        hash = 31 * hash + Objects.hashCode(this.requestedPackState);
+        hash = 31 * hash + Objects.hashCode(this.dataEntryMode);
+        hash = 31 * hash + Objects.hashCode(this.language);
+        hash = 31 * hash + Objects.hashCode(this.requestType);
+        this.hash = hash;
     }
 
     /**
-     * The schema of the product code (GTIN or PPN).
+     * The hash code of the key.
      */
-    private String productCodeScheme;
+    private final int hash;
 
     /**
-     * Gets the schema of the product code (GTIN or PPN).
-     *
-     * @return The schema of the product code (GTIN or PPN).
+     * The type of request.
      */
-    public String getProductCodeScheme() {
-        return productCodeScheme;
-    }
+    private final RequestType requestType;
 
     /**
-     * Sets the schema of the product code (GTIN or PPN).
+     * Gets the type of request.
      *
-     * @param value The schema of the product code (GTIN or PPN).
+     * @return The type of request, or null if the key identifies the pack
+     * regardless of the type of request.
      */
-    public void setProductCodeScheme(String value) {
-        productCodeScheme = value;
+    public RequestType getRequestType() {
+        return requestType;
     }
 
     /**
-     * The requested language.
+     * The schema of the product code (GTIN or PPN).
      */
-    private String requestedPackState;
+    private final String productCodeScheme;
 
     /**
-     * Gets the requested language.
+     * Gets the schema of the product code (GTIN or PPN).
      *
-     * @return The requested language.
+     * @return The schema of the product code (GTIN or PPN).
      */
-    public String getRequestedPackState() {
-        return requestedPackState;
+    public String getProductCodeScheme() {
+        return productCodeScheme;
     }
 
     /**
-     * Sets the requested language.
+     * The requested pack state.
+     */
+    private final String requestedPackState;
+
+    /**
+     * Gets the requested pack state.
      *
-     * @param value The requested language.
+     * @return The requested pack state.
      */
-    public void setRequestedPackState(String value) {
-        requestedPackState = value;
+    public String getRequestedPackState() {
+        return requestedPackState;
     }
 
     /**
      * The product code.
      */
-    private String productCode;
+    private final String productCode;
 
     /**
      * Gets the product code.
@@ -104,19 +136,10 @@ public final class RecentRequestKey {
         return productCode;
     }
 
-    /**
-     * Sets the product code.
-     *
-     * @param value The product code.
-     */
-    public void setProductCode(String value) {
-        productCode = value;
-    }
-
     /**
      * The pack serial number.
      */
-    private String serialNumber;
+    private final String serialNumber;
 
     /**
      * Gets the pack serial number.
@@ -127,19 +150,10 @@ public final class RecentRequestKey {
         return serialNumber;
     }
 
-    /**
-     * Sets the pack serial number.
-     *
-     * @param value The pack serial number.
-     */
-    public void setSerialNumber(String value) {
-        serialNumber = value;
-    }
-
     /**
      * The batch (lot) identifier.
      */
-    private String batchId;
+    private final String batchId;
 
     /**
      * Gets the batch (lot) identifier.
@@ -150,19 +164,10 @@ public final class RecentRequestKey {
         return batchId;
     }
 
-    /**
-     * Sets the batch (lot) identifier.
-     *
-     * @param value The batch (lot) identifier.
-     */
-    public void setBatchId(String value) {
-        batchId = value;
-    }
-
     /**
      * The expiry date.
      */
-    private String expiryDate;
+    private final String expiryDate;
 
     /**
      * Gets the expiry date.
@@ -173,19 +178,10 @@ public final class RecentRequestKey {
         return expiryDate;
     }
 
-    /**
-     * Sets the expiry date.
-     *
-     * @param value The expiry date.
-     */
-    public void setExpiryDate(String value) {
-        expiryDate = value;
-    }
-
     /**
      * The data entry mode.
      */
-    private String dataEntryMode;
+    private final String dataEntryMode;
 
     /**
      * Gets the data entry mode.
@@ -196,19 +192,10 @@ public final class RecentRequestKey {
         return dataEntryMode;
     }
 
-    /**
-     * Sets the data entry mode.
-     *
-     * @param value The data entry mode.
-     */
-    public void setDataEntryMode(String value) {
-        dataEntryMode = value;
-    }
-
     /**
      * The requested language.
      */
-    private String language;
+    private final String language;
 
     /**
      * Gets the requested language.
@@ -219,15 +206,6 @@ public final class RecentRequestKey {
         return language;
     }
 
-    /**
-     * Sets the requested language.
-     *
-     * @param value The requested language.
-     */
-    public void setLanguage(String value) {
-        language = value;
-    }
-
     /**
      * Equality operator.
      *
@@ -236,7 +214,7 @@ public final class RecentRequestKey {
      * @return True, if the keys are equal; otherwise false;
      */
     public static boolean opEquality(RecentRequestKey key1, RecentRequestKey key2) {
-        return key1.equals(key2.clone());
+        return key1.equals(key2);
     }
 
     /**
@@ -247,7 +225,7 @@ public final class RecentRequestKey {
      * @return True, if the keys are not equal; otherwise false;
      */
     public static boolean opInequality(RecentRequestKey key1, RecentRequestKey key2) {
-        return !key1.equals(key2.clone());
+        return !key1.equals(key2);
     }
 
     /**
@@ -257,11 +235,22 @@ public final class RecentRequestKey {
      * @return True, if the keys are equal; otherwise false.
      */
     public boolean equals(RecentRequestKey other) {
-        if (other == null) {
-            return false;
+        if (other == this) {
+            return true;
         }
 
-        return other.getProductCodeScheme().equals(this.getProductCodeScheme()) && other.getRequestedPackState().equals(this.getRequestedPackState()) && other.getProductCode().equals(this.getProductCode()) && other.getSerialNumber().equals(this.getSerialNumber()) && other.getBatchId().equals(this.getBatchId()) && other.getExpiryDate().equals(this.getExpiryDate()) && other.getDataEntryMode().equals(this.getDataEntryMode()) && other.getLanguage().equals(this.getLanguage());
+        // Keys with different hash codes cannot be equal, so most comparisons stop here.
+        return other != null
+                && other.hash == this.hash
+                && other.serialNumber.equals(this.serialNumber)
+                && other.productCode.equals(this.productCode)
+                && Objects.equals(other.productCodeScheme, this.productCodeScheme)
+                && other.batchId.equals(this.batchId)
+                && other.expiryDate.equals(this.expiryDate)
+                && Objects.equals(other.requestedPackState, this.requestedPackState)
+                && Objects.equals(other.dataEntryMode, this.dataEntryMode)
+                && other.language.equals(this.language)
+                && other.requestType == this.requestType;
     }
 
     /**
@@ -272,13 +261,7 @@ public final class RecentRequestKey {
      */
     @Override
     public boolean equals(Object obj) {
-        if (obj == null || this.getClass() != obj.getClass()) {
-            return false;
-        }
-
-        RecentRequestKey objectToCompareWith = (RecentRequestKey) obj;
-
-        return objectToCompareWith.getProductCodeScheme().equals(this.getProductCodeScheme()) && objectToCompareWith.getRequestedPackState().equals(this.getRequestedPackState()) && objectToCompareWith.getProductCode().equals(this.getProductCode()) && objectToCompareWith.getSerialNumber().equals(this.getSerialNumber()) && objectToCompareWith.getBatchId().equals(this.getBatchId()) && objectToCompareWith.getExpiryDate().equals(this.getExpiryDate()) && objectToCompareWith.getDataEntryMode().equals(this.getDataEntryMode()) && objectToCompareWith.getLanguage().equals(this.getLanguage());
+        return obj instanceof RecentRequestKey && this.equals((RecentRequestKey) obj);
     }
 
     /**
@@ -288,7 +271,7 @@ public final class RecentRequestKey {
      */
     @Override
     public int hashCode() {
-        return this.toString().hashCode();
+        return this.hash;
     }
 
     /**
@@ -299,7 +282,8 @@ public final class RecentRequestKey {
     @Override
     public String toString() {
         return String.format(
-                "%1$s:%2$s:%3$s:%4$s:%5$s:%6$s:%7$s:%8$s",
+                "%1$s:%2$s:%3$s:%4$s:%5$s:%6$s:%7$s:%8$s:%9$s",
+                this.getRequestType() != null ? this.getRequestType() : "",
                 this.getProductCodeScheme(),
                 this.getRequestedPackState(),
                 this.getProductCode(),
@@ -311,28 +295,13 @@ public final class RecentRequestKey {
     }
 
     /**
-     * Returns a cloned copy of the request key instance.
+     * Returns a cloned copy of the request key instance. The key is immutable,
+     * so the instance itself is returned.
      *
-     * @return A cloned copy of the request key instance.
+     * @return The request key instance.
      */
     @Override
     public RecentRequestKey clone() {
-        try {
-            super.clone();
-        } catch (CloneNotSupportedException ex) {
-            ex.toString();
-        }
-        RecentRequestKey varCopy = new RecentRequestKey();
-
-        varCopy.productCodeScheme = this.productCodeScheme;
-        varCopy.requestedPackState = this.requestedPackState;
-        varCopy.productCode = this.productCode;
-        varCopy.serialNumber = this.serialNumber;
-        varCopy.batchId = this.batchId;
-        varCopy.expiryDate = this.expiryDate;
-        varCopy.dataEntryMode = this.dataEntryMode;
-        varCopy.language = this.language;
-
-        return varCopy;
+        return this;
     }
 }
@@ -9,12 +9,17 @@
  */
 package com.reply.solidsoft.nbs.integration.model.extensions;
 
+import com.reply.solidsoft.nbs.integration.extensions.MemoryCache;
 import com.reply.solidsoft.nbs.integration.model.DataEntryMode;
 import com.reply.solidsoft.nbs.integration.model.PackIdentifier;
 import com.reply.solidsoft.nbs.integration.model.ProductCodeScheme;
+import com.reply.solidsoft.nbs.integration.model.RecentRequestKey;
 import com.reply.solidsoft.nbs.integration.model.responses.LocalValidationResponse;
 import com.reply.solidsoft.nbs.integration.properties.Resources;
 import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -75,13 +80,117 @@ public final class PackIdentifierVerification {
     private static final Pattern EXPIRY_DATE = Pattern.compile("^((\\d{2}((0[13578]|1[02])(0[1-9]|[12]\\d|3[01])|(0[13456789]|1[012])(0[0-9]|[12]\\d|30)|02(0[0-9]|1\\d|2[0-8])))|([02468][048]|[13579][26])0229)$");
 
     /**
-     * Performs the validations of a pack identifier.
+     * The lowest operation code returned by a failed validation.
+     */
+    private static final int FIRST_OPERATION_CODE = 61020000;
+
+    /**
+     * The highest operation code returned by a failed validation.
+     */
+    private static final int LAST_OPERATION_CODE = 61020011;
+
+    /**
+     * A bounded cache of recent validation failures, keyed on the pack
+     * identifier as it was supplied, before any trimming or padding. Operators
+     * often rescan a pack that has failed validation, and the rules always
+     * give the same result for the same input.
+     */
+    private static final MemoryCache<RecentRequestKey, FailedValidation> FAILED_VALIDATIONS = new MemoryCache<>(600, 600, 1000);
+
+    /**
+     * The number of failed validations for each operation code, indexed from
+     * the lowest operation code.
+     */
+    private static final AtomicLongArray FAILURE_COUNTS = new AtomicLongArray(LAST_OPERATION_CODE - FIRST_OPERATION_CODE + 1);
+
+    /**
+     * Performs the validations of a pack identifier. The pack identifier is
+     * normalised in place by the rules that have run, by trimming, padding or
+     * capitalising its fields. The result of a failed validation is cached,
+     * together with the normalised fields, so that a repeated identical pack
+     * identifier fails, and is normalised in the same way, without the rules
+     * being run again.
      *
      * @param packIdentifier The extended pack identifier.
      * @param dataEntryMode The data entry mode.
      * @return A pack identifier validation response record.
      */
     public static LocalValidationResponse validate(PackIdentifier packIdentifier, DataEntryMode dataEntryMode) {
+        RecentRequestKey key = new RecentRequestKey(packIdentifier, null, dataEntryMode, null);
+        FailedValidation failedValidation = FAILED_VALIDATIONS.get(key);
+
+        if (null == failedValidation) {
+            LocalValidationResponse validationResponse = doValidate(packIdentifier, dataEntryMode);
+
+            if (validationResponse.getOperationCode() <= 0) {
+                return validationResponse;
+            }
+
+            failedValidation = new FailedValidation(validationResponse, packIdentifier);
+            FAILED_VALIDATIONS.put(key, failedValidation);
+        } else {
+            failedValidation.normalise(packIdentifier);
+        }
+
+        recordFailure(failedValidation.response.getOperationCode());
+
+        // The response is mutable, so each caller receives its own copy.
+        LocalValidationResponse localValidationResponse = new LocalValidationResponse();
+        localValidationResponse.setOperationCode(failedValidation.response.getOperationCode());
+        localValidationResponse.setWarning(failedValidation.response.getWarning());
+        return localValidationResponse;
+    }
+
+    /**
+     * Gets the number of failed validations for each operation code, in
+     * operation code order. Repeated failures served from the cache are
+     * included.
+     *
+     * @return A map of operation codes to the number of failed validations.
+     */
+    public static Map<Integer, Long> getFailureCounts() {
+        Map<Integer, Long> failureCounts = new TreeMap<>();
+
+        for (int index = 0; index < FAILURE_COUNTS.length(); index++) {
+            long count = FAILURE_COUNTS.get(index);
+
+            if (count > 0) {
+                failureCounts.put(FIRST_OPERATION_CODE + index, count);
+            }
+        }
+
+        return failureCounts;
+    }
+
+    /**
+     * Gets the number of failed validations that were served from the cache
+     * of recent failures.
+     *
+     * @return The number of cached failures returned.
+     */
+    public static long getCachedFailureCount() {
+        return FAILED_VALIDATIONS.getHitCount();
+    }
+
+    /**
+     * Records a failed validation against its operation code.
+     *
+     * @param operationCode The operation code.
+     */
+    private static void recordFailure(int operationCode) {
+        if (operationCode >= FIRST_OPERATION_CODE && operationCode <= LAST_OPERATION_CODE) {
+            FAILURE_COUNTS.incrementAndGet(operationCode - FIRST_OPERATION_CODE);
+        }
+    }
+
+    /**
+     * Runs the validation rules for a pack identifier.
+     *
+     * @param packIdentifier The extended pack identifier.
+     * @param dataEntryMode The data entry mode.
+     * @return A pack identifier validation response record.
+     */
+    private static LocalValidationResponse doValidate(PackIdentifier packIdentifier, DataEntryMode dataEntryMode) {
         /* EFPIA, EAEPC and MFE have published a joint recommendation for identifiers which
 		 * recomends the use of GS1 and GTIN-14, or German IFA and PPNs.  The DR is aligned 
 		 * with this, but these formats and standards are not formal requirements in law.
@@ -339,4 +448,77 @@ public final class PackIdentifierVerification {
 
         return okayResponse;
     }
+
+    /**
+     * A failed validation, together with the fields of the pack identifier as
+     * they were normalised by the rules that ran.
+     */
+    private static final class FailedValidation {
+
+        /**
+         * The validation response.
+         */
+        private final LocalValidationResponse response;
+
+        /**
+         * The normalised product code.
+         */
+        private final String productCode;
+
+        /**
+         * The normalised serial number.
+         */
+        private final String serialNumber;
+
+        /**
+         * The normalised batch identifier.
+         */
+        private final String batchId;
+
+        /**
+         * The normalised expiry date.
+         */
+        private final String expiryDate;
+
+        /**
+         * Initializes a new instance of the FailedValidation class.
+         *
+         * @param response The validation response.
+         * @param packIdentifier The pack identifier, as normalised by the
+         * rules that ran.
+         */
+        private FailedValidation(LocalValidationResponse response, PackIdentifier packIdentifier) {
+            this.response = response;
+            this.productCode = packIdentifier.getProductCode();
+            this.serialNumber = packIdentifier.getSerialNumber();
+            this.batchId = packIdentifier.getBatchId();
+            this.expiryDate = packIdentifier.getExpiryDate();
+        }
+
+        /**
+         * Normalises a pack identifier in the same way as the pack identifier
+         * that failed validation. The cache key does not distinguish a null
+         * field from an empty field, and neither is changed by the rules, so
+         * such fields are left as supplied.
+         *
+         * @param packIdentifier The pack identifier.
+         */
+        private void normalise(PackIdentifier packIdentifier) {
+            if (null != packIdentifier.getProductCode() && null != this.productCode) {
+                packIdentifier.setProductCode(this.productCode);
+            }
+
+            if (null != packIdentifier.getSerialNumber() && null != this.serialNumber) {
+                packIdentifier.setSerialNumber(this.serialNumber);
+            }
+
+            if (null != packIdentifier.getBatchId() && null != this.batchId) {
+                packIdentifier.setBatchId(this.batchId);
+            }
+
+            if (null != packIdentifier.getExpiryDate() && null != this.expiryDate) {
+                packIdentifier.setExpiryDate(this.expiryDate);
+            }
+        }
+    }
 }
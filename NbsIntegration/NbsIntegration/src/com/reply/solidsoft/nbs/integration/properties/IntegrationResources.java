@@ -42,6 +42,7 @@ public class IntegrationResources extends ListResourceBundle {
         {"API_Validation_63120001", "The actual number of packs does not match the stated number."},
         {"API_Validation_63120002", "The request body is invalid."},
         {"API_Validation_63120003", "Too many packs in bulk request.  A maximum of {0} packs will be accepted."},
+        {"ApiClient_AsyncRequestQueueFull", "Too many asynchronous requests are waiting to be sent.  The request was rejected."},
         {"ApiClient_BadGatewayWarning", "An intermediate proxy received a bad response from another proxy or the National System."},
         {"ApiClient_CheckUriMessage", "Check the request URI."},
         {"ApiClient_ClientNotStarted", "The API Client is not started."},
@@ -52,6 +53,7 @@ public class IntegrationResources extends ListResourceBundle {
         {"ApiClient_Offline", "The client is currently offline."},
         {"ApiClient_RequestTimeoutWarning", "The API client did not send the record within the time the National System was expecting the record."},
         {"ApiClient_ServiceUnavailableWarning", "The National System is temporarily unavailable."},
+        {"ApiClient_StreamedBulkResultIncomplete", "The bulk result from the National System could not be read in full.  The pack results already passed to the pack handler are incomplete."},
         {"ApiClient_TooManyRequests", "The API client has sent too many records in a given amount of time."},
         {"ApiClient_UnauthorizedWarning", "The API client is not authorised by the National System to access the required resource."},
         {"ApiClient_UnsupportedHttpVerb", "The requested HTTP verb is not supported."},
@@ -68,10 +70,14 @@ public class IntegrationResources extends ListResourceBundle {
         {"InterchangeException_DeferredRequestNotStoredAndRollbackFailed", "Failed to store the deferred record, and internal rollback failed.  The record will not be forwarded to the National System when the current problem is resolved."},
         {"InterchangeException_NullRequestsTable", "The records data management service table cannot be null."},
         {"InterchangeException_NullResponsesTable", "The responses data management service table cannot be null."},
+        {"InterchangeException_StoreAndForwardLogOpenFailed", "Failed to open the store and forward log."},
+        {"InterchangeException_StoreAndForwardLogReadFailed", "Failed to read from the store and forward log."},
+        {"InterchangeException_StoreAndForwardLogWriteFailed", "Failed to write to the store and forward log."},
         {"InvalidBulkRequest_DuplicatesNotAllowed", "Duplicate serial numbers are not allowed in bulk record."},
         {"InvalidBulkRequest_NoPacksProvided", "No packs have been provided in bulk record."},
         {"InvalidBulkRequest_TooManyPacks", "Too many packs in bulk record. Maximum of {0} packs will be accepted."},
         {"Location", "Location"},
+        {"Logging_AcknowledgementNotStored", "Failed to record the acknowledgement of deferred requests by the National System.  The requests may be sent again if the process is restarted."},
         {"Logging_ApiClientStarted", "API client instance started."},
         {"Logging_ApiClientStopped", "API client instance stopped."},
         {"Logging_DeferredRequestNotStored", "Failed to record a deferred request.  The request cannot be stored and forwarded to the National System."},
@@ -79,6 +85,7 @@ public class IntegrationResources extends ListResourceBundle {
         {"Logging_RecoveryResultsRequestFailed", "A recovery results request failed.  A technical issue prevented communication with the National System."},
         {"Logging_RequestBearerTokenFailed", "The API client failed to obtain a security token from the National System."},
         {"Logging_RequestBearerTokenSucceeded", "The API client obtained a security token from the National System."},
+        {"Logging_VerifyResultReturnedFromCache", "The verify result was returned from the cache.  The request was not passed to the National System."},
         {"NoOfPacks", "No. of Packs"},
         {"OperationCode", "Operation Code"},
         {"PackState", "Pack State"},
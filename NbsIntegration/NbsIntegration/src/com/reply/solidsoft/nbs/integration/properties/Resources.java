@@ -213,6 +213,17 @@ public class Resources {
         return getResourceManager().getString("API_Validation_63120003");
     }
 
+    /**
+     * Looks up a localized string similar to Too many asynchronous requests
+     * are waiting to be sent. The request was rejected.
+     *
+     * @return A localized string similar to Too many asynchronous requests are
+     * waiting to be sent. The request was rejected.
+     */
+    public static String getApiClient_AsyncRequestQueueFull() {
+        return getResourceManager().getString("ApiClient_AsyncRequestQueueFull");
+    }
+
     /**
      * Looks up a localized string similar to An intermediate proxy received a
      * bad response from another proxy or the National System.
@@ -317,6 +328,19 @@ public class Resources {
         return getResourceManager().getString("ApiClient_ServiceUnavailableWarning");
     }
 
+    /**
+     * Looks up a localized string similar to The bulk result from the National
+     * System could not be read in full. The pack results already passed to the
+     * pack handler are incomplete.
+     *
+     * @return A localized string similar to The bulk result from the National
+     * System could not be read in full. The pack results already passed to the
+     * pack handler are incomplete.
+     */
+    public static String getApiClient_StreamedBulkResultIncomplete() {
+        return getResourceManager().getString("ApiClient_StreamedBulkResultIncomplete");
+    }
+
     /**
      * Looks up a localized string similar to The API client has sent too many
      * records in a given amount of time.
@@ -485,6 +509,39 @@ public class Resources {
         return getResourceManager().getString("InterchangeException_NullResponsesTable");
     }
 
+    /**
+     * Looks up a localized string similar to Failed to open the store and
+     * forward log.
+     *
+     * @return A localized string similar to Failed to open the store and
+     * forward log.
+     */
+    public static String getInterchangeException_StoreAndForwardLogOpenFailed() {
+        return getResourceManager().getString("InterchangeException_StoreAndForwardLogOpenFailed");
+    }
+
+    /**
+     * Looks up a localized string similar to Failed to read from the store and
+     * forward log.
+     *
+     * @return A localized string similar to Failed to read from the store and
+     * forward log.
+     */
+    public static String getInterchangeException_StoreAndForwardLogReadFailed() {
+        return getResourceManager().getString("InterchangeException_StoreAndForwardLogReadFailed");
+    }
+
+    /**
+     * Looks up a localized string similar to Failed to write to the store and
+     * forward log.
+     *
+     * @return A localized string similar to Failed to write to the store and
+     * forward log.
+     */
+    public static String getInterchangeException_StoreAndForwardLogWriteFailed() {
+        return getResourceManager().getString("InterchangeException_StoreAndForwardLogWriteFailed");
+    }
+
     /**
      * Looks up a localized string similar to Duplicate serial numbers are not
      * allowed in bulk record.
@@ -527,6 +584,19 @@ public class Resources {
         return getResourceManager().getString("Location");
     }
 
+    /**
+     * Looks up a localized string similar to Failed to record the
+     * acknowledgement of deferred requests by the National System. The
+     * requests may be sent again if the process is restarted.
+     *
+     * @return A localized string similar to Failed to record the
+     * acknowledgement of deferred requests by the National System. The
+     * requests may be sent again if the process is restarted.
+     */
+    public static String getLogging_AcknowledgementNotStored() {
+        return getResourceManager().getString("Logging_AcknowledgementNotStored");
+    }
+
     /**
      * Looks up a localized string similar to API client instance started.
      *
@@ -602,6 +672,17 @@ public class Resources {
         return getResourceManager().getString("Logging_RequestBearerTokenSucceeded");
     }
 
+    /**
+     * Looks up a localized string similar to The verify result was returned
+     * from the cache. The request was not passed to the National System.
+     *
+     * @return A localized string similar to The verify result was returned
+     * from the cache. The request was not passed to the National System.
+     */
+    public static String getLogging_VerifyResultReturnedFromCache() {
+        return getResourceManager().getString("Logging_VerifyResultReturnedFromCache");
+    }
+
     /**
      * Looks up a localized string similar to No. of Packs.
      *
@@ -9,6 +9,7 @@
  */
 package com.reply.solidsoft.nbs.integration.recovery;
 
+import com.reply.solidsoft.nbs.integration.InterchangeException;
 import com.reply.solidsoft.nbs.integration.data.TransactionManager;
 import com.reply.solidsoft.nbs.integration.model.HttpStatusCode;
 import com.reply.solidsoft.nbs.integration.model.HttpVerb;
@@ -171,7 +172,12 @@ public class RecoveryHandler extends Thread {
                 switch (response.getStatusCode()) {
                     case HttpStatusCode.SC_ACCEPTED:
                         // Mark each deferred request as acknowledged.
-                        this.context.getStoreAndForwardService().acknowledgeRequest(deferredRequests);
+                        try {
+                            this.context.getStoreAndForwardService().acknowledgeRequest(deferredRequests);
+                        } catch (InterchangeException ex) {
+                            // The requests have been accepted, so their results are still processed.
+                            this.context.getLogOnError().invoke(Resources.getLogging_AcknowledgementNotStored(), null);
+                        }
 
                         // Process the response to the request.
                         this.processRecoveryResponse(resultsLocation, this.calculateBackOff(response.getEta(), nextPollinterval), commands);
@@ -353,7 +359,7 @@ public class RecoveryHandler extends Thread {
                             try (TransactionManager transaction1 = TransactionManager.newTransaction(this.context.getResponseTable());
                                     TransactionManager transaction2 = TransactionManager.newTransaction(this.context.getRequestTable())) {
                                 try {
-                                    long timeStamp = this.context.getResponseTable().getCurrentTimestamp();
+                                    long timeStamp = this.context.getResponseTable().getSequenceTimestamp();
 
                                     // Get the original requests.  The code assumes everything is 
                                     // maintained in strict order.
@@ -0,0 +1,230 @@
+/**
+ * -----------------------------------------------------------------------------
+ * File=BinaryRecordCodec.java
+ * Company=Solidsoft Reply
+ * Copyright © 2017 Solidsoft Reply Ltd.
+ *
+ * Base class for compact binary encodings of stored records.
+ * -----------------------------------------------------------------------------
+ */
+package com.reply.solidsoft.nbs.integration.recovery.file;
+
+import com.reply.solidsoft.nbs.integration.data.model.DataRecord;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Base class for compact binary encodings of stored records.
+ * <p>
+ * Every encoded record starts with a fixed header: a version byte, the record
+ * timestamp and a byte of flags. The header can be read in place, so a store
+ * can index and scan records without decoding them. The remaining fields
+ * follow the header. Integers are written as variable-length quantities and
+ * strings as a length followed by UTF-8 bytes, where a length of zero
+ * indicates null.
+ *
+ * @param <T> The record type.
+ */
+public abstract class BinaryRecordCodec<T extends DataRecord> {
+
+    /**
+     * The version of the encoding.
+     */
+    protected static final byte VERSION = 1;
+
+    /**
+     * The flag that indicates that a deferred request has been acknowledged.
+     */
+    protected static final byte ACKNOWLEDGED = 0x01;
+
+    /**
+     * The offset of the timestamp in an encoded record.
+     */
+    private static final int TIMESTAMP_OFFSET = 1;
+
+    /**
+     * The offset of the flags in an encoded record.
+     */
+    private static final int FLAGS_OFFSET = 9;
+
+    /**
+     * The size of the header of an encoded record.
+     */
+    private static final int HEADER_SIZE = 10;
+
+    /**
+     * Encodes a record.
+     *
+     * @param record The record.
+     * @return The encoded record.
+     */
+    public final byte[] encode(T record) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(128);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.put(VERSION);
+        header.putLong(record.getTimeStamp());
+        header.put(this.getFlags(record));
+        output.write(header.array(), 0, HEADER_SIZE);
+        this.writeFields(output, record);
+        return output.toByteArray();
+    }
+
+    /**
+     * Decodes a record.
+     *
+     * @param encodedRecord The encoded record, from its current position. The
+     * position of the buffer is not changed.
+     * @return The record.
+     */
+    public final T decode(ByteBuffer encodedRecord) {
+        ByteBuffer input = encodedRecord.duplicate();
+        byte version = input.get();
+
+        if (version != VERSION) {
+            throw new IllegalArgumentException(Byte.toString(version));
+        }
+
+        long timeStamp = input.getLong();
+        byte flags = input.get();
+        return this.readFields(input, timeStamp, flags);
+    }
+
+    /**
+     * Reads the timestamp of an encoded record, without decoding the record.
+     *
+     * @param encodedRecord The encoded record, from its current position.
+     * @return The timestamp of the record.
+     */
+    public static long getTimeStamp(ByteBuffer encodedRecord) {
+        return encodedRecord.getLong(encodedRecord.position() + TIMESTAMP_OFFSET);
+    }
+
+    /**
+     * Reads the flags of an encoded record, without decoding the record.
+     *
+     * @param encodedRecord The encoded record, from its current position.
+     * @return The flags of the record.
+     */
+    public static byte getFlags(ByteBuffer encodedRecord) {
+        return encodedRecord.get(encodedRecord.position() + FLAGS_OFFSET);
+    }
+
+    /**
+     * Gets a value indicating whether a record has been acknowledged.
+     *
+     * @param record The record.
+     * @return True, if the record has been acknowledged; otherwise false.
+     */
+    public boolean getAcknowledged(T record) {
+        return false;
+    }
+
+    /**
+     * Marks a record as acknowledged.
+     *
+     * @param record The record.
+     */
+    public void setAcknowledged(T record) {
+        // do nothing;
+    }
+
+    /**
+     * Gets the flags of a record.
+     *
+     * @param record The record.
+     * @return The flags of the record.
+     */
+    protected abstract byte getFlags(T record);
+
+    /**
+     * Writes the fields of a record that follow the header.
+     *
+     * @param output The output.
+     * @param record The record.
+     */
+    protected abstract void writeFields(ByteArrayOutputStream output, T record);
+
+    /**
+     * Reads the fields of a record that follow the header.
+     *
+     * @param input The input, positioned after the header.
+     * @param timeStamp The timestamp of the record.
+     * @param flags The flags of the record.
+     * @return The record.
+     */
+    protected abstract T readFields(ByteBuffer input, long timeStamp, byte flags);
+
+    /**
+     * Writes a variable-length quantity.
+     *
+     * @param output The output.
+     * @param value The value, which is treated as unsigned.
+     */
+    protected static void writeVarLong(ByteArrayOutputStream output, long value) {
+        long remaining = value;
+
+        while ((remaining & ~0x7FL) != 0) {
+            output.write((int) ((remaining & 0x7F) | 0x80));
+            remaining >>>= 7;
+        }
+
+        output.write((int) remaining);
+    }
+
+    /**
+     * Reads a variable-length quantity.
+     *
+     * @param input The input.
+     * @return The value.
+     */
+    protected static long readVarLong(ByteBuffer input) {
+        long value = 0;
+
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte next = input.get();
+            value |= (long) (next & 0x7F) << shift;
+
+            if ((next & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        throw new IllegalArgumentException();
+    }
+
+    /**
+     * Writes a string.
+     *
+     * @param output The output.
+     * @param value The string, or null.
+     */
+    protected static void writeString(ByteArrayOutputStream output, String value) {
+        if (value == null) {
+            output.write(0);
+            return;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(output, bytes.length + 1L);
+        output.write(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Reads a string.
+     *
+     * @param input The input.
+     * @return The string, or null.
+     */
+    protected static String readString(ByteBuffer input) {
+        int length = (int) readVarLong(input) - 1;
+
+        if (length < 0) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        input.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
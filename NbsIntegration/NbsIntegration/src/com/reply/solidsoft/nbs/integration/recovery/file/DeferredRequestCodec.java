@@ -0,0 +1,98 @@
+/**
+ * -----------------------------------------------------------------------------
+ * File=DeferredRequestCodec.java
+ * Company=Solidsoft Reply
+ * Copyright © 2017 Solidsoft Reply Ltd.
+ *
+ * A compact binary encoding of deferred requests.
+ * -----------------------------------------------------------------------------
+ */
+package com.reply.solidsoft.nbs.integration.recovery.file;
+
+import com.reply.solidsoft.nbs.integration.recovery.model.DeferredRequest;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * A compact binary encoding of deferred requests. The acknowledgement and
+ * data entry mode are held as flags in the header, followed by the URI, verb,
+ * body, requested state and language.
+ */
+public class DeferredRequestCodec extends BinaryRecordCodec<DeferredRequest> {
+
+    /**
+     * The flag that indicates that a deferred request was entered manually.
+     */
+    private static final byte MANUAL = 0x02;
+
+    /**
+     * Gets a value indicating whether a deferred request has been
+     * acknowledged.
+     *
+     * @param record The deferred request.
+     * @return True, if the deferred request has been acknowledged; otherwise
+     * false.
+     */
+    @Override
+    public boolean getAcknowledged(DeferredRequest record) {
+        return record.getAcknowledged();
+    }
+
+    /**
+     * Marks a deferred request as acknowledged.
+     *
+     * @param record The deferred request.
+     */
+    @Override
+    public void setAcknowledged(DeferredRequest record) {
+        record.setAcknowledged(true);
+    }
+
+    /**
+     * Gets the flags of a deferred request.
+     *
+     * @param record The deferred request.
+     * @return The flags of the deferred request.
+     */
+    @Override
+    protected byte getFlags(DeferredRequest record) {
+        return (byte) ((record.getAcknowledged() ? ACKNOWLEDGED : 0) | (record.getIsManual() ? MANUAL : 0));
+    }
+
+    /**
+     * Writes the fields of a deferred request that follow the header.
+     *
+     * @param output The output.
+     * @param record The deferred request.
+     */
+    @Override
+    protected void writeFields(ByteArrayOutputStream output, DeferredRequest record) {
+        writeString(output, record.getUri());
+        writeString(output, record.getVerb());
+        writeString(output, record.getBody());
+        writeString(output, record.getRequestedState());
+        writeString(output, record.getLanguage());
+    }
+
+    /**
+     * Reads the fields of a deferred request that follow the header.
+     *
+     * @param input The input, positioned after the header.
+     * @param timeStamp The timestamp of the deferred request.
+     * @param flags The flags of the deferred request.
+     * @return The deferred request.
+     */
+    @Override
+    protected DeferredRequest readFields(ByteBuffer input, long timeStamp, byte flags) {
+        DeferredRequest record = new DeferredRequest();
+        record.setTimeStamp(timeStamp);
+        record.setAcknowledged((flags & ACKNOWLEDGED) != 0);
+        record.setIsManual((flags & MANUAL) != 0);
+        record.setUri(readString(input));
+        record.setVerb(readString(input));
+        record.setBody(readString(input));
+        record.setRequestedState(readString(input));
+        record.setLanguage(readString(input));
+        return record;
+    }
+}
@@ -0,0 +1,975 @@
+/**
+ * -----------------------------------------------------------------------------
+ * File=FileDataTable.java
+ * Company=Solidsoft Reply
+ * Copyright © 2017 Solidsoft Reply Ltd.
+ *
+ * Implements a transactional record store backed by a write-ahead log.
+ * -----------------------------------------------------------------------------
+ */
+package com.reply.solidsoft.nbs.integration.recovery.file;
+
+import com.reply.solidsoft.nbs.integration.data.DataManagementService;
+import com.reply.solidsoft.nbs.integration.data.TimestampSequence;
+import com.reply.solidsoft.nbs.integration.data.TransactionManager;
+import com.reply.solidsoft.nbs.integration.data.model.DataRecord;
+import com.reply.solidsoft.nbs.integration.data.model.TypedDataTable;
+import com.reply.solidsoft.nbs.integration.data.model.TypedRecords;
+import com.reply.solidsoft.nbs.integration.extensions.serialization.GsonProvider;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Implements a transactional record store backed by a write-ahead log.
+ * <p>
+ * Records are indexed by timestamp. Records added and removed by a thread are
+ * held as pending changes until the thread commits, when the changes are
+ * appended to the write-ahead log of the file data management service as a
+ * single batch, and flushed to disk before the commit returns. On rollback,
+ * the pending changes are undone.
+ * <p>
+ * A record added by a thread is only visible to that thread until it is
+ * committed, so that another thread, such as the recovery thread, cannot act
+ * on a record that is later rolled back. A record whose removal is pending is
+ * hidden from all threads, so that it is not processed twice.
+ * <p>
+ * By default, committed records are held on the heap. If the table is
+ * memory-mapped, only the timestamp and location of each committed record are
+ * held on the heap. The record itself is held in its binary encoding in the
+ * memory-mapped log, and is decoded each time it is read, so records are
+ * copies, and scanning the table in timestamp order only decodes the records
+ * that are visited.
+ *
+ * @param <T> The data management service record type.
+ */
+public class FileDataTable<T extends DataRecord> implements TypedDataTable<T>, TypedRecords<T> {
+
+    /**
+     * The identifier of the table in the write-ahead log.
+     */
+    private final byte tableId;
+
+    /**
+     * The record type.
+     */
+    private final Class<T> recordType;
+
+    /**
+     * The binary encoding of records.
+     */
+    private final BinaryRecordCodec<T> codec;
+
+    /**
+     * A value indicating whether committed records are held in the
+     * memory-mapped log rather than on the heap.
+     */
+    private final boolean memoryMapped;
+
+    /**
+     * The committed and pending records, indexed by timestamp. Records whose
+     * removal is pending remain in the index until the removal is committed.
+     */
+    private final ConcurrentSkipListMap<Long, Slot<T>> slots = new ConcurrentSkipListMap<>();
+
+    /**
+     * The number of committed records in the table, excluding records whose
+     * removal is pending.
+     */
+    private final AtomicInteger count = new AtomicInteger();
+
+    /**
+     * The sequence of timestamps written to the table.
+     */
+    private final TimestampSequence timestampSequence = new TimestampSequence();
+
+    /**
+     * A live list view of the table.
+     */
+    private final List<T> records = new RecordList();
+
+    /**
+     * The changes made by the current thread that have not been committed.
+     */
+    private final ThreadLocal<List<Change<T>>> pendingChanges = ThreadLocal.withInitial(ArrayList::new);
+
+    /**
+     * Initializes a new instance of the FileDataTable{T} class.
+     *
+     * @param tableName The name of the data management service table.
+     * @param tableId The identifier of the table in the write-ahead log.
+     * @param recordType The record type.
+     * @param codec The binary encoding of records.
+     * @param memoryMapped A value indicating whether committed records are
+     * held in the memory-mapped log rather than on the heap.
+     */
+    public FileDataTable(String tableName, byte tableId, Class<T> recordType, BinaryRecordCodec<T> codec, boolean memoryMapped) {
+        this.name = tableName;
+        this.tableId = tableId;
+        this.recordType = recordType;
+        this.codec = codec;
+        this.memoryMapped = memoryMapped;
+    }
+
+    /**
+     * The file data management service.
+     */
+    private DataManagementService dataManagementService;
+
+    /**
+     * Gets the file data management service.
+     *
+     * @return The file data management service.
+     */
+    @Override
+    public final DataManagementService getDataManagementService() {
+        return dataManagementService;
+    }
+
+    /**
+     * Sets the file data management service.
+     *
+     * @param value The file data management service.
+     */
+    @Override
+    public final void setDataManagementService(DataManagementService value) {
+        dataManagementService = value;
+    }
+
+    /**
+     * Gets the current timestamp.
+     *
+     * @return The timestamp of the last record in the store, or 0.
+     */
+    @Override
+    public final long getCurrentTimestamp() {
+        for (Map.Entry<Long, Slot<T>> entry : this.slots.descendingMap().entrySet()) {
+            if (entry.getValue().isVisible()) {
+                return entry.getKey();
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * Gets the timestamp from which the timestamp of a new record is assigned.
+     *
+     * @return The highest timestamp written to the table, or 0.
+     */
+    @Override
+    public final long getSequenceTimestamp() {
+        return this.timestampSequence.getCurrent();
+    }
+
+    /**
+     * The name of the table.
+     */
+    private String name;
+
+    /**
+     * Gets the name of the table.
+     *
+     * @return The name of the table.
+     */
+    @Override
+    public final String getName() {
+        return name;
+    }
+
+    /**
+     * Sets the name of the table.
+     *
+     * @param value The name of the table.
+     */
+    @Override
+    public final void setName(String value) {
+        name = value;
+    }
+
+    /**
+     * Gets a count of the number of records in the table that are visible to
+     * the current thread.
+     *
+     * @return A count of the number of records in the table.
+     */
+    @Override
+    public final int getCount() {
+        int pendingCount = 0;
+
+        for (Change<T> change : this.pendingChanges.get()) {
+            if (change.type == WriteAheadLog.ADD_RECORD && !change.slot.removed) {
+                pendingCount++;
+            }
+        }
+
+        return this.count.get() + pendingCount;
+    }
+
+    /**
+     * Gets the collection of records. The collection is a live view of the
+     * table, in timestamp order. Records added or removed through the view are
+     * pending changes of the current thread.
+     *
+     * @return The collection of records.
+     */
+    @Override
+    public List<T> getRecords() {
+        return this.records;
+    }
+
+    /**
+     * Gets the record with a given timestamp.
+     *
+     * @param timeStamp The timestamp of the record.
+     * @return The record, or null if the table contains no record with the
+     * timestamp.
+     */
+    public final T getRecord(long timeStamp) {
+        Slot<T> slot = this.slots.get(timeStamp);
+        return slot == null || !slot.isVisible() ? null : this.read(slot);
+    }
+
+    /**
+     * Adds a record to the store.
+     *
+     * @param record The record to be stored.
+     */
+    @Override
+    public final void add(T record) {
+        this.addPending(record);
+    }
+
+    /**
+     * Adds a record to the store.
+     *
+     * @param record The record to be stored.
+     */
+    @Override
+    public final void add(Object record) {
+        this.add(this.recordType.cast(record));
+    }
+
+    /**
+     * Removes a record from the store.
+     *
+     * @param record The record to be removed from the store.
+     */
+    @Override
+    public final void remove(T record) {
+        this.remove(record.getTimeStamp());
+    }
+
+    /**
+     * Removes a record from the store.
+     *
+     * @param record The record to be removed from the store.
+     */
+    @Override
+    public final void remove(Object record) {
+        this.remove(this.recordType.cast(record));
+    }
+
+    /**
+     * Clears all records from the store.
+     */
+    @Override
+    public final void clear() {
+        this.slots.keySet().forEach(this::remove);
+    }
+
+    /**
+     * Commits changes to the store.
+     */
+    @Override
+    public final void commit() {
+        commit(null);
+    }
+
+    /**
+     * Commits changes to the store. The pending changes of the current thread
+     * are written to the write-ahead log, and are durable when this method
+     * returns.
+     *
+     * @param context The optional transaction context for persisting the
+     * record.
+     */
+    @Override
+    public final void commit(TransactionManager context) {
+        List<Change<T>> changes = this.pendingChanges.get();
+
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        List<WriteAheadLog.Entry> entries = new ArrayList<>(changes.size());
+
+        changes.forEach(change -> entries.add(change.type == WriteAheadLog.ADD_RECORD
+                ? new SlotEntry<>(this.tableId, this.codec.encode(change.slot.record), change.slot)
+                : new WriteAheadLog.Entry(change.type, this.tableId, toPayload(change.slot.timeStamp))));
+
+        // Once written, the changes cannot be rolled back, even if the flush fails.
+        ((FileStoreAndForwardService) this.getDataManagementService()).write(entries, () -> {
+            changes.forEach(this::applyCommitted);
+            changes.clear();
+        });
+    }
+
+    /**
+     * Rolls back changes to the store.
+     */
+    @Override
+    public final void rollback() {
+        rollback(null);
+    }
+
+    /**
+     * Rolls back changes to the store. The pending changes of the current
+     * thread are undone, in reverse order.
+     *
+     * @param context The optional transaction context for persisting the
+     * record.
+     */
+    @Override
+    public final void rollback(TransactionManager context) {
+        List<Change<T>> changes = this.pendingChanges.get();
+
+        for (int index = changes.size() - 1; index >= 0; index--) {
+            Change<T> change = changes.get(index);
+
+            if (change.type == WriteAheadLog.ADD_RECORD) {
+                this.slots.remove(change.slot.timeStamp, change.slot);
+            } else if (change.slot.restore() && change.slot.committed) {
+                this.count.incrementAndGet();
+            }
+        }
+
+        changes.clear();
+    }
+
+    /**
+     * Closes the store. The write-ahead log is closed by the data management
+     * service.
+     */
+    @Override
+    public final void close() {
+        // do nothing;
+    }
+
+    /**
+     * Gets the identifier of the table in the write-ahead log.
+     *
+     * @return The identifier of the table.
+     */
+    final byte getTableId() {
+        return this.tableId;
+    }
+
+    /**
+     * Gets a value indicating whether the table holds a record that has not
+     * been acknowledged, without reading the record.
+     *
+     * @param timeStamp The timestamp of the record.
+     * @return True, if the table holds a record with the timestamp that has
+     * not been acknowledged; otherwise false.
+     */
+    final boolean isUnacknowledged(long timeStamp) {
+        Slot<T> slot = this.slots.get(timeStamp);
+        return slot != null && slot.isVisible() && !slot.acknowledged;
+    }
+
+    /**
+     * Marks a record as acknowledged.
+     *
+     * @param timeStamp The timestamp of the record.
+     */
+    final void setAcknowledged(long timeStamp) {
+        Slot<T> slot = this.slots.get(timeStamp);
+
+        if (slot == null) {
+            return;
+        }
+
+        slot.acknowledged = true;
+        T record = slot.record;
+
+        if (record != null) {
+            this.codec.setAcknowledged(record);
+        }
+    }
+
+    /**
+     * Applies an entry read from the write-ahead log.
+     *
+     * @param entry The entry.
+     */
+    void replay(WriteAheadLog.Entry entry) {
+        switch (entry.getType()) {
+            case WriteAheadLog.ADD_RECORD:
+                ByteBuffer payload = entry.getPayload();
+                Slot<T> slot = new Slot<>(BinaryRecordCodec.getTimeStamp(payload), null);
+                slot.location = entry.getLocation();
+                slot.acknowledged = (BinaryRecordCodec.getFlags(payload) & BinaryRecordCodec.ACKNOWLEDGED) != 0;
+                slot.record = this.memoryMapped ? null : this.codec.decode(payload);
+                this.replayAdd(slot);
+                break;
+            case WriteAheadLog.ADD:
+                // Records written before the binary encoding was introduced are held on the heap
+                // until the next checkpoint re-encodes them.
+                T record = GsonProvider.getRecordGson().fromJson(
+                        StandardCharsets.UTF_8.decode(entry.getPayload()).toString(),
+                        this.recordType);
+                Slot<T> jsonSlot = new Slot<>(record.getTimeStamp(), null);
+                jsonSlot.record = record;
+                jsonSlot.acknowledged = this.codec.getAcknowledged(record);
+                this.replayAdd(jsonSlot);
+                break;
+            case WriteAheadLog.REMOVE:
+                if (this.slots.remove(toTimeStamp(entry.getPayload())) != null) {
+                    this.count.decrementAndGet();
+                }
+
+                break;
+            case WriteAheadLog.ACKNOWLEDGE:
+                this.setAcknowledged(toTimeStamp(entry.getPayload()));
+                break;
+            case WriteAheadLog.CHECKPOINT:
+                this.slots.clear();
+                this.count.set(0);
+                break;
+        }
+    }
+
+    /**
+     * Returns the entries that record the committed records in a checkpoint.
+     * Records held in the memory-mapped log are copied without being decoded,
+     * so their acknowledgement is recorded separately.
+     *
+     * @return The checkpoint entries.
+     */
+    List<WriteAheadLog.Entry> getCheckpoint() {
+        List<WriteAheadLog.Entry> entries = new ArrayList<>();
+        List<WriteAheadLog.Entry> acknowledgements = new ArrayList<>();
+
+        this.slots.values().forEach(slot -> {
+            if (!slot.committed) {
+                return;
+            }
+
+            T record = slot.record;
+
+            if (record != null) {
+                entries.add(new SlotEntry<>(this.tableId, this.codec.encode(record), slot));
+                return;
+            }
+
+            entries.add(new SlotEntry<>(this.tableId, this.readEncoded(slot), slot));
+
+            if (slot.acknowledged) {
+                acknowledgements.add(new WriteAheadLog.Entry(WriteAheadLog.ACKNOWLEDGE, this.tableId, toPayload(slot.timeStamp)));
+            }
+        });
+
+        entries.addAll(acknowledgements);
+        return entries;
+    }
+
+    /**
+     * Converts a timestamp to an entry payload.
+     *
+     * @param timeStamp The timestamp.
+     * @return The entry payload.
+     */
+    static byte[] toPayload(long timeStamp) {
+        return ByteBuffer.allocate(Long.BYTES).putLong(timeStamp).array();
+    }
+
+    /**
+     * Converts an entry payload to a timestamp.
+     *
+     * @param payload The entry payload.
+     * @return The timestamp.
+     */
+    static long toTimeStamp(ByteBuffer payload) {
+        return payload.getLong(payload.position());
+    }
+
+    /**
+     * Adds a record, as a pending change of the current thread, unless a
+     * record with the same timestamp exists.
+     *
+     * @param record The record.
+     * @return True, if the record was added; otherwise false.
+     */
+    private boolean addPending(T record) {
+        Slot<T> slot = new Slot<>(record.getTimeStamp(), Thread.currentThread());
+        slot.record = record;
+        slot.acknowledged = this.codec.getAcknowledged(record);
+
+        if (this.slots.putIfAbsent(record.getTimeStamp(), slot) != null) {
+            return false;
+        }
+
+        this.timestampSequence.advanceTo(record.getTimeStamp());
+        this.pendingChanges.get().add(new Change<>(WriteAheadLog.ADD_RECORD, slot));
+        return true;
+    }
+
+    /**
+     * Marks a record for removal, as a pending change of the current thread.
+     * Records added, but not yet committed, by another thread are not
+     * removed.
+     *
+     * @param timeStamp The timestamp of the record.
+     * @return True, if the record was marked for removal; otherwise false.
+     */
+    private boolean remove(long timeStamp) {
+        Slot<T> slot = this.slots.get(timeStamp);
+
+        if (slot == null || !slot.isOwnedOrCommitted() || !slot.markRemoved()) {
+            return false;
+        }
+
+        if (slot.committed) {
+            this.count.decrementAndGet();
+        }
+
+        this.pendingChanges.get().add(new Change<>(WriteAheadLog.REMOVE, slot));
+        return true;
+    }
+
+    /**
+     * Adds a record read from the write-ahead log, replacing any record with
+     * the same timestamp.
+     *
+     * @param slot The slot holding the record.
+     */
+    private void replayAdd(Slot<T> slot) {
+        slot.committed = true;
+
+        if (this.slots.put(slot.timeStamp, slot) == null) {
+            this.count.incrementAndGet();
+        }
+
+        this.timestampSequence.advanceTo(slot.timeStamp);
+    }
+
+    /**
+     * Applies a committed change. A committed record becomes visible to other
+     * threads, and, in a memory-mapped table, is released from the heap once
+     * its location in the log is known.
+     *
+     * @param change The change.
+     */
+    private void applyCommitted(Change<T> change) {
+        if (change.type == WriteAheadLog.ADD_RECORD) {
+            // Counted before it becomes visible, so that no other thread can remove it uncounted.
+            if (!change.slot.removed) {
+                this.count.incrementAndGet();
+            }
+
+            change.slot.committed = true;
+
+            if (this.memoryMapped && change.slot.location >= 0) {
+                change.slot.record = null;
+            }
+        } else {
+            this.slots.remove(change.slot.timeStamp, change.slot);
+        }
+    }
+
+    /**
+     * Reads the record held in a slot.
+     *
+     * @param slot The slot.
+     * @return The record.
+     */
+    private T read(Slot<T> slot) {
+        T record = slot.record;
+
+        if (record != null) {
+            return record;
+        }
+
+        record = this.codec.decode(this.readEncoded(slot));
+
+        if (slot.acknowledged) {
+            this.codec.setAcknowledged(record);
+        }
+
+        return record;
+    }
+
+    /**
+     * Reads the encoded record held in the memory-mapped log for a slot. If
+     * the log is compacted while the record is read, the record is read again
+     * from its new location.
+     *
+     * @param slot The slot.
+     * @return A buffer holding the encoded record.
+     */
+    private ByteBuffer readEncoded(Slot<T> slot) {
+        FileStoreAndForwardService service = (FileStoreAndForwardService) this.getDataManagementService();
+        long location = slot.location;
+
+        try {
+            return service.read(location);
+        } catch (RuntimeException ex) {
+            if (slot.location == location) {
+                throw ex;
+            }
+
+            return service.read(slot.location);
+        }
+    }
+
+    /**
+     * A record in the table. The record is held on the heap until it is
+     * committed to a memory-mapped log, and thereafter by its location.
+     *
+     * @param <T> The data management service record type.
+     */
+    private static final class Slot<T extends DataRecord> {
+
+        /**
+         * The timestamp of the record.
+         */
+        private final long timeStamp;
+
+        /**
+         * The thread that added the record, or null if the record was read
+         * from the write-ahead log.
+         */
+        private final Thread owner;
+
+        /**
+         * The record, if held on the heap.
+         */
+        private volatile T record;
+
+        /**
+         * The location of the record in the write-ahead log, or -1.
+         */
+        private volatile long location = -1;
+
+        /**
+         * A value indicating whether the record has been committed.
+         */
+        private volatile boolean committed;
+
+        /**
+         * A value indicating whether the removal of the record is pending or
+         * committed.
+         */
+        private volatile boolean removed;
+
+        /**
+         * A value indicating whether the record has been acknowledged.
+         */
+        private volatile boolean acknowledged;
+
+        /**
+         * Initializes a new instance of the Slot class.
+         *
+         * @param timeStamp The timestamp of the record.
+         * @param owner The thread that added the record, or null if the
+         * record was read from the write-ahead log.
+         */
+        private Slot(long timeStamp, Thread owner) {
+            this.timeStamp = timeStamp;
+            this.owner = owner;
+        }
+
+        /**
+         * Gets a value indicating whether the record has been committed, or
+         * was added by the current thread.
+         *
+         * @return True, if the record has been committed or was added by the
+         * current thread; otherwise false.
+         */
+        private boolean isOwnedOrCommitted() {
+            return this.committed || this.owner == Thread.currentThread();
+        }
+
+        /**
+         * Gets a value indicating whether the record is visible to the current
+         * thread. A record is visible if it has not been removed, and has been
+         * committed or was added by the current thread.
+         *
+         * @return True, if the record is visible; otherwise false.
+         */
+        private boolean isVisible() {
+            return !this.removed && this.isOwnedOrCommitted();
+        }
+
+        /**
+         * Marks the record as removed, unless it has already been removed.
+         *
+         * @return True, if the record was marked as removed; otherwise false.
+         */
+        private synchronized boolean markRemoved() {
+            if (this.removed) {
+                return false;
+            }
+
+            this.removed = true;
+            return true;
+        }
+
+        /**
+         * Restores a record whose removal has been rolled back.
+         *
+         * @return True, if the record was restored; otherwise false.
+         */
+        private synchronized boolean restore() {
+            if (!this.removed) {
+                return false;
+            }
+
+            this.removed = false;
+            return true;
+        }
+    }
+
+    /**
+     * A write-ahead log entry that records its location in the slot of the
+     * record it holds.
+     *
+     * @param <T> The data management service record type.
+     */
+    private static final class SlotEntry<T extends DataRecord> extends WriteAheadLog.Entry {
+
+        /**
+         * The slot of the record.
+         */
+        private final Slot<T> slot;
+
+        /**
+         * Initializes a new instance of the SlotEntry class.
+         *
+         * @param tableId The identifier of the table.
+         * @param payload The encoded record.
+         * @param slot The slot of the record.
+         */
+        private SlotEntry(byte tableId, byte[] payload, Slot<T> slot) {
+            super(WriteAheadLog.ADD_RECORD, tableId, payload);
+            this.slot = slot;
+        }
+
+        /**
+         * Initializes a new instance of the SlotEntry class.
+         *
+         * @param tableId The identifier of the table.
+         * @param payload The encoded record.
+         * @param slot The slot of the record.
+         */
+        private SlotEntry(byte tableId, ByteBuffer payload, Slot<T> slot) {
+            super(WriteAheadLog.ADD_RECORD, tableId, payload);
+            this.slot = slot;
+        }
+
+        /**
+         * Sets the location of the entry, and of the record in its slot.
+         *
+         * @param value The location of the entry.
+         */
+        @Override
+        void setLocation(long value) {
+            super.setLocation(value);
+            this.slot.location = value;
+        }
+    }
+
+    /**
+     * A change to the table that has not been committed.
+     *
+     * @param <T> The data management service record type.
+     */
+    private static final class Change<T extends DataRecord> {
+
+        /**
+         * The write-ahead log entry type of the change.
+         */
+        private final byte type;
+
+        /**
+         * The slot of the record that was added or removed.
+         */
+        private final Slot<T> slot;
+
+        /**
+         * Initializes a new instance of the Change class.
+         *
+         * @param type The write-ahead log entry type of the change.
+         * @param slot The slot of the record that was added or removed.
+         */
+        private Change(byte type, Slot<T> slot) {
+            this.type = type;
+            this.slot = slot;
+        }
+    }
+
+    /**
+     * A live list view of the table, in timestamp order. Records are added
+     * and removed by timestamp. Positional access is supported, but is not a
+     * constant-time operation.
+     */
+    private class RecordList extends AbstractList<T> {
+
+        /**
+         * Gets the record at a given position.
+         *
+         * @param index The position of the record.
+         * @return The record.
+         */
+        @Override
+        public T get(int index) {
+            if (index < 0) {
+                throw new IndexOutOfBoundsException(Integer.toString(index));
+            }
+
+            int position = 0;
+
+            for (Slot<T> slot : FileDataTable.this.slots.values()) {
+                if (slot.isVisible() && position++ == index) {
+                    return FileDataTable.this.read(slot);
+                }
+            }
+
+            throw new IndexOutOfBoundsException(Integer.toString(index));
+        }
+
+        /**
+         * Gets the number of records.
+         *
+         * @return The number of records.
+         */
+        @Override
+        public int size() {
+            return FileDataTable.this.getCount();
+        }
+
+        /**
+         * Adds a record, unless a record with the same timestamp exists.
+         *
+         * @param record The record.
+         * @return True, if the record was added; otherwise false.
+         */
+        @Override
+        public boolean add(T record) {
+            return FileDataTable.this.addPending(record);
+        }
+
+        /**
+         * Returns a value indicating whether the view contains a record with
+         * the same timestamp as a given record.
+         *
+         * @param record The record.
+         * @return True, if the view contains the record; otherwise false.
+         */
+        @Override
+        public boolean contains(Object record) {
+            if (!(record instanceof DataRecord)) {
+                return false;
+            }
+
+            Slot<T> slot = FileDataTable.this.slots.get(((DataRecord) record).getTimeStamp());
+            return slot != null && slot.isVisible();
+        }
+
+        /**
+         * Removes the record with the same timestamp as a given record.
+         *
+         * @param record The record.
+         * @return True, if the record was removed; otherwise false.
+         */
+        @Override
+        public boolean remove(Object record) {
+            return record instanceof DataRecord
+                    && FileDataTable.this.remove(((DataRecord) record).getTimeStamp());
+        }
+
+        /**
+         * Removes all records.
+         */
+        @Override
+        public void clear() {
+            FileDataTable.this.clear();
+        }
+
+        /**
+         * Returns an iterator over the records, in timestamp order. Each
+         * record is read as it is returned.
+         *
+         * @return An iterator over the records.
+         */
+        @Override
+        public Iterator<T> iterator() {
+            Iterator<Slot<T>> values = FileDataTable.this.slots.values().iterator();
+
+            return new Iterator<T>() {
+
+                /**
+                 * The next slot to be returned.
+                 */
+                private Slot<T> nextSlot = this.advance();
+
+                /**
+                 * The slot last returned.
+                 */
+                private Slot<T> lastSlot;
+
+                @Override
+                public boolean hasNext() {
+                    return this.nextSlot != null;
+                }
+
+                @Override
+                public T next() {
+                    if (this.nextSlot == null) {
+                        throw new NoSuchElementException();
+                    }
+
+                    this.lastSlot = this.nextSlot;
+                    this.nextSlot = this.advance();
+                    return FileDataTable.this.read(this.lastSlot);
+                }
+
+                @Override
+                public void remove() {
+                    if (this.lastSlot == null) {
+                        throw new IllegalStateException();
+                    }
+
+                    FileDataTable.this.remove(this.lastSlot.timeStamp);
+                    this.lastSlot = null;
+                }
+
+                /**
+                 * Returns the next slot whose record is visible to the
+                 * current thread.
+                 *
+                 * @return The next slot, or null.
+                 */
+                private Slot<T> advance() {
+                    while (values.hasNext()) {
+                        Slot<T> slot = values.next();
+
+                        if (slot.isVisible()) {
+                            return slot;
+                        }
+                    }
+
+                    return null;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/**
+ * -----------------------------------------------------------------------------
+ * File=FileRequests.java
+ * Company=Solidsoft Reply
+ * Copyright © 2017 Solidsoft Reply Ltd.
+ *
+ * Implements a transactional file record store for deferred requests.
+ * -----------------------------------------------------------------------------
+ */
+package com.reply.solidsoft.nbs.integration.recovery.file;
+
+import com.reply.solidsoft.nbs.integration.recovery.model.DeferredRequest;
+
+/**
+ * Implements a transactional file record store for deferred requests.
+ */
+public class FileRequests extends FileDataTable<DeferredRequest> {
+
+    /**
+     * The identifier of the requests table in the write-ahead log.
+     */
+    static final byte TABLE_ID = 1;
+
+    /**
+     * Initializes a new instance of the FileRequests class.
+     */
+    public FileRequests() {
+        this(false);
+    }
+
+    /**
+     * Initializes a new instance of the FileRequests class.
+     *
+     * @param memoryMapped A value indicating whether committed records are
+     * held in the memory-mapped log rather than on the heap.
+     */
+    public FileRequests(boolean memoryMapped) {
+        super("requests", TABLE_ID, DeferredRequest.class, new DeferredRequestCodec(), memoryMapped);
+    }
+}
@@ -0,0 +1,40 @@
+/**
+ * -----------------------------------------------------------------------------
+ * File=FileResponses.java
+ * Company=Solidsoft Reply
+ * Copyright © 2017 Solidsoft Reply Ltd.
+ *
+ * Implements a transactional file record store for recovery responses.
+ * -----------------------------------------------------------------------------
+ */
+package com.reply.solidsoft.nbs.integration.recovery.file;
+
+import com.reply.solidsoft.nbs.integration.model.responses.RecoverySinglePackResponse;
+
+/**
+ * Implements a transactional file record store for recovery responses.
+ */
+public class FileResponses extends FileDataTable<RecoverySinglePackResponse> {
+
+    /**
+     * The identifier of the responses table in the write-ahead log.
+     */
+    static final byte TABLE_ID = 2;
+
+    /**
+     * Initializes a new instance of the FileResponses class.
+     */
+    public FileResponses() {
+        this(false);
+    }
+
+    /**
+     * Initializes a new instance of the FileResponses class.
+     *
+     * @param memoryMapped A value indicating whether committed records are
+     * held in the memory-mapped log rather than on the heap.
+     */
+    public FileResponses(boolean memoryMapped) {
+        super("responses", TABLE_ID, RecoverySinglePackResponse.class, new RecoverySinglePackResponseCodec(), memoryMapped);
+    }
+}
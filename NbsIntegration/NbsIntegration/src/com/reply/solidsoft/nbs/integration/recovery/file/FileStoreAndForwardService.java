@@ -0,0 +1,261 @@
+/**
+ * -----------------------------------------------------------------------------
+ * File=FileStoreAndForwardService.java
+ * Company=Solidsoft Reply
+ * Copyright © 2017 Solidsoft Reply Ltd.
+ *
+ * A durable, file-based data management service for store and forward
+ * requests and responses.
+ * -----------------------------------------------------------------------------
+ */
+package com.reply.solidsoft.nbs.integration.recovery.file;
+
+import com.reply.solidsoft.nbs.integration.InterchangeException;
+import com.reply.solidsoft.nbs.integration.data.model.DataTable;
+import com.reply.solidsoft.nbs.integration.properties.Resources;
+import com.reply.solidsoft.nbs.integration.recovery.BaseStoreAndForwardService;
+import com.reply.solidsoft.nbs.integration.recovery.inmemory.InMemoryDataTable;
+import com.reply.solidsoft.nbs.integration.recovery.inmemory.InMemoryTransactionLogEntry;
+import com.reply.solidsoft.nbs.integration.recovery.model.DeferredRequest;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A durable, file-based data management service for store and forward
+ * requests and responses.
+ * <p>
+ * Each committed transaction is appended to a write-ahead log in the given
+ * directory, and the log is replayed when the service is created, so deferred
+ * requests and their responses survive a restart of the process. Writes are
+ * sequential, and concurrent commits share each flush to disk. Acknowledged
+ * requests that have been removed, and responses that have been removed, are
+ * discarded when the log is compacted.
+ * <p>
+ * Records are written to the log in a compact binary encoding. If the service
+ * is memory-mapped, the log segments are mapped into memory and committed
+ * records are read from the log when required, so a large backlog of deferred
+ * requests and responses is not held on the heap.
+ * <p>
+ * A directory must be used by only one service at a time.
+ */
+public class FileStoreAndForwardService extends BaseStoreAndForwardService {
+
+    /**
+     * The default size in bytes at which a log segment is sealed.
+     */
+    public static final long DEFAULT_MAX_SEGMENT_SIZE = 16L * 1024 * 1024;
+
+    /**
+     * The number of sealed segments at which the log is compacted.
+     */
+    private static final int COMPACTION_THRESHOLD = 4;
+
+    /**
+     * The write-ahead log.
+     */
+    private final WriteAheadLog log;
+
+    /**
+     * Initializes a new instance of the FileStoreAndForwardService class.
+     *
+     * @param directory The directory in which the log is stored.
+     */
+    public FileStoreAndForwardService(String directory) {
+        this(directory, DEFAULT_MAX_SEGMENT_SIZE, false);
+    }
+
+    /**
+     * Initializes a new instance of the FileStoreAndForwardService class.
+     *
+     * @param directory The directory in which the log is stored.
+     * @param memoryMapped A value indicating whether committed records are
+     * held in the memory-mapped log rather than on the heap.
+     */
+    public FileStoreAndForwardService(String directory, boolean memoryMapped) {
+        this(directory, DEFAULT_MAX_SEGMENT_SIZE, memoryMapped);
+    }
+
+    /**
+     * Initializes a new instance of the FileStoreAndForwardService class.
+     *
+     * @param directory The directory in which the log is stored.
+     * @param maxSegmentSize The size in bytes at which a log segment is
+     * sealed.
+     * @param memoryMapped A value indicating whether committed records are
+     * held in the memory-mapped log rather than on the heap.
+     */
+    @SuppressWarnings("LeakingThisInConstructor")
+    public FileStoreAndForwardService(String directory, long maxSegmentSize, boolean memoryMapped) {
+        super("storeAndForward", new FileRequests(memoryMapped), new FileResponses(memoryMapped));
+
+        // Create the transaction log
+        InMemoryDataTable<InMemoryTransactionLogEntry> logEntries = new InMemoryDataTable<>("logEntries");
+        logEntries.setDataManagementService(this);
+        this.transactionLog = logEntries;
+
+        // Initialize the data management service tables
+        ((FileRequests) this.getRequests()).setDataManagementService(this);
+        ((FileResponses) this.getResponses()).setDataManagementService(this);
+
+        if (com.reply.solidsoft.nbs.integration.extensions.StringExtensions.isNullOrWhiteSpace(directory)) {
+            throw new InterchangeException(Resources.getInterchangeException_StoreAndForwardLogOpenFailed(), new IllegalArgumentException(Resources.getInterchangeException_StoreAndForwardLogOpenFailed()));
+        }
+
+        this.log = new WriteAheadLog(Paths.get(directory), maxSegmentSize, COMPACTION_THRESHOLD, memoryMapped);
+
+        try {
+            this.log.open(this::replay);
+        } catch (IOException | RuntimeException ex) {
+            throw new InterchangeException(Resources.getInterchangeException_StoreAndForwardLogOpenFailed(), ex);
+        }
+    }
+
+    /**
+     * The transaction log table table.
+     */
+    private final DataTable transactionLog;
+
+    /**
+     * Gets the transaction log table table. Pending changes are held by each
+     * table, so the transaction log is not used.
+     *
+     * @return The transaction log table table.
+     */
+    @Override
+    public DataTable getTransactionLog() {
+        return transactionLog;
+    }
+
+    /**
+     * Record the acknowledgement of receipt of a list of deferred requests by
+     * the national system.
+     *
+     * @param requests The list of deferred requests.
+     * @throws InterchangeException The acknowledgement could not be written
+     * to the log. The requests are still marked as acknowledged in memory,
+     * and the acknowledgement is recorded by the next compaction.
+     */
+    @Override
+    public void acknowledgeRequest(List<DeferredRequest> requests) {
+        if (null == requests) {
+            return;
+        }
+
+        FileRequests requestTable = (FileRequests) this.getRequests();
+        List<WriteAheadLog.Entry> entries = new ArrayList<>(requests.size());
+        List<Long> timeStamps = new ArrayList<>(requests.size());
+
+        requests.forEach((deferredRequest) -> {
+            if (requestTable.isUnacknowledged(deferredRequest.getTimeStamp())) {
+                timeStamps.add(deferredRequest.getTimeStamp());
+                entries.add(new WriteAheadLog.Entry(
+                        WriteAheadLog.ACKNOWLEDGE,
+                        FileRequests.TABLE_ID,
+                        FileDataTable.toPayload(deferredRequest.getTimeStamp())));
+            }
+        });
+
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        try {
+            this.write(entries, () -> timeStamps.forEach(requestTable::setAcknowledged));
+        } catch (InterchangeException ex) {
+            // The National System has received the requests, so they are not sent again by this process.
+            timeStamps.forEach(requestTable::setAcknowledged);
+            throw ex;
+        }
+    }
+
+    /**
+     * Closes the service, flushing the write-ahead log to disk.
+     */
+    @Override
+    public void close() {
+        try {
+            this.log.close();
+        } catch (IOException ex) {
+            // ignore;
+        }
+    }
+
+    /**
+     * Writes a batch of entries to the write-ahead log, and flushes the log to
+     * disk. If the active segment is full, it is sealed, and the log is
+     * compacted if required.
+     *
+     * @param entries The entries.
+     * @param onWritten Invoked after the entries are written, before any later
+     * batch is written or any checkpoint is taken.
+     */
+    void write(List<WriteAheadLog.Entry> entries, Runnable onWritten) {
+        try {
+            this.log.sync(this.log.append(entries, onWritten));
+        } catch (IOException ex) {
+            throw new InterchangeException(Resources.getInterchangeException_StoreAndForwardLogWriteFailed(), ex);
+        }
+
+        try {
+            this.log.rotate(this::getCheckpoint);
+        } catch (IOException ex) {
+            // The entries are durable.  Rotation is attempted again by the next write.
+        }
+    }
+
+    /**
+     * Reads the payload of an entry in place from the memory-mapped log.
+     *
+     * @param location The location of the entry.
+     * @return A buffer holding the payload.
+     */
+    ByteBuffer read(long location) {
+        try {
+            return this.log.read(location);
+        } catch (IOException ex) {
+            throw new InterchangeException(Resources.getInterchangeException_StoreAndForwardLogReadFailed(), ex);
+        }
+    }
+
+    /**
+     * Returns the entries that record the committed records of each table in
+     * a checkpoint.
+     *
+     * @return The checkpoint entries.
+     */
+    private List<WriteAheadLog.Entry> getCheckpoint() {
+        List<WriteAheadLog.Entry> entries = new ArrayList<>();
+
+        entries.addAll(((FileRequests) this.getRequests()).getCheckpoint());
+        entries.addAll(((FileResponses) this.getResponses()).getCheckpoint());
+        return entries;
+    }
+
+    /**
+     * Applies an entry read from the write-ahead log.
+     *
+     * @param entry The entry.
+     */
+    private void replay(WriteAheadLog.Entry entry) {
+        FileRequests requestTable = (FileRequests) this.getRequests();
+        FileResponses responseTable = (FileResponses) this.getResponses();
+
+        switch (entry.getType()) {
+            case WriteAheadLog.CHECKPOINT:
+                requestTable.replay(entry);
+                responseTable.replay(entry);
+                break;
+            default:
+                if (entry.getTableId() == requestTable.getTableId()) {
+                    requestTable.replay(entry);
+                } else if (entry.getTableId() == responseTable.getTableId()) {
+                    responseTable.replay(entry);
+                }
+
+                break;
+        }
+    }
+}
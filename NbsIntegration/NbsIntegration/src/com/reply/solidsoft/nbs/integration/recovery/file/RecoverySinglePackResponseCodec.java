@@ -0,0 +1,172 @@
+/**
+ * -----------------------------------------------------------------------------
+ * File=RecoverySinglePackResponseCodec.java
+ * Company=Solidsoft Reply
+ * Copyright © 2017 Solidsoft Reply Ltd.
+ *
+ * A compact binary encoding of recovery responses.
+ * -----------------------------------------------------------------------------
+ */
+package com.reply.solidsoft.nbs.integration.recovery.file;
+
+import com.reply.solidsoft.nbs.integration.model.PackIdentifier;
+import com.reply.solidsoft.nbs.integration.model.RequestedPackState;
+import com.reply.solidsoft.nbs.integration.model.responses.RecoverySinglePackResponse;
+import com.reply.solidsoft.nbs.integration.model.responses.SinglePackResponse;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+
+/**
+ * A compact binary encoding of recovery responses. The data entry mode,
+ * selection and the presence of the pack, result and ETA are held as flags in
+ * the header. The required state is written as its value.
+ */
+public class RecoverySinglePackResponseCodec extends BinaryRecordCodec<RecoverySinglePackResponse> {
+
+    /**
+     * The flag that indicates that the data entry mode is known.
+     */
+    private static final byte HAS_MANUAL = 0x02;
+
+    /**
+     * The flag that indicates that the data entry was manual.
+     */
+    private static final byte MANUAL = 0x04;
+
+    /**
+     * The flag that indicates that the response is selected.
+     */
+    private static final byte SELECTED = 0x08;
+
+    /**
+     * The flag that indicates that the response has a pack identifier.
+     */
+    private static final byte HAS_PACK = 0x10;
+
+    /**
+     * The flag that indicates that the response has a result.
+     */
+    private static final byte HAS_RESULT = 0x20;
+
+    /**
+     * The flag that indicates that the result has an ETA.
+     */
+    private static final byte HAS_ETA = 0x40;
+
+    /**
+     * Gets the flags of a recovery response.
+     *
+     * @param record The recovery response.
+     * @return The flags of the recovery response.
+     */
+    @Override
+    protected byte getFlags(RecoverySinglePackResponse record) {
+        int flags = 0;
+
+        if (record.getIsManual() != null) {
+            flags |= HAS_MANUAL | (record.getIsManual() ? MANUAL : 0);
+        }
+
+        if (record.getSelected()) {
+            flags |= SELECTED;
+        }
+
+        if (record.getPack() != null) {
+            flags |= HAS_PACK;
+        }
+
+        if (record.getResult() != null) {
+            flags |= HAS_RESULT | (record.getResult().getEta() != null ? HAS_ETA : 0);
+        }
+
+        return (byte) flags;
+    }
+
+    /**
+     * Writes the fields of a recovery response that follow the header.
+     *
+     * @param output The output.
+     * @param record The recovery response.
+     */
+    @Override
+    protected void writeFields(ByteArrayOutputStream output, RecoverySinglePackResponse record) {
+        writeVarLong(output, record.getSeverity() & 0xFFFFFFFFL);
+        writeString(output, record.getMessage());
+        writeString(output, record.getRequiredState() == null ? null : record.getRequiredState().getValue());
+
+        PackIdentifier pack = record.getPack();
+
+        if (pack != null) {
+            writeString(output, pack.getProductCodeScheme());
+            writeString(output, pack.getProductCode());
+            writeString(output, pack.getSerialNumber());
+            writeString(output, pack.getBatchId());
+            writeString(output, pack.getExpiryDate());
+        }
+
+        SinglePackResponse result = record.getResult();
+
+        if (result != null) {
+            writeVarLong(output, result.getOperationCode() & 0xFFFFFFFFL);
+            writeString(output, result.getUprc());
+            writeString(output, result.getState());
+            writeString(output, result.getInformation());
+            writeString(output, result.getWarning());
+
+            if (result.getEta() != null) {
+                writeVarLong(output, result.getEta().getEpochSecond());
+                writeVarLong(output, result.getEta().getNano());
+            }
+        }
+    }
+
+    /**
+     * Reads the fields of a recovery response that follow the header.
+     *
+     * @param input The input, positioned after the header.
+     * @param timeStamp The timestamp of the recovery response.
+     * @param flags The flags of the recovery response.
+     * @return The recovery response.
+     */
+    @Override
+    protected RecoverySinglePackResponse readFields(ByteBuffer input, long timeStamp, byte flags) {
+        RecoverySinglePackResponse record = new RecoverySinglePackResponse();
+        record.setTimeStamp(timeStamp);
+        record.setIsManual((flags & HAS_MANUAL) == 0 ? null : (flags & MANUAL) != 0);
+        record.setSelected((flags & SELECTED) != 0);
+        record.setSeverity((int) readVarLong(input));
+        record.setMessage(readString(input));
+
+        String requiredState = readString(input);
+        record.setRequiredState(requiredState == null ? null : RequestedPackState.get(requiredState));
+
+        if ((flags & HAS_PACK) != 0) {
+            PackIdentifier pack = new PackIdentifier();
+            pack.setProductCodeScheme(readString(input));
+            pack.setProductCode(readString(input));
+            pack.setSerialNumber(readString(input));
+            pack.setBatchId(readString(input));
+            pack.setExpiryDate(readString(input));
+            record.setPack(pack);
+        }
+
+        if ((flags & HAS_RESULT) != 0) {
+            SinglePackResponse result = new SinglePackResponse();
+            result.setOperationCode((int) readVarLong(input));
+            result.setUprc(readString(input));
+            result.setState(readString(input));
+            result.setInformation(readString(input));
+            result.setWarning(readString(input));
+
+            if ((flags & HAS_ETA) != 0) {
+                long epochSecond = readVarLong(input);
+                result.setEta(Instant.ofEpochSecond(epochSecond, readVarLong(input)));
+            }
+
+            record.setResult(result);
+        }
+
+        return record;
+    }
+}
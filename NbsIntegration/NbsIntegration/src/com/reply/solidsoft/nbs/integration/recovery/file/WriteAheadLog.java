@@ -0,0 +1,936 @@
+/**
+ * -----------------------------------------------------------------------------
+ * File=WriteAheadLog.java
+ * Company=Solidsoft Reply
+ * Copyright © 2017 Solidsoft Reply Ltd.
+ *
+ * An append-only, checksummed, segmented log on local disk.
+ * -----------------------------------------------------------------------------
+ */
+package com.reply.solidsoft.nbs.integration.recovery.file;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only, checksummed, segmented log on local disk.
+ * <p>
+ * Each entry is written as a header, holding the length of the payload and a
+ * CRC-32 checksum, followed by the entry type, the table identifier and the
+ * payload. Entries are only ever appended to the active segment. A batch of
+ * entries is written in a single write, and is made durable by a separate
+ * call to sync. Concurrent writers share each call to force the segment to
+ * disk, so that many transactions are committed by a single disk flush.
+ * <p>
+ * When the active segment exceeds its maximum size, it is sealed and a new
+ * segment is started. When enough segments have been sealed, the log is
+ * compacted by writing a checkpoint of the live records to a new segment and
+ * deleting the sealed segments.
+ * <p>
+ * The location of each entry is recorded as it is written or replayed. If the
+ * log is memory-mapped, the payload of an entry can be read in place from its
+ * location, so a store can hold records in the log rather than on the heap.
+ */
+public final class WriteAheadLog implements Closeable {
+
+    /**
+     * The entry type for a record that has been added, serialized as JSON.
+     * Records are no longer written in this form, but are still replayed.
+     */
+    public static final byte ADD = 1;
+
+    /**
+     * The entry type for a record that has been removed.
+     */
+    public static final byte REMOVE = 2;
+
+    /**
+     * The entry type for a deferred request that has been acknowledged.
+     */
+    public static final byte ACKNOWLEDGE = 3;
+
+    /**
+     * The entry type that starts a checkpoint. A checkpoint segment replaces
+     * the content of all earlier segments.
+     */
+    public static final byte CHECKPOINT = 4;
+
+    /**
+     * The entry type for a record that has been added, in a compact binary
+     * encoding.
+     */
+    public static final byte ADD_RECORD = 5;
+
+    /**
+     * The size of the entry header: payload length, checksum, entry type and
+     * table identifier.
+     */
+    private static final int HEADER_SIZE = 10;
+
+    /**
+     * The largest payload that is accepted when reading the log. A larger
+     * length can only result from a corrupt entry.
+     */
+    private static final int MAX_PAYLOAD_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * The largest segment size. Entry locations hold the offset of an entry
+     * within its segment as a 32-bit value.
+     */
+    private static final long MAX_SEGMENT_SIZE = 1024L * 1024 * 1024;
+
+    /**
+     * The number of bytes of a checkpoint that are encoded and written
+     * together.
+     */
+    private static final int CHECKPOINT_BATCH_SIZE = 1024 * 1024;
+
+    /**
+     * The prefix of segment file names.
+     */
+    private static final String SEGMENT_PREFIX = "segment-";
+
+    /**
+     * The suffix of segment file names.
+     */
+    private static final String SEGMENT_SUFFIX = ".wal";
+
+    /**
+     * The suffix of a checkpoint segment that is being written.
+     */
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    /**
+     * The directory in which the segments are stored.
+     */
+    private final Path directory;
+
+    /**
+     * The size at which the active segment is sealed.
+     */
+    private final long maxSegmentSize;
+
+    /**
+     * The number of sealed segments at which the log is compacted.
+     */
+    private final int compactionThreshold;
+
+    /**
+     * A value indicating whether segments are memory-mapped for reading.
+     */
+    private final boolean memoryMapped;
+
+    /**
+     * The memory-mapped sealed segments, by segment number. A sealed segment
+     * does not change, so it is mapped once.
+     */
+    private final ConcurrentHashMap<Long, MappedByteBuffer> mappedSegments = new ConcurrentHashMap<>();
+
+    /**
+     * The channels through which the active segment is read, by segment
+     * number. The active segment is still growing, so it is not mapped.
+     */
+    private final ConcurrentHashMap<Long, FileChannel> readChannels = new ConcurrentHashMap<>();
+
+    /**
+     * Serializes writes to the active segment.
+     */
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    /**
+     * Serializes flushes of the active segment to disk. Where both locks are
+     * held, this lock is acquired first.
+     */
+    private final Object syncLock = new Object();
+
+    /**
+     * The numbers of the sealed segments, oldest first.
+     */
+    private final List<Long> sealedSegments = new ArrayList<>();
+
+    /**
+     * The active segment.
+     */
+    private FileChannel activeChannel;
+
+    /**
+     * The number of the active segment.
+     */
+    private volatile long activeSegment;
+
+    /**
+     * The number of bytes written to the active segment.
+     */
+    private long activeSize;
+
+    /**
+     * The sequence number of the last batch written to the log.
+     */
+    private long writtenSequence;
+
+    /**
+     * The sequence number of the last batch flushed to disk.
+     */
+    private volatile long syncedSequence;
+
+    /**
+     * Initializes a new instance of the WriteAheadLog class.
+     *
+     * @param directory The directory in which the segments are stored.
+     * @param maxSegmentSize The size in bytes at which the active segment is
+     * sealed.
+     * @param compactionThreshold The number of sealed segments at which the
+     * log is compacted.
+     * @param memoryMapped A value indicating whether segments are
+     * memory-mapped, so that entries can be read from their locations.
+     */
+    public WriteAheadLog(Path directory, long maxSegmentSize, int compactionThreshold, boolean memoryMapped) {
+        this.directory = directory;
+        this.maxSegmentSize = Math.min(Math.max(maxSegmentSize, HEADER_SIZE), MAX_SEGMENT_SIZE);
+        this.compactionThreshold = Math.max(compactionThreshold, 1);
+        this.memoryMapped = memoryMapped;
+    }
+
+    /**
+     * Opens the log, replaying each valid entry in order. A checkpoint entry
+     * is replayed at the start of each checkpoint segment, and indicates that
+     * all previously replayed entries are superseded.
+     * <p>
+     * A torn or corrupt entry at the end of the last segment is the result of
+     * an interrupted write, and is discarded. Entries that follow a corrupt
+     * entry in an earlier segment cannot be located, and are skipped.
+     *
+     * @param replay Receives each valid entry.
+     * @throws IOException The log could not be opened.
+     */
+    public void open(Consumer<Entry> replay) throws IOException {
+        Files.createDirectories(this.directory);
+        List<Long> segments = this.listSegments();
+
+        for (int index = 0; index < segments.size(); index++) {
+            Path path = this.getSegmentPath(segments.get(index));
+            long validSize = this.replaySegment(segments.get(index), replay);
+
+            if (index < segments.size() - 1) {
+                this.sealedSegments.add(segments.get(index));
+                continue;
+            }
+
+            // Continue writing to the last segment, after its last valid entry. Its mapping
+            // would not cover the entries written later, so it is read through a channel.
+            this.mappedSegments.remove(segments.get(index));
+            this.activeSegment = segments.get(index);
+            this.activeChannel = FileChannel.open(path, StandardOpenOption.WRITE);
+
+            if (this.activeChannel.size() > validSize) {
+                this.discardTail(validSize);
+            }
+
+            this.activeSize = validSize;
+        }
+
+        if (this.activeChannel == null) {
+            this.activeSegment = 1;
+            this.openActiveSegment();
+        }
+    }
+
+    /**
+     * Appends a batch of entries to the log in a single write. The entries
+     * are not durable until sync is called with the sequence number returned.
+     *
+     * @param entries The entries.
+     * @param onWritten Invoked after the entries are written, before any
+     * later batch is written or any checkpoint is taken.
+     * @return The sequence number of the batch.
+     * @throws IOException The entries could not be written.
+     */
+    public long append(List<Entry> entries, Runnable onWritten) throws IOException {
+        ByteBuffer buffer = encode(entries);
+
+        this.writeLock.lock();
+
+        try {
+            // Write at the tracked position, so that a failed write is overwritten by the next.
+            long position = this.activeSize;
+
+            while (buffer.hasRemaining()) {
+                position += this.activeChannel.write(buffer, position);
+            }
+
+            this.setLocations(entries, this.activeSegment, this.activeSize);
+            this.activeSize = position;
+
+            if (onWritten != null) {
+                onWritten.run();
+            }
+
+            return ++this.writtenSequence;
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    /**
+     * Flushes the log to disk, unless a batch has already been flushed since
+     * the batch with the given sequence number was written. A single flush
+     * covers every batch written before it starts.
+     *
+     * @param sequence The sequence number of the batch.
+     * @throws IOException The log could not be flushed.
+     */
+    public void sync(long sequence) throws IOException {
+        if (this.syncedSequence >= sequence) {
+            return;
+        }
+
+        synchronized (this.syncLock) {
+            if (this.syncedSequence >= sequence) {
+                return;
+            }
+
+            FileChannel channel;
+            long written;
+
+            this.writeLock.lock();
+
+            try {
+                channel = this.activeChannel;
+                written = this.writtenSequence;
+            } finally {
+                this.writeLock.unlock();
+            }
+
+            // Writers are not blocked while the segment is flushed.
+            channel.force(false);
+            this.syncedSequence = written;
+        }
+    }
+
+    /**
+     * Seals the active segment if it has reached its maximum size, and
+     * compacts the log if enough segments have been sealed.
+     *
+     * @param checkpoint Returns the entries for the live records. This is
+     * invoked while writes are blocked.
+     * @throws IOException The segment could not be sealed, or the log could
+     * not be compacted.
+     */
+    public void rotate(Supplier<List<Entry>> checkpoint) throws IOException {
+        // Most commits do not fill the segment, so they do not wait for a flush in progress.
+        this.writeLock.lock();
+
+        try {
+            if (this.activeSize < this.maxSegmentSize) {
+                return;
+            }
+        } finally {
+            this.writeLock.unlock();
+        }
+
+        synchronized (this.syncLock) {
+            this.writeLock.lock();
+
+            try {
+                if (this.activeSize < this.maxSegmentSize) {
+                    return;
+                }
+
+                this.activeChannel.force(true);
+                this.activeChannel.close();
+                this.syncedSequence = this.writtenSequence;
+                this.sealedSegments.add(this.activeSegment);
+                this.activeSegment++;
+                this.closeReadChannel(this.activeSegment - 1);
+
+                if (this.sealedSegments.size() >= this.compactionThreshold) {
+                    try {
+                        this.compact(checkpoint.get());
+                    } finally {
+                        // If compaction failed, keep writing to a new segment.
+                        if (!this.activeChannel.isOpen()) {
+                            this.openActiveSegment();
+                        }
+                    }
+                } else {
+                    this.openActiveSegment();
+                }
+            } finally {
+                this.writeLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Reads the payload of an entry. The log must be memory-mapped. An entry
+     * in a sealed segment is read in place. An entry in the active segment is
+     * copied from the segment file, so that the active segment is never
+     * mapped, and never remapped as it grows.
+     *
+     * @param location The location of the entry.
+     * @return A read-only buffer holding the payload, from its position to its
+     * limit.
+     * @throws IOException The segment that held the entry could not be read.
+     */
+    public ByteBuffer read(long location) throws IOException {
+        long segment = location >>> 32;
+        int offset = (int) location;
+
+        while (true) {
+            if (segment != this.activeSegment) {
+                // A reader may have opened a channel just before the segment was sealed.
+                this.closeReadChannel(segment);
+
+                MappedByteBuffer mappedSegment = this.getMappedSegment(segment);
+                int length = mappedSegment.getInt(offset);
+                ByteBuffer payload = mappedSegment.duplicate();
+                payload.limit(offset + HEADER_SIZE + length);
+                payload.position(offset + HEADER_SIZE);
+                return payload;
+            }
+
+            ByteBuffer payload = this.readActiveSegment(segment, offset);
+
+            if (payload != null) {
+                return payload;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of segments in the log, including the active segment.
+     *
+     * @return The number of segments.
+     */
+    public int getSegmentCount() {
+        this.writeLock.lock();
+
+        try {
+            return this.sealedSegments.size() + 1;
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    /**
+     * Flushes and closes the log.
+     *
+     * @throws IOException The log could not be flushed.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this.syncLock) {
+            this.writeLock.lock();
+
+            try {
+                if (this.activeChannel != null && this.activeChannel.isOpen()) {
+                    this.activeChannel.force(true);
+                    this.activeChannel.close();
+                    this.syncedSequence = this.writtenSequence;
+                }
+
+                for (Long segment : this.readChannels.keySet()) {
+                    this.closeReadChannel(segment);
+                }
+
+                this.mappedSegments.clear();
+            } finally {
+                this.writeLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Writes a checkpoint to a new segment, which becomes the active segment,
+     * and deletes the sealed segments. The checkpoint is written to a
+     * temporary file which is renamed once it is on disk, so that a complete
+     * checkpoint segment always exists before any sealed segment is deleted.
+     *
+     * @param entries The entries for the live records.
+     * @throws IOException The checkpoint could not be written.
+     */
+    private void compact(List<Entry> entries) throws IOException {
+        List<Entry> checkpointEntries = new ArrayList<>(entries.size() + 1);
+        checkpointEntries.add(new Entry(CHECKPOINT, (byte) 0, new byte[0]));
+        checkpointEntries.addAll(entries);
+
+        Path segmentPath = this.getSegmentPath(this.activeSegment);
+        Path temporaryPath = this.directory.resolve(segmentPath.getFileName() + TEMPORARY_SUFFIX);
+
+        try (FileChannel channel = FileChannel.open(
+                temporaryPath,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            // Encode the checkpoint in batches, so that a large checkpoint is not held in memory.
+            int start = 0;
+            int batchSize = 0;
+
+            for (int index = 0; index < checkpointEntries.size(); index++) {
+                batchSize += HEADER_SIZE + checkpointEntries.get(index).getPayload().remaining();
+
+                if (batchSize >= CHECKPOINT_BATCH_SIZE || index == checkpointEntries.size() - 1) {
+                    ByteBuffer buffer = encode(checkpointEntries.subList(start, index + 1));
+
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+
+                    start = index + 1;
+                    batchSize = 0;
+                }
+            }
+
+            channel.force(true);
+        }
+
+        Files.move(temporaryPath, segmentPath, StandardCopyOption.ATOMIC_MOVE);
+        this.syncDirectory();
+        this.openActiveSegment();
+        this.setLocations(checkpointEntries, this.activeSegment, 0);
+
+        for (Long segment : this.sealedSegments) {
+            this.mappedSegments.remove(segment);
+            this.closeReadChannel(segment);
+
+            try {
+                Files.deleteIfExists(this.getSegmentPath(segment));
+            } catch (IOException ex) {
+                // A segment that is still mapped may not be deletable on some platforms.
+                // It precedes the checkpoint, so it is superseded when the log is replayed.
+            }
+        }
+
+        this.sealedSegments.clear();
+    }
+
+    /**
+     * Opens the active segment for writing, creating it if it does not exist.
+     *
+     * @throws IOException The segment could not be opened.
+     */
+    private void openActiveSegment() throws IOException {
+        this.activeChannel = FileChannel.open(
+                this.getSegmentPath(this.activeSegment),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        this.activeSize = this.activeChannel.size();
+        this.syncDirectory();
+    }
+
+    /**
+     * Flushes the directory, so that created and renamed segments survive a
+     * crash. Not all platforms allow a directory to be opened, so a failure is
+     * ignored.
+     */
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(this.directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException | RuntimeException ex) {
+            // ignore;
+        }
+    }
+
+    /**
+     * Returns the numbers of the segments in the log directory, in order.
+     * Temporary checkpoint files that were never completed are deleted.
+     *
+     * @return The segment numbers.
+     * @throws IOException The directory could not be read.
+     */
+    private List<Long> listSegments() throws IOException {
+        List<Long> segments = new ArrayList<>();
+
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(this.directory, SEGMENT_PREFIX + "*")) {
+            for (Path path : paths) {
+                String fileName = path.getFileName().toString();
+
+                if (fileName.endsWith(TEMPORARY_SUFFIX)) {
+                    Files.deleteIfExists(path);
+                    continue;
+                }
+
+                if (!fileName.endsWith(SEGMENT_SUFFIX)) {
+                    continue;
+                }
+
+                try {
+                    segments.add(Long.parseLong(fileName.substring(
+                            SEGMENT_PREFIX.length(),
+                            fileName.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException ex) {
+                    // ignore;
+                }
+            }
+        }
+
+        Collections.sort(segments);
+        return segments;
+    }
+
+    /**
+     * Gets the path of a segment.
+     *
+     * @param segment The segment number.
+     * @return The path of the segment.
+     */
+    private Path getSegmentPath(long segment) {
+        return this.directory.resolve(String.format("%1$s%2$020d%3$s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * Replays the valid entries in a segment.
+     *
+     * @param segment The segment number.
+     * @param replay Receives each valid entry.
+     * @return The number of bytes occupied by valid entries.
+     * @throws IOException The segment could not be read.
+     */
+    private long replaySegment(long segment, Consumer<Entry> replay) throws IOException {
+        ByteBuffer buffer = this.memoryMapped
+                ? this.getMappedSegment(segment).duplicate()
+                : ByteBuffer.wrap(Files.readAllBytes(this.getSegmentPath(segment)));
+        CRC32 crc = new CRC32();
+
+        while (buffer.remaining() >= HEADER_SIZE) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+
+            if (length < 0 || length > MAX_PAYLOAD_SIZE || length > buffer.remaining() - 2) {
+                return start;
+            }
+
+            ByteBuffer checked = buffer.duplicate();
+            checked.limit(checked.position() + length + 2);
+            crc.reset();
+            crc.update(checked);
+
+            if ((int) crc.getValue() != checksum) {
+                return start;
+            }
+
+            byte type = buffer.get();
+            byte tableId = buffer.get();
+            ByteBuffer payload = buffer.slice();
+            payload.limit(length);
+            buffer.position(buffer.position() + length);
+
+            Entry entry = new Entry(type, tableId, payload);
+            entry.setLocation(toLocation(segment, start));
+            replay.accept(entry);
+        }
+
+        return buffer.position();
+    }
+
+    /**
+     * Gets the mapping of a segment, mapping the segment into memory if it
+     * has not been mapped. The mapping covers the whole segment, so it must
+     * not be retained while further entries may be written to the segment.
+     *
+     * @param segment The segment number.
+     * @return The memory-mapped segment.
+     * @throws IOException The segment could not be mapped.
+     */
+    private MappedByteBuffer getMappedSegment(long segment) throws IOException {
+        MappedByteBuffer mappedSegment = this.mappedSegments.get(segment);
+
+        if (mappedSegment != null) {
+            return mappedSegment;
+        }
+
+        try (FileChannel channel = FileChannel.open(this.getSegmentPath(segment), StandardOpenOption.READ)) {
+            mappedSegment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        MappedByteBuffer existing = this.mappedSegments.putIfAbsent(segment, mappedSegment);
+        return existing == null ? mappedSegment : existing;
+    }
+
+    /**
+     * Copies the payload of an entry from the active segment.
+     *
+     * @param segment The segment number.
+     * @param offset The offset of the entry in the segment.
+     * @return A read-only buffer holding the payload, or null if the channel
+     * was closed because the segment was sealed or another reader was
+     * interrupted. In that case, the read should be retried.
+     * @throws IOException The segment could not be read.
+     */
+    private ByteBuffer readActiveSegment(long segment, int offset) throws IOException {
+        FileChannel channel = this.readChannels.get(segment);
+
+        if (channel == null) {
+            FileChannel openedChannel = FileChannel.open(this.getSegmentPath(segment), StandardOpenOption.READ);
+            channel = this.readChannels.putIfAbsent(segment, openedChannel);
+
+            if (channel == null) {
+                channel = openedChannel;
+            } else {
+                openedChannel.close();
+            }
+        }
+
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(channel, header, offset);
+
+            ByteBuffer payload = ByteBuffer.allocate(header.getInt(0));
+            readFully(channel, payload, offset + HEADER_SIZE);
+            payload.flip();
+            return payload.asReadOnlyBuffer();
+        } catch (ClosedByInterruptException ex) {
+            this.readChannels.remove(segment, channel);
+            throw ex;
+        } catch (ClosedChannelException ex) {
+            this.readChannels.remove(segment, channel);
+            return null;
+        }
+    }
+
+    /**
+     * Closes the channel through which a segment is read, if there is one.
+     *
+     * @param segment The segment number.
+     */
+    private void closeReadChannel(long segment) {
+        FileChannel channel = this.readChannels.remove(segment);
+
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                // ignore;
+            }
+        }
+    }
+
+    /**
+     * Reads from a channel until a buffer is full.
+     *
+     * @param channel The channel.
+     * @param buffer The buffer.
+     * @param position The position in the channel at which to start reading.
+     * @throws IOException The channel could not be read, or ended before the
+     * buffer was full.
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long readPosition = position;
+
+        while (buffer.hasRemaining()) {
+            int count = channel.read(buffer, readPosition);
+
+            if (count < 0) {
+                throw new EOFException();
+            }
+
+            readPosition += count;
+        }
+    }
+
+    /**
+     * Discards the invalid entries at the end of the active segment. A
+     * memory-mapped segment cannot be truncated on all platforms, so the tail
+     * is overwritten with zeros, which never form a valid entry.
+     *
+     * @param validSize The number of bytes occupied by valid entries.
+     * @throws IOException The tail could not be discarded.
+     */
+    private void discardTail(long validSize) throws IOException {
+        if (this.memoryMapped) {
+            long position = validSize;
+            ByteBuffer zeros = ByteBuffer.allocate(8192);
+
+            while (position < this.activeChannel.size()) {
+                zeros.clear();
+                zeros.limit((int) Math.min(zeros.capacity(), this.activeChannel.size() - position));
+                position += this.activeChannel.write(zeros, position);
+            }
+        } else {
+            this.activeChannel.truncate(validSize);
+        }
+
+        this.activeChannel.force(true);
+    }
+
+    /**
+     * Records the locations of a batch of entries written consecutively.
+     *
+     * @param entries The entries.
+     * @param segment The segment to which the entries were written.
+     * @param position The position of the first entry.
+     */
+    private void setLocations(List<Entry> entries, long segment, long position) {
+        long entryPosition = position;
+
+        for (Entry entry : entries) {
+            entry.setLocation(toLocation(segment, entryPosition));
+            entryPosition += HEADER_SIZE + entry.getPayload().remaining();
+        }
+    }
+
+    /**
+     * Returns the location of an entry.
+     *
+     * @param segment The segment number.
+     * @param position The position of the entry in the segment.
+     * @return The location of the entry.
+     */
+    private static long toLocation(long segment, long position) {
+        return (segment << 32) | position;
+    }
+
+    /**
+     * Encodes a batch of entries.
+     *
+     * @param entries The entries.
+     * @return A buffer, ready to be written, holding the encoded entries.
+     */
+    private static ByteBuffer encode(List<Entry> entries) {
+        int size = 0;
+
+        for (Entry entry : entries) {
+            size += HEADER_SIZE + entry.getPayload().remaining();
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        CRC32 crc = new CRC32();
+
+        for (Entry entry : entries) {
+            int start = buffer.position();
+            int length = entry.getPayload().remaining();
+            buffer.putInt(length);
+            buffer.putInt(0);
+            buffer.put(entry.getType());
+            buffer.put(entry.getTableId());
+            buffer.put(entry.getPayload());
+
+            crc.reset();
+            crc.update(buffer.array(), start + 8, length + 2);
+            buffer.putInt(start + 4, (int) crc.getValue());
+        }
+
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * An entry in the log.
+     */
+    public static class Entry {
+
+        /**
+         * The entry type.
+         */
+        private final byte type;
+
+        /**
+         * The identifier of the table to which the entry applies.
+         */
+        private final byte tableId;
+
+        /**
+         * The entry payload.
+         */
+        private final ByteBuffer payload;
+
+        /**
+         * The location of the entry, once written or replayed.
+         */
+        private volatile long location = -1;
+
+        /**
+         * Initializes a new instance of the Entry class.
+         *
+         * @param type The entry type.
+         * @param tableId The identifier of the table to which the entry
+         * applies.
+         * @param payload The entry payload.
+         */
+        public Entry(byte type, byte tableId, byte[] payload) {
+            this(type, tableId, ByteBuffer.wrap(payload));
+        }
+
+        /**
+         * Initializes a new instance of the Entry class.
+         *
+         * @param type The entry type.
+         * @param tableId The identifier of the table to which the entry
+         * applies.
+         * @param payload The entry payload, from its position to its limit.
+         */
+        public Entry(byte type, byte tableId, ByteBuffer payload) {
+            this.type = type;
+            this.tableId = tableId;
+            this.payload = payload;
+        }
+
+        /**
+         * Gets the entry type.
+         *
+         * @return The entry type.
+         */
+        public byte getType() {
+            return this.type;
+        }
+
+        /**
+         * Gets the identifier of the table to which the entry applies.
+         *
+         * @return The identifier of the table.
+         */
+        public byte getTableId() {
+            return this.tableId;
+        }
+
+        /**
+         * Gets the entry payload.
+         *
+         * @return A buffer holding the entry payload, from its position to its
+         * limit.
+         */
+        public ByteBuffer getPayload() {
+            return this.payload.duplicate();
+        }
+
+        /**
+         * Gets the location of the entry. The location identifies the segment
+         * and the position of the entry within the segment.
+         *
+         * @return The location of the entry, or -1 if the entry has not been
+         * written.
+         */
+        public long getLocation() {
+            return this.location;
+        }
+
+        /**
+         * Sets the location of the entry.
+         *
+         * @param value The location of the entry.
+         */
+        void setLocation(long value) {
+            this.location = value;
+        }
+    }
+}
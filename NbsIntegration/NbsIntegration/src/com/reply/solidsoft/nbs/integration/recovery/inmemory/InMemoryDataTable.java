@@ -9,18 +9,33 @@
  */
 package com.reply.solidsoft.nbs.integration.recovery.inmemory;
 
+import com.reply.solidsoft.nbs.integration.data.TimestampSequence;
 import com.reply.solidsoft.nbs.integration.data.TransactionManager;
 import com.reply.solidsoft.nbs.integration.properties.Resources;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.AbstractList;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import com.reply.solidsoft.nbs.integration.data.DataManagementService;
 import com.reply.solidsoft.nbs.integration.data.model.DataRecord;
 import com.reply.solidsoft.nbs.integration.data.model.TypedDataTable;
 
 /**
  * Implements a transactional file record store.
+ * <p>
+ * Records are indexed by timestamp in a concurrent sorted map, so records are
+ * added, found and removed in logarithmic time, and the current timestamp is
+ * read from the end of the index. The list returned by getRecords is a live
+ * view of the index, in timestamp order.
+ * <p>
+ * Many threads may add and remove records concurrently. Transactions are
+ * bound to the thread that performs them, so a commit or rollback only
+ * affects the transaction log entries written to this table by the current
+ * thread.
  *
  * @param <T> The data management service record type.
  */
@@ -32,9 +47,25 @@ public class InMemoryDataTable<T extends DataRecord> implements TypedDataTable<T
     private String tableName;
 
     /**
-     * The in-memory table.
+     * The in-memory table, indexed by record timestamp.
      */
-    private final List<T> inMemoryTable = new ArrayList<>();
+    private final ConcurrentSkipListMap<Long, T> inMemoryTable = new ConcurrentSkipListMap<>();
+
+    /**
+     * The number of records in the table. The size of a concurrent sorted map
+     * is not a constant-time operation, so it is counted separately.
+     */
+    private final AtomicInteger count = new AtomicInteger();
+
+    /**
+     * The sequence of timestamps written to the table.
+     */
+    private final TimestampSequence timestampSequence = new TimestampSequence();
+
+    /**
+     * A live list view of the in-memory table.
+     */
+    private final List<T> records = new RecordList();
 
     /**
      * Initializes a new instance of the LogDataTable{T} class.
@@ -104,19 +135,18 @@ public class InMemoryDataTable<T extends DataRecord> implements TypedDataTable<T
      */
     @Override
     public final long getCurrentTimestamp() {
-        try {
-            if (0 == inMemoryTable.size()) {
-                return 0;
-            }
-
-            if (1 == inMemoryTable.size()) {
-                return inMemoryTable.get(0).getTimeStamp();
-            }
+        Map.Entry<Long, T> lastEntry = this.inMemoryTable.lastEntry();
+        return lastEntry == null ? 0 : lastEntry.getKey();
+    }
 
-            return Collections.max(inMemoryTable, new InMemoryDataTableComparator()).getTimeStamp();
-        } catch (IllegalStateException e) {
-            return 0;
-        }
+    /**
+     * Gets the timestamp from which the timestamp of a new record is assigned.
+     *
+     * @return The highest timestamp written to the table, or 0.
+     */
+    @Override
+    public final long getSequenceTimestamp() {
+        return this.timestampSequence.getCurrent();
     }
 
     /**
@@ -151,17 +181,30 @@ public class InMemoryDataTable<T extends DataRecord> implements TypedDataTable<T
      */
     @Override
     public final int getCount() {
-        return this.inMemoryTable.size();
+        return this.count.get();
     }
 
     /**
-     * Gets the collection of records.
+     * Gets the collection of records. The collection is a live view of the
+     * table, in timestamp order. Records added through the view are not
+     * recorded in the transaction log.
      *
      * @return The collection of records.
      */
     @Override
     public List<T> getRecords() {
-        return this.inMemoryTable;
+        return this.records;
+    }
+
+    /**
+     * Gets the record with a given timestamp.
+     *
+     * @param timeStamp The timestamp of the record.
+     * @return The record, or null if the table contains no record with the
+     * timestamp.
+     */
+    public final T getRecord(long timeStamp) {
+        return this.inMemoryTable.get(timeStamp);
     }
 
     /**
@@ -171,7 +214,7 @@ public class InMemoryDataTable<T extends DataRecord> implements TypedDataTable<T
      * or 0.
      */
     private long getCurrentLogTimestamp() {
-        return this.getDataManagementService().getTransactionLog().getCurrentTimestamp();
+        return this.getDataManagementService().getTransactionLog().getSequenceTimestamp();
     }
 
     /**
@@ -190,7 +233,7 @@ public class InMemoryDataTable<T extends DataRecord> implements TypedDataTable<T
     @Override
     public final void clear() {
         // Delete all deferred requests from the data management service
-        this.inMemoryTable.clear();
+        this.inMemoryTable.keySet().forEach(this::doDelete);
     }
 
     /**
@@ -249,7 +292,9 @@ public class InMemoryDataTable<T extends DataRecord> implements TypedDataTable<T
     public final void rollback(TransactionManager context) {
         // Delete each of the uncommitted records.
         ((List<InMemoryTransactionLogEntry>) this.getDataManagementService().getTransactionLog().getRecords()).forEach((logEntry) -> {
-            this.doDelete(logEntry.getRequestTimeStamp());
+            if (this.isCurrentTransaction(logEntry)) {
+                this.doDelete(logEntry.getRequestTimeStamp());
+            }
         });
 
         // clear the transaction log.
@@ -296,11 +341,25 @@ public class InMemoryDataTable<T extends DataRecord> implements TypedDataTable<T
     }
 
     /**
-     * Clear all entries from the transaction log.
+     * Clear the entries for the current transaction from the transaction log.
      */
     private void clearLogTransaction() {
         // Get the deferred record log entries
-        this.getDataManagementService().getTransactionLog().clear();
+        ((List<InMemoryTransactionLogEntry>) this.getDataManagementService().getTransactionLog().getRecords())
+                .removeIf(this::isCurrentTransaction);
+    }
+
+    /**
+     * Returns a value indicating whether a transaction log entry was written
+     * to this table by the current thread.
+     *
+     * @param logEntry The transaction log entry.
+     * @return True, if the entry belongs to the current transaction; otherwise
+     * false.
+     */
+    private boolean isCurrentTransaction(InMemoryTransactionLogEntry logEntry) {
+        return logEntry.getThreadId() == Thread.currentThread().getId()
+                && this.tableName.equals(logEntry.getTableName());
     }
 
     /**
@@ -322,11 +381,8 @@ public class InMemoryDataTable<T extends DataRecord> implements TypedDataTable<T
      * @param requestTimeStamp The timestamp of the record to be deleted.
      */
     private void doDelete(long requestTimeStamp) {
-        T recordForDeletion = this.inMemoryTable.stream().filter(r -> r.getTimeStamp() == requestTimeStamp).findFirst().orElse(null);
-
-        if (recordForDeletion != null) {
-            // Delete the record
-            this.inMemoryTable.remove(recordForDeletion);
+        if (this.inMemoryTable.remove(requestTimeStamp) != null) {
+            this.count.decrementAndGet();
         }
     }
 
@@ -336,18 +392,31 @@ public class InMemoryDataTable<T extends DataRecord> implements TypedDataTable<T
      * @param record The record to be inserted.
      */
     private void doAdd(T record) {
-        // Check to see if the record has been inserted already
-        T recordAlreadyInserted = this.inMemoryTable.stream().filter(r -> record.getTimeStamp() == r.getTimeStamp()).findFirst().orElse(null);
-
-        if (recordAlreadyInserted != null) {
+        // Add the record, unless it has been inserted already.  The check and the
+        // insert are a single atomic operation, so concurrent adds cannot both succeed.
+        if (!this.doInsert(record)) {
             return;
         }
 
         // Log the transaction
         this.logTransaction(record);
+    }
+
+    /**
+     * Insert a record into the in-memory table, unless the table already
+     * contains a record with the same timestamp.
+     *
+     * @param record The record to be inserted.
+     * @return True, if the record was inserted; otherwise false.
+     */
+    private boolean doInsert(T record) {
+        if (this.inMemoryTable.putIfAbsent(record.getTimeStamp(), record) != null) {
+            return false;
+        }
 
-        // add the record
-        this.inMemoryTable.add(record);
+        this.count.incrementAndGet();
+        this.timestampSequence.advanceTo(record.getTimeStamp());
+        return true;
     }
 
     /**
@@ -362,6 +431,8 @@ public class InMemoryDataTable<T extends DataRecord> implements TypedDataTable<T
         // add the log entry
         InMemoryTransactionLogEntry tempVar = new InMemoryTransactionLogEntry(this.getCurrentLogTimestamp());
         tempVar.setRequestTimeStamp(request.getTimeStamp());
+        tempVar.setTableName(this.tableName);
+        tempVar.setThreadId(Thread.currentThread().getId());
         deferredRequestLogEntries.add(tempVar);
     }
 
@@ -375,7 +446,7 @@ public class InMemoryDataTable<T extends DataRecord> implements TypedDataTable<T
         List<InMemoryTransactionLogEntry> deferredRequestLogEntries = (List<InMemoryTransactionLogEntry>) this.getDataManagementService().getTransactionLog().getRecords();
 
         // remove the log entry
-        InMemoryTransactionLogEntry logEntry = deferredRequestLogEntries.stream().filter(entry -> entry.getRequestTimeStamp() == request.getTimeStamp()).findFirst().orElse(null);
+        InMemoryTransactionLogEntry logEntry = deferredRequestLogEntries.stream().filter(entry -> entry.getRequestTimeStamp() == request.getTimeStamp() && this.tableName.equals(entry.getTableName())).findFirst().orElse(null);
 
         if (logEntry == null) {
             return;
@@ -384,6 +455,145 @@ public class InMemoryDataTable<T extends DataRecord> implements TypedDataTable<T
         deferredRequestLogEntries.remove(logEntry);
     }
 
+    /**
+     * A live list view of the in-memory table, in timestamp order. Records are
+     * added and removed by timestamp. Positional access is supported, but is
+     * not a constant-time operation.
+     */
+    private class RecordList extends AbstractList<T> {
+
+        /**
+         * Gets the record at a given position.
+         *
+         * @param index The position of the record.
+         * @return The record.
+         */
+        @Override
+        public T get(int index) {
+            if (index < 0) {
+                throw new IndexOutOfBoundsException(Integer.toString(index));
+            }
+
+            int position = 0;
+
+            for (T record : InMemoryDataTable.this.inMemoryTable.values()) {
+                if (position++ == index) {
+                    return record;
+                }
+            }
+
+            throw new IndexOutOfBoundsException(Integer.toString(index));
+        }
+
+        /**
+         * Gets the number of records.
+         *
+         * @return The number of records.
+         */
+        @Override
+        public int size() {
+            return InMemoryDataTable.this.count.get();
+        }
+
+        /**
+         * Adds a record, unless a record with the same timestamp exists.
+         *
+         * @param record The record.
+         * @return True, if the record was added; otherwise false.
+         */
+        @Override
+        public boolean add(T record) {
+            return InMemoryDataTable.this.doInsert(record);
+        }
+
+        /**
+         * Returns a value indicating whether the view contains a record.
+         *
+         * @param record The record.
+         * @return True, if the view contains the record; otherwise false.
+         */
+        @Override
+        public boolean contains(Object record) {
+            return record instanceof DataRecord
+                    && record.equals(InMemoryDataTable.this.inMemoryTable.get(((DataRecord) record).getTimeStamp()));
+        }
+
+        /**
+         * Removes a record.
+         *
+         * @param record The record.
+         * @return True, if the record was removed; otherwise false.
+         */
+        @Override
+        public boolean remove(Object record) {
+            if (record instanceof DataRecord
+                    && InMemoryDataTable.this.inMemoryTable.remove(((DataRecord) record).getTimeStamp(), record)) {
+                InMemoryDataTable.this.count.decrementAndGet();
+                return true;
+            }
+
+            return false;
+        }
+
+        /**
+         * Removes all records.
+         */
+        @Override
+        public void clear() {
+            InMemoryDataTable.this.inMemoryTable.keySet().forEach(InMemoryDataTable.this::doDelete);
+        }
+
+        /**
+         * Returns an iterator over the records, in timestamp order.
+         *
+         * @return An iterator over the records.
+         */
+        @Override
+        public Iterator<T> iterator() {
+            Iterator<Map.Entry<Long, T>> entries = InMemoryDataTable.this.inMemoryTable.entrySet().iterator();
+
+            return new Iterator<T>() {
+
+                /**
+                 * The timestamp of the last record returned.
+                 */
+                private Long lastKey;
+
+                @Override
+                public boolean hasNext() {
+                    return entries.hasNext();
+                }
+
+                @Override
+                public T next() {
+                    Map.Entry<Long, T> entry = entries.next();
+                    this.lastKey = entry.getKey();
+                    return entry.getValue();
+                }
+
+                @Override
+                public void remove() {
+                    if (this.lastKey == null) {
+                        throw new IllegalStateException();
+                    }
+
+                    InMemoryDataTable.this.doDelete(this.lastKey);
+                    this.lastKey = null;
+                }
+            };
+        }
+
+        /**
+         * Returns a spliterator over the records, in timestamp order.
+         *
+         * @return A spliterator over the records.
+         */
+        @Override
+        public Spliterator<T> spliterator() {
+            return InMemoryDataTable.this.inMemoryTable.values().spliterator();
+        }
+    }
+
     /**
      * Comparator for data tables using the time stamp.
      *
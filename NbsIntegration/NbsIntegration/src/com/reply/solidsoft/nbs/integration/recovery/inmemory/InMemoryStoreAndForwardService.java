@@ -63,11 +63,14 @@ public class InMemoryStoreAndForwardService extends BaseStoreAndForwardService {
             return;
         }
 
+        InMemoryRequests requestTable = (InMemoryRequests) this.getRequests();
+
         requests.forEach((deferredRequest) -> {
-            this.getRequests().getRecords()
-                    .stream()
-                    .filter(dr -> ((DeferredRequest) dr).getTimeStamp() == deferredRequest.getTimeStamp())
-                    .forEach(dr -> ((DeferredRequest) dr).setAcknowledged(true));
+            DeferredRequest storedRequest = requestTable.getRecord(deferredRequest.getTimeStamp());
+
+            if (storedRequest != null) {
+                storedRequest.setAcknowledged(true);
+            }
         });
     }
 
@@ -9,6 +9,7 @@
  */
 package com.reply.solidsoft.nbs.integration.recovery.inmemory;
 
+import com.reply.solidsoft.nbs.integration.data.TimestampSequence;
 import com.reply.solidsoft.nbs.integration.data.model.DataRecord;
 
 /**
@@ -17,14 +18,14 @@ import com.reply.solidsoft.nbs.integration.data.model.DataRecord;
 public class InMemoryTransactionLogEntry implements DataRecord {
 
     /**
-     * Lock object for atomic reads and writes to the timestamp.
+     * The sequence from which timestamps are assigned.
      */
-    private static final Object TIMESTAMP_LOCK = new Object();
+    private static final TimestampSequence TIMESTAMP_SEQUENCE = new TimestampSequence();
 
     /**
-     * Timestamp counter;
+     * Timestamp value.
      */
-    private static long timeStamp;
+    private final long timeStamp;
 
     /**
      * Initializes a new instance of the InMemoryTransactionLogEntry class.
@@ -39,17 +40,7 @@ public class InMemoryTransactionLogEntry implements DataRecord {
      * @param currentTimeStamp The current time stamp. Defaults to 0.
      */
     public InMemoryTransactionLogEntry(long currentTimeStamp) {
-        synchronized (TIMESTAMP_LOCK) {
-            if (timeStamp == Long.MAX_VALUE) {
-                timeStamp = 0;
-            }
-
-            if (currentTimeStamp > timeStamp) {
-                timeStamp = currentTimeStamp;
-            }
-
-            timeStamp++;
-        }
+        this.timeStamp = TIMESTAMP_SEQUENCE.next(currentTimeStamp);
     }
 
     /**
@@ -59,9 +50,7 @@ public class InMemoryTransactionLogEntry implements DataRecord {
      */
     @Override
     public final long getTimeStamp() {
-        synchronized (TIMESTAMP_LOCK) {
-            return timeStamp;
-        }
+        return this.timeStamp;
     }
 
     /**
@@ -86,4 +75,52 @@ public class InMemoryTransactionLogEntry implements DataRecord {
     public final void setRequestTimeStamp(long value) {
         requestTimeStamp = value;
     }
+
+    /**
+     * The name of the table to which the deferred request was written.
+     */
+    private String tableName;
+
+    /**
+     * Gets the name of the table to which the deferred request was written.
+     *
+     * @return The name of the table to which the deferred request was written.
+     */
+    public final String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * Sets the name of the table to which the deferred request was written.
+     *
+     * @param value The name of the table to which the deferred request was
+     * written.
+     */
+    public final void setTableName(String value) {
+        tableName = value;
+    }
+
+    /**
+     * The identifier of the thread that wrote the deferred request.
+     */
+    private long threadId;
+
+    /**
+     * Gets the identifier of the thread that wrote the deferred request.
+     *
+     * @return The identifier of the thread that wrote the deferred request.
+     */
+    public final long getThreadId() {
+        return threadId;
+    }
+
+    /**
+     * Sets the identifier of the thread that wrote the deferred request.
+     *
+     * @param value The identifier of the thread that wrote the deferred
+     * request.
+     */
+    public final void setThreadId(long value) {
+        threadId = value;
+    }
 }
@@ -10,6 +10,7 @@
  */
 package com.reply.solidsoft.nbs.integration.recovery.model;
 
+import com.reply.solidsoft.nbs.integration.data.TimestampSequence;
 import com.reply.solidsoft.nbs.integration.data.model.DataRecord;
 
 /**
@@ -19,19 +20,14 @@ import com.reply.solidsoft.nbs.integration.data.model.DataRecord;
 public class DeferredRequest implements DataRecord {
 
     /**
-     * Lock object for atomic reads and writes to the timestamp.
+     * The sequence from which timestamps are assigned.
      */
-    private static final Object TIMESTAMP_LOCK = new Object();
-
-    /**
-     * Timestamp counter.
-     */
-    private static long latestTimeStamp;
+    private static final TimestampSequence TIMESTAMP_SEQUENCE = new TimestampSequence();
 
     /**
      * Timestamp value.
      */
-    private long timeStamp;
+    private volatile long timeStamp;
 
     /**
      * Initializes a new instance of the DeferredRequest class.
@@ -52,7 +48,7 @@ public class DeferredRequest implements DataRecord {
      * A value indicating whether the deferred request has been received and
      * acknowledged by the national system.
      */
-    private boolean acknowledged;
+    private volatile boolean acknowledged;
 
     /**
      * Gets a value indicating whether the deferred request has been received
@@ -177,9 +173,7 @@ public class DeferredRequest implements DataRecord {
      */
     @Override
     public final long getTimeStamp() {
-        synchronized (TIMESTAMP_LOCK) {
-            return this.timeStamp;
-        }
+        return this.timeStamp;
     }
 
     /**
@@ -188,9 +182,7 @@ public class DeferredRequest implements DataRecord {
      * @param value The timestamp value for this deferred record.
      */
     public final void setTimeStamp(long value) {
-        synchronized (TIMESTAMP_LOCK) {
-            this.timeStamp = value;
-        }
+        this.timeStamp = value;
     }
 
     /**
@@ -245,17 +237,6 @@ public class DeferredRequest implements DataRecord {
      * @param currentTimeStamp The current time stamp.
      */
     private void initialize(long currentTimeStamp) {
-        synchronized (TIMESTAMP_LOCK) {
-            if (latestTimeStamp == Long.MAX_VALUE) {
-                latestTimeStamp = 0;
-            }
-
-            if (currentTimeStamp > latestTimeStamp) {
-                latestTimeStamp = currentTimeStamp;
-            }
-
-            latestTimeStamp++;
-            this.setTimeStamp(latestTimeStamp);
-        }
+        this.setTimeStamp(TIMESTAMP_SEQUENCE.next(currentTimeStamp));
     }
 }
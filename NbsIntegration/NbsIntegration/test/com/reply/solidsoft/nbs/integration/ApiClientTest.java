@@ -0,0 +1,331 @@
+/**
+ * -----------------------------------------------------------------------------
+ * File=ApiClientTest.java
+ * Company=Solidsoft Reply
+ * Copyright © 2017 Solidsoft Reply Ltd.
+ *
+ * Tests for the coalescing of single pack requests by the API client.
+ * -----------------------------------------------------------------------------
+ */
+package com.reply.solidsoft.nbs.integration;
+
+import com.reply.solidsoft.nbs.integration.configuration.Configuration;
+import com.reply.solidsoft.nbs.integration.data.model.DataTable;
+import com.reply.solidsoft.nbs.integration.extensions.functional.Logger;
+import com.reply.solidsoft.nbs.integration.logging.InMemoryLoggingService;
+import com.reply.solidsoft.nbs.integration.logging.LoggingService;
+import com.reply.solidsoft.nbs.integration.logging.model.LogEntry;
+import com.reply.solidsoft.nbs.integration.model.PackIdentifier;
+import com.reply.solidsoft.nbs.integration.model.responses.SinglePackResult;
+import com.reply.solidsoft.nbs.integration.recovery.file.FileStoreAndForwardService;
+import com.reply.solidsoft.nbs.integration.recovery.model.StoreAndForwardMode;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the coalescing of single pack requests by the API client. The
+ * client is not started, so each request completes without contacting the
+ * National System. The first request is held in flight by blocking when it
+ * is logged, which happens before the request completes.
+ */
+public class ApiClientTest {
+
+    /**
+     * The time in seconds to wait for a request.
+     */
+    private static final long TIMEOUT = 10;
+
+    /**
+     * The directory in which deferred requests are stored.
+     */
+    private Path directory;
+
+    /**
+     * The logging service, which holds the first request in flight.
+     */
+    private BlockingLoggingService loggingService;
+
+    /**
+     * The API client.
+     */
+    private ApiClient client;
+
+    /**
+     * Creates an API client that detects repeated requests.
+     *
+     * @throws IOException The store and forward directory could not be
+     * created.
+     */
+    @Before
+    public void setUp() throws IOException {
+        Configuration configuration = new Configuration();
+        configuration.setStoreAndForwardMode(StoreAndForwardMode.NONE);
+        configuration.setDetectRepeatedSinglePackRequests(true);
+        configuration.setRepeatedSinglePackRequestsWindowInSeconds(60);
+
+        this.directory = Files.createTempDirectory("apiClient");
+        this.loggingService = new BlockingLoggingService();
+        this.client = new ApiClient(
+                null,
+                configuration,
+                new FileStoreAndForwardService(this.directory.toString(), false),
+                this.loggingService,
+                false);
+    }
+
+    /**
+     * Closes the API client and deletes the store and forward directory.
+     *
+     * @throws IOException The client could not be closed, or the directory
+     * could not be deleted.
+     */
+    @After
+    public void tearDown() throws IOException {
+        this.loggingService.release();
+        this.client.close();
+
+        try (Stream<Path> paths = Files.walk(this.directory)) {
+            for (Path path : paths.sorted(Collections.reverseOrder()).collect(Collectors.toList())) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * An identical verify request made while a verify request is in flight
+     * shares its result.
+     *
+     * @throws Exception The test failed.
+     */
+    @Test(timeout = 60000)
+    public void identicalRequestsInFlightAreCoalesced() throws Exception {
+        CompletableFuture<SinglePackResult> first = this.startBlocked(() -> this.client.verify(newPack()));
+        CompletableFuture<SinglePackResult> second = CompletableFuture.supplyAsync(() -> this.client.verify(newPack()));
+
+        // The second request waits for the first.
+        assertFalse(isCompletedWithin(second, 1));
+
+        this.loggingService.release();
+        assertTrue(first.get(TIMEOUT, TimeUnit.SECONDS) == second.get(TIMEOUT, TimeUnit.SECONDS));
+        assertEquals(1, this.loggingService.getLogEntries().size());
+    }
+
+    /**
+     * A decommission request with an unknown command has no requested pack
+     * state, like a verify request. It must not share a verify request that
+     * is in flight for the same pack, or one caller would receive the result
+     * of the other request.
+     *
+     * @throws Exception The test failed.
+     */
+    @Test(timeout = 60000)
+    public void requestsOfDifferentTypesAreNotCoalesced() throws Exception {
+        CompletableFuture<SinglePackResult> verify = this.startBlocked(() -> this.client.verify(newPack()));
+        CompletableFuture<SinglePackResult> decommission = CompletableFuture.supplyAsync(
+                () -> this.client.decommission(newPack(), "UNKNOWN"));
+
+        // The decommission request completes, whatever its outcome, while the verify request is in flight.
+        assertTrue(isCompletedWithin(decommission, TIMEOUT));
+        assertFalse(verify.isDone());
+
+        this.loggingService.release();
+        SinglePackResult verifyResult = verify.get(TIMEOUT, TimeUnit.SECONDS);
+        assertNotNull(verifyResult);
+        assertTrue(decommission.isCompletedExceptionally() || decommission.get() != verifyResult);
+    }
+
+    /**
+     * Starts a request on another thread and waits until it is held in
+     * flight by the logging service.
+     *
+     * @param request The request.
+     * @return The future result of the request.
+     * @throws InterruptedException The test was interrupted.
+     */
+    private CompletableFuture<SinglePackResult> startBlocked(Supplier<SinglePackResult> request) throws InterruptedException {
+        CompletableFuture<SinglePackResult> result = CompletableFuture.supplyAsync(request);
+        assertTrue(this.loggingService.awaitBlocked());
+        return result;
+    }
+
+    /**
+     * Waits for a future to complete, normally or exceptionally.
+     *
+     * @param future The future.
+     * @param seconds The time to wait in seconds.
+     * @return True, if the future completed; otherwise false.
+     * @throws InterruptedException The test was interrupted.
+     */
+    private static boolean isCompletedWithin(CompletableFuture<?> future, long seconds) throws InterruptedException {
+        try {
+            future.get(seconds, TimeUnit.SECONDS);
+        } catch (TimeoutException ex) {
+            return false;
+        } catch (java.util.concurrent.ExecutionException ex) {
+            // ignore;
+        }
+
+        return true;
+    }
+
+    /**
+     * Creates a valid pack identifier.
+     *
+     * @return The pack identifier.
+     */
+    private static PackIdentifier newPack() {
+        PackIdentifier pack = new PackIdentifier();
+        pack.setProductCodeScheme("GTIN");
+        pack.setProductCode("09876543210982");
+        pack.setSerialNumber("ABC123");
+        pack.setBatchId("B1");
+        pack.setExpiryDate("251231");
+        return pack;
+    }
+
+    /**
+     * A logging service that blocks the first entry logged until it is
+     * released. Its tables are those of the in-memory logging service.
+     */
+    private static final class BlockingLoggingService implements LoggingService {
+
+        /**
+         * The in-memory logging service that provides the tables.
+         */
+        private final InMemoryLoggingService tables = new InMemoryLoggingService();
+
+        /**
+         * The entries logged.
+         */
+        private final List<LogEntry> logEntries = new CopyOnWriteArrayList<>();
+
+        /**
+         * Counted down when the first entry is being logged.
+         */
+        private final CountDownLatch blocked = new CountDownLatch(1);
+
+        /**
+         * Counted down to let the first entry be logged.
+         */
+        private final CountDownLatch released = new CountDownLatch(1);
+
+        /**
+         * Waits until the first entry is being logged.
+         *
+         * @return True, if the first entry is being logged; otherwise false.
+         * @throws InterruptedException The test was interrupted.
+         */
+        private boolean awaitBlocked() throws InterruptedException {
+            return this.blocked.await(TIMEOUT, TimeUnit.SECONDS);
+        }
+
+        /**
+         * Lets the first entry be logged.
+         */
+        private void release() {
+            this.released.countDown();
+        }
+
+        /**
+         * Gets an empty string.
+         *
+         * @return An empty string.
+         */
+        @Override
+        public String getCurrentUser() {
+            return "";
+        }
+
+        /**
+         * Gets an action that records each log entry, blocking the first
+         * until it is released.
+         *
+         * @return An action that handles logging.
+         */
+        @Override
+        public Logger<Object, LogEntry> getLog() {
+            return (sender, logEntry) -> {
+                if (this.blocked.getCount() > 0) {
+                    this.blocked.countDown();
+
+                    try {
+                        this.released.await(TIMEOUT, TimeUnit.SECONDS);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+
+                this.logEntries.add(logEntry);
+            };
+        }
+
+        /**
+         * Gets the entries logged.
+         *
+         * @return The entries logged.
+         */
+        @Override
+        public List<LogEntry> getLogEntries() {
+            return this.logEntries;
+        }
+
+        /**
+         * Gets the name of the service.
+         *
+         * @return The name of the service.
+         */
+        @Override
+        public String getName() {
+            return this.tables.getName();
+        }
+
+        /**
+         * Gets the tables of the in-memory logging service.
+         *
+         * @return The tables.
+         */
+        @Override
+        public Map<String, DataTable> getTables() {
+            return this.tables.getTables();
+        }
+
+        /**
+         * Gets the transaction log of the in-memory logging service.
+         *
+         * @return The transaction log.
+         */
+        @Override
+        public DataTable getTransactionLog() {
+            return this.tables.getTransactionLog();
+        }
+
+        /**
+         * Closes the in-memory logging service.
+         *
+         * @throws IOException The service could not be closed.
+         */
+        @Override
+        public void close() throws IOException {
+            this.tables.close();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * -----------------------------------------------------------------------------
+ * File=VerifyResultCacheTest.java
+ * Company=Solidsoft Reply
+ * Copyright © 2017 Solidsoft Reply Ltd.
+ *
+ * Tests for the invalidation of cached verify results.
+ * -----------------------------------------------------------------------------
+ */
+package com.reply.solidsoft.nbs.integration;
+
+import com.reply.solidsoft.nbs.integration.model.HttpStatusCode;
+import com.reply.solidsoft.nbs.integration.model.PackIdentifier;
+import com.reply.solidsoft.nbs.integration.model.RecentRequestKey;
+import com.reply.solidsoft.nbs.integration.model.responses.SinglePackResult;
+import org.junit.After;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests for the invalidation of cached verify results.
+ */
+public class VerifyResultCacheTest {
+
+    /**
+     * The cache key of the pack.
+     */
+    private final RecentRequestKey packKey = new RecentRequestKey(newPack(), null, null, null);
+
+    /**
+     * The verify result cache.
+     */
+    private final VerifyResultCache cache = new VerifyResultCache(60);
+
+    /**
+     * Closes the verify result cache.
+     */
+    @After
+    public void tearDown() {
+        this.cache.close();
+    }
+
+    /**
+     * A successful verify result is returned in the language in which it was
+     * fetched.
+     */
+    @Test
+    public void successfulResultIsCached() {
+        SinglePackResult result = newResult(HttpStatusCode.SC_OK);
+        this.cache.record(this.packKey, "en", this.cache.getInvalidations(), result);
+
+        assertTrue(this.cache.get(this.packKey, "en") == result);
+        assertNull(this.cache.get(this.packKey, "de"));
+    }
+
+    /**
+     * A verify result that is not successful is not cached.
+     */
+    @Test
+    public void unsuccessfulResultIsNotCached() {
+        this.cache.record(this.packKey, "en", this.cache.getInvalidations(), newResult(HttpStatusCode.SC_CONFLICT));
+
+        assertNull(this.cache.get(this.packKey, "en"));
+    }
+
+    /**
+     * A successful state change discards the cached verify result.
+     */
+    @Test
+    public void successfulStateChangeDiscardsResult() {
+        this.cache.record(this.packKey, "en", this.cache.getInvalidations(), newResult(HttpStatusCode.SC_OK));
+        this.cache.invalidate(this.packKey, newResult(HttpStatusCode.SC_OK));
+
+        assertNull(this.cache.get(this.packKey, "en"));
+    }
+
+    /**
+     * A failed state change leaves the cached verify result in place.
+     */
+    @Test
+    public void failedStateChangeKeepsResult() {
+        SinglePackResult result = newResult(HttpStatusCode.SC_OK);
+        this.cache.record(this.packKey, "en", this.cache.getInvalidations(), result);
+        this.cache.invalidate(this.packKey, newResult(HttpStatusCode.SC_CONFLICT));
+
+        assertTrue(this.cache.get(this.packKey, "en") == result);
+    }
+
+    /**
+     * A verify result fetched before a state change completed is not cached
+     * when it arrives after the state change.
+     */
+    @Test
+    public void resultOfRequestOverlappingStateChangeIsNotCached() {
+        long invalidations = this.cache.getInvalidations();
+        this.cache.invalidate(this.packKey, newResult(HttpStatusCode.SC_OK));
+        this.cache.record(this.packKey, "en", invalidations, newResult(HttpStatusCode.SC_OK));
+
+        assertNull(this.cache.get(this.packKey, "en"));
+    }
+
+    /**
+     * Creates a verify result.
+     *
+     * @param statusCode The HTTP status code.
+     * @return The verify result.
+     */
+    private static SinglePackResult newResult(int statusCode) {
+        return new SinglePackResult("", "Active", "", "", "", statusCode);
+    }
+
+    /**
+     * Creates a pack identifier.
+     *
+     * @return The pack identifier.
+     */
+    private static PackIdentifier newPack() {
+        PackIdentifier pack = new PackIdentifier();
+        pack.setProductCodeScheme("GS1");
+        pack.setProductCode("09876543210982");
+        pack.setSerialNumber("ABC123");
+        pack.setBatchId("B1");
+        pack.setExpiryDate("251231");
+        return pack;
+    }
+}
@@ -0,0 +1,152 @@
+/**
+ * -----------------------------------------------------------------------------
+ * File=CircuitBreakerTest.java
+ * Company=Solidsoft Reply
+ * Copyright © 2017 Solidsoft Reply Ltd.
+ *
+ * Tests for the circuit breaker.
+ * -----------------------------------------------------------------------------
+ */
+package com.reply.solidsoft.nbs.integration.connection;
+
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests for the circuit breaker. Circuits open after two failures out of a
+ * window of four calls.
+ */
+public class CircuitBreakerTest {
+
+    /**
+     * The duration in milliseconds above which a call is slow.
+     */
+    private static final long SLOW_CALL_DURATION = 1000L;
+
+    /**
+     * The state changes of the circuit.
+     */
+    private final List<CircuitBreakerState> stateChanges = new ArrayList<>();
+
+    /**
+     * A call admitted before the circuit opened cannot close it again.
+     */
+    @Test
+    public void outcomeOfEarlierGenerationIsDropped() {
+        CircuitBreaker circuitBreaker = this.newCircuitBreaker(60000L);
+        long stalePermission = circuitBreaker.tryAcquirePermission();
+
+        open(circuitBreaker);
+        circuitBreaker.onSuccess(stalePermission, 0);
+
+        assertEquals(CircuitBreakerState.OPEN, circuitBreaker.getState());
+        assertEquals(CircuitBreaker.NO_PERMISSION, circuitBreaker.tryAcquirePermission());
+    }
+
+    /**
+     * Once the wait period has elapsed, a single probe is admitted, and a
+     * timely response to the probe closes the circuit.
+     */
+    @Test
+    public void halfOpenCircuitAdmitsSingleProbe() {
+        CircuitBreaker circuitBreaker = this.newCircuitBreaker(0L);
+        open(circuitBreaker);
+
+        long probe = circuitBreaker.tryAcquirePermission();
+
+        assertTrue(probe != CircuitBreaker.NO_PERMISSION);
+        assertEquals(CircuitBreakerState.HALF_OPEN, circuitBreaker.getState());
+        assertEquals(CircuitBreaker.NO_PERMISSION, circuitBreaker.tryAcquirePermission());
+
+        circuitBreaker.onSuccess(probe, 0);
+
+        assertEquals(CircuitBreakerState.CLOSED, circuitBreaker.getState());
+        assertEquals(3, this.stateChanges.size());
+        assertEquals(CircuitBreakerState.CLOSED, this.stateChanges.get(2));
+    }
+
+    /**
+     * A failed probe opens the circuit again.
+     */
+    @Test
+    public void failedProbeOpensCircuit() {
+        CircuitBreaker circuitBreaker = this.newCircuitBreaker(0L);
+        open(circuitBreaker);
+
+        circuitBreaker.onFailure(circuitBreaker.tryAcquirePermission(), 0);
+
+        assertEquals(CircuitBreakerState.OPEN, circuitBreaker.getState());
+    }
+
+    /**
+     * A slow response to the probe leaves the circuit half-open, and admits
+     * another probe.
+     */
+    @Test
+    public void slowProbeLeavesCircuitHalfOpen() {
+        CircuitBreaker circuitBreaker = this.newCircuitBreaker(0L);
+        open(circuitBreaker);
+
+        circuitBreaker.onSuccess(circuitBreaker.tryAcquirePermission(), SLOW_CALL_DURATION + 1);
+
+        assertEquals(CircuitBreakerState.HALF_OPEN, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquirePermission() != CircuitBreaker.NO_PERMISSION);
+    }
+
+    /**
+     * Releasing a permission without an outcome only admits another probe if
+     * the permission is that of the probe in flight, and a released probe
+     * can no longer change the state of the circuit.
+     */
+    @Test
+    public void ignoredOutcomeOnlyReleasesProbe() {
+        CircuitBreaker circuitBreaker = this.newCircuitBreaker(0L);
+        long stalePermission = circuitBreaker.tryAcquirePermission();
+        open(circuitBreaker);
+        long probe = circuitBreaker.tryAcquirePermission();
+
+        circuitBreaker.onIgnored(stalePermission);
+        assertEquals(CircuitBreaker.NO_PERMISSION, circuitBreaker.tryAcquirePermission());
+
+        circuitBreaker.onIgnored(probe);
+        long nextProbe = circuitBreaker.tryAcquirePermission();
+        assertTrue(nextProbe != CircuitBreaker.NO_PERMISSION && nextProbe != probe);
+
+        circuitBreaker.onSuccess(probe, 0);
+        assertEquals(CircuitBreakerState.HALF_OPEN, circuitBreaker.getState());
+
+        circuitBreaker.onSuccess(nextProbe, 0);
+        assertEquals(CircuitBreakerState.CLOSED, circuitBreaker.getState());
+    }
+
+    /**
+     * Creates a circuit breaker that records its state changes.
+     *
+     * @param waitDurationInOpenState The time in milliseconds that the
+     * circuit stays open.
+     * @return The circuit breaker.
+     */
+    private CircuitBreaker newCircuitBreaker(long waitDurationInOpenState) {
+        return new CircuitBreaker(
+                50,
+                100,
+                SLOW_CALL_DURATION,
+                4,
+                waitDurationInOpenState,
+                (previousState, newState) -> this.stateChanges.add(newState));
+    }
+
+    /**
+     * Opens a closed circuit by recording failed calls.
+     *
+     * @param circuitBreaker The circuit breaker.
+     */
+    private static void open(CircuitBreaker circuitBreaker) {
+        circuitBreaker.onFailure(circuitBreaker.tryAcquirePermission(), 0);
+        circuitBreaker.onFailure(circuitBreaker.tryAcquirePermission(), 0);
+        assertEquals(CircuitBreakerState.OPEN, circuitBreaker.getState());
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * -----------------------------------------------------------------------------
+ * File=RetrySchedulerTest.java
+ * Company=Solidsoft Reply
+ * Copyright © 2017 Solidsoft Reply Ltd.
+ *
+ * Tests for the calculation of retry delays.
+ * -----------------------------------------------------------------------------
+ */
+package com.reply.solidsoft.nbs.integration.extensions;
+
+import java.util.Date;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.message.BasicHttpResponse;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests for the calculation of retry delays.
+ */
+public class RetrySchedulerTest {
+
+    /**
+     * The backoff doubles with each attempt, up to the maximum delay.
+     */
+    @Test
+    public void delayIsBoundedByBackoffCeiling() {
+        long deadline = RetryScheduler.getDeadline(0);
+
+        for (int index = 0; index < 1000; index++) {
+            long delay = RetryScheduler.getDelay(3, 100, 1000, null, deadline);
+            assertTrue(delay >= 0 && delay <= 400);
+
+            delay = RetryScheduler.getDelay(20, 100, 1000, null, deadline);
+            assertTrue(delay >= 0 && delay <= 1000);
+        }
+    }
+
+    /**
+     * A request with no timeout budget has no deadline.
+     */
+    @Test
+    public void noTimeoutMeansNoDeadline() {
+        assertEquals(Long.MAX_VALUE, RetryScheduler.getDeadline(0));
+        assertTrue(RetryScheduler.getDelay(1, 0, 0, newResponse("3600"), RetryScheduler.getDeadline(0)) >= 3600000);
+    }
+
+    /**
+     * A delay requested by the server in seconds is honoured.
+     */
+    @Test
+    public void retryAfterSecondsIsHonoured() {
+        assertEquals(5000, RetryScheduler.getRetryAfter(newResponse("5")));
+        assertTrue(RetryScheduler.getDelay(1, 100, 1000, newResponse(" 5 "), RetryScheduler.getDeadline(60000)) >= 5000);
+    }
+
+    /**
+     * A delay requested by the server as an HTTP date is honoured.
+     */
+    @Test
+    public void retryAfterDateIsHonoured() {
+        String date = DateUtils.formatDate(new Date(System.currentTimeMillis() + 10000));
+        long retryAfter = RetryScheduler.getRetryAfter(newResponse(date));
+
+        // HTTP dates have a resolution of one second.
+        assertTrue(retryAfter > 8000 && retryAfter <= 10000);
+    }
+
+    /**
+     * A missing, malformed, negative or past Retry-After header requests no
+     * delay.
+     */
+    @Test
+    public void invalidRetryAfterIsIgnored() {
+        assertEquals(0, RetryScheduler.getRetryAfter(null));
+        assertEquals(0, RetryScheduler.getRetryAfter(new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_SERVICE_UNAVAILABLE, "")));
+        assertEquals(0, RetryScheduler.getRetryAfter(newResponse("soon")));
+        assertEquals(0, RetryScheduler.getRetryAfter(newResponse("-5")));
+        assertEquals(0, RetryScheduler.getRetryAfter(newResponse(DateUtils.formatDate(new Date(System.currentTimeMillis() - 60000)))));
+    }
+
+    /**
+     * A retry that would exceed the deadline is refused, even if the server
+     * asked for the delay.
+     */
+    @Test
+    public void retryBeyondDeadlineIsRefused() {
+        assertEquals(-1, RetryScheduler.getDelay(1, 100, 1000, newResponse("5"), RetryScheduler.getDeadline(1000)));
+    }
+
+    /**
+     * Creates a Service Unavailable response with a Retry-After header.
+     *
+     * @param retryAfter The value of the Retry-After header.
+     * @return The response.
+     */
+    private static HttpResponse newResponse(String retryAfter) {
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_SERVICE_UNAVAILABLE, "Service Unavailable");
+        response.addHeader("Retry-After", retryAfter);
+        return response;
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * -----------------------------------------------------------------------------
+ * File=ApiResultTypeAdapterTest.java
+ * Company=Solidsoft Reply
+ * Copyright © 2017 Solidsoft Reply Ltd.
+ *
+ * Tests for the streaming of bulk results.
+ * -----------------------------------------------------------------------------
+ */
+package com.reply.solidsoft.nbs.integration.extensions.serialization;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.reply.solidsoft.nbs.integration.model.responses.ApiResult;
+import com.reply.solidsoft.nbs.integration.model.responses.BulkSinglePackResponse;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ * Tests for the streaming of bulk results.
+ */
+public class ApiResultTypeAdapterTest {
+
+    /**
+     * Each pack of a bulk result is passed to the handler, and the packs of
+     * the result are empty.
+     *
+     * @throws IOException The result could not be read.
+     */
+    @Test
+    public void packsAreStreamedToHandler() throws IOException {
+        List<BulkSinglePackResponse> packs = new ArrayList<>();
+        ApiResult result = read("{\"state\":\"Completed\",\"packs\":[{},{}]}", packs);
+
+        assertEquals(2, packs.size());
+        assertEquals(0, result.getPacks().length);
+    }
+
+    /**
+     * A body that is not a JSON object is reported as a syntax error, as it
+     * is by Gson.fromJson, rather than as an unchecked reader error.
+     *
+     * @throws IOException The result could not be read.
+     */
+    @Test
+    public void bodyThatIsNotAnObjectIsSyntaxError() throws IOException {
+        try {
+            read("[1, 2]", new ArrayList<>());
+            fail("Expected a syntax error");
+        } catch (JsonSyntaxException ex) {
+            // ignore;
+        }
+    }
+
+    /**
+     * A pack array that is not an array is reported as a syntax error.
+     *
+     * @throws IOException The result could not be read.
+     */
+    @Test
+    public void packsThatAreNotAnArrayAreSyntaxError() throws IOException {
+        try {
+            read("{\"packs\":\"none\"}", new ArrayList<>());
+            fail("Expected a syntax error");
+        } catch (JsonSyntaxException ex) {
+            // ignore;
+        }
+    }
+
+    /**
+     * Packs read before the stream fails have already been passed to the
+     * handler when the failure is reported.
+     */
+    @Test
+    public void truncatedStreamFailsAfterStreamingPacks() {
+        List<BulkSinglePackResponse> packs = new ArrayList<>();
+
+        try {
+            read("{\"packs\":[{},{},", packs);
+            fail("Expected the stream to fail");
+        } catch (IOException | JsonSyntaxException ex) {
+            // ignore;
+        }
+
+        assertEquals(2, packs.size());
+    }
+
+    /**
+     * Reads an API result, streaming its packs to a list.
+     *
+     * @param json The JSON body.
+     * @param packs Receives the packs.
+     * @return The API result.
+     * @throws IOException The result could not be read.
+     */
+    private static ApiResult read(String json, List<BulkSinglePackResponse> packs) throws IOException {
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            return new ApiResultTypeAdapter(GsonProvider.getGson()).read(reader, packs::add);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ * -----------------------------------------------------------------------------
+ * File=PackIdentifierVerificationTest.java
+ * Company=Solidsoft Reply
+ * Copyright © 2017 Solidsoft Reply Ltd.
+ *
+ * Tests for the caching of failed pack identifier validations.
+ * -----------------------------------------------------------------------------
+ */
+package com.reply.solidsoft.nbs.integration.model.extensions;
+
+import com.reply.solidsoft.nbs.integration.model.DataEntryMode;
+import com.reply.solidsoft.nbs.integration.model.PackIdentifier;
+import com.reply.solidsoft.nbs.integration.model.responses.LocalValidationResponse;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ * Tests for the caching of failed pack identifier validations.
+ */
+public class PackIdentifierVerificationTest {
+
+    /**
+     * A rescan of a pack that failed validation is served from the cache, and
+     * is normalised in the same way as the first scan.
+     */
+    @Test
+    public void cachedFailureNormalisesPackIdentifier() {
+        long cachedFailures = PackIdentifierVerification.getCachedFailureCount();
+
+        PackIdentifier firstScan = newPack();
+        LocalValidationResponse firstResponse = PackIdentifierVerification.validate(firstScan, DataEntryMode.NON_MANUAL);
+
+        PackIdentifier rescan = newPack();
+        LocalValidationResponse rescanResponse = PackIdentifierVerification.validate(rescan, DataEntryMode.NON_MANUAL);
+
+        assertEquals(61020011, firstResponse.getOperationCode());
+        assertEquals(firstResponse.getOperationCode(), rescanResponse.getOperationCode());
+        assertEquals(cachedFailures + 1, PackIdentifierVerification.getCachedFailureCount());
+        assertEquals("09876543210982", firstScan.getProductCode());
+        assertEquals(firstScan.getProductCode(), rescan.getProductCode());
+        assertEquals(firstScan.getSerialNumber(), rescan.getSerialNumber());
+    }
+
+    /**
+     * Creates a GS1 pack identifier with a short, padded product code and a
+     * serial number that is not valid.
+     *
+     * @return The pack identifier.
+     */
+    private static PackIdentifier newPack() {
+        PackIdentifier pack = new PackIdentifier();
+        pack.setProductCodeScheme("GS1");
+        pack.setProductCode(" 9876543210982 ");
+        pack.setSerialNumber(" ABC~123 ");
+        pack.setBatchId("B1");
+        pack.setExpiryDate("251231");
+        return pack;
+    }
+}
@@ -0,0 +1,382 @@
+/**
+ * -----------------------------------------------------------------------------
+ * File=FileStoreAndForwardServiceTest.java
+ * Company=Solidsoft Reply
+ * Copyright © 2017 Solidsoft Reply Ltd.
+ *
+ * Tests for the durability of the file-based store and forward service.
+ * -----------------------------------------------------------------------------
+ */
+package com.reply.solidsoft.nbs.integration.recovery.file;
+
+import com.reply.solidsoft.nbs.integration.data.TransactionManager;
+import com.reply.solidsoft.nbs.integration.model.responses.RecoverySinglePackResponse;
+import com.reply.solidsoft.nbs.integration.recovery.model.DeferredRequest;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the durability of the file-based store and forward service.
+ */
+public class FileStoreAndForwardServiceTest {
+
+    /**
+     * A segment size small enough for the log to be sealed and compacted
+     * several times by each test.
+     */
+    private static final long SMALL_SEGMENT_SIZE = 4096;
+
+    /**
+     * The directory in which the log is stored.
+     */
+    private Path directory;
+
+    /**
+     * Creates the log directory.
+     *
+     * @throws IOException The directory could not be created.
+     */
+    @Before
+    public void setUp() throws IOException {
+        this.directory = Files.createTempDirectory("storeAndForward");
+    }
+
+    /**
+     * Deletes the log directory.
+     *
+     * @throws IOException The directory could not be deleted.
+     */
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(this.directory)) {
+            for (Path path : paths.sorted(Collections.reverseOrder()).collect(Collectors.toList())) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * Committed requests, responses, removals and acknowledgements are
+     * replayed when the service is created again, after the log has been
+     * sealed and compacted.
+     *
+     * @throws IOException A transaction could not be closed.
+     */
+    @Test
+    public void committedChangesAreReplayedAfterRestart() throws IOException {
+        this.committedChangesAreReplayedAfterRestart(false);
+    }
+
+    /**
+     * Committed requests, responses, removals and acknowledgements are
+     * replayed when a memory-mapped service is created again, after the log
+     * has been sealed and compacted.
+     *
+     * @throws IOException A transaction could not be closed.
+     */
+    @Test
+    public void committedChangesAreReplayedAfterRestartWhenMemoryMapped() throws IOException {
+        this.committedChangesAreReplayedAfterRestart(true);
+    }
+
+    /**
+     * A torn entry at the end of the log is discarded when the service is
+     * created again, and later commits are appended after the last valid
+     * entry.
+     *
+     * @throws IOException The log could not be written.
+     */
+    @Test
+    public void tornTailIsDiscarded() throws IOException {
+        this.tornTailIsDiscarded(false);
+    }
+
+    /**
+     * A torn entry at the end of a memory-mapped log is discarded when the
+     * service is created again, and later commits are appended after the last
+     * valid entry.
+     *
+     * @throws IOException The log could not be written.
+     */
+    @Test
+    public void tornTailIsDiscardedWhenMemoryMapped() throws IOException {
+        this.tornTailIsDiscarded(true);
+    }
+
+    /**
+     * A request added, but not yet committed, by one thread is not visible to
+     * another thread, which therefore cannot forward or remove a request that
+     * is later rolled back. The request becomes visible when it is committed.
+     *
+     * @throws Exception The test failed.
+     */
+    @Test
+    public void uncommittedRequestsAreHiddenFromOtherThreads() throws Exception {
+        FileStoreAndForwardService service = this.openService(false);
+
+        try {
+            FileRequests requests = (FileRequests) service.getRequests();
+            DeferredRequest committed = addRequest(requests, 0);
+            DeferredRequest pending = new DeferredRequest(requests.getSequenceTimestamp());
+
+            try (TransactionManager transaction = TransactionManager.newTransaction(requests)) {
+                requests.add(pending);
+                assertEquals(2, requests.getCount());
+                assertEquals(2, requests.getRecords().size());
+
+                CompletableFuture.runAsync(() -> {
+                    assertEquals(1, requests.getCount());
+                    assertNull(requests.getRecord(pending.getTimeStamp()));
+                    assertFalse(requests.getRecords().contains(pending));
+                    assertFalse(requests.getRecords().remove(pending));
+
+                    List<Long> timeStamps = new ArrayList<>();
+                    requests.getRecords().forEach(request -> timeStamps.add(request.getTimeStamp()));
+                    assertEquals(Collections.singletonList(committed.getTimeStamp()), timeStamps);
+                }).get();
+
+                assertTrue(transaction.commit());
+            }
+
+            CompletableFuture.runAsync(() -> {
+                assertEquals(2, requests.getCount());
+                assertNotNull(requests.getRecord(pending.getTimeStamp()));
+            }).get();
+        } finally {
+            service.close();
+        }
+    }
+
+    /**
+     * Checks that committed changes are replayed after a restart.
+     *
+     * @param memoryMapped A value indicating whether the service is
+     * memory-mapped.
+     * @throws IOException A transaction could not be closed.
+     */
+    private void committedChangesAreReplayedAfterRestart(boolean memoryMapped) throws IOException {
+        Map<Long, DeferredRequest> expectedRequests = new TreeMap<>();
+        Map<Long, String> expectedResponses = new TreeMap<>();
+        FileStoreAndForwardService service = this.openService(memoryMapped);
+
+        try {
+            FileRequests requests = (FileRequests) service.getRequests();
+            FileResponses responses = (FileResponses) service.getResponses();
+
+            for (int index = 0; index < 300; index++) {
+                DeferredRequest request = addRequest(requests, index);
+                expectedRequests.put(request.getTimeStamp(), request);
+            }
+
+            for (int index = 0; index < 100; index++) {
+                RecoverySinglePackResponse response = new RecoverySinglePackResponse();
+                response.setTimeStamp(responses.getSequenceTimestamp() + 1);
+                response.setMessage("response " + index);
+
+                try (TransactionManager transaction = TransactionManager.newTransaction(responses)) {
+                    responses.add(response);
+                    assertTrue(transaction.commit());
+                }
+
+                expectedResponses.put(response.getTimeStamp(), response.getMessage());
+            }
+
+            // A rolled back request is not replayed.
+            DeferredRequest rolledBack = new DeferredRequest(requests.getSequenceTimestamp());
+
+            try (TransactionManager transaction = TransactionManager.newTransaction(requests)) {
+                requests.add(rolledBack);
+                transaction.rollback();
+            }
+
+            List<DeferredRequest> removed = new ArrayList<>();
+            List<DeferredRequest> acknowledged = new ArrayList<>();
+            int position = 0;
+
+            for (DeferredRequest request : expectedRequests.values()) {
+                if (position % 5 == 0) {
+                    removed.add(request);
+                } else if (position % 3 == 0) {
+                    acknowledged.add(request);
+                }
+
+                position++;
+            }
+
+            try (TransactionManager transaction = TransactionManager.newTransaction(requests)) {
+                removed.forEach(requests::remove);
+                assertTrue(transaction.commit());
+            }
+
+            removed.forEach(request -> expectedRequests.remove(request.getTimeStamp()));
+            service.acknowledgeRequest(acknowledged);
+            acknowledged.forEach(request -> request.setAcknowledged(true));
+        } finally {
+            service.close();
+        }
+
+        // The log has been compacted.
+        assertTrue(listSegments(this.directory).size() < 4);
+
+        service = this.openService(memoryMapped);
+
+        try {
+            FileRequests requests = (FileRequests) service.getRequests();
+            FileResponses responses = (FileResponses) service.getResponses();
+
+            assertEquals(expectedRequests.size(), requests.getCount());
+            assertEquals(expectedResponses.size(), responses.getCount());
+
+            for (DeferredRequest request : requests.getRecords()) {
+                DeferredRequest expected = expectedRequests.get(request.getTimeStamp());
+                assertEquals(expected.getUri(), request.getUri());
+                assertEquals(expected.getAcknowledged(), request.getAcknowledged());
+            }
+
+            for (RecoverySinglePackResponse response : responses.getRecords()) {
+                assertEquals(expectedResponses.get(response.getTimeStamp()), response.getMessage());
+            }
+        } finally {
+            service.close();
+        }
+    }
+
+    /**
+     * Checks that a torn entry at the end of the log is discarded.
+     *
+     * @param memoryMapped A value indicating whether the service is
+     * memory-mapped.
+     * @throws IOException The log could not be written.
+     */
+    private void tornTailIsDiscarded(boolean memoryMapped) throws IOException {
+        FileStoreAndForwardService service = new FileStoreAndForwardService(this.directory.toString(), memoryMapped);
+
+        try {
+            FileRequests requests = (FileRequests) service.getRequests();
+
+            for (int index = 0; index < 50; index++) {
+                addRequest(requests, index);
+            }
+        } finally {
+            service.close();
+        }
+
+        // Simulate a write interrupted by a crash: a header claiming more bytes than were written.
+        List<Path> segments = listSegments(this.directory);
+        Path lastSegment = segments.get(segments.size() - 1);
+        long validSize = Files.size(lastSegment);
+
+        try (FileChannel channel = FileChannel.open(lastSegment, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer tornEntry = ByteBuffer.allocate(24);
+            tornEntry.putInt(200);
+            tornEntry.putInt(0x12345678);
+            tornEntry.put(WriteAheadLog.ADD_RECORD);
+            tornEntry.put(FileRequests.TABLE_ID);
+            tornEntry.rewind();
+            channel.write(tornEntry);
+        }
+
+        service = new FileStoreAndForwardService(this.directory.toString(), memoryMapped);
+
+        try {
+            FileRequests requests = (FileRequests) service.getRequests();
+            assertEquals(50, requests.getCount());
+
+            if (!memoryMapped) {
+                assertEquals(validSize, Files.size(lastSegment));
+            }
+
+            for (int index = 50; index < 60; index++) {
+                addRequest(requests, index);
+            }
+        } finally {
+            service.close();
+        }
+
+        service = new FileStoreAndForwardService(this.directory.toString(), memoryMapped);
+
+        try {
+            FileRequests requests = (FileRequests) service.getRequests();
+            assertEquals(60, requests.getCount());
+
+            int index = 0;
+
+            for (DeferredRequest request : requests.getRecords()) {
+                assertEquals("/packs/" + index++, request.getUri());
+            }
+        } finally {
+            service.close();
+        }
+    }
+
+    /**
+     * Creates a service with small segments.
+     *
+     * @param memoryMapped A value indicating whether the service is
+     * memory-mapped.
+     * @return The service.
+     */
+    private FileStoreAndForwardService openService(boolean memoryMapped) {
+        return new FileStoreAndForwardService(this.directory.toString(), SMALL_SEGMENT_SIZE, memoryMapped);
+    }
+
+    /**
+     * Defers a request in its own transaction.
+     *
+     * @param requests The request table.
+     * @param index The index of the request, used in its URI.
+     * @return The deferred request.
+     * @throws IOException The transaction could not be closed.
+     */
+    private static DeferredRequest addRequest(FileRequests requests, int index) throws IOException {
+        DeferredRequest request = new DeferredRequest(requests.getSequenceTimestamp());
+        request.setUri("/packs/" + index);
+        request.setVerb("PATCH");
+
+        try (TransactionManager transaction = TransactionManager.newTransaction(requests)) {
+            requests.add(request);
+            assertTrue(transaction.commit());
+        }
+
+        return request;
+    }
+
+    /**
+     * Returns the segment files in a log directory, in order.
+     *
+     * @param directory The log directory.
+     * @return The segment files.
+     * @throws IOException The directory could not be read.
+     */
+    static List<Path> listSegments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory, "segment-*.wal")) {
+            paths.forEach(segments::add);
+        }
+
+        Collections.sort(segments);
+        return segments;
+    }
+}
@@ -0,0 +1,196 @@
+/**
+ * -----------------------------------------------------------------------------
+ * File=WriteAheadLogTest.java
+ * Company=Solidsoft Reply
+ * Copyright © 2017 Solidsoft Reply Ltd.
+ *
+ * Tests for the recovery of the write-ahead log after a crash.
+ * -----------------------------------------------------------------------------
+ */
+package com.reply.solidsoft.nbs.integration.recovery.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the recovery of the write-ahead log after a crash. Each entry
+ * payload holds a key. The live keys are those added and not removed since
+ * the last checkpoint.
+ */
+public class WriteAheadLogTest {
+
+    /**
+     * The size at which segments are sealed. Every batch fills a segment.
+     */
+    private static final long SEGMENT_SIZE = 16;
+
+    /**
+     * The number of sealed segments at which the log is compacted.
+     */
+    private static final int COMPACTION_THRESHOLD = 3;
+
+    /**
+     * The directory in which the log is stored.
+     */
+    private Path directory;
+
+    /**
+     * Creates the log directory.
+     *
+     * @throws IOException The directory could not be created.
+     */
+    @Before
+    public void setUp() throws IOException {
+        this.directory = Files.createTempDirectory("writeAheadLog");
+    }
+
+    /**
+     * Deletes the log directory.
+     *
+     * @throws IOException The directory could not be deleted.
+     */
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(this.directory)) {
+            for (Path path : paths.sorted(Collections.reverseOrder()).collect(Collectors.toList())) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * A crash after a checkpoint has been renamed into place, but before the
+     * sealed segments have been deleted, leaves the old segments in front of
+     * the checkpoint. The checkpoint supersedes them when the log is
+     * replayed, so removed keys are not resurrected.
+     *
+     * @throws IOException The log could not be written.
+     */
+    @Test
+    public void checkpointSupersedesSegmentsLeftByCrash() throws IOException {
+        Set<Long> liveKeys = new TreeSet<>();
+        Map<Path, byte[]> sealedSegments = new HashMap<>();
+        WriteAheadLog log = new WriteAheadLog(this.directory, SEGMENT_SIZE, COMPACTION_THRESHOLD, false);
+        log.open(entry -> {
+        });
+
+        try {
+            for (long key = 1; key <= COMPACTION_THRESHOLD; key++) {
+                // Each key is added, and the previous key removed, in its own segment.
+                List<WriteAheadLog.Entry> entries = new ArrayList<>();
+                entries.add(newEntry(WriteAheadLog.ADD_RECORD, key));
+                liveKeys.add(key);
+
+                if (key > 1) {
+                    entries.add(newEntry(WriteAheadLog.REMOVE, key - 1));
+                    liveKeys.remove(key - 1);
+                }
+
+                log.sync(log.append(entries, null));
+
+                // Keep the content of the segments that are about to be compacted.
+                for (Path segment : FileStoreAndForwardServiceTest.listSegments(this.directory)) {
+                    sealedSegments.put(segment, Files.readAllBytes(segment));
+                }
+
+                log.rotate(() -> liveKeys.stream()
+                        .map(liveKey -> newEntry(WriteAheadLog.ADD_RECORD, liveKey))
+                        .collect(Collectors.toList()));
+            }
+
+            assertEquals(1, log.getSegmentCount());
+        } finally {
+            log.close();
+        }
+
+        // Restore the deleted segments, as if the process had crashed before deleting them.
+        for (Map.Entry<Path, byte[]> segment : sealedSegments.entrySet()) {
+            if (!Files.exists(segment.getKey())) {
+                Files.write(segment.getKey(), segment.getValue());
+            }
+        }
+
+        assertEquals(COMPACTION_THRESHOLD + 1, FileStoreAndForwardServiceTest.listSegments(this.directory).size());
+        assertEquals(liveKeys, this.replay());
+    }
+
+    /**
+     * A checkpoint that was not completed before a crash is discarded, and
+     * the sealed segments are replayed instead.
+     *
+     * @throws IOException The log could not be written.
+     */
+    @Test
+    public void incompleteCheckpointIsDiscarded() throws IOException {
+        WriteAheadLog log = new WriteAheadLog(this.directory, Long.MAX_VALUE, COMPACTION_THRESHOLD, false);
+        log.open(entry -> {
+        });
+
+        try {
+            log.sync(log.append(Collections.singletonList(newEntry(WriteAheadLog.ADD_RECORD, 1)), null));
+        } finally {
+            log.close();
+        }
+
+        Path temporaryCheckpoint = this.directory.resolve(String.format("segment-%1$020d.wal.tmp", 2));
+        Files.write(temporaryCheckpoint, new byte[]{0, 0, 0, 0, 1, 2, 3, 4, WriteAheadLog.CHECKPOINT, 0});
+
+        assertEquals(Collections.singleton(1L), this.replay());
+        assertFalse(Files.exists(temporaryCheckpoint));
+    }
+
+    /**
+     * Opens the log and returns the live keys.
+     *
+     * @return The live keys.
+     * @throws IOException The log could not be opened.
+     */
+    private Set<Long> replay() throws IOException {
+        Set<Long> keys = new TreeSet<>();
+        WriteAheadLog log = new WriteAheadLog(this.directory, SEGMENT_SIZE, COMPACTION_THRESHOLD, false);
+
+        log.open(entry -> {
+            switch (entry.getType()) {
+                case WriteAheadLog.ADD_RECORD:
+                    keys.add(entry.getPayload().getLong());
+                    break;
+                case WriteAheadLog.REMOVE:
+                    keys.remove(entry.getPayload().getLong());
+                    break;
+                case WriteAheadLog.CHECKPOINT:
+                    keys.clear();
+                    break;
+            }
+        });
+
+        log.close();
+        return keys;
+    }
+
+    /**
+     * Creates an entry whose payload holds a key.
+     *
+     * @param type The entry type.
+     * @param key The key.
+     * @return The entry.
+     */
+    private static WriteAheadLog.Entry newEntry(byte type, long key) {
+        return new WriteAheadLog.Entry(type, (byte) 1, ByteBuffer.allocate(8).putLong(0, key));
+    }
+}
@@ -0,0 +1,166 @@
+/**
+ * -----------------------------------------------------------------------------
+ * File=InMemoryDataTableTest.java
+ * Company=Solidsoft Reply
+ * Copyright © 2017 Solidsoft Reply Ltd.
+ *
+ * Tests for the in-memory store and forward tables.
+ * -----------------------------------------------------------------------------
+ */
+package com.reply.solidsoft.nbs.integration.recovery.inmemory;
+
+import com.reply.solidsoft.nbs.integration.data.TransactionManager;
+import com.reply.solidsoft.nbs.integration.recovery.model.DeferredRequest;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests for the in-memory store and forward tables.
+ */
+public class InMemoryDataTableTest {
+
+    /**
+     * The number of threads that defer requests.
+     */
+    private static final int PRODUCERS = 8;
+
+    /**
+     * The number of requests deferred by each producer.
+     */
+    private static final int REQUESTS_PER_PRODUCER = 20000;
+
+    /**
+     * The interval at which a producer rolls back its transaction instead of
+     * committing it.
+     */
+    private static final int ROLLBACK_INTERVAL = 10;
+
+    /**
+     * The maximum number of requests removed in each drain transaction.
+     */
+    private static final int DRAIN_BATCH_SIZE = 100;
+
+    /**
+     * Defers requests on several threads, rolling some of them back, while
+     * another thread drains the table. Every committed request must be
+     * drained exactly once and the transaction log must end empty. Records
+     * are visible before they are committed, so the drain may also remove a
+     * request that is later rolled back, but nothing else.
+     *
+     * @throws InterruptedException The test was interrupted.
+     */
+    @Test(timeout = 120000)
+    public void concurrentTransactionsLoseNoRequests() throws InterruptedException {
+        InMemoryStoreAndForwardService service = new InMemoryStoreAndForwardService();
+        InMemoryRequests requests = (InMemoryRequests) service.getRequests();
+        Set<Long> committed = ConcurrentHashMap.newKeySet();
+        Set<Long> rolledBack = ConcurrentHashMap.newKeySet();
+        Set<Long> drained = ConcurrentHashMap.newKeySet();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch producersDone = new CountDownLatch(PRODUCERS);
+        List<Thread> threads = new ArrayList<>();
+
+        for (int producer = 0; producer < PRODUCERS; producer++) {
+            threads.add(new Thread(() -> {
+                try {
+                    for (int index = 0; index < REQUESTS_PER_PRODUCER; index++) {
+                        DeferredRequest request = new DeferredRequest(requests.getSequenceTimestamp());
+                        request.setUri("/packs/" + index);
+
+                        try (TransactionManager transaction = TransactionManager.newTransaction(requests)) {
+                            requests.add(request);
+
+                            if (index % ROLLBACK_INTERVAL == 0) {
+                                transaction.rollback();
+                                rolledBack.add(request.getTimeStamp());
+                            } else {
+                                assertTrue(transaction.commit());
+                                committed.add(request.getTimeStamp());
+                            }
+                        }
+                    }
+                } catch (Throwable ex) {
+                    failure.compareAndSet(null, ex);
+                } finally {
+                    producersDone.countDown();
+                }
+            }));
+        }
+
+        threads.add(new Thread(() -> {
+            try {
+                boolean isFinalPass = false;
+
+                while (true) {
+                    // The producers may commit while a pass is running, so the table
+                    // is drained once more after they have all finished.
+                    boolean isLastPass = isFinalPass;
+                    isFinalPass = producersDone.getCount() == 0;
+
+                    if (!this.drainBatch(requests, drained) && isLastPass) {
+                        return;
+                    }
+                }
+            } catch (Throwable ex) {
+                failure.compareAndSet(null, ex);
+            }
+        }));
+
+        threads.forEach(Thread::start);
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertNull(failure.get());
+        assertEquals(PRODUCERS * REQUESTS_PER_PRODUCER / ROLLBACK_INTERVAL, rolledBack.size());
+        assertEquals(PRODUCERS * REQUESTS_PER_PRODUCER - rolledBack.size(), committed.size());
+        assertTrue(drained.containsAll(committed));
+        drained.removeAll(committed);
+        assertTrue(rolledBack.containsAll(drained));
+        assertEquals(0, requests.getCount());
+        assertEquals(0, service.getTransactionLog().getRecords().size());
+    }
+
+    /**
+     * Removes a batch of requests from the table in a single transaction.
+     *
+     * @param requests The request table.
+     * @param drained The timestamps of the requests drained so far.
+     * @return True, if any requests were removed; otherwise false.
+     * @throws IOException The transaction could not be closed.
+     */
+    private boolean drainBatch(InMemoryRequests requests, Set<Long> drained) throws IOException {
+        List<DeferredRequest> batch = new ArrayList<>();
+        Iterator<DeferredRequest> records = requests.getRecords().iterator();
+
+        while (records.hasNext() && batch.size() < DRAIN_BATCH_SIZE) {
+            batch.add(records.next());
+        }
+
+        if (batch.isEmpty()) {
+            return false;
+        }
+
+        try (TransactionManager transaction = TransactionManager.newTransaction(requests)) {
+            batch.forEach(requests::remove);
+            assertTrue(transaction.commit());
+        }
+
+        for (DeferredRequest request : batch) {
+            assertTrue("Request drained twice", drained.add(request.getTimeStamp()));
+        }
+
+        return true;
+    }
+}
@@ -13,6 +13,7 @@ import com.reply.solidsoft.nbs.integration.sample.dataservice.model.RequestTrans
 import iBoxDB.LocalServer.Box;
 import iBoxDB.LocalServer.CommitResult;
 import com.reply.solidsoft.nbs.integration.extensions.StringExtensions;
+import com.reply.solidsoft.nbs.integration.data.TimestampSequence;
 import com.reply.solidsoft.nbs.integration.data.TransactionException;
 import com.reply.solidsoft.nbs.integration.data.TransactionManager;
 import com.reply.solidsoft.nbs.integration.sample.dataservice.properties.Resources;
@@ -35,6 +36,12 @@ public class BaseDataTable<T extends DataRecord> implements TypedDataTable<T>, T
      */
     private final Class<T> tClass;
 
+    /**
+     * The sequence of timestamps written to the table, seeded from the
+     * database on first use.
+     */
+    private final TimestampSequence timestampSequence = new TimestampSequence();
+
     /**
      * Initializes a new instance of the DataTable{T} class.
      *
@@ -98,6 +105,17 @@ public class BaseDataTable<T extends DataRecord> implements TypedDataTable<T>, T
         }
     }
 
+    /**
+     * Gets the timestamp from which the timestamp of a new record is assigned.
+     * The database is only queried the first time this is called.
+     *
+     * @return The highest timestamp written to the store, or 0.
+     */
+    @Override
+    public final long getSequenceTimestamp() {
+        return this.timestampSequence.getCurrent(this::getCurrentTimestamp);
+    }
+
     /**
      * The name of the table.
      */
@@ -470,6 +488,8 @@ public class BaseDataTable<T extends DataRecord> implements TypedDataTable<T>, T
                 if (commit != CommitResult.OK) {
                     throw new TransactionException(String.format("Failed to commit insert to data table %1$s. %2$s", this.getName(), commit));
                 }
+
+                this.timestampSequence.advanceTo(request.getTimeStamp());
             }
         }
     }
@@ -13,6 +13,7 @@ import iBoxDB.LocalServer.Box;
 import iBoxDB.LocalServer.CommitResult;
 import iBoxDB.LocalServer.DatabaseConfig.Config;
 import iBoxDB.LocalServer.DB;
+import com.reply.solidsoft.nbs.integration.data.TimestampSequence;
 import com.reply.solidsoft.nbs.integration.data.TransactionException;
 import com.reply.solidsoft.nbs.integration.data.TransactionManager;
 import com.reply.solidsoft.nbs.integration.extensions.StringExtensions;
@@ -40,6 +41,12 @@ public class LogDataTable implements NbsIntegrationLogDataTable {
      */
     private String tableName;
 
+    /**
+     * The sequence of timestamps written to the table, seeded from the
+     * database on first use.
+     */
+    private final TimestampSequence timestampSequence = new TimestampSequence();
+
     /**
      * Initializes a new instance of the LogDataTable class.
      *
@@ -99,6 +106,17 @@ public class LogDataTable implements NbsIntegrationLogDataTable {
         }
     }
 
+    /**
+     * Gets the timestamp from which the timestamp of a new log entry is
+     * assigned. The database is only queried the first time this is called.
+     *
+     * @return The highest timestamp written to the service, or 0.
+     */
+    @Override
+    public final long getSequenceTimestamp() {
+        return this.timestampSequence.getCurrent(this::getCurrentTimestamp);
+    }
+
     /**
      * The name of the table.
      */
@@ -398,6 +416,8 @@ public class LogDataTable implements NbsIntegrationLogDataTable {
                 if (commit != CommitResult.OK) {
                     throw new TransactionException(String.format("Failed to insert log entry %1$s into the log. %2$s", logEntry.getTimeStamp(), commit));
                 }
+
+                this.timestampSequence.advanceTo(logEntry.getTimeStamp());
             }
         }
     }